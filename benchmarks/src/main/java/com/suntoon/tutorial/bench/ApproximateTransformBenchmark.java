@@ -0,0 +1,127 @@
+package com.suntoon.tutorial.bench;
+
+import com.suntoon.tutorial.crs.ApproximateTransform;
+import com.suntoon.tutorial.crs.PackedGeometryTransformer;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opengis.referencing.operation.MathTransform;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName ApproximateTransformBenchmark
+ * @Description 近似转换与精确JTS.transform的速度对比，数据是一个省级范围内的随机多边形，WGS84转UTM 50N；
+ *              setup阶段会打印近似结果相对精确结果的最大误差和平均误差（米）以及网格数量
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:32
+ * @Version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApproximateTransformBenchmark {
+    @Param({"0.01", "0.1", "1.0"})
+    public double maxError;
+
+    @Param({"1000"})
+    public int verticesPerGeometry;
+
+    private static final int GEOMETRIES = 1000;
+
+    private Geometry[] data;
+    private MathTransform exact;
+    private PackedGeometryTransformer exactPacked;
+    private PackedGeometryTransformer approximatePacked;
+
+    @Setup
+    public void setup() throws Exception {
+        exact = CRS.findMathTransform(DefaultGeographicCRS.WGS84, CRS.decode("EPSG:32650"), true);
+
+        GeometryFactory factory = new GeometryFactory();
+        Random random = new Random(42);
+        Envelope bounds = new Envelope();
+        data = new Geometry[GEOMETRIES];
+        for (int i = 0; i < GEOMETRIES; i++) {
+            double cx = 114 + random.nextDouble() * 6;
+            double cy = 24 + random.nextDouble() * 6;
+            Coordinate[] ring = new Coordinate[verticesPerGeometry + 1];
+            for (int j = 0; j < verticesPerGeometry; j++) {
+                double angle = 2 * Math.PI * j / verticesPerGeometry;
+                double r = 0.05 + random.nextDouble() * 0.01;
+                ring[j] = new Coordinate(cx + r * Math.cos(angle), cy + r * Math.sin(angle));
+            }
+            ring[verticesPerGeometry] = ring[0];
+            data[i] = factory.createPolygon(ring);
+            bounds.expandToInclude(data[i].getEnvelopeInternal());
+        }
+
+        ApproximateTransform approximate = ApproximateTransform.create(exact, bounds, maxError);
+        exactPacked = new PackedGeometryTransformer(exact);
+        approximatePacked = new PackedGeometryTransformer(approximate);
+        reportError(approximate);
+    }
+
+    private void reportError(ApproximateTransform approximate) throws Exception {
+        double max = 0;
+        double sum = 0;
+        long n = 0;
+        for (Geometry geometry : data) {
+            Coordinate[] expected = exactPacked.transform(geometry).getCoordinates();
+            Coordinate[] actual = approximatePacked.transform(geometry).getCoordinates();
+            for (int i = 0; i < expected.length; i++) {
+                double d = expected[i].distance(actual[i]);
+                max = Math.max(max, d);
+                sum += d;
+                n++;
+            }
+        }
+        System.out.println(String.format("%nmaxError=%s: cells=%d, measured max error=%.6fm, mean error=%.6fm",
+                maxError, approximate.getCellCount(), max, sum / n));
+    }
+
+    /**
+     * 与CRSLab导出循环相同的精确转换
+     */
+    @Benchmark
+    public void exactJts(Blackhole blackhole) throws Exception {
+        for (Geometry geometry : data) {
+            blackhole.consume(JTS.transform(geometry, exact));
+        }
+    }
+
+    @Benchmark
+    public void exactPacked(Blackhole blackhole) throws Exception {
+        for (Geometry geometry : data) {
+            blackhole.consume(exactPacked.transform(geometry));
+        }
+    }
+
+    @Benchmark
+    public void approximatePacked(Blackhole blackhole) throws Exception {
+        for (Geometry geometry : data) {
+            blackhole.consume(approximatePacked.transform(geometry));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.suntoon.tutorial.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName BenchmarkMain
+ * @Description benchmarks.jar的入口：在JMH命令行参数前加上 -rf json -rff jmh-result.json，
+ *              结果默认以JSON保存，便于在不同版本之间比较；命令行中已经指定了-rf或-rff时以命令行为准
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:49
+ * @Version 1.0
+ */
+public final class BenchmarkMain {
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        //生成数据、导出时都不需要显示器
+        System.setProperty("java.awt.headless", "true");
+
+        List<String> arguments = new ArrayList<>();
+        List<String> given = Arrays.asList(args);
+        if (!given.contains("-rf")) {
+            arguments.add("-rf");
+            arguments.add("json");
+        }
+        if (!given.contains("-rff")) {
+            arguments.add("-rff");
+            arguments.add(DEFAULT_RESULT_FILE);
+        }
+        arguments.addAll(given);
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,103 @@
+package com.suntoon.tutorial.bench;
+
+import com.suntoon.tutorial.postgis.CursorScanner;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKBWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CursorScanBenchmark
+ * @Description CursorScanner的整表扫描：用嵌入式HSQLDB（gt-epsg-hsql已经带了）代替PostgreSQL，几何以WKB存为二进制列，
+ *              测量预编译语句 + WKB解析的每秒行数，比较不同的fetchSize。
+ *              真实PostgreSQL上的服务器端游标效果用 PostgisAccess 的命令行测量
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:53
+ * @Version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CursorScanBenchmark {
+    @Param({"100000", "1000000", "3000000"})
+    public int rows;
+
+    @Param({"100", "10000"})
+    public int fetchSize;
+
+    private Connection connection;
+    private CursorScanner scanner;
+    private String sql;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        connection = DriverManager.getConnection("jdbc:hsqldb:mem:scan" + rows + ";shutdown=true", "SA", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE \"points\" (\"id\" INTEGER, \"name\" VARCHAR(32), \"geom\" VARBINARY(64))");
+        }
+        GeometryFactory factory = new GeometryFactory();
+        WKBWriter writer = new WKBWriter();
+        Random random = new Random(42);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO \"points\" (\"id\", \"name\", \"geom\") VALUES (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, "city" + (i % 1000));
+                insert.setBytes(3, writer.write(factory.createPoint(
+                        new Coordinate(random.nextDouble() * 360 - 180, random.nextDouble() * 180 - 90))));
+                insert.addBatch();
+                if ((i + 1) % 10000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        scanner = new CursorScanner(fetchSize, CursorScanner.RAW_GEOMETRY);
+        sql = scanner.selectSql("\"points\"", "geom", new String[]{"id", "name"}, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public long scan(final Blackhole blackhole) throws Exception {
+        return scanner.scan(connection, sql, null, (geometry, row) -> {
+            blackhole.consume(geometry);
+            blackhole.consume(row.getInt(2));
+            blackhole.consume(row.getString(3));
+        });
+    }
+}
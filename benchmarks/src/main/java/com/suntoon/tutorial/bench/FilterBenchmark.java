@@ -0,0 +1,117 @@
+package com.suntoon.tutorial.bench;
+
+import com.suntoon.tutorial.filter.CompiledFilter;
+import com.suntoon.tutorial.filter.FilterCompiler;
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.text.cql2.CQL;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName FilterBenchmark
+ * @Description 点在多边形内的过滤：直接计算CQL解析出的Filter，与先用prefilter筛选、再用PreparedGeometry计算residual的对比；
+ *              另外比较每次解析CQL和从FilterCompiler缓存中取的开销
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:38
+ * @Version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+    @Param({"100", "1000"})
+    public int polygonVertices;
+
+    private static final int FEATURES = 10000;
+
+    private SimpleFeatureType type;
+    private SimpleFeature[] features;
+    private String cql;
+    private Filter filter;
+    private CompiledFilter compiled;
+
+    @Setup
+    public void setup() throws Exception {
+        type = DataUtilities.createType("Location",
+                "the_geom:Point:srid=4326,name:String,number:Integer");
+        GeometryFactory factory = new GeometryFactory();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        Random random = new Random(42);
+        features = new SimpleFeature[FEATURES];
+        for (int i = 0; i < FEATURES; i++) {
+            builder.add(factory.createPoint(new Coordinate(random.nextDouble() * 10, random.nextDouble() * 10)));
+            builder.add("p" + i);
+            builder.add(i);
+            features[i] = builder.buildFeature(null);
+        }
+
+        //以(5,5)为中心的锯齿形多边形，外包框覆盖大约一半的点
+        Coordinate[] ring = new Coordinate[polygonVertices + 1];
+        for (int i = 0; i < polygonVertices; i++) {
+            double angle = 2 * Math.PI * i / polygonVertices;
+            double r = i % 2 == 0 ? 4 : 3;
+            ring[i] = new Coordinate(5 + r * Math.cos(angle), 5 + r * Math.sin(angle));
+        }
+        ring[polygonVertices] = ring[0];
+        Polygon polygon = factory.createPolygon(ring);
+
+        cql = "number > 100 AND INTERSECTS(the_geom, " + polygon.toText() + ")";
+        filter = CQL.toFilter(cql);
+        compiled = CompiledFilter.compile(filter, type);
+    }
+
+    @Benchmark
+    public int evaluateFilter() {
+        int count = 0;
+        for (SimpleFeature feature : features) {
+            if (filter.evaluate(feature)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int evaluateCompiled() {
+        int count = 0;
+        for (SimpleFeature feature : features) {
+            if (compiled.evaluate(feature)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public Filter parseCql() throws Exception {
+        return CQL.toFilter(cql);
+    }
+
+    @Benchmark
+    public CompiledFilter compileCached() throws Exception {
+        return FilterCompiler.getInstance().compile(cql, type);
+    }
+}
@@ -0,0 +1,73 @@
+package com.suntoon.tutorial.bench;
+
+import com.suntoon.tutorial.feature.CsvColumnMapping;
+import com.suntoon.tutorial.feature.StreamingCsvIngest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName IngestBenchmark
+ * @Description Csv2Shape的导入：把合成的点csv写成带空间索引的shapefile，比较流式导入和并行解析导入；
+ *              每次调用处理整个文件，因此用SingleShotTime模式
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:49
+ * @Version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngestBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"stream", "parallel"})
+    public String mode;
+
+    private File directory;
+    private File csv;
+    private File output;
+    private SimpleFeatureType type;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = SyntheticData.createTempDirectory("ingest");
+        csv = SyntheticData.writePointCsv(new File(directory, "points.csv"), rows, 42);
+        output = new File(directory, "points.shp");
+        type = SyntheticData.pointType();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteOutput() {
+        SyntheticData.deleteShapefile(output);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public long ingest() throws Exception {
+        return StreamingCsvIngest.ingestToShapefile(csv, output, type, new CsvColumnMapping(),
+                "parallel".equals(mode)).getRows();
+    }
+}
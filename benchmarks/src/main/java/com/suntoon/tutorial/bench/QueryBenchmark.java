@@ -0,0 +1,124 @@
+package com.suntoon.tutorial.bench;
+
+import com.suntoon.tutorial.filter.CompiledFilter;
+import com.suntoon.tutorial.filter.FeatureCounter;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.FileDataStoreFinder;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.filter.text.cql2.CQL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.filter.Filter;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName QueryBenchmark
+ * @Description QueryLab的查询：在合成的点shapefile上执行CQL过滤并遍历结果，以及用FeatureCounter计数（每次先清空计数缓存）。
+ *              查询分为纯BBOX、纯属性条件和多边形相交加属性条件三种
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:49
+ * @Version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"bbox", "attribute", "polygon"})
+    public String query;
+
+    private File directory;
+    private FileDataStore store;
+    private SimpleFeatureSource source;
+    private FeatureCounter counter;
+    private Filter filter;
+    private CompiledFilter compiled;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = SyntheticData.createTempDirectory("query");
+        File shp = SyntheticData.writePointShapefile(directory, rows, 42);
+        store = FileDataStoreFinder.getDataStore(shp);
+        source = store.getFeatureSource();
+        counter = new FeatureCounter(store, shp);
+
+        String cql;
+        switch (query) {
+            case "bbox":
+                cql = "BBOX(the_geom, -10, -10, 30, 20)";
+                break;
+            case "attribute":
+                cql = "number < 100 AND name = 'city7'";
+                break;
+            default:
+                cql = "number > 500 AND INTERSECTS(the_geom, "
+                        + "POLYGON((-20 -10, 40 -15, 30 30, 5 10, -15 35, -20 -10)))";
+        }
+        filter = CQL.toFilter(cql);
+        compiled = CompiledFilter.compile(filter, source.getSchema());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.dispose();
+        SyntheticData.deleteDirectory(directory);
+    }
+
+    /**
+     * QueryLab的原始做法：把整个过滤条件交给数据源
+     */
+    @Benchmark
+    public long filter() throws Exception {
+        return iterate(source.getFeatures(filter), null);
+    }
+
+    /**
+     * 只把预过滤条件交给数据源，剩余条件用编译后的谓词判断
+     */
+    @Benchmark
+    public long filterCompiled() throws Exception {
+        return iterate(source.getFeatures(compiled.getPrefilter()), compiled);
+    }
+
+    @Benchmark
+    public long count() throws Exception {
+        counter.clearCache();
+        return counter.count(source.getSchema().getTypeName(), compiled).getCount();
+    }
+
+    private static long iterate(SimpleFeatureCollection features, CompiledFilter residual) {
+        long count = 0;
+        try (SimpleFeatureIterator it = features.features()) {
+            while (it.hasNext()) {
+                if (residual == null) {
+                    it.next();
+                    count++;
+                } else if (residual.evaluateResidual(it.next())) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,79 @@
+package com.suntoon.tutorial.bench;
+
+import com.suntoon.tutorial.crs.CrsCache;
+import com.suntoon.tutorial.crs.ReprojectionPipeline;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.FileDataStoreFinder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName ReprojectionBenchmark
+ * @Description CRSLab的导出：把合成的面shapefile重投影到EPSG:3857并写入新文件，
+ *              比较不同转换线程数下精确转换和近似转换的耗时
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:49
+ * @Version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReprojectionBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int polygons;
+
+    @Param({"1", "4"})
+    public int workers;
+
+    @Param({"0", "0.01"})
+    public double maxError;
+
+    private File directory;
+    private File output;
+    private FileDataStore store;
+    private CoordinateReferenceSystem targetCRS;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = SyntheticData.createTempDirectory("reproject");
+        File source = SyntheticData.writePolygonShapefile(new File(directory, "parcels.shp"), polygons, 32, 0.01, 42);
+        output = new File(directory, "parcels_3857.shp");
+        store = FileDataStoreFinder.getDataStore(source);
+        targetCRS = CrsCache.getInstance().decode("EPSG:3857");
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteOutput() {
+        SyntheticData.deleteShapefile(output);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.dispose();
+        SyntheticData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public long export() throws Exception {
+        return ReprojectionPipeline.exportToShapefile(store.getFeatureSource(), targetCRS, output, workers, maxError);
+    }
+}
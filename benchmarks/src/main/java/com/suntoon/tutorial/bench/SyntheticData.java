@@ -0,0 +1,181 @@
+package com.suntoon.tutorial.bench;
+
+import com.suntoon.tutorial.feature.CsvColumnMapping;
+import com.suntoon.tutorial.feature.StreamingCsvIngest;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.data.shapefile.ShapefileDataStoreFactory;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName SyntheticData
+ * @Description 基准测试用的合成数据：Csv2Shape格式的点csv（纬度,经度,名称,编号），以及带少量自相交（无效）多边形的面shapefile。
+ *              相同的数量和种子总是生成相同的数据，不同版本之间的结果可以比较
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:49
+ * @Version 1.0
+ */
+public final class SyntheticData {
+    /** 点csv对应的要素类型，与Csv2Shape相同 */
+    public static final String POINT_TYPE_SPEC = "the_geom:Point:srid=4326,name:String,number:Integer";
+    public static final String POLYGON_TYPE_SPEC = "the_geom:Polygon:srid=4326,id:Integer,name:String,area:Double";
+
+    private SyntheticData() {
+    }
+
+    public static SimpleFeatureType pointType() throws Exception {
+        return DataUtilities.createType("Location", POINT_TYPE_SPEC);
+    }
+
+    /**
+     * @Author agent
+     * @Description //生成rows行均匀分布在全球范围的点，第一行为标题
+     * @Date 上午 3:49 2026/10/17 0017
+     * @param file 输出的csv文件
+     * @param rows 行数
+     * @param seed 随机数种子
+     * @return java.io.File
+     */
+    public static File writePointCsv(File file, int rows, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write("LAT, LON, CITY, NUMBER\n");
+            StringBuilder line = new StringBuilder(64);
+            for (int i = 0; i < rows; i++) {
+                line.setLength(0);
+                line.append(random.nextDouble() * 180 - 90).append(',')
+                        .append(random.nextDouble() * 360 - 180).append(',')
+                        .append("city").append(i % 1000).append(',')
+                        .append(random.nextInt(1000)).append('\n');
+                writer.append(line);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * 生成点csv并导入为带空间索引的shapefile，返回.shp文件
+     */
+    public static File writePointShapefile(File directory, int rows, long seed) throws Exception {
+        File csv = writePointCsv(new File(directory, "points" + rows + ".csv"), rows, seed);
+        File shp = new File(directory, "points" + rows + ".shp");
+        StreamingCsvIngest.ingestToShapefile(csv, shp, pointType(), new CsvColumnMapping(), false);
+        return shp;
+    }
+
+    /**
+     * @Author agent
+     * @Description //生成count个不重叠的星形多边形，大约invalidRatio比例的多边形是自相交的“蝴蝶结”
+     * @Date 上午 3:49 2026/10/17 0017
+     * @param file 输出的shapefile
+     * @param count 多边形个数
+     * @param vertices 每个多边形的顶点数
+     * @param invalidRatio 无效多边形的比例
+     * @param seed 随机数种子
+     * @return java.io.File
+     */
+    public static File writePolygonShapefile(File file, int count, int vertices, double invalidRatio, long seed)
+            throws Exception {
+        ShapefileDataStoreFactory factory = new ShapefileDataStoreFactory();
+        Map<String, Serializable> params = new HashMap<>();
+        params.put("url", file.toURI().toURL());
+        params.put("create spatial index", Boolean.TRUE);
+        ShapefileDataStore store = (ShapefileDataStore) factory.createNewDataStore(params);
+        try {
+            store.createSchema(DataUtilities.createType("Parcel", POLYGON_TYPE_SPEC));
+            String typeName = store.getTypeNames()[0];
+
+            //多边形放在规则格网中，每个格子一个，互不重叠
+            int columns = (int) Math.ceil(Math.sqrt(count * 2.0));
+            int rows = (count + columns - 1) / columns;
+            double cellWidth = 340.0 / columns;
+            double cellHeight = 160.0 / rows;
+            GeometryFactory geometryFactory = new GeometryFactory();
+            Random random = new Random(seed);
+            try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                         store.getFeatureWriterAppend(typeName, Transaction.AUTO_COMMIT)) {
+                for (int i = 0; i < count; i++) {
+                    double cx = -170 + (i % columns + 0.5) * cellWidth;
+                    double cy = -80 + (i / columns + 0.5) * cellHeight;
+                    double radius = Math.min(cellWidth, cellHeight) * 0.45;
+                    Coordinate[] ring;
+                    if (random.nextDouble() < invalidRatio) {
+                        ring = new Coordinate[]{
+                                new Coordinate(cx - radius, cy - radius), new Coordinate(cx + radius, cy + radius),
+                                new Coordinate(cx + radius, cy - radius), new Coordinate(cx - radius, cy + radius),
+                                new Coordinate(cx - radius, cy - radius)};
+                    } else {
+                        ring = new Coordinate[vertices + 1];
+                        for (int v = 0; v < vertices; v++) {
+                            double angle = 2 * Math.PI * v / vertices;
+                            double r = radius * (0.6 + 0.4 * random.nextDouble());
+                            ring[v] = new Coordinate(cx + r * Math.cos(angle), cy + r * Math.sin(angle));
+                        }
+                        ring[vertices] = ring[0];
+                    }
+                    SimpleFeature feature = writer.next();
+                    feature.setDefaultGeometry(geometryFactory.createPolygon(ring));
+                    feature.setAttribute("id", i);
+                    feature.setAttribute("name", "parcel" + i);
+                    feature.setAttribute("area", radius * radius * Math.PI);
+                    writer.write();
+                }
+            }
+        } finally {
+            store.dispose();
+        }
+        return file;
+    }
+
+    /**
+     * 删除shapefile的所有组成文件
+     */
+    public static void deleteShapefile(File shp) {
+        String path = shp.getPath();
+        String base = path.substring(0, path.length() - 4);
+        for (String extension : new String[]{".shp", ".shx", ".dbf", ".prj", ".qix", ".fix", ".cpg"}) {
+            new File(base + extension).delete();
+        }
+    }
+
+    /**
+     * 删除目录及其中的所有文件
+     */
+    public static void deleteDirectory(File directory) {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    deleteDirectory(child);
+                } else {
+                    child.delete();
+                }
+            }
+        }
+        directory.delete();
+    }
+
+    public static File createTempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+}
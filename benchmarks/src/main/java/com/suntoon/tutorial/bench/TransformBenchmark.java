@@ -0,0 +1,102 @@
+package com.suntoon.tutorial.bench;
+
+import com.suntoon.tutorial.crs.PackedGeometryTransformer;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opengis.referencing.operation.MathTransform;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName TransformBenchmark
+ * @Description 比较CRSLab导出循环中逐个要素调用JTS.transform的方式与PackedGeometryTransformer批量转换的方式，
+ *              数据是随机生成的海岸线式长折线多边形，WGS84转Web墨卡托
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:31
+ * @Version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformBenchmark {
+    @Param({"100", "10000"})
+    public int verticesPerGeometry;
+
+    @Param({"1000"})
+    public int geometries;
+
+    private Geometry[] data;
+    private MathTransform transform;
+    private PackedGeometryTransformer packed;
+
+    @Setup
+    public void setup() throws Exception {
+        transform = CRS.findMathTransform(DefaultGeographicCRS.WGS84, CRS.decode("EPSG:3857"), true);
+        packed = new PackedGeometryTransformer(transform);
+
+        GeometryFactory factory = new GeometryFactory();
+        Random random = new Random(42);
+        data = new Geometry[geometries];
+        for (int i = 0; i < geometries; i++) {
+            double cx = random.nextDouble() * 300 - 150;
+            double cy = random.nextDouble() * 140 - 70;
+            Coordinate[] ring = new Coordinate[verticesPerGeometry + 1];
+            for (int j = 0; j < verticesPerGeometry; j++) {
+                double angle = 2 * Math.PI * j / verticesPerGeometry;
+                double r = 0.5 + random.nextDouble() * 0.1;
+                ring[j] = new Coordinate(cx + r * Math.cos(angle), cy + r * Math.sin(angle));
+            }
+            ring[verticesPerGeometry] = ring[0];
+            data[i] = factory.createPolygon(ring);
+        }
+    }
+
+    /**
+     * 与CRSLab导出循环相同：每个要素单独调用JTS.transform
+     */
+    @Benchmark
+    public void jtsTransform(Blackhole blackhole) throws Exception {
+        for (Geometry geometry : data) {
+            blackhole.consume(JTS.transform(geometry, transform));
+        }
+    }
+
+    /**
+     * 每个几何的坐标一次性转换
+     */
+    @Benchmark
+    public void packedPerGeometry(Blackhole blackhole) throws Exception {
+        for (Geometry geometry : data) {
+            blackhole.consume(packed.transform(geometry));
+        }
+    }
+
+    /**
+     * 整批几何的坐标只调用一次MathTransform
+     */
+    @Benchmark
+    public void packedBatch(Blackhole blackhole) throws Exception {
+        blackhole.consume(packed.transform(data));
+    }
+}
@@ -0,0 +1,69 @@
+package com.suntoon.tutorial.bench;
+
+import com.suntoon.tutorial.crs.GeometryValidator;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.FileDataStoreFinder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName ValidationBenchmark
+ * @Description CRSLab的几何校验：对合成的面shapefile（1%为自相交多边形）执行GeometryValidator，比较不同线程数
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:49
+ * @Version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ValidationBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int polygons;
+
+    @Param({"32", "256"})
+    public int vertices;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private File directory;
+    private FileDataStore store;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = SyntheticData.createTempDirectory("validate");
+        File source = SyntheticData.writePolygonShapefile(new File(directory, "parcels.shp"),
+                polygons, vertices, 0.01, 42);
+        store = FileDataStoreFinder.getDataStore(source);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.dispose();
+        SyntheticData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public int validate() throws Exception {
+        return new GeometryValidator(threads, 1024).validate(store.getFeatureSource().getFeatures(), null)
+                .getNumInvalid();
+    }
+}
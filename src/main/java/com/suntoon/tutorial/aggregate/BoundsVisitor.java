@@ -0,0 +1,58 @@
+package com.suntoon.tutorial.aggregate;
+
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.Feature;
+import org.opengis.feature.GeometryAttribute;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName BoundsVisitor
+ * @Description 默认几何的总外包框，没有几何的要素不参与
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:05
+ * @Version 1.0
+ */
+public class BoundsVisitor implements MergeableVisitor<BoundsVisitor> {
+    private final Envelope bounds = new Envelope();
+    private CoordinateReferenceSystem crs;
+
+    @Override
+    public void visit(Feature feature) {
+        GeometryAttribute attribute = feature.getDefaultGeometryProperty();
+        if (attribute == null || !(attribute.getValue() instanceof Geometry)) {
+            return;
+        }
+        if (crs == null && attribute.getDescriptor() != null) {
+            crs = attribute.getDescriptor().getCoordinateReferenceSystem();
+        }
+        bounds.expandToInclude(((Geometry) attribute.getValue()).getEnvelopeInternal());
+    }
+
+    @Override
+    public BoundsVisitor newPartial() {
+        return new BoundsVisitor();
+    }
+
+    @Override
+    public void merge(BoundsVisitor partial) {
+        bounds.expandToInclude(partial.bounds);
+        if (crs == null) {
+            crs = partial.crs;
+        }
+    }
+
+    /**
+     * 总外包框，没有访问到几何时为空
+     */
+    public ReferencedEnvelope getBounds() {
+        return new ReferencedEnvelope(bounds, crs);
+    }
+
+    @Override
+    public String toString() {
+        return "bounds=" + (bounds.isNull() ? "empty" : bounds.toString());
+    }
+}
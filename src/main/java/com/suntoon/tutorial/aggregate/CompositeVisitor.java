@@ -0,0 +1,66 @@
+package com.suntoon.tutorial.aggregate;
+
+import org.opengis.feature.Feature;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CompositeVisitor
+ * @Description 把几个MergeableVisitor组合起来，一次扫描同时计算多个统计量
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:05
+ * @Version 1.0
+ */
+public class CompositeVisitor implements MergeableVisitor<CompositeVisitor> {
+    private final List<MergeableVisitor<?>> visitors;
+
+    public CompositeVisitor(MergeableVisitor<?>... visitors) {
+        this(Arrays.asList(visitors));
+    }
+
+    public CompositeVisitor(List<? extends MergeableVisitor<?>> visitors) {
+        this.visitors = new ArrayList<>(visitors);
+    }
+
+    @Override
+    public void visit(Feature feature) {
+        for (MergeableVisitor<?> visitor : visitors) {
+            visitor.visit(feature);
+        }
+    }
+
+    @Override
+    public CompositeVisitor newPartial() {
+        List<MergeableVisitor<?>> partials = new ArrayList<>(visitors.size());
+        for (MergeableVisitor<?> visitor : visitors) {
+            partials.add(visitor.newPartial());
+        }
+        return new CompositeVisitor(partials);
+    }
+
+    @Override
+    public void merge(CompositeVisitor partial) {
+        for (int i = 0; i < visitors.size(); i++) {
+            mergeOne(visitors.get(i), partial.visitors.get(i));
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void mergeOne(MergeableVisitor target, MergeableVisitor partial) {
+        //partial由target.newPartial()创建，类型一定相同
+        target.merge(partial);
+    }
+
+    public List<MergeableVisitor<?>> getVisitors() {
+        return Collections.unmodifiableList(visitors);
+    }
+
+    @Override
+    public String toString() {
+        return visitors.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package com.suntoon.tutorial.aggregate;
+
+import org.opengis.feature.Feature;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CountVisitor
+ * @Description 要素计数
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:05
+ * @Version 1.0
+ */
+public class CountVisitor implements MergeableVisitor<CountVisitor> {
+    private long count;
+
+    @Override
+    public void visit(Feature feature) {
+        count++;
+    }
+
+    @Override
+    public CountVisitor newPartial() {
+        return new CountVisitor();
+    }
+
+    @Override
+    public void merge(CountVisitor partial) {
+        count += partial.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count;
+    }
+}
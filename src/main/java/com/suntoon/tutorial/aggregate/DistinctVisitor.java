@@ -0,0 +1,88 @@
+package com.suntoon.tutorial.aggregate;
+
+import org.opengis.feature.Feature;
+import org.opengis.feature.Property;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName DistinctVisitor
+ * @Description 一个属性的不同取值及每个值出现的次数（空值也算一个值）；
+ *              不同的值超过limit个后不再记录新值，只继续统计已有的值，isComplete()返回false
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:05
+ * @Version 1.0
+ */
+public class DistinctVisitor implements MergeableVisitor<DistinctVisitor> {
+    public static final int DEFAULT_LIMIT = 10000;
+
+    private final String attribute;
+    private final int limit;
+    private final Map<Object, Long> counts = new HashMap<>();
+    private boolean complete = true;
+
+    public DistinctVisitor(String attribute) {
+        this(attribute, DEFAULT_LIMIT);
+    }
+
+    public DistinctVisitor(String attribute, int limit) {
+        this.attribute = attribute;
+        this.limit = limit;
+    }
+
+    @Override
+    public void visit(Feature feature) {
+        Property property = feature.getProperty(attribute);
+        add(property == null ? null : property.getValue(), 1);
+    }
+
+    private void add(Object value, long count) {
+        Long current = counts.get(value);
+        if (current != null) {
+            counts.put(value, current + count);
+        } else if (counts.size() < limit) {
+            counts.put(value, count);
+        } else {
+            complete = false;
+        }
+    }
+
+    @Override
+    public DistinctVisitor newPartial() {
+        return new DistinctVisitor(attribute, limit);
+    }
+
+    @Override
+    public void merge(DistinctVisitor partial) {
+        for (Map.Entry<Object, Long> entry : partial.counts.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+        complete &= partial.complete;
+    }
+
+    /**
+     * 不同的值和出现次数
+     */
+    public Map<Object, Long> getCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public int getDistinctCount() {
+        return counts.size();
+    }
+
+    /**
+     * 是否记录了全部不同的值；为false时getCounts只包含一部分值
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        return attribute + ": " + counts.size() + (complete ? "" : "+") + " distinct values";
+    }
+}
@@ -0,0 +1,96 @@
+package com.suntoon.tutorial.aggregate;
+
+import org.opengis.feature.Feature;
+import org.opengis.feature.Property;
+
+import java.util.Arrays;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName HistogramVisitor
+ * @Description 数值属性在[min, max]上的等宽直方图，max落在最后一个分箱；范围以外的值分别计入below和above
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:05
+ * @Version 1.0
+ */
+public class HistogramVisitor implements MergeableVisitor<HistogramVisitor> {
+    private final String attribute;
+    private final double min;
+    private final double max;
+    private final long[] counts;
+    private long below;
+    private long above;
+
+    /**
+     * @param attribute 数值属性名
+     * @param min 第一个分箱的下界
+     * @param max 最后一个分箱的上界
+     * @param bins 分箱数
+     */
+    public HistogramVisitor(String attribute, double min, double max, int bins) {
+        if (bins <= 0 || !(max > min)) {
+            throw new IllegalArgumentException("Need bins > 0 and max > min");
+        }
+        this.attribute = attribute;
+        this.min = min;
+        this.max = max;
+        this.counts = new long[bins];
+    }
+
+    @Override
+    public void visit(Feature feature) {
+        Property property = feature.getProperty(attribute);
+        Object value = property == null ? null : property.getValue();
+        if (!(value instanceof Number)) {
+            return;
+        }
+        double number = ((Number) value).doubleValue();
+        if (number < min) {
+            below++;
+        } else if (number > max) {
+            above++;
+        } else if (!Double.isNaN(number)) {
+            int bin = (int) ((number - min) / (max - min) * counts.length);
+            counts[Math.min(bin, counts.length - 1)]++;
+        }
+    }
+
+    @Override
+    public HistogramVisitor newPartial() {
+        return new HistogramVisitor(attribute, min, max, counts.length);
+    }
+
+    @Override
+    public void merge(HistogramVisitor partial) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += partial.counts[i];
+        }
+        below += partial.below;
+        above += partial.above;
+    }
+
+    /**
+     * 每个分箱的计数，第i个分箱是[min + i * width, min + (i + 1) * width)
+     */
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    public double getBinWidth() {
+        return (max - min) / counts.length;
+    }
+
+    public long getBelow() {
+        return below;
+    }
+
+    public long getAbove() {
+        return above;
+    }
+
+    @Override
+    public String toString() {
+        return attribute + " histogram [" + min + ", " + max + "]: " + Arrays.toString(counts)
+                + ", below=" + below + ", above=" + above;
+    }
+}
@@ -0,0 +1,25 @@
+package com.suntoon.tutorial.aggregate;
+
+import org.opengis.feature.FeatureVisitor;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName MergeableVisitor
+ * @Description 可以拆分和合并的FeatureVisitor：ParallelAggregator为每个分区调用newPartial()得到一个空的部分结果，
+ *              各分区在不同线程中各自visit，最后按分区顺序merge回原来的visitor。
+ *              单个实例不需要是线程安全的；同时也是普通的FeatureVisitor，可以直接传给FeatureCollection.accepts
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:05
+ * @Version 1.0
+ */
+public interface MergeableVisitor<V extends MergeableVisitor<V>> extends FeatureVisitor {
+    /**
+     * 配置相同（属性名、分箱等）但还没有访问过任何要素的新实例
+     */
+    V newPartial();
+
+    /**
+     * 把另一个分区的部分结果合并到这个实例中
+     */
+    void merge(V partial);
+}
@@ -0,0 +1,85 @@
+package com.suntoon.tutorial.aggregate;
+
+import org.opengis.feature.Feature;
+import org.opengis.feature.Property;
+
+import java.util.Locale;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName NumberStatsVisitor
+ * @Description 一个数值属性的个数、最小值、最大值、总和和平均值；空值和非数值不参与
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:05
+ * @Version 1.0
+ */
+public class NumberStatsVisitor implements MergeableVisitor<NumberStatsVisitor> {
+    private final String attribute;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public NumberStatsVisitor(String attribute) {
+        this.attribute = attribute;
+    }
+
+    @Override
+    public void visit(Feature feature) {
+        Property property = feature.getProperty(attribute);
+        Object value = property == null ? null : property.getValue();
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            count++;
+            sum += number;
+            min = Math.min(min, number);
+            max = Math.max(max, number);
+        }
+    }
+
+    @Override
+    public NumberStatsVisitor newPartial() {
+        return new NumberStatsVisitor(attribute);
+    }
+
+    @Override
+    public void merge(NumberStatsVisitor partial) {
+        count += partial.count;
+        sum += partial.sum;
+        min = Math.min(min, partial.min);
+        max = Math.max(max, partial.max);
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /** 没有数值时为NaN */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /** 没有数值时为NaN */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /** 没有数值时为NaN */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s: count=%d, min=%s, max=%s, sum=%s, mean=%s",
+                attribute, count, getMin(), getMax(), sum, getMean());
+    }
+}
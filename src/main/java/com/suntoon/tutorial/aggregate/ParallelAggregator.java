@@ -0,0 +1,322 @@
+package com.suntoon.tutorial.aggregate;
+
+import com.suntoon.tutorial.data.DataStores;
+import com.suntoon.tutorial.metrics.Instrumentation;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.NullProgressListener;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.util.ProgressListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName ParallelAggregator
+ * @Description 在ForkJoinPool上并行执行MergeableVisitor，两种分区方式：
+ *              FID_RANGE：调用线程顺序读取，每4096个连续的要素（一段FID范围）作为一个任务访问，
+ *              同时在途的任务数有上限，适用于任何数据源；
+ *              SPATIAL_TILES：把数据范围切成n×n个瓦片，每个任务用BBOX查询独立读取自己的瓦片，读取本身也是并行的，
+ *              适合有空间索引的shapefile和数据库。一个要素只属于它的内部点（getInteriorPoint，一定在几何上）所在的瓦片，
+ *              不会重复统计；BBOX无论按外包框还是按几何精确求交，这个瓦片都能查到它。
+ *              没有几何或几何为空的要素不会被任何瓦片查到。
+ *              各分区的部分结果总是按分区顺序合并回传入的visitor
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:05
+ * @Version 1.0
+ */
+public class ParallelAggregator {
+    /** 分区方式 */
+    public enum Partitioning {
+        FID_RANGE, SPATIAL_TILES
+    }
+
+    private static final int BATCH_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+    private final int maxTasksInFlight;
+    private int tilesPerSide;
+
+    public ParallelAggregator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelAggregator(ForkJoinPool pool) {
+        this.pool = pool;
+        this.maxTasksInFlight = pool.getParallelism() * 2;
+        //每个线程大约4个瓦片，数据分布不均时负载也比较平衡
+        this.tilesPerSide = (int) Math.ceil(Math.sqrt(pool.getParallelism() * 4.0));
+    }
+
+    public int getTilesPerSide() {
+        return tilesPerSide;
+    }
+
+    /**
+     * SPATIAL_TILES时每边的瓦片数，共tilesPerSide * tilesPerSide个分区
+     */
+    public void setTilesPerSide(int tilesPerSide) {
+        this.tilesPerSide = Math.max(1, tilesPerSide);
+    }
+
+    public <V extends MergeableVisitor<V>> V aggregate(SimpleFeatureSource source, V visitor) throws IOException {
+        return aggregate(source, Filter.INCLUDE, visitor, Partitioning.FID_RANGE, null);
+    }
+
+    /**
+     * @Author agent
+     * @Description //并行访问source中满足filter的要素，结果合并到visitor中并返回visitor
+     * @Date 上午 4:05 2026/10/17 0017
+     * @param source 数据源
+     * @param filter 过滤条件
+     * @param visitor 接收合并结果的visitor
+     * @param partitioning 分区方式，数据源没有范围（或没有几何）时SPATIAL_TILES退回FID_RANGE
+     * @param progress 进度条，可以为null，可以取消；取消时visitor中是已完成分区的结果
+     * @return V
+     */
+    public <V extends MergeableVisitor<V>> V aggregate(SimpleFeatureSource source, Filter filter, V visitor,
+                                                       Partitioning partitioning, ProgressListener progress)
+            throws IOException {
+        if (progress == null) {
+            progress = new NullProgressListener();
+        }
+        progress.started();
+        try {
+            Query query = new Query(source.getSchema().getTypeName(), filter);
+            ReferencedEnvelope bounds = partitioning == Partitioning.SPATIAL_TILES
+                    && source.getSchema().getGeometryDescriptor() != null ? source.getBounds(query) : null;
+            if (bounds != null && !bounds.isEmpty()) {
+                aggregateTiles(source, filter, bounds, visitor, progress);
+            } else {
+                aggregateRanges(source, query, visitor, progress);
+            }
+        } finally {
+            progress.complete();
+        }
+        return visitor;
+    }
+
+    /**
+     * 一个线程读，ForkJoinPool访问；总是等待最早提交的任务，保证按顺序合并
+     */
+    private <V extends MergeableVisitor<V>> void aggregateRanges(SimpleFeatureSource source, Query query, V visitor,
+                                                                 ProgressListener progress) throws IOException {
+        int total = source.getCount(query);
+        long submitted = 0;
+        Deque<ForkJoinTask<V>> inFlight = new ArrayDeque<>();
+        try (SimpleFeatureIterator iterator = source.getFeatures(query).features()) {
+            List<SimpleFeature> batch = new ArrayList<>(BATCH_SIZE);
+            while (iterator.hasNext() && !progress.isCanceled()) {
+                batch.add(iterator.next());
+                if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+                    if (inFlight.size() == maxTasksInFlight) {
+                        visitor.merge(inFlight.removeFirst().join());
+                    }
+                    inFlight.addLast(pool.submit(new VisitBatchTask<>(visitor.newPartial(), batch)));
+                    submitted += batch.size();
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    if (total > 0) {
+                        progress.progress(Math.min(100f, submitted * 100f / total));
+                    }
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                visitor.merge(inFlight.removeFirst().join());
+            }
+        } finally {
+            for (ForkJoinTask<?> task : inFlight) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 每个瓦片一个任务，各自查询、各自访问
+     */
+    private <V extends MergeableVisitor<V>> void aggregateTiles(SimpleFeatureSource source, Filter filter,
+                                                                ReferencedEnvelope bounds, V visitor,
+                                                                ProgressListener progress) throws IOException {
+        int n = tilesPerSide;
+        //瓦片的边界，最后一条用总范围的边界，避免浮点误差漏掉边上的要素；瓦片和归属判断共用同一组数值
+        double[] xs = new double[n + 1];
+        double[] ys = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            xs[i] = bounds.getMinX() + i * (bounds.getWidth() / n);
+            ys[i] = bounds.getMinY() + i * (bounds.getHeight() / n);
+        }
+        xs[n] = bounds.getMaxX();
+        ys[n] = bounds.getMaxY();
+        List<ForkJoinTask<V>> tasks = new ArrayList<>(n * n);
+        try {
+            for (int row = 0; row < n; row++) {
+                for (int column = 0; column < n; column++) {
+                    Envelope tile = new Envelope(xs[column], xs[column + 1], ys[row], ys[row + 1]);
+                    tasks.add(pool.submit(new VisitTileTask<>(visitor.newPartial(), source, filter,
+                            new ReferencedEnvelope(tile, bounds.getCoordinateReferenceSystem()), xs, ys, column, row)));
+                }
+            }
+            for (int i = 0; i < tasks.size() && !progress.isCanceled(); i++) {
+                visitor.merge(tasks.get(i).join());
+                progress.progress((i + 1) * 100f / tasks.size());
+            }
+        } catch (RuntimeException e) {
+            //join()可能把任务里的异常再包一层，找出原来的IOException
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        } finally {
+            for (ForkJoinTask<?> task : tasks) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 访问一批已经读出的要素
+     */
+    private static class VisitBatchTask<V extends MergeableVisitor<V>> extends RecursiveTask<V> {
+        private final V partial;
+        private final List<SimpleFeature> batch;
+
+        VisitBatchTask(V partial, List<SimpleFeature> batch) {
+            this.partial = partial;
+            this.batch = batch;
+        }
+
+        @Override
+        protected V compute() {
+            long start = Instrumentation.start();
+            for (SimpleFeature feature : batch) {
+                partial.visit(feature);
+            }
+            Instrumentation.record("aggregate.visit", start, batch.size());
+            return partial;
+        }
+    }
+
+    /**
+     * 读取并访问一个瓦片；只接受内部点落在这个瓦片里的要素（左边、下边含，右边、上边不含，最后一列、一行除外）。
+     * 不用外包框的角点：L形或斜线的角点所在的瓦片可能根本不与几何相交，按几何精确求交的BBOX查不到它
+     */
+    private static class VisitTileTask<V extends MergeableVisitor<V>> extends RecursiveTask<V> {
+        private static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+        private final V partial;
+        private final SimpleFeatureSource source;
+        private final Filter filter;
+        private final ReferencedEnvelope tile;
+        private final double[] xs;
+        private final double[] ys;
+        private final int column;
+        private final int row;
+
+        VisitTileTask(V partial, SimpleFeatureSource source, Filter filter, ReferencedEnvelope tile,
+                      double[] xs, double[] ys, int column, int row) {
+            this.partial = partial;
+            this.source = source;
+            this.filter = filter;
+            this.tile = tile;
+            this.xs = xs;
+            this.ys = ys;
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        protected V compute() {
+            SimpleFeatureType schema = source.getSchema();
+            Filter bbox = FF.bbox(FF.property(schema.getGeometryDescriptor().getLocalName()), tile);
+            Filter tileFilter = filter == Filter.INCLUDE ? bbox : FF.and(filter, bbox);
+            long start = Instrumentation.start();
+            long visited = 0;
+            try (SimpleFeatureIterator iterator = source.getFeatures(tileFilter).features()) {
+                while (iterator.hasNext()) {
+                    SimpleFeature feature = iterator.next();
+                    Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                    if (geometry != null && !geometry.isEmpty() && owns(geometry)) {
+                        partial.visit(feature);
+                        visited++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Instrumentation.record("aggregate.visit", start, visited);
+            return partial;
+        }
+
+        private boolean owns(Geometry geometry) {
+            Coordinate point = geometry instanceof Point
+                    ? geometry.getCoordinate() : geometry.getInteriorPoint().getCoordinate();
+            return point != null && cell(xs, point.x) == column && cell(ys, point.y) == row;
+        }
+
+        /**
+         * value所在的格子：edges[i] <= value < edges[i + 1]，超出两端的归到第一个或最后一个格子
+         */
+        private static int cell(double[] edges, double value) {
+            int last = edges.length - 2;
+            int i = Arrays.binarySearch(edges, value);
+            if (i < 0) {
+                i = -i - 2;    //插入点的前一个
+            }
+            return Math.max(0, Math.min(i, last));
+        }
+    }
+
+    /**
+     * 命令行用法：ParallelAggregator file.shp [numeric attribute] [fid|tiles]，打印图层统计和耗时
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ParallelAggregator <file.shp> [numeric attribute] [fid|tiles]");
+            System.exit(1);
+        }
+        Partitioning partitioning = args.length > 2 && "tiles".equalsIgnoreCase(args[2])
+                ? Partitioning.SPATIAL_TILES : Partitioning.FID_RANGE;
+        FileDataStore store = DataStores.open(new File(args[0]));
+        try {
+            SimpleFeatureSource source = store.getFeatureSource();
+            List<MergeableVisitor<?>> visitors = new ArrayList<>();
+            visitors.add(new CountVisitor());
+            visitors.add(new BoundsVisitor());
+            if (args.length > 1) {
+                visitors.add(new NumberStatsVisitor(args[1]));
+                visitors.add(new DistinctVisitor(args[1]));
+            }
+            long start = System.nanoTime();
+            CompositeVisitor result = new ParallelAggregator().aggregate(source, Filter.INCLUDE,
+                    new CompositeVisitor(visitors), partitioning, null);
+            for (MergeableVisitor<?> visitor : result.getVisitors()) {
+                System.out.println(visitor);
+            }
+            System.out.println(String.format("%s in %.2fs", partitioning, (System.nanoTime() - start) / 1e9));
+        } finally {
+            store.dispose();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.suntoon.tutorial.aggregate;
+
+import org.opengis.feature.Feature;
+
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName ReducingVisitor
+ * @Description 自定义的聚合，用法同Collector：supplier创建每个分区的容器，accumulator把要素加入容器，
+ *              combiner合并两个分区的容器并返回结果（可以是其中之一）
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:05
+ * @Version 1.0
+ */
+public class ReducingVisitor<A> implements MergeableVisitor<ReducingVisitor<A>> {
+    private final Supplier<A> supplier;
+    private final BiConsumer<A, Feature> accumulator;
+    private final BinaryOperator<A> combiner;
+    private A result;
+
+    public ReducingVisitor(Supplier<A> supplier, BiConsumer<A, Feature> accumulator, BinaryOperator<A> combiner) {
+        this.supplier = supplier;
+        this.accumulator = accumulator;
+        this.combiner = combiner;
+        this.result = supplier.get();
+    }
+
+    @Override
+    public void visit(Feature feature) {
+        accumulator.accept(result, feature);
+    }
+
+    @Override
+    public ReducingVisitor<A> newPartial() {
+        return new ReducingVisitor<>(supplier, accumulator, combiner);
+    }
+
+    @Override
+    public void merge(ReducingVisitor<A> partial) {
+        result = combiner.apply(result, partial.result);
+    }
+
+    public A getResult() {
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(result);
+    }
+}
@@ -0,0 +1,347 @@
+package com.suntoon.tutorial.batch;
+
+import com.suntoon.tutorial.crs.CrsCache;
+import com.suntoon.tutorial.crs.GeometryValidator;
+import com.suntoon.tutorial.crs.IncrementalExport;
+import com.suntoon.tutorial.crs.ReprojectionPipeline;
+import com.suntoon.tutorial.data.DataStores;
+import com.suntoon.tutorial.feature.CsvColumnMapping;
+import com.suntoon.tutorial.feature.StreamingCsvIngest;
+import com.suntoon.tutorial.filter.CompiledFilter;
+import com.suntoon.tutorial.filter.FeatureCounter;
+import com.suntoon.tutorial.filter.FilterCompiler;
+import com.suntoon.tutorial.shapefile.NioShapefileWriter;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.util.NullProgressListener;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName BatchJob
+ * @Description 批处理中的一个作业：把csv转换为shapefile、重投影、几何校验或按CQL过滤，
+ *              只使用不依赖界面的ReprojectionPipeline、GeometryValidator等类。
+ *              作业文件中每行一个作业，格式为：
+ *              convert &lt;in.csv&gt; &lt;out.shp&gt;
+ *              reproject &lt;in.shp&gt; &lt;out.shp&gt; &lt;crs code&gt;
+ *              update &lt;in.shp&gt; &lt;out.shp&gt; &lt;crs code&gt; [key attribute]    （增量重投影，见IncrementalExport）
+ *              validate &lt;in.shp&gt;
+ *              filter &lt;in.shp&gt; &lt;out.shp|-&gt; &lt;cql&gt;    （输出为-时只计数）
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:47
+ * @Version 1.0
+ */
+public class BatchJob {
+    public enum Kind {
+        CONVERT, REPROJECT, UPDATE, VALIDATE, FILTER
+    }
+
+    /** convert作业使用的要素类型，与Csv2Shape相同 */
+    private static final String CSV_TYPE_SPEC = "the_geom:Point:srid=4326,name:String,number:Integer";
+
+    private final Kind kind;
+    private final File input;
+    private final File output;
+    private final String argument;
+
+    /**
+     * @param kind 作业类型
+     * @param input 输入文件
+     * @param output 输出文件，validate作业以及只计数的filter作业为null
+     * @param argument reproject作业的坐标系代码，update作业的坐标系代码和可选的键属性，filter作业的CQL，其他作业为null
+     */
+    public BatchJob(Kind kind, File input, File output, String argument) {
+        this.kind = kind;
+        this.input = input;
+        this.output = output;
+        this.argument = argument;
+    }
+
+    /**
+     * @Author agent
+     * @Description //解析作业文件中的一行；输入是目录时展开为目录中每个对应扩展名的文件，输出也要是目录
+     * @Date 上午 3:47 2026/10/17 0017
+     * @param line 一行作业描述
+     * @return java.util.List<com.suntoon.tutorial.batch.BatchJob>
+     */
+    public static List<BatchJob> parse(String line) {
+        String[] tokens = line.trim().split("\\s+", 4);
+        Kind kind;
+        try {
+            kind = Kind.valueOf(tokens[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown job type: " + line);
+        }
+        int required = kind == Kind.VALIDATE ? 2 : kind == Kind.CONVERT ? 3 : 4;
+        if (tokens.length < required) {
+            throw new IllegalArgumentException("Missing arguments: " + line);
+        }
+        File input = new File(tokens[1]);
+        File output = kind == Kind.VALIDATE || "-".equals(tokens[2]) ? null : new File(tokens[2]);
+        String argument = required == 4 ? tokens[3] : null;
+        if (kind == Kind.VALIDATE && tokens.length > 2) {
+            throw new IllegalArgumentException("Unexpected arguments: " + line);
+        }
+        if (kind == Kind.CONVERT && tokens.length > 3) {
+            throw new IllegalArgumentException("Unexpected arguments: " + line);
+        }
+
+        List<BatchJob> jobs = new ArrayList<>();
+        if (!input.isDirectory()) {
+            jobs.add(new BatchJob(kind, input, output, argument));
+            return jobs;
+        }
+        String extension = kind == Kind.CONVERT ? ".csv" : ".shp";
+        File[] files = input.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(extension));
+        if (files == null) {
+            return jobs;
+        }
+        if (output != null) {
+            output.mkdirs();
+        }
+        for (File file : files) {
+            File target = output == null ? null : new File(output, baseName(file) + ".shp");
+            jobs.add(new BatchJob(kind, file, target, argument));
+        }
+        return jobs;
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    /**
+     * @Author agent
+     * @Description //执行作业，失败时不抛出异常，而是记录在结果中
+     * @Date 上午 3:47 2026/10/17 0017
+     * @param workers 作业内部使用的线程数
+     * @return com.suntoon.tutorial.batch.BatchJob.Result
+     */
+    public Result run(int workers) {
+        long start = System.nanoTime();
+        try {
+            if (output != null && output.getCanonicalFile().equals(input.getCanonicalFile())) {
+                throw new IOException("Cannot replace " + input);
+            }
+            long[] counts = execute(workers);
+            return new Result(this, counts[0], counts[1], System.nanoTime() - start, null);
+        } catch (Exception e) {
+            return new Result(this, 0, 0, System.nanoTime() - start, e);
+        }
+    }
+
+    /**
+     * 返回{处理的要素数, 无效几何数}
+     */
+    private long[] execute(int workers) throws Exception {
+        if (kind == Kind.CONVERT) {
+            SimpleFeatureType type = DataUtilities.createType(baseName(output), CSV_TYPE_SPEC);
+            CsvColumnMapping mapping = CsvColumnMapping.parse(System.getProperty("csv.columns"));
+            StreamingCsvIngest.IngestStats stats =
+                    StreamingCsvIngest.ingestToShapefile(input, output, type, mapping, workers > 1);
+            return new long[]{stats.getRows(), 0};
+        }
+
+        FileDataStore store = DataStores.open(input);
+        if (store == null) {
+            throw new IOException("Unsupported data file: " + input);
+        }
+        try {
+            SimpleFeatureSource source = store.getFeatureSource();
+            switch (kind) {
+                case REPROJECT:
+                    return new long[]{ReprojectionPipeline.exportToShapefile(source,
+                            CrsCache.getInstance().decode(argument), output, workers), 0};
+                case UPDATE:
+                    String[] options = argument.trim().split("\\s+");
+                    IncrementalExport export = new IncrementalExport(CrsCache.getInstance().decode(options[0]),
+                            0, workers);
+                    if (options.length > 1) {
+                        export.setKeyAttribute(options[1]);
+                    }
+                    return new long[]{export.export(source, output).getWritten(), 0};
+                case VALIDATE:
+                    GeometryValidator.Report report = new GeometryValidator(workers, 1024)
+                            .validate(source.getFeatures(), new NullProgressListener());
+                    return new long[]{report.getChecked(), report.getNumInvalid()};
+                default:
+                    CompiledFilter filter = FilterCompiler.getInstance().compile(argument, source.getSchema());
+                    if (output == null) {
+                        FeatureCounter counter = new FeatureCounter(store, input, workers);
+                        return new long[]{counter.count(source.getSchema().getTypeName(), filter).getCount(), 0};
+                    }
+                    return new long[]{writeFiltered(source, filter), 0};
+            }
+        } finally {
+            store.dispose();
+        }
+    }
+
+    /**
+     * 预过滤条件交给数据源，剩余条件逐个要素判断，满足的写入新的shapefile
+     */
+    private long writeFiltered(SimpleFeatureSource source, CompiledFilter filter) throws IOException {
+        NioShapefileWriter shapefileWriter = new NioShapefileWriter(output, source.getSchema());
+        long count = 0;
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer = shapefileWriter;
+             SimpleFeatureIterator it = source.getFeatures(filter.getPrefilter()).features()) {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                if (filter.evaluateResidual(feature)) {
+                    SimpleFeature copy = writer.next();
+                    copy.setAttributes(feature.getAttributes());
+                    writer.write();
+                    count++;
+                }
+            }
+        } catch (Exception e) {
+            //不留下截断的shapefile
+            shapefileWriter.abort(e);
+            throw e;
+        }
+        return count;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public File getInput() {
+        return input;
+    }
+
+    public File getOutput() {
+        return output;
+    }
+
+    public String getArgument() {
+        return argument;
+    }
+
+    @Override
+    public String toString() {
+        return kind.name().toLowerCase(Locale.ROOT) + " " + input + (output == null ? "" : " " + output)
+                + (argument == null ? "" : " " + argument);
+    }
+
+    /**
+     * 一个作业的执行结果，toJson()输出一行JSON供脚本解析
+     */
+    public static class Result {
+        private final BatchJob job;
+        private final long features;
+        private final long invalid;
+        private final long elapsedNanos;
+        private final Throwable error;
+
+        Result(BatchJob job, long features, long invalid, long elapsedNanos, Throwable error) {
+            this.job = job;
+            this.features = features;
+            this.invalid = invalid;
+            this.elapsedNanos = elapsedNanos;
+            this.error = error;
+        }
+
+        public BatchJob getJob() {
+            return job;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public long getFeatures() {
+            return features;
+        }
+
+        /**
+         * validate作业发现的无效几何数
+         */
+        public long getInvalid() {
+            return invalid;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getFeaturesPerSecond() {
+            return elapsedNanos == 0 ? 0 : features * 1e9 / elapsedNanos;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        public String toJson() {
+            StringBuilder json = new StringBuilder("{");
+            field(json, "job", job.kind.name().toLowerCase(Locale.ROOT)).append(',');
+            field(json, "input", job.input.getPath()).append(',');
+            field(json, "output", job.output == null ? null : job.output.getPath()).append(',');
+            field(json, "status", isSuccess() ? "ok" : "failed").append(',');
+            json.append("\"features\":").append(features).append(',');
+            if (job.kind == Kind.VALIDATE) {
+                json.append("\"invalid\":").append(invalid).append(',');
+            }
+            json.append("\"millis\":").append(String.format(Locale.ROOT, "%.1f", elapsedNanos / 1e6)).append(',');
+            json.append("\"featuresPerSecond\":").append(String.format(Locale.ROOT, "%.0f", getFeaturesPerSecond()));
+            if (error != null) {
+                json.append(',');
+                field(json, "error", String.valueOf(error.getMessage() == null ? error : error.getMessage()));
+            }
+            return json.append('}').toString();
+        }
+
+        static StringBuilder field(StringBuilder json, String name, String value) {
+            json.append('"').append(name).append("\":");
+            if (value == null) {
+                return json.append("null");
+            }
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        json.append("\\\"");
+                        break;
+                    case '\\':
+                        json.append("\\\\");
+                        break;
+                    case '\n':
+                        json.append("\\n");
+                        break;
+                    case '\r':
+                        json.append("\\r");
+                        break;
+                    case '\t':
+                        json.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                }
+            }
+            return json.append('"');
+        }
+
+        @Override
+        public String toString() {
+            return toJson();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.suntoon.tutorial.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName BatchRunner
+ * @Description 无界面的批处理入口：在固定大小的线程池中并发执行多个BatchJob，不初始化AWT/Swing，
+ *              可以在没有显示器的服务器上运行。每个作业完成后输出一行JSON（作业、输入、状态、要素数、耗时、每秒要素数），
+ *              最后输出一行汇总。作业内部的日志输出到标准错误，标准输出只有JSON结果
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:47
+ * @Version 1.0
+ */
+public class BatchRunner {
+    private final int threads;
+    private final int workersPerJob;
+
+    /**
+     * @param threads 同时执行的作业数
+     * @param workersPerJob 每个作业内部使用的线程数
+     */
+    public BatchRunner(int threads, int workersPerJob) {
+        if (threads <= 0 || workersPerJob <= 0) {
+            throw new IllegalArgumentException("threads and workersPerJob must be positive");
+        }
+        this.threads = threads;
+        this.workersPerJob = workersPerJob;
+    }
+
+    /**
+     * @Author agent
+     * @Description //并发执行所有作业，每个作业完成时把结果写入summary，返回按作业顺序排列的结果
+     * @Date 上午 3:47 2026/10/17 0017
+     * @param jobs 作业列表
+     * @param summary 输出JSON结果，可以为null
+     * @return java.util.List<com.suntoon.tutorial.batch.BatchJob.Result>
+     */
+    public List<BatchJob.Result> run(List<BatchJob> jobs, final PrintWriter summary) throws InterruptedException {
+        final AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<BatchJob.Result>> futures = new ArrayList<>(jobs.size());
+            for (final BatchJob job : jobs) {
+                futures.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    BatchJob.Result result;
+                    try {
+                        result = job.run(workersPerJob);
+                    } catch (Error e) {
+                        //run()只把Exception记录在结果中，Error（例如StackOverflowError）同样只让这个作业失败
+                        result = new BatchJob.Result(job, 0, 0, System.nanoTime() - start, e);
+                    }
+                    if (summary != null) {
+                        synchronized (summary) {
+                            summary.println(result.toJson());
+                            summary.flush();
+                        }
+                    }
+                    return result;
+                }));
+            }
+            List<BatchJob.Result> results = new ArrayList<>(jobs.size());
+            for (Future<BatchJob.Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());    //作业的异常都记录在结果中，只有写汇总失败会到这里
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 所有作业的汇总，一行JSON
+     */
+    public static String summarize(List<BatchJob.Result> results, long elapsedNanos) {
+        long features = 0;
+        int failed = 0;
+        for (BatchJob.Result result : results) {
+            features += result.getFeatures();
+            if (!result.isSuccess()) {
+                failed++;
+            }
+        }
+        return "{\"job\":\"total\",\"jobs\":" + results.size() + ",\"failed\":" + failed
+                + ",\"features\":" + features
+                + ",\"millis\":" + String.format(Locale.ROOT, "%.1f", elapsedNanos / 1e6)
+                + ",\"featuresPerSecond\":" + String.format(Locale.ROOT, "%.0f",
+                elapsedNanos == 0 ? 0 : features * 1e9 / elapsedNanos) + "}";
+    }
+
+    private static void usage() {
+        System.err.println("Usage: BatchRunner [-threads N] [-workers N] [-out summary.jsonl] "
+                + "(-jobs jobs.txt | <job> <args...>)");
+        System.err.println("  convert <in.csv|dir> <out.shp|dir>");
+        System.err.println("  reproject <in.shp|dir> <out.shp|dir> <crs code>");
+        System.err.println("  validate <in.shp|dir>");
+        System.err.println("  filter <in.shp|dir> <out.shp|dir|-> <cql>");
+    }
+
+    /**
+     * 命令行用法：
+     * BatchRunner -threads 4 -jobs jobs.txt
+     * BatchRunner -threads 4 reproject data/ out/ EPSG:3857
+     * 作业文件每行一个作业，空行和以#开头的行忽略；返回码为失败的作业数（最多100）
+     */
+    public static void main(String[] args) throws Exception {
+        //必须在任何AWT类加载之前设置
+        System.setProperty("java.awt.headless", "true");
+
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int threads = cpus;
+        int workers = -1;
+        File jobsFile = null;
+        File out = null;
+        int i = 0;
+        try {
+            for (; i < args.length && args[i].startsWith("-") && args[i].length() > 1; i++) {
+                switch (args[i]) {
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-workers":
+                        workers = Integer.parseInt(args[++i]);
+                        break;
+                    case "-jobs":
+                        jobsFile = new File(args[++i]);
+                        break;
+                    case "-out":
+                        out = new File(args[++i]);
+                        break;
+                    default:
+                        usage();
+                        System.exit(2);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            usage();
+            System.exit(2);
+        }
+        if (workers <= 0) {
+            workers = Math.max(1, cpus / threads);    //默认把cpu平均分给同时执行的作业
+        }
+
+        List<BatchJob> jobs = new ArrayList<>();
+        try {
+            if (jobsFile != null) {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(new FileInputStream(jobsFile), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
+                            jobs.addAll(BatchJob.parse(line));
+                        }
+                    }
+                }
+            }
+            if (i < args.length) {
+                jobs.addAll(BatchJob.parse(String.join(" ", Arrays.copyOfRange(args, i, args.length))));
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(2);
+        }
+        if (jobs.isEmpty()) {
+            usage();
+            System.exit(2);
+        }
+
+        //作业内部的日志都改到标准错误，保证标准输出只有JSON
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        PrintWriter summary = out == null
+                ? new PrintWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8))
+                : new PrintWriter(new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8));
+        int failed = 0;
+        try {
+            long start = System.nanoTime();
+            List<BatchJob.Result> results = new BatchRunner(threads, workers).run(jobs, summary);
+            summary.println(summarize(results, System.nanoTime() - start));
+            for (BatchJob.Result result : results) {
+                if (!result.isSuccess()) {
+                    failed++;
+                }
+            }
+        } finally {
+            summary.close();
+        }
+        System.exit(Math.min(failed, 100));
+    }
+}
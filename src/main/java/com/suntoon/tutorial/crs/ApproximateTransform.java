@@ -0,0 +1,259 @@
+package com.suntoon.tutorial.crs;
+
+import org.geotools.referencing.operation.transform.AbstractMathTransform;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName ApproximateTransform
+ * @Description 用于显示级精度导出的近似转换：在图层范围上建立自适应网格（四叉树），
+ *              只在网格角点上做精确转换，其余坐标用所在网格的双线性插值得到；
+ *              网格会一直细分，直到每个网格内采样点的插值误差都不超过maxError（目标坐标系单位，投影坐标系通常是米）。
+ *              误差是在每个网格的9个采样点上检验的，因此是估计值而不是严格上界；范围之外的坐标仍然精确转换。
+ *              网格按广度优先细分，总数不超过maxCells：数量用完时仍达不到精度的网格内改为逐点精确转换，
+ *              建立的时间和内存因此有上限，不会因为范围跨越投影定义域边缘等情况而细分到4^maxDepth个网格
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:32
+ * @Version 1.0
+ */
+public class ApproximateTransform extends AbstractMathTransform {
+    /** 每个网格内检验插值误差的位置（相对坐标） */
+    private static final double[] SAMPLES = {0.25, 0.5, 0.75};
+    /** 默认的网格数上限，约65536 * 13次精确转换、几MB内存 */
+    public static final int MAX_CELLS = Integer.getInteger("tutorial.approximate.maxCells", 1 << 16);
+
+    private final MathTransform exact;
+    private final double maxError;
+    private final int maxDepth;
+    private final int maxCells;
+    private final Cell root;
+    private int cells;
+
+    private ApproximateTransform(MathTransform exact, Envelope bounds, double maxError, int maxDepth, int maxCells)
+            throws TransformException {
+        this.exact = exact;
+        this.maxError = maxError;
+        this.maxDepth = maxDepth;
+        this.maxCells = maxCells;
+        this.root = build(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+    }
+
+    /**
+     * @Author agent
+     * @Description //在bounds范围上为exact建立近似转换
+     * @Date 上午 3:32 2026/10/17 0017
+     * @param exact 精确的二维转换
+     * @param bounds 数据在源坐标系中的范围
+     * @param maxError 允许的最大误差，目标坐标系单位
+     * @return com.suntoon.tutorial.crs.ApproximateTransform
+     */
+    public static ApproximateTransform create(MathTransform exact, Envelope bounds, double maxError)
+            throws TransformException {
+        return create(exact, bounds, maxError, 12, MAX_CELLS);
+    }
+
+    /**
+     * @param maxDepth 最大细分深度
+     * @param maxCells 网格总数的上限（包括非叶子节点），至少为1
+     */
+    public static ApproximateTransform create(MathTransform exact, Envelope bounds, double maxError, int maxDepth,
+                                              int maxCells) throws TransformException {
+        if (exact.getSourceDimensions() != 2 || exact.getTargetDimensions() != 2) {
+            throw new IllegalArgumentException("Only two dimensional transforms can be approximated");
+        }
+        if (maxError <= 0) {
+            throw new IllegalArgumentException("maxError must be positive: " + maxError);
+        }
+        if (maxCells < 1) {
+            throw new IllegalArgumentException("maxCells must be positive: " + maxCells);
+        }
+        Envelope grid = new Envelope(bounds);
+        if (grid.getWidth() == 0 || grid.getHeight() == 0) {
+            grid.expandBy(Math.max(1e-9, Math.max(grid.getWidth(), grid.getHeight()) * 1e-6));
+        }
+        return new ApproximateTransform(exact, grid, maxError, maxDepth, maxCells);
+    }
+
+    /**
+     * 广度优先细分：网格数用完时，已经细分的是整个范围上较粗的几层，而不是某个角落里很深的一支
+     */
+    private Cell build(double x0, double y0, double x1, double y1) {
+        Cell root = cell(x0, y0, x1, y1, 0);
+        Deque<Cell> pending = new ArrayDeque<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Cell cell = pending.poll();
+            if (cell.exactOnly || measureError(cell) <= maxError) {
+                continue;
+            }
+            if (cell.depth == maxDepth || cells + 4 > maxCells) {
+                cell.exactOnly = true;    //细分到最大深度或网格数用完仍达不到精度要求，这个网格内逐点精确转换
+                continue;
+            }
+            double mx = (cell.x0 + cell.x1) / 2;
+            double my = (cell.y0 + cell.y1) / 2;
+            cell.children = new Cell[]{
+                    cell(cell.x0, cell.y0, mx, my, cell.depth + 1),
+                    cell(mx, cell.y0, cell.x1, my, cell.depth + 1),
+                    cell(cell.x0, my, mx, cell.y1, cell.depth + 1),
+                    cell(mx, my, cell.x1, cell.y1, cell.depth + 1)
+            };
+            Collections.addAll(pending, cell.children);
+        }
+        return root;
+    }
+
+    /**
+     * 新建网格并精确转换四个角点
+     */
+    private Cell cell(double x0, double y0, double x1, double y1, int depth) {
+        cells++;
+        Cell cell = new Cell(x0, y0, x1, y1, depth);
+        double[] corners = {x0, y0, x1, y0, x0, y1, x1, y1};
+        try {
+            exact.transform(corners, 0, cell.corners, 0, 4);
+        } catch (TransformException e) {
+            cell.exactOnly = true;    //角点无法转换（例如超出投影定义域），这个网格内逐点精确转换
+            return cell;
+        }
+        for (double value : cell.corners) {
+            if (!Double.isFinite(value)) {
+                cell.exactOnly = true;
+                return cell;
+            }
+        }
+        return cell;
+    }
+
+    private double measureError(Cell cell) {
+        double[] points = new double[SAMPLES.length * SAMPLES.length * 2];
+        int n = 0;
+        for (double v : SAMPLES) {
+            for (double u : SAMPLES) {
+                points[n++] = cell.x0 + u * (cell.x1 - cell.x0);
+                points[n++] = cell.y0 + v * (cell.y1 - cell.y0);
+            }
+        }
+        double[] expected = new double[points.length];
+        try {
+            exact.transform(points, 0, expected, 0, points.length / 2);
+        } catch (TransformException e) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double[] interpolated = new double[2];
+        double max = 0;
+        for (int i = 0; i < points.length; i += 2) {
+            cell.interpolate(points[i], points[i + 1], interpolated, 0);
+            max = Math.max(max, Math.hypot(interpolated[0] - expected[i], interpolated[1] - expected[i + 1]));
+        }
+        return max;
+    }
+
+    @Override
+    public int getSourceDimensions() {
+        return 2;
+    }
+
+    @Override
+    public int getTargetDimensions() {
+        return 2;
+    }
+
+    @Override
+    public void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts)
+            throws TransformException {
+        //目标区域在源区域之后重叠时先复制源坐标，其余情况从前往后逐点处理是安全的
+        if (srcPts == dstPts && srcOff < dstOff) {
+            double[] copy = new double[numPts * 2];
+            System.arraycopy(srcPts, srcOff, copy, 0, numPts * 2);
+            srcPts = copy;
+            srcOff = 0;
+        }
+        for (int i = 0; i < numPts; i++) {
+            double x = srcPts[srcOff + i * 2];
+            double y = srcPts[srcOff + i * 2 + 1];
+            Cell cell = find(x, y);
+            if (cell == null || cell.exactOnly) {
+                double[] point = {x, y};
+                exact.transform(point, 0, dstPts, dstOff + i * 2, 1);
+            } else {
+                cell.interpolate(x, y, dstPts, dstOff + i * 2);
+            }
+        }
+    }
+
+    private Cell find(double x, double y) {
+        if (!(x >= root.x0 && x <= root.x1 && y >= root.y0 && y <= root.y1)) {
+            return null;
+        }
+        Cell cell = root;
+        while (cell.children != null) {
+            double mx = (cell.x0 + cell.x1) / 2;
+            double my = (cell.y0 + cell.y1) / 2;
+            cell = cell.children[(x < mx ? 0 : 1) + (y < my ? 0 : 2)];
+        }
+        return cell;
+    }
+
+    /**
+     * 被近似的精确转换
+     */
+    public MathTransform getExact() {
+        return exact;
+    }
+
+    public double getMaxError() {
+        return maxError;
+    }
+
+    /**
+     * 网格总数（包括非叶子节点）
+     */
+    public int getCellCount() {
+        return cells;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return object == this;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+
+    private static final class Cell {
+        final double x0, y0, x1, y1;
+        final int depth;
+        /** 四个角点的目标坐标：左下、右下、左上、右上 */
+        final double[] corners = new double[8];
+        Cell[] children;
+        boolean exactOnly;
+
+        Cell(double x0, double y0, double x1, double y1, int depth) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.depth = depth;
+        }
+
+        void interpolate(double x, double y, double[] dst, int off) {
+            double u = (x - x0) / (x1 - x0);
+            double v = (y - y0) / (y1 - y0);
+            double w00 = (1 - u) * (1 - v);
+            double w10 = u * (1 - v);
+            double w01 = (1 - u) * v;
+            double w11 = u * v;
+            dst[off] = w00 * corners[0] + w10 * corners[2] + w01 * corners[4] + w11 * corners[6];
+            dst[off + 1] = w00 * corners[1] + w10 * corners[3] + w01 * corners[5] + w11 * corners[7];
+        }
+    }
+}
@@ -1,36 +1,24 @@
 package com.suntoon.tutorial.crs;
 
+import com.suntoon.tutorial.data.DataStores;
+import com.suntoon.tutorial.data.LayerCache;
+import com.suntoon.tutorial.map.TiledFeatureLayer;
 import org.geotools.data.*;
-import org.geotools.data.shapefile.ShapefileDataStoreFactory;
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
-import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
-import org.geotools.geometry.jts.JTS;
-import org.geotools.map.FeatureLayer;
 import org.geotools.map.Layer;
 import org.geotools.map.MapContent;
-import org.geotools.referencing.CRS;
 import org.geotools.styling.SLD;
 import org.geotools.styling.Style;
 import org.geotools.swing.JMapFrame;
 import org.geotools.swing.action.SafeAction;
 import org.geotools.swing.data.JFileDataStoreChooser;
-import org.locationtech.jts.geom.Geometry;
-import org.opengis.feature.Feature;
-import org.opengis.feature.FeatureVisitor;
-import org.opengis.feature.simple.SimpleFeature;
-import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
-import org.opengis.referencing.operation.MathTransform;
 import org.opengis.util.ProgressListener;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.io.File;
-import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @ProjectionName geotools_tutorial
@@ -46,6 +34,8 @@ public class CRSLab {
     private MapContent map;
 
     public static void main(String[] args) throws Exception {
+        // Start the optional EPSG warm-up (-Dtutorial.crs.warmup) while the user picks a file
+        CrsCache.getInstance();
         CRSLab lab = new CRSLab();
         lab.displayShapefile();
     }
@@ -55,13 +45,15 @@ public class CRSLab {
         if (sourceFile == null) {
             return;
         }
-        FileDataStore store = FileDataStoreFinder.getDataStore(sourceFile);
-        featureSource = store.getFeatureSource();
+        FileDataStore store = DataStores.open(sourceFile);
+        // Served from memory when started with -Dtutorial.cache=true
+        featureSource = LayerCache.wrap(sourceFile, store.getFeatureSource());
 
         // Create a map context and add our shapefile to it
         map = new MapContent();
         Style style = SLD.createSimpleStyle(featureSource.getSchema());
-        Layer layer = new FeatureLayer(featureSource, style);
+        // Rendered as cached tiles when started with -Dtutorial.tiles=true
+        Layer layer = TiledFeatureLayer.create(featureSource, style, sourceFile);
         map.layers().add(layer);
 
         // Create a JMapFrame with custom toolbar buttons
@@ -86,40 +78,30 @@ public class CRSLab {
         }
 
         public void action(ActionEvent e) throws Throwable {
-            int numInvalid = validateFeatureGeometry(null);
+            GeometryValidator.Report report = validateFeatureGeometry(null);
+            int numInvalid = report.getNumInvalid();
             String msg;
             if (numInvalid == 0) {
                 msg = "All feature geometries are valid";
             } else {
-                msg = "Invalid geometries: " + numInvalid;
+                StringBuilder sb = new StringBuilder("Invalid geometries: " + numInvalid);
+                for (GeometryValidationError error : report.getErrors().subList(0, Math.min(numInvalid, 10))) {
+                    sb.append('\n').append(error);
+                }
+                msg = sb.toString();
             }
             JOptionPane.showMessageDialog(
                     null, msg, "Geometry results", JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
-    private int validateFeatureGeometry(ProgressListener progress) throws Exception {
+    private GeometryValidator.Report validateFeatureGeometry(ProgressListener progress) throws Exception {
         final SimpleFeatureCollection featureCollection = featureSource.getFeatures();
 
-        // Rather than use an iterator, create a FeatureVisitor to check each fature
-        class ValidationVisitor implements FeatureVisitor {
-            public int numInvalidGeometries = 0;
-
-            public void visit(Feature f) {
-                SimpleFeature feature = (SimpleFeature) f;
-                Geometry geom = (Geometry) feature.getDefaultGeometry();
-                if (geom != null && !geom.isValid()) {
-                    numInvalidGeometries++;
-                    System.out.println("Invalid Geoemtry: " + feature.getID());
-                }
-            }
-        }
-
-        ValidationVisitor visitor = new ValidationVisitor();
-
-        // Pass visitor and the progress bar to feature collection
-        featureCollection.accepts(visitor, progress);
-        return visitor.numInvalidGeometries;
+        // Spread the IsValidOp work over a pool of validator threads; the
+        // progress listener can still be used to follow or cancel the check
+        GeometryValidator validator = new GeometryValidator();
+        return validator.validate(featureCollection, progress);
     }
 
     class ExportShapefileAction extends SafeAction {
@@ -134,7 +116,6 @@ public class CRSLab {
     }
 
     private void exportToShapefile() throws Exception {
-        SimpleFeatureType schema = featureSource.getSchema();
         JFileDataStoreChooser chooser = new JFileDataStoreChooser("shp");
         chooser.setDialogTitle("Save reprojected shapefile");
         chooser.setSaveFile(sourceFile);
@@ -148,48 +129,29 @@ public class CRSLab {
             return;
         }
 
-        CoordinateReferenceSystem dataCRS = schema.getCoordinateReferenceSystem();
         CoordinateReferenceSystem worldCRS = map.getCoordinateReferenceSystem();
-        boolean lenient = true; // allow for some error due to different datums
-        MathTransform transform = CRS.findMathTransform(dataCRS, worldCRS, lenient);
-
-        SimpleFeatureCollection featureCollection = featureSource.getFeatures();
-
-        DataStoreFactorySpi factory = new ShapefileDataStoreFactory();
-        Map<String, Serializable> create = new HashMap<>();
-        create.put("url", file.toURI().toURL());
-        create.put("create spatial index", Boolean.TRUE);
-        DataStore dataStore = factory.createNewDataStore(create);
-        SimpleFeatureType featureType = SimpleFeatureTypeBuilder.retype(schema, worldCRS);
-        dataStore.createSchema(featureType);
-
-        // Get the name of the new Shapefile, which will be used to open the FeatureWriter
-        String createdName = dataStore.getTypeNames()[0];
-
-        Transaction transaction = new DefaultTransaction("Reproject");
-        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
-                     dataStore.getFeatureWriterAppend(createdName, transaction);
-             SimpleFeatureIterator iterator = featureCollection.features()) {
-            while (iterator.hasNext()) {
-                // copy the contents of each feature and transform the geometry
-                SimpleFeature feature = iterator.next();
-                SimpleFeature copy = writer.next();
-                copy.setAttributes(feature.getAttributes());
-
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                Geometry geometry2 = JTS.transform(geometry, transform);
-
-                copy.setDefaultGeometry(geometry2);
-                writer.write();
+
+        // Read, reproject and write on a background pipeline so that the
+        // transform work can use every core and the EDT stays responsive
+        final int workers = Runtime.getRuntime().availableProcessors();
+        // -Dtutorial.crs.maxError=0.1 trades exactness for speed on display-grade exports
+        final double maxError = Double.parseDouble(System.getProperty("tutorial.crs.maxError", "0"));
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return ReprojectionPipeline.exportToShapefile(featureSource, worldCRS, file, workers, maxError);
             }
-            transaction.commit();
-            JOptionPane.showMessageDialog(null, "Export to shapefile complete");
-        } catch (Exception problem) {
-            problem.printStackTrace();
-            transaction.rollback();
-            JOptionPane.showMessageDialog(null, "Export to shapefile failed");
-        } finally {
-            transaction.close();
-        }
+
+            @Override
+            protected void done() {
+                try {
+                    long count = get();
+                    JOptionPane.showMessageDialog(null, "Export to shapefile complete: " + count + " features");
+                } catch (Exception problem) {
+                    problem.printStackTrace();
+                    JOptionPane.showMessageDialog(null, "Export to shapefile failed");
+                }
+            }
+        }.execute();
     }
 }
@@ -0,0 +1,267 @@
+package com.suntoon.tutorial.crs;
+
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CrsCache
+ * @Description 线程安全的坐标参考系和MathTransform缓存：按(源CRS, 目标CRS, lenient)缓存转换，按代码缓存CRS，
+ *              容量有上限，按最近最少使用淘汰；同一个键并发未命中时只查询一次EPSG数据库。
+ *              设置 -Dtutorial.crs.warmup=EPSG:4326,EPSG:3857 后会在后台预先加载这些代码及其两两之间的转换
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:31
+ * @Version 1.0
+ */
+public class CrsCache {
+    /** 预热的EPSG代码列表，逗号分隔 */
+    public static final String WARMUP_PROPERTY = "tutorial.crs.warmup";
+
+    private static final CrsCache INSTANCE = createDefault();
+
+    private final Lru<TransformKey, MathTransform> transforms;
+    private final Lru<String, CoordinateReferenceSystem> crs;
+
+    public CrsCache(int maxEntries) {
+        this.transforms = new Lru<>(maxEntries);
+        this.crs = new Lru<>(maxEntries);
+    }
+
+    /**
+     * 进程内共享的缓存
+     */
+    public static CrsCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static CrsCache createDefault() {
+        CrsCache cache = new CrsCache(Integer.getInteger("tutorial.crs.cacheSize", 256));
+        String codes = System.getProperty(WARMUP_PROPERTY);
+        if (codes != null && !codes.trim().isEmpty()) {
+            Thread thread = new Thread(() -> cache.warmUp(Arrays.asList(codes.split(","))), "crs-warmup");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return cache;
+    }
+
+    /**
+     * @Author agent
+     * @Description //等同于CRS.findMathTransform，但结果会被缓存
+     * @Date 上午 3:31 2026/10/17 0017
+     * @param source 源坐标参考系
+     * @param target 目标坐标参考系
+     * @param lenient 是否允许因基准面不同带来的误差
+     * @return org.opengis.referencing.operation.MathTransform
+     */
+    public MathTransform findMathTransform(CoordinateReferenceSystem source, CoordinateReferenceSystem target,
+                                           boolean lenient) throws FactoryException {
+        return transforms.get(new TransformKey(source, target, lenient),
+                () -> CRS.findMathTransform(source, target, lenient));
+    }
+
+    /**
+     * 等同于CRS.decode，但结果会被缓存
+     */
+    public CoordinateReferenceSystem decode(String code) throws FactoryException {
+        return crs.get(code.trim(), () -> CRS.decode(code.trim()));
+    }
+
+    /**
+     * @Author agent
+     * @Description //预先解析codes中的每个代码，并查找它们两两之间的转换；第一次调用会启动EPSG数据库
+     * @Date 上午 3:31 2026/10/17 0017
+     * @param codes EPSG代码，例如 "EPSG:4326"
+     */
+    public void warmUp(Collection<String> codes) {
+        List<CoordinateReferenceSystem> decoded = new ArrayList<>();
+        for (String code : codes) {
+            try {
+                decoded.add(decode(code));
+            } catch (FactoryException e) {
+                System.err.println("Could not decode " + code + ": " + e.getMessage());
+            }
+        }
+        for (CoordinateReferenceSystem source : decoded) {
+            for (CoordinateReferenceSystem target : decoded) {
+                if (source != target) {
+                    try {
+                        findMathTransform(source, target, true);
+                    } catch (FactoryException e) {
+                        System.err.println("No transform from " + CRS.toSRS(source) + " to " + CRS.toSRS(target));
+                    }
+                }
+            }
+        }
+    }
+
+    public Stats getTransformStats() {
+        return transforms.stats();
+    }
+
+    public Stats getCrsStats() {
+        return crs.stats();
+    }
+
+    public void clear() {
+        transforms.clear();
+        crs.clear();
+    }
+
+    private static final class TransformKey {
+        final CoordinateReferenceSystem source;
+        final CoordinateReferenceSystem target;
+        final boolean lenient;
+        final int hash;
+
+        TransformKey(CoordinateReferenceSystem source, CoordinateReferenceSystem target, boolean lenient) {
+            this.source = source;
+            this.target = target;
+            this.lenient = lenient;
+            this.hash = Objects.hash(source, target, lenient);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TransformKey)) {
+                return false;
+            }
+            TransformKey other = (TransformKey) o;
+            return lenient == other.lenient && Objects.equals(source, other.source)
+                    && Objects.equals(target, other.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 按访问顺序淘汰的缓存，值在锁外计算，正在计算的值以FutureTask的形式占位
+     */
+    private static final class Lru<K, V> {
+        private final Map<K, FutureTask<V>> map;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        Lru(final int maxEntries) {
+            this.map = new LinkedHashMap<K, FutureTask<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, FutureTask<V>> eldest) {
+                    if (size() > maxEntries) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        V get(K key, Callable<V> loader) throws FactoryException {
+            FutureTask<V> task;
+            boolean owner = false;
+            synchronized (map) {
+                task = map.get(key);
+                if (task == null) {
+                    task = new FutureTask<>(loader);
+                    map.put(key, task);
+                    owner = true;
+                }
+            }
+            if (owner) {
+                misses.incrementAndGet();
+                task.run();
+            } else {
+                hits.incrementAndGet();
+            }
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FactoryException("Interrupted while waiting for " + key, e);
+            } catch (ExecutionException e) {
+                synchronized (map) {
+                    map.remove(key, task);
+                }
+                if (e.getCause() instanceof FactoryException) {
+                    throw (FactoryException) e.getCause();
+                }
+                throw new FactoryException(e.getCause());
+            }
+        }
+
+        Stats stats() {
+            int size;
+            synchronized (map) {
+                size = map.size();
+            }
+            return new Stats(hits.get(), misses.get(), evictions.get(), size);
+        }
+
+        void clear() {
+            synchronized (map) {
+                map.clear();
+            }
+        }
+    }
+
+    /**
+     * 命中、未命中、淘汰次数和当前大小
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+
+        Stats(long hits, long misses, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, evictions=%d, size=%d, hit ratio=%.2f",
+                    hits, misses, evictions, size, getHitRatio());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.suntoon.tutorial.crs;
+
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName GeometryValidationError
+ * @Description 一个无效几何的检查结果：要素ID、错误类型和出错位置
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:29
+ * @Version 1.0
+ */
+public class GeometryValidationError {
+    private final long sequence;
+    private final String featureId;
+    private final String errorType;
+    private final Coordinate location;
+
+    public GeometryValidationError(long sequence, String featureId, String errorType, Coordinate location) {
+        this.sequence = sequence;
+        this.featureId = featureId;
+        this.errorType = errorType;
+        this.location = location;
+    }
+
+    /**
+     * 要素在集合中的读取顺序，从0开始
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getFeatureId() {
+        return featureId;
+    }
+
+    /**
+     * 错误类型，例如 "Self-intersection"、"Ring Self-intersection"
+     */
+    public String getErrorType() {
+        return errorType;
+    }
+
+    /**
+     * 出错的位置，无法定位时为null
+     */
+    public Coordinate getLocation() {
+        return location;
+    }
+
+    @Override
+    public String toString() {
+        return featureId + ": " + errorType + (location == null ? "" : " at " + location);
+    }
+}
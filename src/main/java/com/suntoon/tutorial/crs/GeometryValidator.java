@@ -0,0 +1,270 @@
+package com.suntoon.tutorial.crs;
+
+import com.suntoon.tutorial.metrics.Instrumentation;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.operation.valid.IsValidOp;
+import org.locationtech.jts.operation.valid.TopologyValidationError;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.util.ProgressListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName GeometryValidator
+ * @Description 并行几何有效性检查：调用线程负责读取要素，通过有界队列交给若干个校验线程执行IsValidOp，
+ *              结果以GeometryValidationError列表的形式返回，支持ProgressListener和取消
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:29
+ * @Version 1.0
+ */
+public class GeometryValidator {
+    private static final Task POISON = new Task(-1, null, null);
+
+    private final int threads;
+    private final int queueCapacity;
+    private volatile boolean cancelled;
+
+    public GeometryValidator() {
+        this(Runtime.getRuntime().availableProcessors(), 1024);
+    }
+
+    public GeometryValidator(int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("threads and queueCapacity must be positive");
+        }
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @Author agent
+     * @Description //检查集合中每个要素的默认几何
+     * @Date 上午 3:29 2026/10/17 0017
+     * @param featureCollection 要检查的要素集合
+     * @param progress 进度条，可以为null；在进度条上取消等同于调用cancel()
+     * @return com.suntoon.tutorial.crs.GeometryValidator.Report
+     */
+    public Report validate(SimpleFeatureCollection featureCollection, ProgressListener progress) throws IOException {
+        cancelled = false;
+        final BlockingQueue<Task> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final ConcurrentLinkedQueue<GeometryValidationError> errors = new ConcurrentLinkedQueue<>();
+        final AtomicLong checked = new AtomicLong();
+        //第一个让工作线程退出的异常，包括Error（例如StackOverflowError）
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+                try {
+                    for (Task task = queue.take(); task != POISON; task = queue.take()) {
+                        if (!cancelled) {
+                            GeometryValidationError error = check(task);
+                            if (error != null) {
+                                errors.add(error);
+                            }
+                            checked.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+                return null;
+            }));
+        }
+
+        int size = featureCollection.size();
+        long read = 0;
+        if (progress != null) {
+            progress.started();
+        }
+        try (SimpleFeatureIterator iterator = featureCollection.features()) {
+            while (iterator.hasNext() && !isCancelled(progress) && failure.get() == null) {
+                SimpleFeature feature = iterator.next();
+                Geometry geom = (Geometry) feature.getDefaultGeometry();
+                if (geom != null) {
+                    put(queue, new Task(read, feature.getID(), geom), failure);
+                }
+                read++;
+                if (progress != null && size > 0) {
+                    progress.progress(100f * read / size);
+                }
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+            Thread.currentThread().interrupt();
+        } finally {
+            if (cancelled || failure.get() != null) {
+                queue.clear();
+            }
+            boolean stopped = true;
+            for (int i = 0; i < threads && stopped; i++) {
+                stopped = putUninterruptibly(queue, POISON, failure);
+            }
+            if (stopped) {
+                executor.shutdown();
+            } else {
+                //有工作线程已经失败，不再等待队列腾出位置，中断其余的工作线程
+                executor.shutdownNow();
+            }
+        }
+
+        Throwable error = failure.get();
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            executor.shutdownNow();
+            error = e;
+        }
+        if (error != null) {
+            if (progress != null) {
+                progress.exceptionOccurred(error);
+            }
+            throw new IOException("Geometry validation failed", error);
+        }
+        if (progress != null) {
+            progress.complete();
+        }
+
+        List<GeometryValidationError> sorted = new ArrayList<>(errors);
+        sorted.sort(Comparator.comparingLong(GeometryValidationError::getSequence));
+        return new Report(sorted, checked.get(), cancelled);
+    }
+
+    /**
+     * 取消正在进行的检查，已经得到的结果仍然会返回
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private boolean isCancelled(ProgressListener progress) {
+        if (progress != null && progress.isCanceled()) {
+            cancelled = true;
+        }
+        return cancelled;
+    }
+
+    private static GeometryValidationError check(Task task) {
+        long start = Instrumentation.start();
+        try {
+            TopologyValidationError error = new IsValidOp(task.geometry).getValidationError();
+            Instrumentation.record("geometry.isValid", start, 1);
+            if (error == null) {
+                return null;
+            }
+            return new GeometryValidationError(task.sequence, task.featureId,
+                    TopologyValidationError.errMsg[error.getErrorType()], error.getCoordinate());
+        } catch (RuntimeException e) {
+            //个别几何会让IsValidOp本身抛出异常，这同样说明它是无效的
+            Instrumentation.recordError("geometry.isValid");
+            return new GeometryValidationError(task.sequence, task.featureId, e.toString(), null);
+        }
+    }
+
+    /**
+     * 队列满时定时检查工作线程是否已经失败，失败后不再等待，否则读取线程会一直阻塞
+     */
+    private static void put(BlockingQueue<Task> queue, Task task, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        while (!queue.offer(task, 100, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 和put一样，但不响应中断；工作线程已经失败时返回false
+     */
+    private static boolean putUninterruptibly(BlockingQueue<Task> queue, Task task,
+                                              AtomicReference<Throwable> failure) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (queue.offer(task, 100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                    if (failure.get() != null) {
+                        return false;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Task {
+        final long sequence;
+        final String featureId;
+        final Geometry geometry;
+
+        Task(long sequence, String featureId, Geometry geometry) {
+            this.sequence = sequence;
+            this.featureId = featureId;
+            this.geometry = geometry;
+        }
+    }
+
+    /**
+     * 一次检查的结果
+     */
+    public static class Report {
+        private final List<GeometryValidationError> errors;
+        private final long checked;
+        private final boolean cancelled;
+
+        Report(List<GeometryValidationError> errors, long checked, boolean cancelled) {
+            this.errors = Collections.unmodifiableList(errors);
+            this.checked = checked;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * 按要素读取顺序排列的无效几何
+         */
+        public List<GeometryValidationError> getErrors() {
+            return errors;
+        }
+
+        public int getNumInvalid() {
+            return errors.size();
+        }
+
+        /**
+         * 实际检查过的几何数量
+         */
+        public long getChecked() {
+            return checked;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,595 @@
+package com.suntoon.tutorial.crs;
+
+import com.suntoon.tutorial.data.DataStores;
+import com.suntoon.tutorial.shapefile.NioShapefileWriter;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.FileDataStoreFinder;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBWriter;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName IncrementalExport
+ * @Description 增量重投影导出：输出shapefile旁边保存一个清单（name.manifest），按输出的记录顺序记录每个要素的键和
+ *              属性+几何的摘要。再次导出时先扫描源数据计算摘要（不做坐标转换），与清单比较得到新增、修改和删除的要素，
+ *              只有这些要素经过坐标转换；其余要素直接从上一次的输出中复制，已经是目标坐标系，不再转换。
+ *              没有任何变化时不改写输出。shapefile不能就地修改记录，所以有变化时输出仍然重写一遍（顺序复制），
+ *              新增的要素追加在最后。目标坐标系、maxError、要素类型或键的设置变化，以及清单与输出不一致时，自动完整导出。
+ *              shapefile的FID是记录号，删除一条记录会让后面所有要素的FID改变，源数据是shapefile时应该用setKeyAttribute
+ *              指定一个唯一的属性作为键
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:03
+ * @Version 1.0
+ */
+public class IncrementalExport {
+    /** 用FID作为键 */
+    public static final String FID_KEY = "@fid";
+
+    private static final String MANIFEST_VERSION = "incremental-export 1";
+    private static final String[] SIDECARS = {".shp", ".shx", ".dbf", ".prj", ".qix", ".cpg", ".fix"};
+
+    private final CoordinateReferenceSystem targetCRS;
+    private final double maxError;
+    private final int workers;
+    private String keyAttribute = FID_KEY;
+
+    public IncrementalExport(CoordinateReferenceSystem targetCRS) {
+        this(targetCRS, 0, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param targetCRS 目标坐标参考系
+     * @param maxError 近似转换允许的最大误差（目标坐标系单位），0表示精确转换
+     * @param workers 完整导出时的转换线程数
+     */
+    public IncrementalExport(CoordinateReferenceSystem targetCRS, double maxError, int workers) {
+        this.targetCRS = targetCRS;
+        this.maxError = maxError;
+        this.workers = workers;
+    }
+
+    public String getKeyAttribute() {
+        return keyAttribute;
+    }
+
+    /**
+     * 作为要素键的属性名，默认是FID_KEY（用要素的FID）；键必须在源数据中唯一且跨次导出保持不变
+     */
+    public void setKeyAttribute(String keyAttribute) {
+        this.keyAttribute = keyAttribute == null ? FID_KEY : keyAttribute;
+    }
+
+    /**
+     * @Author agent
+     * @Description //把source导出到output：有可用的清单时只转换变化的要素，否则完整导出；最后更新清单
+     * @Date 上午 4:03 2026/10/17 0017
+     * @param source 源要素
+     * @param output 输出的shapefile，不能是源文件
+     * @return com.suntoon.tutorial.crs.IncrementalExport.Result
+     */
+    public Result export(SimpleFeatureSource source, File output) throws Exception {
+        long start = System.nanoTime();
+        SimpleFeatureType featureType = SimpleFeatureTypeBuilder.retype(source.getSchema(), targetCRS);
+        if (!FID_KEY.equals(keyAttribute) && featureType.getDescriptor(keyAttribute) == null) {
+            throw new IllegalArgumentException("No such attribute: " + keyAttribute);
+        }
+        String configuration = configuration(featureType);
+        File manifestFile = sibling(output, ".manifest");
+        Manifest previous = Manifest.read(manifestFile, configuration);
+        if (previous != null && previous.size() != countOutput(output)) {
+            previous = null;    //上一次导出中途失败或输出被改动过
+        }
+        if (previous == null) {
+            //清除上一次可能留下的分卷，避免多出来的旧分卷被当成输出的一部分
+            Files.deleteIfExists(manifestFile.toPath());
+            deleteOutput(output);
+            long count = ReprojectionPipeline.exportToShapefile(source, targetCRS, output, workers, maxError);
+            Manifest manifest = new Manifest(configuration);
+            try (SimpleFeatureIterator features = source.getFeatures().features()) {
+                Hasher hasher = new Hasher();
+                while (features.hasNext()) {
+                    SimpleFeature feature = features.next();
+                    manifest.add(key(feature), hasher.digest(feature));
+                }
+            }
+            if (manifest.size() != count) {
+                throw new IOException("Source changed during export of " + output);
+            }
+            manifest.write(manifestFile);
+            return new Result(true, count, 0, 0, 0, System.nanoTime() - start);
+        }
+
+        //扫描源数据，只转换新增和修改的要素；和完整导出一样用PackedGeometryTransformer，两条路径的结果逐位相同
+        MathTransform transform = ReprojectionPipeline.exportTransform(source, targetCRS, maxError);
+        PackedGeometryTransformer transformer = new PackedGeometryTransformer(transform);
+        BitSet seen = new BitSet(previous.size());
+        Map<Integer, Delta> updates = new HashMap<>();
+        Map<String, Delta> inserts = new LinkedHashMap<>();
+        long unchanged = 0;
+        try (SimpleFeatureIterator features = source.getFeatures().features()) {
+            Hasher hasher = new Hasher();
+            while (features.hasNext()) {
+                SimpleFeature feature = features.next();
+                String key = key(feature);
+                long digest = hasher.digest(feature);
+                int index = previous.indexOf(key);
+                if (index >= 0) {
+                    if (seen.get(index)) {
+                        throw new IOException("Duplicate key " + key + " in " + source.getName());
+                    }
+                    seen.set(index);
+                    if (previous.digest(index) == digest) {
+                        unchanged++;
+                    } else {
+                        updates.put(index, new Delta(digest, transform(feature, featureType, transformer)));
+                    }
+                } else if (inserts.put(key, new Delta(digest, transform(feature, featureType, transformer))) != null) {
+                    throw new IOException("Duplicate key " + key + " in " + source.getName());
+                }
+            }
+        }
+        long deleted = previous.size() - seen.cardinality();
+        if (updates.isEmpty() && inserts.isEmpty() && deleted == 0) {
+            return new Result(false, unchanged, 0, 0, 0, System.nanoTime() - start);
+        }
+
+        //按上一次的记录顺序合并：删除的跳过，修改的替换，其余复制，最后追加新增的
+        File staging = new File(output.getAbsoluteFile().getParentFile(), "." + baseName(output) + ".incremental");
+        deleteDirectory(staging);
+        Files.createDirectories(staging.toPath());
+        File staged = new File(staging, output.getName());
+        Manifest manifest = new Manifest(configuration);
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer = new NioShapefileWriter(staged, featureType)) {
+            int index = 0;
+            for (File part : parts(output)) {
+                FileDataStore store = FileDataStoreFinder.getDataStore(part);
+                try (SimpleFeatureIterator features = store.getFeatureSource().getFeatures().features()) {
+                    int[] columns = columns(store.getSchema(), featureType, part);
+                    while (features.hasNext()) {
+                        SimpleFeature old = features.next();
+                        if (seen.get(index)) {
+                            Delta update = updates.get(index);
+                            write(writer, update == null ? copy(old, columns) : update.attributes);
+                            manifest.add(previous.key(index), update == null ? previous.digest(index) : update.digest);
+                        }
+                        index++;
+                    }
+                } finally {
+                    store.dispose();
+                }
+            }
+            for (Map.Entry<String, Delta> insert : inserts.entrySet()) {
+                write(writer, insert.getValue().attributes);
+                manifest.add(insert.getKey(), insert.getValue().digest);
+            }
+        }
+
+        //先删除旧的输出和清单，再把新的文件移过去；中途失败时下一次导出会因为清单不一致而完整导出
+        Files.deleteIfExists(manifestFile.toPath());
+        deleteOutput(output);
+        File[] files = staging.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.move(file.toPath(), new File(output.getAbsoluteFile().getParentFile(), file.getName()).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        deleteDirectory(staging);
+        manifest.write(manifestFile);
+        return new Result(false, unchanged, inserts.size(), updates.size(), deleted, System.nanoTime() - start);
+    }
+
+    private String key(SimpleFeature feature) {
+        if (FID_KEY.equals(keyAttribute)) {
+            return feature.getID();
+        }
+        return String.valueOf(feature.getAttribute(keyAttribute));
+    }
+
+    /**
+     * 清单的配置行：目标坐标系、近似误差、输出的要素类型和键，任何一个变化都需要完整导出
+     */
+    private String configuration(SimpleFeatureType featureType) {
+        String crs = targetCRS == null ? "" : targetCRS.toWKT().replaceAll("\\s+", " ");
+        return Long.toHexString(Hasher.digestBytes(crs.getBytes(StandardCharsets.UTF_8))) + " " + maxError + " "
+                + keyAttribute + " " + DataUtilities.encodeType(featureType);
+    }
+
+    /**
+     * 源要素按featureType的属性顺序按名取值，几何经过坐标转换
+     */
+    private static List<Object> transform(SimpleFeature feature, SimpleFeatureType featureType,
+                                          PackedGeometryTransformer transformer) throws Exception {
+        List<Object> attributes = new ArrayList<>(featureType.getAttributeCount());
+        for (AttributeDescriptor descriptor : featureType.getAttributeDescriptors()) {
+            if (descriptor instanceof GeometryDescriptor) {
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                attributes.add(geometry == null ? null : transformer.transform(geometry));
+            } else {
+                attributes.add(feature.getAttribute(descriptor.getLocalName()));
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * @Author agent
+     * @Description //featureType的每个属性在上一次输出的分卷中的位置：几何对应分卷的几何列（shapefile中总是the_geom），
+     *               其他属性按名对应，.dbf把超过10个字符的列名截断，找不到时按截断后的名字再找一次
+     * @Date 上午 4:33 2026/10/17 0017
+     * @param schema 分卷的要素类型
+     * @param featureType 输出的要素类型
+     * @param part 分卷，用于错误信息
+     * @return int[]
+     */
+    private static int[] columns(SimpleFeatureType schema, SimpleFeatureType featureType, File part)
+            throws IOException {
+        int[] columns = new int[featureType.getAttributeCount()];
+        for (int i = 0; i < columns.length; i++) {
+            AttributeDescriptor descriptor = featureType.getDescriptor(i);
+            String name = descriptor.getLocalName();
+            if (descriptor instanceof GeometryDescriptor) {
+                columns[i] = schema.indexOf(schema.getGeometryDescriptor().getLocalName());
+                continue;
+            }
+            columns[i] = schema.indexOf(name);
+            if (columns[i] < 0 && name.length() > 10) {
+                columns[i] = schema.indexOf(name.substring(0, 10));
+            }
+            if (columns[i] < 0) {
+                throw new IOException("Attribute " + name + " is missing from " + part);
+            }
+        }
+        return columns;
+    }
+
+    private static List<Object> copy(SimpleFeature old, int[] columns) {
+        List<Object> attributes = new ArrayList<>(columns.length);
+        for (int column : columns) {
+            attributes.add(old.getAttribute(column));
+        }
+        return attributes;
+    }
+
+    private static void write(FeatureWriter<SimpleFeatureType, SimpleFeature> writer, List<Object> attributes)
+            throws IOException {
+        SimpleFeature copy = writer.next();
+        copy.setAttributes(attributes);
+        writer.write();
+    }
+
+    /**
+     * 输出的全部分卷（见NioShapefileWriter），不存在时为空
+     */
+    static List<File> parts(File output) {
+        List<File> parts = new ArrayList<>();
+        File part = output;
+        while (part.exists()) {
+            parts.add(part);
+            part = new File(output.getAbsoluteFile().getParentFile(), baseName(output) + "_" + parts.size() + ".shp");
+        }
+        return parts;
+    }
+
+    private static void deleteOutput(File output) throws IOException {
+        for (File part : parts(output)) {
+            for (String extension : SIDECARS) {
+                Files.deleteIfExists(sibling(part, extension).toPath());
+            }
+        }
+    }
+
+    private static long countOutput(File output) throws IOException {
+        long count = 0;
+        for (File part : parts(output)) {
+            FileDataStore store = FileDataStoreFinder.getDataStore(part);
+            if (store == null) {
+                return -1;
+            }
+            try {
+                count += store.getFeatureSource().getCount(Query.ALL);
+            } finally {
+                store.dispose();
+            }
+        }
+        return count;
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    private static File sibling(File file, String extension) {
+        return new File(file.getAbsoluteFile().getParentFile(), baseName(file) + extension);
+    }
+
+    private static void deleteDirectory(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        Files.deleteIfExists(directory.toPath());
+    }
+
+    /**
+     * 一个新增或修改的要素：新的摘要和转换后的属性
+     */
+    private static class Delta {
+        final long digest;
+        final List<Object> attributes;
+
+        Delta(long digest, List<Object> attributes) {
+            this.digest = digest;
+            this.attributes = attributes;
+        }
+    }
+
+    /**
+     * 要素摘要：非几何属性的文本和几何的WKB做MD5，取前8个字节；每个线程用自己的实例
+     */
+    static class Hasher {
+        private final MessageDigest md5 = newDigest();
+        private final WKBWriter wkb = new WKBWriter(3);
+
+        long digest(SimpleFeature feature) {
+            md5.reset();
+            for (Object value : feature.getAttributes()) {
+                if (value instanceof Geometry) {
+                    md5.update(wkb.write((Geometry) value));
+                } else if (value == null) {
+                    md5.update((byte) 1);
+                } else {
+                    md5.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                }
+                md5.update((byte) 0);
+            }
+            return toLong(md5.digest());
+        }
+
+        static long digestBytes(byte[] bytes) {
+            return toLong(newDigest().digest(bytes));
+        }
+
+        private static long toLong(byte[] digest) {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (digest[i] & 0xFF);
+            }
+            return value;
+        }
+
+        private static MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);    //每个JRE都必须提供MD5
+            }
+        }
+    }
+
+    /**
+     * 清单：第一行是版本，第二行是配置，之后每行“键\t摘要”，顺序与输出的记录顺序相同
+     */
+    static class Manifest {
+        private final String configuration;
+        private final List<String> keys = new ArrayList<>();
+        private long[] digests = new long[1024];
+        private final Map<String, Integer> index = new HashMap<>();
+
+        Manifest(String configuration) {
+            this.configuration = configuration;
+        }
+
+        /**
+         * 读取清单，不存在、版本或配置不同时返回null
+         */
+        static Manifest read(File file, String configuration) throws IOException {
+            if (!file.exists()) {
+                return null;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                if (!MANIFEST_VERSION.equals(reader.readLine()) || !configuration.equals(reader.readLine())) {
+                    return null;
+                }
+                Manifest manifest = new Manifest(configuration);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.lastIndexOf('\t');
+                    if (tab < 0) {
+                        return null;
+                    }
+                    manifest.add(unescape(line.substring(0, tab)), Long.parseUnsignedLong(line.substring(tab + 1), 16));
+                }
+                return manifest;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        void add(String key, long digest) {
+            if (keys.size() == digests.length) {
+                digests = Arrays.copyOf(digests, digests.length * 2);
+            }
+            digests[keys.size()] = digest;
+            index.put(key, keys.size());
+            keys.add(key);
+        }
+
+        int size() {
+            return keys.size();
+        }
+
+        int indexOf(String key) {
+            Integer position = index.get(key);
+            return position == null ? -1 : position;
+        }
+
+        String key(int position) {
+            return keys.get(position);
+        }
+
+        long digest(int position) {
+            return digests[position];
+        }
+
+        /**
+         * 先写临时文件再替换，不会留下写了一半的清单
+         */
+        void write(File file) throws IOException {
+            File temp = new File(file.getPath() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(MANIFEST_VERSION);
+                writer.newLine();
+                writer.write(configuration);
+                writer.newLine();
+                for (int i = 0; i < keys.size(); i++) {
+                    writer.write(escape(keys.get(i)));
+                    writer.write('\t');
+                    writer.write(Long.toHexString(digests[i]));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        private static String escape(String key) {
+            return key.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+        }
+
+        private static String unescape(String key) {
+            StringBuilder result = new StringBuilder(key.length());
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (c == '\\' && i + 1 < key.length()) {
+                    char next = key.charAt(++i);
+                    result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+                } else {
+                    result.append(c);
+                }
+            }
+            return result.toString();
+        }
+    }
+
+    /**
+     * 一次导出的结果
+     */
+    public static class Result {
+        private final boolean full;
+        private final long unchanged;
+        private final long inserted;
+        private final long updated;
+        private final long deleted;
+        private final long elapsedNanos;
+
+        Result(boolean full, long unchanged, long inserted, long updated, long deleted, long elapsedNanos) {
+            this.full = full;
+            this.unchanged = unchanged;
+            this.inserted = inserted;
+            this.updated = updated;
+            this.deleted = deleted;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** 是否做了完整导出（第一次导出或配置变化），此时unchanged是写出的要素数 */
+        public boolean isFull() {
+            return full;
+        }
+
+        public long getUnchanged() {
+            return unchanged;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public long getDeleted() {
+            return deleted;
+        }
+
+        /** 输出中的要素数 */
+        public long getWritten() {
+            return unchanged + inserted + updated;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            if (full) {
+                return String.format(Locale.ROOT, "full export of %d features in %.2fs", unchanged, elapsedNanos / 1e9);
+            }
+            return String.format(Locale.ROOT, "inserted=%d, updated=%d, deleted=%d, unchanged=%d in %.2fs",
+                    inserted, updated, deleted, unchanged, elapsedNanos / 1e9);
+        }
+    }
+
+    /**
+     * 命令行用法：IncrementalExport source.shp target.shp EPSG:4326 [keyAttribute] [maxError]，适合放在每晚的计划任务里
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: IncrementalExport <source.shp> <target.shp> <crs code> [keyAttribute] [maxError]");
+            System.exit(1);
+        }
+        File source = new File(args[0]);
+        File target = new File(args[1]);
+        if (source.getCanonicalFile().equals(target.getCanonicalFile())) {
+            System.err.println("Cannot replace " + source);
+            System.exit(1);
+        }
+        double maxError = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+        IncrementalExport export = new IncrementalExport(CrsCache.getInstance().decode(args[2]), maxError,
+                Runtime.getRuntime().availableProcessors());
+        if (args.length > 3) {
+            export.setKeyAttribute(args[3]);
+        }
+        FileDataStore store = DataStores.open(source);
+        try {
+            System.out.println("Export: " + export.export(store.getFeatureSource(), target));
+        } finally {
+            store.dispose();
+        }
+    }
+}
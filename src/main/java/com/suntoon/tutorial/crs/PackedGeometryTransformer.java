@@ -0,0 +1,237 @@
+package com.suntoon.tutorial.crs;
+
+import org.geotools.geometry.jts.JTS;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import java.util.Arrays;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName PackedGeometryTransformer
+ * @Description 批量坐标转换：把一个几何（或一批几何）的全部坐标放进一个double[]，
+ *              只调用一次MathTransform.transform(double[],int,double[],int,int)，
+ *              再用PackedCoordinateSequence重建几何，整个过程不创建Coordinate对象。
+ *              只转换X/Y，Z等其余坐标维度原样保留，结果的维度、SRID和精度模型与源几何相同；
+ *              转换本身不是二维的退回JTS.transform；
+ *              内部缓冲区会被复用，所以一个实例不能被多个线程同时使用
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:31
+ * @Version 1.0
+ */
+public class PackedGeometryTransformer {
+    private final MathTransform transform;
+    /** 指定的结果工厂，为null时按源几何的工厂派生 */
+    private final GeometryFactory factory;
+    private final boolean twoDimensional;
+    private double[] buffer = new double[1024];
+    private int offset;
+    /** 最近一次派生的工厂及其来源，同一数据源的几何通常共用一个工厂 */
+    private GeometryFactory sourceFactory;
+    private GeometryFactory derivedFactory;
+
+    public PackedGeometryTransformer(MathTransform transform) {
+        this(transform, null);
+    }
+
+    /**
+     * @param transform 坐标转换
+     * @param factory 用来创建结果几何的工厂，坐标序列总是PackedCoordinateSequence；
+     *                为null时使用与源几何相同的SRID和精度模型
+     */
+    public PackedGeometryTransformer(MathTransform transform, GeometryFactory factory) {
+        this.transform = transform;
+        this.factory = factory;
+        this.twoDimensional = transform.getSourceDimensions() == 2 && transform.getTargetDimensions() == 2;
+    }
+
+    /**
+     * @Author agent
+     * @Description //转换一个几何
+     * @Date 上午 3:31 2026/10/17 0017
+     * @param geometry 源几何，可以为null
+     * @return org.locationtech.jts.geom.Geometry
+     */
+    public Geometry transform(Geometry geometry) throws TransformException {
+        if (geometry == null) {
+            return null;
+        }
+        if (!twoDimensional) {
+            return JTS.transform(geometry, transform);
+        }
+        int numPoints = geometry.getNumPoints();
+        ensureCapacity(numPoints);
+        offset = 0;
+        pack(geometry);
+        transform.transform(buffer, 0, buffer, 0, numPoints);
+        offset = 0;
+        return rebuild(geometry, factoryFor(geometry));
+    }
+
+    /**
+     * @Author agent
+     * @Description //转换一批几何，所有坐标只调用一次MathTransform
+     * @Date 上午 3:31 2026/10/17 0017
+     * @param geometries 源几何，元素可以为null
+     * @return org.locationtech.jts.geom.Geometry[] 与输入一一对应的结果
+     */
+    public Geometry[] transform(Geometry[] geometries) throws TransformException {
+        Geometry[] result = new Geometry[geometries.length];
+        if (!twoDimensional) {
+            for (int i = 0; i < geometries.length; i++) {
+                result[i] = geometries[i] == null ? null : JTS.transform(geometries[i], transform);
+            }
+            return result;
+        }
+        int numPoints = 0;
+        for (Geometry geometry : geometries) {
+            if (geometry != null) {
+                numPoints += geometry.getNumPoints();
+            }
+        }
+        ensureCapacity(numPoints);
+        offset = 0;
+        for (Geometry geometry : geometries) {
+            if (geometry != null) {
+                pack(geometry);
+            }
+        }
+        transform.transform(buffer, 0, buffer, 0, numPoints);
+        offset = 0;
+        for (int i = 0; i < geometries.length; i++) {
+            result[i] = geometries[i] == null ? null : rebuild(geometries[i], factoryFor(geometries[i]));
+        }
+        return result;
+    }
+
+    private GeometryFactory factoryFor(Geometry geometry) {
+        if (factory != null) {
+            return factory;
+        }
+        if (geometry.getFactory() != sourceFactory) {
+            sourceFactory = geometry.getFactory();
+            derivedFactory = new GeometryFactory(sourceFactory.getPrecisionModel(), sourceFactory.getSRID(),
+                    PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+        }
+        return derivedFactory;
+    }
+
+    private void ensureCapacity(int numPoints) {
+        if (buffer.length < numPoints * 2) {
+            buffer = new double[Math.max(numPoints * 2, buffer.length * 2)];
+        }
+    }
+
+    /**
+     * 按rebuild相同的遍历顺序把坐标写入缓冲区
+     */
+    private void pack(Geometry geometry) {
+        if (geometry instanceof Point) {
+            pack(((Point) geometry).getCoordinateSequence());
+        } else if (geometry instanceof LineString) {
+            pack(((LineString) geometry).getCoordinateSequence());
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            pack(polygon.getExteriorRing().getCoordinateSequence());
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                pack(polygon.getInteriorRingN(i).getCoordinateSequence());
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                pack(geometry.getGeometryN(i));
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type: " + geometry.getGeometryType());
+        }
+    }
+
+    private void pack(CoordinateSequence sequence) {
+        for (int i = 0; i < sequence.size(); i++) {
+            buffer[offset++] = sequence.getX(i);
+            buffer[offset++] = sequence.getY(i);
+        }
+    }
+
+    private Geometry rebuild(Geometry geometry, GeometryFactory factory) {
+        Geometry result;
+        if (geometry instanceof Point) {
+            result = factory.createPoint(unpack(((Point) geometry).getCoordinateSequence()));
+        } else if (geometry instanceof LinearRing) {
+            result = factory.createLinearRing(unpack(((LinearRing) geometry).getCoordinateSequence()));
+        } else if (geometry instanceof LineString) {
+            result = factory.createLineString(unpack(((LineString) geometry).getCoordinateSequence()));
+        } else if (geometry instanceof Polygon) {
+            result = rebuildPolygon((Polygon) geometry, factory);
+        } else if (geometry instanceof MultiPoint) {
+            Point[] points = new Point[geometry.getNumGeometries()];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = (Point) rebuild(geometry.getGeometryN(i), factory);
+            }
+            result = factory.createMultiPoint(points);
+        } else if (geometry instanceof MultiLineString) {
+            LineString[] lines = new LineString[geometry.getNumGeometries()];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = (LineString) rebuild(geometry.getGeometryN(i), factory);
+            }
+            result = factory.createMultiLineString(lines);
+        } else if (geometry instanceof MultiPolygon) {
+            Polygon[] polygons = new Polygon[geometry.getNumGeometries()];
+            for (int i = 0; i < polygons.length; i++) {
+                polygons[i] = rebuildPolygon((Polygon) geometry.getGeometryN(i), factory);
+            }
+            result = factory.createMultiPolygon(polygons);
+        } else {
+            Geometry[] parts = new Geometry[geometry.getNumGeometries()];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = rebuild(geometry.getGeometryN(i), factory);
+            }
+            result = factory.createGeometryCollection(parts);
+        }
+        result.setUserData(geometry.getUserData());
+        return result;
+    }
+
+    private Polygon rebuildPolygon(Polygon polygon, GeometryFactory factory) {
+        LinearRing shell = factory.createLinearRing(unpack(polygon.getExteriorRing().getCoordinateSequence()));
+        LinearRing[] holes = new LinearRing[polygon.getNumInteriorRing()];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = factory.createLinearRing(unpack(polygon.getInteriorRingN(i).getCoordinateSequence()));
+        }
+        return factory.createPolygon(shell, holes);
+    }
+
+    /**
+     * 从缓冲区取出转换后的X/Y，其余维度从源坐标序列复制
+     */
+    private CoordinateSequence unpack(CoordinateSequence source) {
+        int size = source.size();
+        int dimension = source.getDimension();
+        if (dimension == 2) {
+            double[] coords = Arrays.copyOfRange(buffer, offset, offset + size * 2);
+            offset += size * 2;
+            return new PackedCoordinateSequence.Double(coords, 2, 0);
+        }
+        double[] coords = new double[size * dimension];
+        for (int i = 0; i < size; i++) {
+            coords[i * dimension] = buffer[offset++];
+            coords[i * dimension + 1] = buffer[offset++];
+            for (int j = 2; j < dimension; j++) {
+                coords[i * dimension + j] = source.getOrdinate(i, j);
+            }
+        }
+        return new PackedCoordinateSequence.Double(coords, dimension, source.getMeasures());
+    }
+}
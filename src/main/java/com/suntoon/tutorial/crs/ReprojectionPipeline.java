@@ -0,0 +1,320 @@
+package com.suntoon.tutorial.crs;
+
+import com.suntoon.tutorial.data.DataStores;
+import com.suntoon.tutorial.metrics.Instrumentation;
+import com.suntoon.tutorial.shapefile.NioShapefileWriter;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName ReprojectionPipeline
+ * @Description 三段式重投影流水线：一个读取线程，N个坐标转换线程，调用线程作为唯一的写入者按原始顺序写出；
+ *              各段之间是有界队列，在途要素数量有上限，写得慢时读取会被阻塞（背压）。
+ *              不依赖Swing，既可以在CRSLab中使用，也可以通过main方法在命令行运行
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:30
+ * @Version 1.0
+ */
+public class ReprojectionPipeline {
+    private static final Item POISON = new Item(-1, null, null);
+
+    private final MathTransform transform;
+    private final int workers;
+    private final int capacity;
+    private boolean packedTransform = true;
+
+    public ReprojectionPipeline(MathTransform transform) {
+        this(transform, Runtime.getRuntime().availableProcessors(), 4096);
+    }
+
+    /**
+     * @param transform 坐标转换，GeoTools的MathTransform可以被多个线程同时使用
+     * @param workers 转换线程数
+     * @param capacity 同时在流水线中的要素数量上限
+     */
+    public ReprojectionPipeline(MathTransform transform, int workers, int capacity) {
+        if (workers <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("workers and capacity must be positive");
+        }
+        this.transform = transform;
+        this.workers = workers;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @Author agent
+     * @Description //把featureCollection中的要素转换后按原始顺序写入writer，事务由调用者负责
+     * @Date 上午 3:30 2026/10/17 0017
+     * @param featureCollection 源要素
+     * @param writer 目标要素类型的FeatureWriter
+     * @return long 写出的要素数
+     */
+    public long run(SimpleFeatureCollection featureCollection,
+                    FeatureWriter<SimpleFeatureType, SimpleFeature> writer) throws IOException {
+        final BlockingQueue<Item> input = new ArrayBlockingQueue<>(capacity);
+        final Item[] slots = new Item[capacity];
+        final Semaphore permits = new Semaphore(capacity);
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition ready = lock.newCondition();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final long[] total = {-1};
+        final long[] next = {0};
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1);
+        try {
+            // 读取：复制属性后放入输入队列，permits限制了读取可以领先写入多少
+            executor.submit(() -> {
+                long sequence = 0;
+                try (SimpleFeatureIterator iterator = featureCollection.features()) {
+                    while (iterator.hasNext() && failure.get() == null) {
+                        SimpleFeature feature = iterator.next();
+                        permits.acquire();
+                        input.put(new Item(sequence++, feature.getAttributes(),
+                                (Geometry) feature.getDefaultGeometry()));
+                    }
+                } catch (Throwable t) {
+                    fail(failure, t, lock, ready);
+                } finally {
+                    try {
+                        for (int i = 0; i < workers; i++) {
+                            input.put(POISON);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    lock.lock();
+                    try {
+                        total[0] = sequence;
+                        ready.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+
+            // 转换：结果放到按序号定位的槽位里，轮到写入的那一个才唤醒写入者
+            for (int i = 0; i < workers; i++) {
+                executor.submit(() -> {
+                    PackedGeometryTransformer packed = packedTransform ? new PackedGeometryTransformer(transform) : null;
+                    try {
+                        for (Item item = input.take(); item != POISON; item = input.take()) {
+                            if (item.geometry != null && failure.get() == null) {
+                                long start = Instrumentation.start();
+                                item.geometry = packed != null
+                                        ? packed.transform(item.geometry)
+                                        : JTS.transform(item.geometry, transform);
+                                Instrumentation.record("geometry.transform", start, 1);
+                            }
+                            lock.lock();
+                            try {
+                                slots[(int) (item.sequence % capacity)] = item;
+                                if (item.sequence == next[0]) {
+                                    ready.signalAll();
+                                }
+                            } finally {
+                                lock.unlock();
+                            }
+                        }
+                    } catch (Throwable t) {
+                        fail(failure, t, lock, ready);
+                    }
+                });
+            }
+
+            // 写入：在调用线程上按顺序进行
+            long written = 0;
+            while (true) {
+                Item item;
+                lock.lock();
+                try {
+                    int slot = (int) (next[0] % capacity);
+                    while (failure.get() == null && slots[slot] == null && total[0] != next[0]) {
+                        ready.await();
+                    }
+                    if (failure.get() != null) {
+                        throw new IOException("Reprojection failed", failure.get());
+                    }
+                    if (slots[slot] == null) {
+                        break;    //total == next，全部写完
+                    }
+                    item = slots[slot];
+                    slots[slot] = null;
+                    next[0]++;
+                } finally {
+                    lock.unlock();
+                }
+                SimpleFeature copy = writer.next();
+                copy.setAttributes(item.attributes);
+                copy.setDefaultGeometry(item.geometry);
+                writer.write();
+                permits.release();
+                written++;
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reprojection interrupted", e);
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+            throw e;
+        } finally {
+            failure.compareAndSet(null, new IllegalStateException("pipeline closed"));
+            permits.release(capacity);
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isPackedTransform() {
+        return packedTransform;
+    }
+
+    /**
+     * 是否使用PackedGeometryTransformer整体转换每个几何的坐标（默认），否则逐点调用JTS.transform
+     */
+    public void setPackedTransform(boolean packedTransform) {
+        this.packedTransform = packedTransform;
+    }
+
+    private static void fail(AtomicReference<Throwable> failure, Throwable t, ReentrantLock lock, Condition ready) {
+        failure.compareAndSet(null, t);
+        lock.lock();
+        try {
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @Author agent
+     * @Description //无界面的导出：把featureSource重投影到targetCRS并写入新的shapefile
+     * @Date 上午 3:30 2026/10/17 0017
+     * @param featureSource 源要素
+     * @param targetCRS 目标坐标参考系
+     * @param file 输出的shapefile，不能是源文件
+     * @param workers 转换线程数
+     * @return long 写出的要素数
+     */
+    public static long exportToShapefile(SimpleFeatureSource featureSource, CoordinateReferenceSystem targetCRS,
+                                         File file, int workers) throws Exception {
+        return exportToShapefile(featureSource, targetCRS, file, workers, 0);
+    }
+
+    /**
+     * @Author agent
+     * @Description //同上，maxError大于0时使用ApproximateTransform做近似转换
+     * @Date 上午 3:32 2026/10/17 0017
+     * @param featureSource 源要素
+     * @param targetCRS 目标坐标参考系
+     * @param file 输出的shapefile，不能是源文件
+     * @param workers 转换线程数
+     * @param maxError 近似转换允许的最大误差（目标坐标系单位），0表示精确转换
+     * @return long 写出的要素数
+     */
+    public static long exportToShapefile(SimpleFeatureSource featureSource, CoordinateReferenceSystem targetCRS,
+                                         File file, int workers, double maxError) throws Exception {
+        MathTransform transform = exportTransform(featureSource, targetCRS, maxError);
+
+        //NioShapefileWriter顺序写入并在内存中建.qix，超过2GB时分卷
+        SimpleFeatureType featureType = SimpleFeatureTypeBuilder.retype(featureSource.getSchema(), targetCRS);
+        NioShapefileWriter shapefileWriter = new NioShapefileWriter(file, featureType);
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer = shapefileWriter) {
+            return new ReprojectionPipeline(transform, workers, 4096).run(featureSource.getFeatures(), writer);
+        } catch (Exception e) {
+            //不留下截断的shapefile
+            shapefileWriter.abort(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @Author agent
+     * @Description //导出使用的坐标转换，maxError大于0时在数据范围内用ApproximateTransform近似
+     * @Date 上午 4:03 2026/10/17 0017
+     * @param featureSource 源要素
+     * @param targetCRS 目标坐标参考系
+     * @param maxError 近似转换允许的最大误差（目标坐标系单位），0表示精确转换
+     * @return org.opengis.referencing.operation.MathTransform
+     */
+    public static MathTransform exportTransform(SimpleFeatureSource featureSource,
+                                                CoordinateReferenceSystem targetCRS, double maxError) throws Exception {
+        CoordinateReferenceSystem dataCRS = featureSource.getSchema().getCoordinateReferenceSystem();
+        boolean lenient = true; // allow for some error due to different datums
+        MathTransform transform = CrsCache.getInstance().findMathTransform(dataCRS, targetCRS, lenient);
+        if (maxError > 0 && !transform.isIdentity()) {
+            ReferencedEnvelope bounds = featureSource.getBounds();
+            if (bounds != null && !bounds.isEmpty()) {
+                transform = ApproximateTransform.create(transform, bounds, maxError);
+            }
+        }
+        return transform;
+    }
+
+    /**
+     * 命令行用法：ReprojectionPipeline source.shp target.shp EPSG:4326 [threads] [maxError]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: ReprojectionPipeline <source.shp> <target.shp> <crs code> [threads] [maxError]");
+            System.exit(1);
+        }
+        File source = new File(args[0]);
+        File target = new File(args[1]);
+        if (source.getCanonicalFile().equals(target.getCanonicalFile())) {
+            System.err.println("Cannot replace " + source);
+            System.exit(1);
+        }
+        CoordinateReferenceSystem targetCRS = CrsCache.getInstance().decode(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        double maxError = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+
+        FileDataStore store = DataStores.open(source);
+        try {
+            long start = System.nanoTime();
+            long count = exportToShapefile(store.getFeatureSource(), targetCRS, target, threads, maxError);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("Reprojected %d features in %.2fs (%.0f features/sec)",
+                    count, seconds, count / Math.max(seconds, 1e-9)));
+            System.out.println("Transform cache: " + CrsCache.getInstance().getTransformStats());
+        } finally {
+            store.dispose();
+        }
+    }
+
+    private static class Item {
+        final long sequence;
+        final List<Object> attributes;
+        Geometry geometry;
+
+        Item(long sequence, List<Object> attributes, Geometry geometry) {
+            this.sequence = sequence;
+            this.attributes = attributes == null ? null : new ArrayList<>(attributes);
+            this.geometry = geometry;
+        }
+    }
+}
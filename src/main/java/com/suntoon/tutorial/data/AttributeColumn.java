@@ -0,0 +1,233 @@
+package com.suntoon.tutorial.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName AttributeColumn
+ * @Description 按列保存的一个属性：整数和浮点数用基本类型数组加空值位图，字符串去重后保存，其他类型保存对象引用
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:40
+ * @Version 1.0
+ */
+abstract class AttributeColumn {
+
+    static AttributeColumn create(Class<?> binding) {
+        if (Integer.class.equals(binding) || Short.class.equals(binding) || Byte.class.equals(binding)) {
+            return new IntColumn();
+        }
+        if (Long.class.equals(binding)) {
+            return new LongColumn();
+        }
+        if (Double.class.equals(binding) || Float.class.equals(binding)) {
+            return new DoubleColumn();
+        }
+        if (String.class.equals(binding)) {
+            return new StringColumn();
+        }
+        return new ObjectColumn();
+    }
+
+    /** 按行号顺序追加一个值 */
+    abstract void add(Object value);
+
+    abstract Object get(int row);
+
+    /** 估算占用的堆内存（字节） */
+    abstract long estimateBytes();
+
+    /** 加载完成后释放多余的容量 */
+    abstract void trim(int size);
+
+    private abstract static class PrimitiveColumn extends AttributeColumn {
+        final BitSet nulls = new BitSet();
+        int size;
+    }
+
+    private static final class IntColumn extends PrimitiveColumn {
+        private int[] values = new int[16];
+        private Class<?> type;
+
+        @Override
+        void add(Object value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                type = value.getClass();
+                values[size] = ((Number) value).intValue();
+            }
+            size++;
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            if (Short.class.equals(type)) {
+                return (short) values[row];
+            }
+            if (Byte.class.equals(type)) {
+                return (byte) values[row];
+            }
+            return values[row];
+        }
+
+        @Override
+        long estimateBytes() {
+            return 16 + 4L * values.length + nulls.size() / 8;
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class LongColumn extends PrimitiveColumn {
+        private long[] values = new long[16];
+
+        @Override
+        void add(Object value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                values[size] = ((Number) value).longValue();
+            }
+            size++;
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+
+        @Override
+        long estimateBytes() {
+            return 16 + 8L * values.length + nulls.size() / 8;
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class DoubleColumn extends PrimitiveColumn {
+        private double[] values = new double[16];
+        private boolean isFloat;
+
+        @Override
+        void add(Object value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                isFloat = value instanceof Float;
+                values[size] = ((Number) value).doubleValue();
+            }
+            size++;
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            return isFloat ? (Object) (float) values[row] : (Object) values[row];
+        }
+
+        @Override
+        long estimateBytes() {
+            return 16 + 8L * values.length + nulls.size() / 8;
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * 字符串列：相同的值只保存一份，适合名称、分类这类重复很多的列
+     */
+    private static final class StringColumn extends AttributeColumn {
+        private final Map<String, String> distinct = new HashMap<>();
+        private String[] values = new String[16];
+        private int size;
+        private long bytes;
+
+        @Override
+        void add(Object value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            String s = (String) value;
+            if (s != null) {
+                String shared = distinct.putIfAbsent(s, s);
+                if (shared == null) {
+                    bytes += 40 + 2L * s.length();
+                } else {
+                    s = shared;
+                }
+            }
+            values[size++] = s;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        long estimateBytes() {
+            return 16 + 4L * values.length + bytes;
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+            distinct.clear();
+        }
+    }
+
+    private static final class ObjectColumn extends AttributeColumn {
+        private Object[] values = new Object[16];
+        private int size;
+
+        @Override
+        void add(Object value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        long estimateBytes() {
+            //日期、BigDecimal等对象按每个32字节估算
+            return 16 + 36L * values.length;
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+}
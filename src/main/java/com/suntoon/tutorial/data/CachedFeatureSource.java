@@ -0,0 +1,81 @@
+package com.suntoon.tutorial.data;
+
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.filter.sort.SortBy;
+
+import java.awt.RenderingHints;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CachedFeatureSource
+ * @Description 由LayerCache在内存中回答查询的要素源；需要排序、坐标转换或连接的查询，以及图层超过内存上限时，仍交给原来的要素源
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:40
+ * @Version 1.0
+ */
+public class CachedFeatureSource extends ForwardingFeatureSource {
+    private final File shapefile;
+    private final LayerCache cache;
+
+    public CachedFeatureSource(SimpleFeatureSource delegate, File shapefile, LayerCache cache) {
+        super(delegate);
+        this.shapefile = shapefile;
+        this.cache = cache;
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures(Query query) throws IOException {
+        LayerSnapshot snapshot = canAnswer(query) ? cache.get(shapefile, delegate) : null;
+        if (snapshot == null) {
+            return delegate.getFeatures(query);
+        }
+        return new SnapshotFeatureCollection(snapshot, query);
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds() throws IOException {
+        LayerSnapshot snapshot = cache.get(shapefile, delegate);
+        return snapshot == null ? delegate.getBounds() : snapshot.bounds;
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds(Query query) throws IOException {
+        return getFeatures(query).getBounds();
+    }
+
+    @Override
+    public int getCount(Query query) throws IOException {
+        LayerSnapshot snapshot = canAnswer(query) ? cache.get(shapefile, delegate) : null;
+        if (snapshot == null) {
+            return delegate.getCount(query);
+        }
+        return new SnapshotFeatureCollection(snapshot, query).size();
+    }
+
+    /**
+     * 内存中回答查询时不处理这些提示，渲染器会自己完成抽稀等工作
+     */
+    @Override
+    public Set<RenderingHints.Key> getSupportedHints() {
+        return Collections.emptySet();
+    }
+
+    private static boolean canAnswer(Query query) {
+        SortBy[] sortBy = query.getSortBy();
+        boolean natural = sortBy == null || sortBy.length == 0
+                || (sortBy.length == 1 && sortBy[0] == SortBy.NATURAL_ORDER);
+        return natural && query.getCoordinateSystem() == null && query.getCoordinateSystemReproject() == null
+                && (query.getJoins() == null || query.getJoins().isEmpty());
+    }
+
+    public File getShapefile() {
+        return shapefile;
+    }
+}
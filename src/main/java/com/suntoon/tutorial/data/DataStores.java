@@ -0,0 +1,60 @@
+package com.suntoon.tutorial.data;
+
+import com.suntoon.tutorial.metrics.Instrumentation;
+import org.geotools.data.DataStore;
+import org.geotools.data.DataStoreFinder;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.FileDataStoreFinder;
+import org.geotools.data.shapefile.ShapefileDataStoreFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName DataStores
+ * @Description 示例程序打开数据存储的统一入口：启用了统计（-Dtutorial.metrics=true）时返回的数据存储带统计，
+ *              从它取得的要素源、读取器和FeatureWriter也都带统计，调用处不需要再包装。
+ *              需要按具体类型区分时（例如是否为ShapefileDataStore）先用unwrap取出原来的数据存储
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:57
+ * @Version 1.0
+ */
+public final class DataStores {
+    private DataStores() {
+    }
+
+    /**
+     * 按连接参数打开数据存储，没有能处理这些参数的数据存储时返回null
+     */
+    public static DataStore open(Map<String, Object> parameters) throws IOException {
+        return Instrumentation.wrap(DataStoreFinder.getDataStore(parameters));
+    }
+
+    /**
+     * 打开shapefile等文件数据存储，不支持的文件返回null
+     */
+    public static FileDataStore open(File file) throws IOException {
+        return Instrumentation.wrap(FileDataStoreFinder.getDataStore(file));
+    }
+
+    /**
+     * 新建带空间索引的shapefile数据存储，之后调用createSchema
+     */
+    public static DataStore createShapefile(File file) throws IOException {
+        Map<String, Serializable> params = new HashMap<>();
+        params.put("url", file.toURI().toURL());
+        params.put("create spatial index", Boolean.TRUE);
+        return Instrumentation.wrap(new ShapefileDataStoreFactory().createNewDataStore(params));
+    }
+
+    /**
+     * 去掉统计包装，返回实际的数据存储
+     */
+    public static DataStore unwrap(DataStore store) {
+        return Instrumentation.unwrap(store);
+    }
+}
@@ -0,0 +1,109 @@
+package com.suntoon.tutorial.data;
+
+import org.geotools.data.DataAccess;
+import org.geotools.data.FeatureListener;
+import org.geotools.data.Query;
+import org.geotools.data.QueryCapabilities;
+import org.geotools.data.ResourceInfo;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+
+import java.awt.RenderingHints;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName ForwardingFeatureSource
+ * @Description 把所有调用转发给另一个SimpleFeatureSource，子类只需覆盖需要改变的方法；
+ *              getFeatures()和getFeatures(Filter)都归结到getFeatures(Query)
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:40
+ * @Version 1.0
+ */
+public abstract class ForwardingFeatureSource implements SimpleFeatureSource {
+    protected final SimpleFeatureSource delegate;
+
+    protected ForwardingFeatureSource(SimpleFeatureSource delegate) {
+        this.delegate = delegate;
+    }
+
+    public SimpleFeatureSource getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Name getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public ResourceInfo getInfo() {
+        return delegate.getInfo();
+    }
+
+    @Override
+    public DataAccess<SimpleFeatureType, SimpleFeature> getDataStore() {
+        return delegate.getDataStore();
+    }
+
+    @Override
+    public QueryCapabilities getQueryCapabilities() {
+        return delegate.getQueryCapabilities();
+    }
+
+    @Override
+    public void addFeatureListener(FeatureListener listener) {
+        delegate.addFeatureListener(listener);
+    }
+
+    @Override
+    public void removeFeatureListener(FeatureListener listener) {
+        delegate.removeFeatureListener(listener);
+    }
+
+    @Override
+    public SimpleFeatureType getSchema() {
+        return delegate.getSchema();
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures() throws IOException {
+        return getFeatures(Query.ALL);
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures(Filter filter) throws IOException {
+        return getFeatures(new Query(getSchema().getTypeName(), filter));
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures(Query query) throws IOException {
+        return delegate.getFeatures(query);
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds() throws IOException {
+        return delegate.getBounds();
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds(Query query) throws IOException {
+        return delegate.getBounds(query);
+    }
+
+    @Override
+    public int getCount(Query query) throws IOException {
+        return delegate.getCount(query);
+    }
+
+    @Override
+    public Set<RenderingHints.Key> getSupportedHints() {
+        return delegate.getSupportedHints();
+    }
+}
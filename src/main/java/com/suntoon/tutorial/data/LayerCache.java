@@ -0,0 +1,203 @@
+package com.suntoon.tutorial.data;
+
+import org.geotools.data.simple.SimpleFeatureSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName LayerCache
+ * @Description shapefile图层的内存缓存：每个图层第一次被查询时整体读入内存（LayerSnapshot），之后的范围和属性查询都在内存中完成；
+ *              所有图层估算的内存总和不超过上限，超过时淘汰最久没有使用的图层；.shp/.shx/.dbf修改后下一次查询会重新加载。
+ *              默认不启用，设置 -Dtutorial.cache=true 后wrap才会返回带缓存的要素源，上限用 -Dtutorial.cache.maxBytes 设置，默认为最大堆的四分之一
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:40
+ * @Version 1.0
+ */
+public class LayerCache {
+    public static final String ENABLED_PROPERTY = "tutorial.cache";
+    public static final String MAX_BYTES_PROPERTY = "tutorial.cache.maxBytes";
+
+    private static final LayerCache INSTANCE =
+            new LayerCache(Long.getLong(MAX_BYTES_PROPERTY, Runtime.getRuntime().maxMemory() / 4));
+
+    private final long maxBytes;
+    private final LinkedHashMap<File, LayerSnapshot> layers = new LinkedHashMap<>(16, 0.75f, true);
+    /** 超过上限、无法缓存的图层及其当时的修改标记，标记不变就不再尝试加载 */
+    private final Map<File, Long> oversized = new ConcurrentHashMap<>();
+    /** 正在加载的图层，加载结束后删除 */
+    private final Map<File, Object> loadLocks = new ConcurrentHashMap<>();
+    private long usedBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public LayerCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 进程内共享的缓存
+     */
+    public static LayerCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @Author agent
+     * @Description //启用了缓存（-Dtutorial.cache=true）时返回带缓存的要素源，否则原样返回source
+     * @Date 上午 3:40 2026/10/17 0017
+     * @param shapefile source对应的.shp文件
+     * @param source 要素源
+     * @return org.geotools.data.simple.SimpleFeatureSource
+     */
+    public static SimpleFeatureSource wrap(File shapefile, SimpleFeatureSource source) {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return source;
+        }
+        return new CachedFeatureSource(source, shapefile, INSTANCE);
+    }
+
+    /**
+     * 返回缓存中与文件当前内容一致的副本，需要时重新加载；图层超过内存上限时返回null
+     */
+    LayerSnapshot get(File shapefile, SimpleFeatureSource source) throws IOException {
+        long stamp = modificationStamp(shapefile);
+        LayerSnapshot snapshot = lookup(shapefile, stamp);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        Long tooLarge = oversized.get(shapefile);
+        if (tooLarge != null && tooLarge == stamp) {
+            return null;
+        }
+        //同一个图层只由一个线程加载，其他线程等待后直接使用结果
+        Object lock = loadLocks.computeIfAbsent(shapefile, f -> new Object());
+        try {
+            synchronized (lock) {
+                return load(shapefile, source, stamp);
+            }
+        } finally {
+            //等待中的线程仍持有同一个锁对象，之后来的线程在lookup中就能拿到结果
+            loadLocks.remove(shapefile, lock);
+        }
+    }
+
+    /**
+     * 持有图层的加载锁时调用：等待期间其他线程可能已经加载完，或者发现图层超过上限
+     */
+    private LayerSnapshot load(File shapefile, SimpleFeatureSource source, long stamp) throws IOException {
+        LayerSnapshot snapshot = lookup(shapefile, stamp);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        Long tooLarge = oversized.get(shapefile);
+        if (tooLarge != null && tooLarge == stamp) {
+            return null;
+        }
+        snapshot = LayerSnapshot.load(source, stamp, maxBytes);
+        loads.incrementAndGet();
+        synchronized (layers) {
+            LayerSnapshot old = layers.remove(shapefile);
+            if (old != null) {
+                usedBytes -= old.estimatedBytes;
+            }
+            if (snapshot == null) {
+                oversized.put(shapefile, stamp);
+                return null;
+            }
+            oversized.remove(shapefile);
+            layers.put(shapefile, snapshot);
+            usedBytes += snapshot.estimatedBytes;
+            evict(shapefile);
+        }
+        return snapshot;
+    }
+
+    private LayerSnapshot lookup(File shapefile, long stamp) {
+        synchronized (layers) {
+            LayerSnapshot snapshot = layers.get(shapefile);
+            if (snapshot != null && snapshot.stamp == stamp) {
+                hits.incrementAndGet();
+                return snapshot;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 按最近最少使用的顺序淘汰其他图层，直到总量不超过上限
+     */
+    private void evict(File keep) {
+        Iterator<Map.Entry<File, LayerSnapshot>> eldest = layers.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<File, LayerSnapshot> entry = eldest.next();
+            if (!entry.getKey().equals(keep)) {
+                usedBytes -= entry.getValue().estimatedBytes;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * shapefile各组成文件最后修改时间之和
+     */
+    static long modificationStamp(File shapefile) {
+        String path = shapefile.getPath();
+        String base = path.substring(0, path.length() - 3);
+        return shapefile.lastModified() + new File(base + "dbf").lastModified() + new File(base + "shx").lastModified();
+    }
+
+    public void invalidate(File shapefile) {
+        synchronized (layers) {
+            LayerSnapshot old = layers.remove(shapefile);
+            if (old != null) {
+                usedBytes -= old.estimatedBytes;
+            }
+        }
+        oversized.remove(shapefile);
+    }
+
+    public void clear() {
+        synchronized (layers) {
+            layers.clear();
+            usedBytes = 0;
+        }
+        oversized.clear();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getUsedBytes() {
+        synchronized (layers) {
+            return usedBytes;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getLoads() {
+        return loads.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LayerCache[used=%d/%d bytes, hits=%d, loads=%d, evictions=%d]",
+                getUsedBytes(), maxBytes, getHits(), getLoads(), getEvictions());
+    }
+}
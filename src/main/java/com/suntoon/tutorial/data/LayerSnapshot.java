@@ -0,0 +1,177 @@
+package com.suntoon.tutorial.data;
+
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName LayerSnapshot
+ * @Description 一个图层在内存中的只读副本：几何对象放在STRtree中，其余属性按列保存，要素在读取时才组装
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:40
+ * @Version 1.0
+ */
+final class LayerSnapshot {
+    /** STRtree每个条目大约占用的字节数 */
+    private static final int INDEX_ENTRY_BYTES = 120;
+
+    final SimpleFeatureType schema;
+    final long stamp;
+    final int size;
+    final ReferencedEnvelope bounds;
+    final long estimatedBytes;
+
+    private final int geometryIndex;
+    private final String[] fids;
+    private final Geometry[] geometries;
+    private final AttributeColumn[] columns;
+    private final STRtree index;
+
+    private LayerSnapshot(SimpleFeatureType schema, long stamp, int size, ReferencedEnvelope bounds,
+                          long estimatedBytes, String[] fids, Geometry[] geometries, AttributeColumn[] columns,
+                          STRtree index) {
+        this.schema = schema;
+        this.stamp = stamp;
+        this.size = size;
+        this.bounds = bounds;
+        this.estimatedBytes = estimatedBytes;
+        this.geometryIndex = schema.getGeometryDescriptor() == null
+                ? -1 : schema.indexOf(schema.getGeometryDescriptor().getLocalName());
+        this.fids = fids;
+        this.geometries = geometries;
+        this.columns = columns;
+        this.index = index;
+    }
+
+    /**
+     * @Author agent
+     * @Description //把source中的所有要素读入内存
+     * @Date 上午 3:40 2026/10/17 0017
+     * @param source 要素源
+     * @param stamp 数据的修改标记，用于判断副本是否过期
+     * @param maxBytes 估算的内存超过这个值时放弃加载
+     * @return com.suntoon.tutorial.data.LayerSnapshot 超过maxBytes时返回null
+     */
+    static LayerSnapshot load(SimpleFeatureSource source, long stamp, long maxBytes) throws IOException {
+        SimpleFeatureType schema = source.getSchema();
+        GeometryDescriptor geometryDescriptor = schema.getGeometryDescriptor();
+        int geometryIndex = geometryDescriptor == null ? -1 : schema.indexOf(geometryDescriptor.getLocalName());
+
+        AttributeColumn[] columns = new AttributeColumn[schema.getAttributeCount()];
+        for (int i = 0; i < columns.length; i++) {
+            if (i != geometryIndex) {
+                columns[i] = AttributeColumn.create(schema.getDescriptor(i).getType().getBinding());
+            }
+        }
+        List<String> fids = new ArrayList<>();
+        List<Geometry> geometries = new ArrayList<>();
+        STRtree index = new STRtree();
+        ReferencedEnvelope bounds = new ReferencedEnvelope(schema.getCoordinateReferenceSystem());
+        long geometryBytes = 0;
+        long fidBytes = 0;
+
+        try (SimpleFeatureIterator iterator = source.getFeatures().features()) {
+            while (iterator.hasNext()) {
+                SimpleFeature feature = iterator.next();
+                int row = fids.size();
+                fids.add(feature.getID());
+                fidBytes += 40 + 2L * feature.getID().length();
+                for (int i = 0; i < columns.length; i++) {
+                    if (columns[i] != null) {
+                        columns[i].add(feature.getAttribute(i));
+                    }
+                }
+                if (geometryIndex >= 0) {
+                    Geometry geometry = (Geometry) feature.getAttribute(geometryIndex);
+                    geometries.add(geometry);
+                    if (geometry != null && !geometry.isEmpty()) {
+                        index.insert(geometry.getEnvelopeInternal(), row);
+                        bounds.expandToInclude(geometry.getEnvelopeInternal());
+                        geometryBytes += 100 + 48L * geometry.getNumPoints();
+                    }
+                }
+                //每读一千条检查一次，过大的图层尽早放弃
+                if (row % 1000 == 999 && estimate(row + 1, geometryBytes, fidBytes, columns) > maxBytes) {
+                    return null;
+                }
+            }
+        }
+        int size = fids.size();
+        for (AttributeColumn column : columns) {
+            if (column != null) {
+                column.trim(size);
+            }
+        }
+        long estimatedBytes = estimate(size, geometryBytes, fidBytes, columns);
+        if (estimatedBytes > maxBytes) {
+            return null;
+        }
+        index.build();
+        return new LayerSnapshot(schema, stamp, size, bounds, estimatedBytes, fids.toArray(new String[size]),
+                geometries.toArray(new Geometry[0]), columns, index);
+    }
+
+    private static long estimate(int rows, long geometryBytes, long fidBytes, AttributeColumn[] columns) {
+        long bytes = geometryBytes + fidBytes + (long) rows * INDEX_ENTRY_BYTES;
+        for (AttributeColumn column : columns) {
+            if (column != null) {
+                bytes += column.estimateBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 外包框与envelope相交的行号，按行号排序以保持原来的要素顺序；envelope为null时返回所有行
+     */
+    int[] candidates(Envelope envelope) {
+        if (envelope == null || geometryIndex < 0) {
+            int[] rows = new int[size];
+            for (int i = 0; i < size; i++) {
+                rows[i] = i;
+            }
+            return rows;
+        }
+        List<?> hits = index.query(envelope);
+        int[] rows = new int[hits.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = (Integer) hits.get(i);
+        }
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * 组装第row个要素，builder的类型必须是schema
+     */
+    SimpleFeature feature(int row, SimpleFeatureBuilder builder) {
+        for (int i = 0; i < columns.length; i++) {
+            builder.set(i, i == geometryIndex ? geometries[row] : columns[i].get(row));
+        }
+        return builder.buildFeature(fids[row]);
+    }
+
+    boolean hasSingleGeometry() {
+        int count = 0;
+        for (AttributeDescriptor descriptor : schema.getAttributeDescriptors()) {
+            if (descriptor instanceof GeometryDescriptor) {
+                count++;
+            }
+        }
+        return count == 1;
+    }
+}
@@ -0,0 +1,251 @@
+package com.suntoon.tutorial.data;
+
+import org.geotools.data.FeatureEvent;
+import org.geotools.data.FeatureListener;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.factory.Hints;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Lineal;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.Puntal;
+import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.opengis.feature.simple.SimpleFeature;
+
+import java.awt.RenderingHints;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName LevelOfDetailFeatureSource
+ * @Description 多级简化的要素源：第一次按比例尺查询时，把每个几何按几个容差级别简化一次并缓存
+ *              （面用TopologyPreservingSimplifier保持拓扑，线用Douglas-Peucker），之后查询时根据StreamingRenderer
+ *              通过Hints.GEOMETRY_DISTANCE传入的容差，返回容差不超过这个距离的最粗一级几何；
+ *              不带这个提示的查询（例如导出、校验）仍返回原始几何。数据源发出修改事件后缓存作废。
+ *              启动时加 -Dtutorial.lod=true 后wrap才会返回这个要素源
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:45
+ * @Version 1.0
+ */
+public class LevelOfDetailFeatureSource extends ForwardingFeatureSource {
+    public static final String ENABLED_PROPERTY = "tutorial.lod";
+
+    /** 最细一级的容差为图层范围的1/4096，之后每级放大4倍 */
+    private static final double FINEST_FRACTION = 1.0 / 4096;
+    private static final double LEVEL_FACTOR = 4;
+    private static final int LEVELS = 6;
+
+    private final FeatureListener dataListener = this::changed;
+    private volatile Levels levels;
+
+    public LevelOfDetailFeatureSource(SimpleFeatureSource delegate) {
+        super(delegate);
+        delegate.addFeatureListener(dataListener);
+    }
+
+    /**
+     * 启用了多级简化（-Dtutorial.lod=true）时返回LevelOfDetailFeatureSource，否则原样返回source
+     */
+    public static SimpleFeatureSource wrap(SimpleFeatureSource source) {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY) || source.getSchema().getGeometryDescriptor() == null) {
+            return source;
+        }
+        Class<?> binding = source.getSchema().getGeometryDescriptor().getType().getBinding();
+        if (Puntal.class.isAssignableFrom(binding)) {
+            return source;    //点没有可以简化的顶点
+        }
+        return new LevelOfDetailFeatureSource(source);
+    }
+
+    private void changed(FeatureEvent event) {
+        levels = null;
+    }
+
+    @Override
+    public Set<RenderingHints.Key> getSupportedHints() {
+        Set<RenderingHints.Key> hints = new HashSet<>(delegate.getSupportedHints());
+        hints.add(Hints.GEOMETRY_DISTANCE);
+        hints.add(Hints.GEOMETRY_SIMPLIFICATION);
+        return Collections.unmodifiableSet(hints);
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures(Query query) throws IOException {
+        SimpleFeatureCollection features = delegate.getFeatures(query);
+        Object hint = query.getHints().get(Hints.GEOMETRY_DISTANCE);
+        if (hint == null) {
+            hint = query.getHints().get(Hints.GEOMETRY_SIMPLIFICATION);
+        }
+        if (!(hint instanceof Number)) {
+            return features;
+        }
+        Levels current = getLevels();
+        int level = current.levelFor(((Number) hint).doubleValue());
+        if (level < 0) {
+            return features;    //比最细一级还精细，用原始几何
+        }
+        return new SimplifiedCollection(features, current, level);
+    }
+
+    private Levels getLevels() throws IOException {
+        Levels current = levels;
+        if (current == null) {
+            synchronized (this) {
+                current = levels;
+                if (current == null) {
+                    current = Levels.build(delegate);
+                    levels = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 当前使用的各级容差，还没有建立时返回空数组
+     */
+    public double[] getTolerances() {
+        Levels current = levels;
+        return current == null ? new double[0] : current.tolerances.clone();
+    }
+
+    public void dispose() {
+        delegate.removeFeatureListener(dataListener);
+        levels = null;
+    }
+
+    /**
+     * 所有要素在各级容差下的简化结果，按FID查找
+     */
+    private static final class Levels {
+        final double[] tolerances;
+        final Map<String, Geometry[]> geometries;
+
+        private Levels(double[] tolerances, Map<String, Geometry[]> geometries) {
+            this.tolerances = tolerances;
+            this.geometries = geometries;
+        }
+
+        static Levels build(SimpleFeatureSource source) throws IOException {
+            List<String> fids = new ArrayList<>();
+            List<Geometry> originals = new ArrayList<>();
+            ReferencedEnvelope bounds = new ReferencedEnvelope();
+            try (SimpleFeatureIterator it = source.getFeatures().features()) {
+                while (it.hasNext()) {
+                    SimpleFeature feature = it.next();
+                    Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                    if (geometry != null && !geometry.isEmpty()) {
+                        fids.add(feature.getID());
+                        originals.add(geometry);
+                        bounds.expandToInclude(geometry.getEnvelopeInternal());
+                    }
+                }
+            }
+            double[] tolerances = new double[LEVELS];
+            double tolerance = Math.max(bounds.getWidth(), bounds.getHeight()) * FINEST_FRACTION;
+            for (int i = 0; i < LEVELS; i++) {
+                tolerances[i] = tolerance;
+                tolerance *= LEVEL_FACTOR;
+            }
+
+            //每个几何的各级简化互不相关，并行计算；每一级在上一级的结果上继续简化
+            Geometry[][] simplified = new Geometry[originals.size()][];
+            IntStream.range(0, originals.size()).parallel().forEach(i -> {
+                Geometry[] geometryLevels = new Geometry[LEVELS];
+                Geometry previous = originals.get(i);
+                for (int level = 0; level < LEVELS; level++) {
+                    previous = simplify(previous, tolerances[level]);
+                    geometryLevels[level] = previous;
+                }
+                simplified[i] = geometryLevels;
+            });
+            Map<String, Geometry[]> geometries = new HashMap<>(fids.size() * 2);
+            for (int i = 0; i < simplified.length; i++) {
+                geometries.put(fids.get(i), simplified[i]);
+            }
+            return new Levels(tolerances, geometries);
+        }
+
+        private static Geometry simplify(Geometry geometry, double tolerance) {
+            if (geometry instanceof Polygonal) {
+                return TopologyPreservingSimplifier.simplify(geometry, tolerance);
+            }
+            if (geometry instanceof Lineal) {
+                return DouglasPeuckerSimplifier.simplify(geometry, tolerance);
+            }
+            return geometry;
+        }
+
+        /**
+         * 容差不超过distance的最粗一级，distance比最细一级还小时返回-1
+         */
+        int levelFor(double distance) {
+            int level = -1;
+            for (int i = 0; i < tolerances.length && tolerances[i] <= distance; i++) {
+                level = i;
+            }
+            return level;
+        }
+
+        Geometry get(String fid, int level) {
+            Geometry[] geometryLevels = geometries.get(fid);
+            return geometryLevels == null ? null : geometryLevels[level];
+        }
+    }
+
+    /**
+     * 把查询结果中的几何替换为对应级别的简化结果
+     */
+    private static final class SimplifiedCollection extends DecoratingSimpleFeatureCollection {
+        private final Levels levels;
+        private final int level;
+
+        SimplifiedCollection(SimpleFeatureCollection delegate, Levels levels, int level) {
+            super(delegate);
+            this.levels = levels;
+            this.level = level;
+        }
+
+        @Override
+        public SimpleFeatureIterator features() {
+            final SimpleFeatureIterator features = delegate.features();
+            return new SimpleFeatureIterator() {
+                @Override
+                public boolean hasNext() {
+                    return features.hasNext();
+                }
+
+                @Override
+                public SimpleFeature next() {
+                    //数据源每次读取都返回新的要素对象，可以直接替换几何
+                    SimpleFeature feature = features.next();
+                    if (feature.getFeatureType().getGeometryDescriptor() != null) {
+                        Geometry simplified = levels.get(feature.getID(), level);
+                        if (simplified != null && simplified != feature.getDefaultGeometry()) {
+                            feature.setDefaultGeometry(simplified);
+                        }
+                    }
+                    return feature;
+                }
+
+                @Override
+                public void close() {
+                    features.close();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.suntoon.tutorial.data;
+
+import com.suntoon.tutorial.filter.CompiledFilter;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.collection.AbstractFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName SnapshotFeatureCollection
+ * @Description 在LayerSnapshot上执行的查询结果：先用STRtree取出外包框相交的候选行，再逐行计算过滤条件，
+ *              要素在迭代时才组装，支持属性子集、起始位置和最大数量
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:40
+ * @Version 1.0
+ */
+class SnapshotFeatureCollection extends AbstractFeatureCollection {
+    private final LayerSnapshot snapshot;
+    private final CompiledFilter filter;
+    private final int startIndex;
+    private final int maxFeatures;
+    /** STRtree取出的候选行，第一次迭代时才查询 */
+    private int[] rows;
+    private int size = -1;
+    private ReferencedEnvelope bounds;
+
+    SnapshotFeatureCollection(LayerSnapshot snapshot, Query query) {
+        super(retype(snapshot.schema, query));
+        this.snapshot = snapshot;
+        this.filter = CompiledFilter.compile(query.getFilter() == null ? Filter.INCLUDE : query.getFilter(),
+                snapshot.schema);
+        this.startIndex = query.getStartIndex() == null ? 0 : query.getStartIndex();
+        this.maxFeatures = query.getMaxFeatures();
+    }
+
+    private int[] rows() {
+        if (rows == null) {
+            rows = snapshot.candidates(envelope(snapshot, filter.getFilter()));
+        }
+        return rows;
+    }
+
+    private static SimpleFeatureType retype(SimpleFeatureType schema, Query query) {
+        if (query.getPropertyNames() == null) {
+            return schema;
+        }
+        try {
+            return DataUtilities.createSubType(schema, query.getPropertyNames());
+        } catch (SchemaException e) {
+            throw new IllegalArgumentException("Invalid property names in query", e);
+        }
+    }
+
+    /**
+     * 只有一个几何属性时，过滤条件中提取出的范围才能直接用来查STRtree
+     */
+    private static Envelope envelope(LayerSnapshot snapshot, Filter filter) {
+        if (filter == Filter.INCLUDE || !snapshot.hasSingleGeometry()) {
+            return null;
+        }
+        Envelope envelope = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+        if (envelope == null || Double.isInfinite(envelope.getWidth()) || Double.isInfinite(envelope.getHeight())) {
+            return null;
+        }
+        return envelope;
+    }
+
+    @Override
+    protected Iterator<SimpleFeature> openIterator() {
+        return new SnapshotIterator();
+    }
+
+    @Override
+    public int size() {
+        if (size < 0) {
+            if (filter.getFilter() == Filter.INCLUDE) {
+                size = Math.max(0, Math.min(snapshot.size - startIndex, maxFeatures));
+            } else if (filter.getFilter() == Filter.EXCLUDE) {
+                size = 0;
+            } else {
+                //只计算过滤条件，不转换属性子集，数到startIndex + maxFeatures为止
+                long end = (long) startIndex + maxFeatures;
+                SimpleFeatureBuilder builder = new SimpleFeatureBuilder(snapshot.schema);
+                int[] candidates = rows();
+                int matched = 0;
+                for (int i = 0; i < candidates.length && matched < end; i++) {
+                    if (filter.evaluate(snapshot.feature(candidates[i], builder))) {
+                        matched++;
+                    }
+                }
+                size = Math.max(0, matched - startIndex);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds() {
+        if (bounds == null) {
+            if (filter.getFilter() == Filter.INCLUDE && startIndex == 0 && maxFeatures >= snapshot.size) {
+                bounds = snapshot.bounds;
+            } else {
+                ReferencedEnvelope result = new ReferencedEnvelope(getSchema().getCoordinateReferenceSystem());
+                for (Iterator<SimpleFeature> it = openIterator(); it.hasNext(); ) {
+                    result.include(it.next().getBounds());
+                }
+                bounds = result;
+            }
+        }
+        return bounds;
+    }
+
+    private class SnapshotIterator implements Iterator<SimpleFeature> {
+        private final SimpleFeatureBuilder builder = new SimpleFeatureBuilder(snapshot.schema);
+        private final SimpleFeatureType target = getSchema();
+        private final int[] rows = rows();
+        private int position;
+        private int skipped;
+        private int returned;
+        private SimpleFeature next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && returned < maxFeatures && position < rows.length) {
+                SimpleFeature feature = snapshot.feature(rows[position++], builder);
+                if (filter.evaluate(feature)) {
+                    if (skipped < startIndex) {
+                        skipped++;
+                    } else {
+                        next = target == snapshot.schema ? feature : SimpleFeatureBuilder.retype(feature, target);
+                    }
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public SimpleFeature next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SimpleFeature feature = next;
+            next = null;
+            returned++;
+            return feature;
+        }
+    }
+}
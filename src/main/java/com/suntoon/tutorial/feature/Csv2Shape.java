@@ -1,11 +1,11 @@
 package com.suntoon.tutorial.feature;
 
+import com.suntoon.tutorial.data.DataStores;
+import org.geotools.data.DataStore;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.DefaultTransaction;
 import org.geotools.data.Transaction;
 import org.geotools.data.collection.ListFeatureCollection;
-import org.geotools.data.shapefile.ShapefileDataStore;
-import org.geotools.data.shapefile.ShapefileDataStoreFactory;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.data.simple.SimpleFeatureStore;
@@ -19,14 +19,9 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
 import javax.swing.*;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @ProjectionName geotools_tutorial
@@ -57,42 +52,24 @@ public class Csv2Shape {
 
         System.out.println("TYPE:" + TYPE);
 
-        /**
-         * 读取CSV文件并为每条记录创建一个功能
-         * 1、用GeometryFactory创建新点集
-         * 2、使用SimpleFeatureBuilder创建要素集（SimpleFeature对象）
-         */
-        //存放创建的要素的列表
-        List<SimpleFeature> features = new ArrayList<>();
-        //GeometryFactory将用于创建每个要素的几何属性，用作该位置的Point对象
-        GeometryFactory geometryFactory = JTSFactoryFinder.getGeometryFactory();
-
-        SimpleFeatureBuilder featureBuilder = new SimpleFeatureBuilder(TYPE);
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            //数据文件的第一行是标题
-            String line = reader.readLine();
-            System.out.println("Header: " + line);
-
-            for (line = reader.readLine(); line != null; line = reader.readLine()) {
-                if (line.trim().length() > 0) {    //跳过空白行
-                    String tokens[] = line.split("\\,");
-
-                    double latitude = Double.parseDouble(tokens[0]);
-                    double longitude = Double.parseDouble(tokens[1]);
-                    String name = tokens[2].trim();
-                    int number = Integer.parseInt(tokens[3].trim());
+        //-stream：流式导入，不在内存中保留要素列表，适用于特别大的csv文件
+        //-parallel：在此基础上用所有cpu核心并行解析
+        if (args.length > 0 && ("-stream".equals(args[0]) || "-parallel".equals(args[0]))) {
+            streamToShapefile(file, TYPE, "-parallel".equals(args[0]));
+            System.exit(0);
+        }
 
-                    //Longitude(= x coord) 在前面
-                    Point point = geometryFactory.createPoint(new Coordinate(longitude, latitude));
+        //列映射可以通过 -Dcsv.columns=lat=0,lon=1,name=2,number=3,delimiter=comma 指定
+        CsvColumnMapping mapping = CsvColumnMapping.parse(System.getProperty("csv.columns"));
+        SimpleFeatureCollection collection;
 
-                    featureBuilder.add(point);
-                    featureBuilder.add(name);
-                    featureBuilder.add(number);
-                    SimpleFeature feature = featureBuilder.buildFeature(null);
-                    features.add(feature);
-                }
-            }
+        //-offheap：点保存在堆外的列式集合中，每个点大约24字节，而不是一个SimpleFeature对象
+        if (args.length > 0 && "-offheap".equals(args[0])) {
+            OffHeapPointCollection points = OffHeapPointCollection.read(file, TYPE, mapping, null);
+            System.out.println("Off-heap: " + points.size() + " points, " + points.getOffHeapBytes() + " bytes");
+            collection = points;
+        } else {
+            collection = readFeatures(file, TYPE, mapping);
         }
 
         /**
@@ -100,16 +77,10 @@ public class Csv2Shape {
          * 1、用带有一个参数的DataStoreFactory来表明要建一个空间索引
          * 2、使用createSchema（SimpleFeatureType）方法设置shapefile
          */
-        //获取输出文件名并创建新的shapefile
+        //获取输出文件名并创建新的shapefile，DataStores.createShapefile给ShapefileDataStoreFactory传入"create spatial index"参数
         File newFile = getNewShapeFile(file);
 
-        ShapefileDataStoreFactory dataStoreFactory = new ShapefileDataStoreFactory();
-
-        Map<String, Serializable> params = new HashMap<>();
-        params.put("url", newFile.toURI().toURL());
-        params.put("create spatial index", Boolean.TRUE);
-
-        ShapefileDataStore newDataStore = (ShapefileDataStore) dataStoreFactory.createNewDataStore(params);
+        DataStore newDataStore = DataStores.createShapefile(newFile);
 
         //TYPE用作描述文件内容的模板
         newDataStore.createSchema(TYPE);
@@ -134,14 +105,9 @@ public class Csv2Shape {
          */
         System.out.println("SHAPE: " + SHAPE_TYPE);
 
-        if (featureSource instanceof SimpleFeatureType) {
+        if (featureSource instanceof SimpleFeatureStore) {
             SimpleFeatureStore featureStore = (SimpleFeatureStore) featureSource;
 
-            /**
-             * SimpleFeatureStore有一个可以从SimpleFeatureCollection对象中添加featues的方法
-             * 因此我们可以使用ListFeatureCollection类包装我们的功能列表
-             */
-            SimpleFeatureCollection collection = new ListFeatureCollection(TYPE, features);
             featureStore.setTransaction(transaction);
             try {
                 featureStore.addFeatures(collection);
@@ -159,8 +125,70 @@ public class Csv2Shape {
         }
     }
 
+    /**
+     * @Author agent
+     * @Description //把csv中的每条记录读成一个SimpleFeature，放在内存中的列表里
+     * @Date 上午 3:42 2026/10/17 0017
+     * @param file csv文件
+     * @param type 要素类型
+     * @param mapping 列映射
+     * @return org.geotools.data.simple.SimpleFeatureCollection
+     */
+    private static SimpleFeatureCollection readFeatures(File file, SimpleFeatureType type, CsvColumnMapping mapping)
+            throws Exception {
+        /**
+         * 读取CSV文件并为每条记录创建一个功能
+         * 1、用GeometryFactory创建新点集
+         * 2、使用SimpleFeatureBuilder创建要素集（SimpleFeature对象）
+         */
+        //存放创建的要素的列表
+        List<SimpleFeature> features = new ArrayList<>();
+        //GeometryFactory将用于创建每个要素的几何属性，用作该位置的Point对象
+        GeometryFactory geometryFactory = JTSFactoryFinder.getGeometryFactory();
+
+        SimpleFeatureBuilder featureBuilder = new SimpleFeatureBuilder(type);
+
+        try (CsvPointReader reader = new CsvPointReader(file, mapping)) {
+            System.out.println("Header: " + reader.getHeader());
+
+            while (reader.next()) {
+                //Longitude(= x coord) 在前面
+                Point point = geometryFactory.createPoint(
+                        new Coordinate(reader.getLongitude(), reader.getLatitude()));
+
+                featureBuilder.add(point);
+                featureBuilder.add(reader.getName());
+                featureBuilder.add(reader.getNumber());
+                SimpleFeature feature = featureBuilder.buildFeature(null);
+                features.add(feature);
+            }
+        }
+
+        /**
+         * SimpleFeatureStore有一个可以从SimpleFeatureCollection对象中添加featues的方法
+         * 因此我们可以使用ListFeatureCollection类包装我们的功能列表
+         */
+        return new ListFeatureCollection(type, features);
+    }
+
     /**
      * @Author YueLifeng
+     * @Description //流式导入：读取csv并直接通过FeatureWriter分批写入shapefile，最后输出吞吐量和堆内存峰值
+     * @Date 上午 3:26 2026/10/17 0017
+     * @param csvFile 输入的csv文件
+     * @param type 描述csv内容的要素类型
+     * @param parallel 是否并行解析
+     */
+    private static void streamToShapefile(File csvFile, SimpleFeatureType type, boolean parallel) throws Exception {
+        File newFile = getNewShapeFile(csvFile);
+        CsvColumnMapping mapping = CsvColumnMapping.parse(System.getProperty("csv.columns"));
+        StreamingCsvIngest.IngestStats stats =
+                StreamingCsvIngest.ingestToShapefile(csvFile, newFile, type, mapping, parallel);
+        System.out.println("Ingest: " + stats);
+    }
+
+    /**
+     * @Author agent
      * @Description //提示用户输入shapefile的名称和路径
      * @Date 下午 2:30 2019/4/2 0002
      * @param csvFile 用于创建默认shapefile名称的输入csv文件
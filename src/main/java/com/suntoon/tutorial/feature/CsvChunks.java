@@ -0,0 +1,121 @@
+package com.suntoon.tutorial.feature;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CsvChunks
+ * @Description 把csv文件按字节切分成若干段，每段的边界都落在换行符之后，
+ *              这样每一段都可以单独映射、单独解析
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:28
+ * @Version 1.0
+ */
+public final class CsvChunks {
+    /** 单次内存映射的上限，MappedByteBuffer最多只能映射2GB */
+    public static final long MAX_MAPPED_BYTES = 256L * 1024 * 1024;
+
+    private CsvChunks() {
+    }
+
+    /**
+     * @Author agent
+     * @Description //把文件切分成不超过maxChunkBytes字节的若干段
+     * @Date 上午 3:28 2026/10/17 0017
+     * @param channel 打开的文件通道
+     * @param maxChunkBytes 每段的目标大小，一行比这个还长时该段会相应变长
+     * @return java.util.List<com.suntoon.tutorial.feature.CsvChunks.Chunk>
+     */
+    public static List<Chunk> split(FileChannel channel, long maxChunkBytes) throws IOException {
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + maxChunkBytes, size);
+            if (end < size) {
+                end = nextLineStart(channel, end, probe);
+            }
+            chunks.add(new Chunk(chunks.size(), start, end - start));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * @Author agent
+     * @Description //把文件大致均分成parts段（用于并行解析），同时保证每段不超过映射上限
+     * @Date 上午 3:28 2026/10/17 0017
+     * @param channel 打开的文件通道
+     * @param parts 期望的段数
+     * @return java.util.List<com.suntoon.tutorial.feature.CsvChunks.Chunk>
+     */
+    public static List<Chunk> splitEvenly(FileChannel channel, int parts) throws IOException {
+        long size = channel.size();
+        long chunkBytes = Math.max(1, (size + parts - 1) / Math.max(1, parts));
+        return split(channel, Math.min(chunkBytes, MAX_MAPPED_BYTES));
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, ByteBuffer probe) throws IOException {
+        long position = from;
+        long size = channel.size();
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * 文件中的一段：[start, start + length)
+     */
+    public static class Chunk {
+        private final int index;
+        private final long start;
+        private final long length;
+
+        Chunk(int index, long start, long length) {
+            this.index = index;
+            this.start = start;
+            this.length = length;
+        }
+
+        /**
+         * 这一段在文件中的序号，从0开始，合并结果时用来恢复原始行序
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public MappedByteBuffer map(FileChannel channel) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+
+        @Override
+        public String toString() {
+            return "Chunk[" + index + ": " + start + "+" + length + "]";
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.suntoon.tutorial.feature;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CsvColumnMapping
+ * @Description csv点文件的列映射：纬度、经度、名称、编号分别位于第几列，以及分隔符和引号字符，
+ *              取代原来写死的tokens[0..3]
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:28
+ * @Version 1.0
+ */
+public class CsvColumnMapping {
+    /** 列不存在时使用的下标 */
+    public static final int ABSENT = -1;
+
+    private int latitude = 0;
+    private int longitude = 1;
+    private int name = 2;
+    private int number = 3;
+    private byte delimiter = ',';
+    private byte quote = '"';
+    private boolean header = true;
+
+    /**
+     * @Author agent
+     * @Description //解析形如 "lat=0,lon=1,name=2,number=3,delimiter=tab,header=false" 的映射描述，未出现的列保持默认值，
+     *               写成 name=-1 表示该列不存在。描述本身用逗号分隔，所以分隔符用名称表示：
+     *               comma、tab、semicolon、pipe、space，其他分隔符写成单个ASCII字符
+     * @Date 上午 3:28 2026/10/17 0017
+     * @param spec 映射描述，可以为空
+     * @return com.suntoon.tutorial.feature.CsvColumnMapping
+     */
+    public static CsvColumnMapping parse(String spec) {
+        CsvColumnMapping mapping = new CsvColumnMapping();
+        if (spec == null || spec.trim().isEmpty()) {
+            return mapping;
+        }
+        for (String entry : spec.split(",")) {
+            String[] kv = entry.split("=");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Bad column mapping entry: " + entry);
+            }
+            String key = kv[0].trim();
+            String value = kv[1].trim();
+            switch (key) {
+                case "lat":
+                    mapping.setLatitude(Integer.parseInt(value));
+                    break;
+                case "lon":
+                    mapping.setLongitude(Integer.parseInt(value));
+                    break;
+                case "name":
+                    mapping.setName(Integer.parseInt(value));
+                    break;
+                case "number":
+                    mapping.setNumber(Integer.parseInt(value));
+                    break;
+                case "delimiter":
+                    mapping.setDelimiter(delimiter(value));
+                    break;
+                case "header":
+                    mapping.setHeader(Boolean.parseBoolean(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown column: " + key);
+            }
+        }
+        return mapping;
+    }
+
+    private static byte delimiter(String value) {
+        switch (value) {
+            case "comma":
+                return ',';
+            case "tab":
+                return '\t';
+            case "semicolon":
+                return ';';
+            case "pipe":
+                return '|';
+            case "space":
+                return ' ';
+            default:
+                if (value.length() != 1 || value.charAt(0) > 127) {
+                    throw new IllegalArgumentException("Bad delimiter: '" + value
+                            + "', use comma, tab, semicolon, pipe, space or a single ASCII character");
+                }
+                return (byte) value.charAt(0);
+        }
+    }
+
+    /**
+     * 最大的列下标，解析时超过这一列的字段直接跳过
+     */
+    public int getLastColumn() {
+        return Math.max(Math.max(latitude, longitude), Math.max(name, number));
+    }
+
+    public int getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(int latitude) {
+        this.latitude = latitude;
+    }
+
+    public int getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(int longitude) {
+        this.longitude = longitude;
+    }
+
+    public int getName() {
+        return name;
+    }
+
+    public void setName(int name) {
+        this.name = name;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
+    public byte getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(byte delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public byte getQuote() {
+        return quote;
+    }
+
+    public void setQuote(byte quote) {
+        this.quote = quote;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    @Override
+    public String toString() {
+        return "lat=" + latitude + ",lon=" + longitude + ",name=" + name + ",number=" + number;
+    }
+}
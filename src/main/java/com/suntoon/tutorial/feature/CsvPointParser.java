@@ -0,0 +1,394 @@
+package com.suntoon.tutorial.feature;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CsvPointParser
+ * @Description 直接在ByteBuffer(通常是内存映射的文件)上解析csv点记录，
+ *              经纬度和编号原地解析，不创建中间String，也不使用正则拆分；
+ *              支持双引号字段（""表示转义的引号），但记录本身不能跨行
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:28
+ * @Version 1.0
+ */
+public class CsvPointParser {
+    /** 不超过15位有效数字且10的指数不超过22时，double乘除一次就是精确结果 */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ByteBuffer buffer;
+    private final CsvColumnMapping mapping;
+    private final StringInterner names;
+    private final int lastColumn;
+    private final byte delimiter;
+    private final byte quote;
+
+    private int position;
+    private final int limit;
+    private long records;
+
+    private double latitude;
+    private double longitude;
+    private String name;
+    private int number;
+
+    /** 含有转义引号的字段先去掉转义再解析 */
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    public CsvPointParser(ByteBuffer buffer, CsvColumnMapping mapping) {
+        this(buffer, mapping, new StringInterner());
+    }
+
+    CsvPointParser(ByteBuffer buffer, CsvColumnMapping mapping, StringInterner names) {
+        this.buffer = buffer;
+        this.mapping = mapping;
+        this.names = names;
+        this.lastColumn = mapping.getLastColumn();
+        this.delimiter = mapping.getDelimiter();
+        this.quote = mapping.getQuote();
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * @Author agent
+     * @Description //跳过当前行（例如标题行）
+     * @Date 上午 3:28 2026/10/17 0017
+     * @return java.lang.String 被跳过的这一行
+     */
+    public String skipLine() {
+        int start = position;
+        int end = lineEnd(position);
+        position = Math.min(end + 1, limit);
+        int contentEnd = end;
+        if (contentEnd > start && buffer.get(contentEnd - 1) == '\r') {
+            contentEnd--;
+        }
+        byte[] bytes = new byte[contentEnd - start];
+        for (int i = start; i < contentEnd; i++) {
+            bytes[i - start] = buffer.get(i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @Author agent
+     * @Description //读取下一条非空记录
+     * @Date 上午 3:28 2026/10/17 0017
+     * @return boolean 没有更多记录时返回false
+     */
+    public boolean next() {
+        while (position < limit) {
+            int end = lineEnd(position);
+            int start = position;
+            position = Math.min(end + 1, limit);
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            if (isBlank(start, end)) {    //跳过空白行
+                continue;
+            }
+            parseRecord(start, end);
+            records++;
+            return true;
+        }
+        return false;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * 到目前为止解析出的记录数
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    public CsvColumnMapping getMapping() {
+        return mapping;
+    }
+
+    private void parseRecord(int start, int end) {
+        latitude = Double.NaN;
+        longitude = Double.NaN;
+        name = null;
+        number = 0;
+
+        int column = 0;
+        int fieldStart = start;
+        while (column <= lastColumn) {
+            if (fieldStart > end) {
+                throw new IllegalArgumentException(
+                        "Record " + (records + 1) + " has only " + column + " columns, expected " + (lastColumn + 1));
+            }
+            int fieldEnd;
+            int next;
+            if (fieldStart < end && buffer.get(fieldStart) == quote) {
+                int close = closingQuote(fieldStart + 1, end);
+                fieldEnd = close;
+                next = indexOf(delimiter, close + 1, end) + 1;
+                parseField(column, fieldStart + 1, fieldEnd, true);
+            } else {
+                fieldEnd = indexOf(delimiter, fieldStart, end);
+                next = fieldEnd + 1;
+                parseField(column, fieldStart, fieldEnd, false);
+            }
+            fieldStart = next;
+            column++;
+        }
+    }
+
+    private void parseField(int column, int start, int end, boolean quoted) {
+        if (column != mapping.getLatitude() && column != mapping.getLongitude()
+                && column != mapping.getName() && column != mapping.getNumber()) {
+            return;
+        }
+        ByteBuffer source = buffer;
+        if (quoted && hasEscapedQuote(start, end)) {
+            source = unescape(start, end);
+            start = 0;
+            end = source.limit();
+        }
+        if (column == mapping.getLatitude()) {
+            latitude = parseDouble(source, start, end);
+        } else if (column == mapping.getLongitude()) {
+            longitude = parseDouble(source, start, end);
+        } else if (column == mapping.getName()) {
+            if (!quoted) {
+                while (start < end && isSpace(source.get(start))) {
+                    start++;
+                }
+                while (end > start && isSpace(source.get(end - 1))) {
+                    end--;
+                }
+            }
+            name = names.intern(source, start, end);
+        } else {
+            number = parseInt(source, start, end);
+        }
+    }
+
+    /**
+     * 原地解析十进制浮点数，只有有效数字太多或指数太大时才退回Double.parseDouble
+     */
+    static double parseDouble(ByteBuffer source, int start, int end) {
+        int i = start;
+        while (i < end && isSpace(source.get(i))) {
+            i++;
+        }
+        while (end > i && isSpace(source.get(end - 1))) {
+            end--;
+        }
+        int first = i;
+        boolean negative = false;
+        if (i < end && (source.get(i) == '-' || source.get(i) == '+')) {
+            negative = source.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean exact = true;
+        for (; i < end; i++) {
+            int d = source.get(i) - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            anyDigit = true;
+            if (mantissa == 0 && d == 0) {
+                continue;
+            }
+            if (digits < 18) {
+                mantissa = mantissa * 10 + d;
+                digits++;
+            } else {
+                exponent++;
+                exact = false;
+            }
+        }
+        if (i < end && source.get(i) == '.') {
+            for (i++; i < end; i++) {
+                int d = source.get(i) - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                anyDigit = true;
+                if (mantissa == 0 && d == 0) {
+                    exponent--;
+                    continue;
+                }
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + d;
+                    digits++;
+                    exponent--;
+                } else {
+                    exact = false;
+                }
+            }
+        }
+        if (anyDigit && i < end && (source.get(i) == 'e' || source.get(i) == 'E')) {
+            i++;
+            boolean negativeExp = false;
+            if (i < end && (source.get(i) == '-' || source.get(i) == '+')) {
+                negativeExp = source.get(i) == '-';
+                i++;
+            }
+            int exp = 0;
+            int expStart = i;
+            for (; i < end; i++) {
+                int d = source.get(i) - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                if (exp < 100000) {
+                    exp = exp * 10 + d;
+                }
+            }
+            if (i == expStart) {
+                anyDigit = false;
+            }
+            exponent += negativeExp ? -exp : exp;
+        }
+        if (!anyDigit || i != end || !exact || digits > 15 || exponent > 22 || exponent < -22) {
+            return Double.parseDouble(ascii(source, first, end));
+        }
+        double value = mantissa;
+        if (exponent > 0) {
+            value *= POWERS_OF_TEN[exponent];
+        } else if (exponent < 0) {
+            value /= POWERS_OF_TEN[-exponent];
+        }
+        return negative ? -value : value;
+    }
+
+    static int parseInt(ByteBuffer source, int start, int end) {
+        int i = start;
+        while (i < end && isSpace(source.get(i))) {
+            i++;
+        }
+        while (end > i && isSpace(source.get(end - 1))) {
+            end--;
+        }
+        int first = i;
+        boolean negative = false;
+        if (i < end && (source.get(i) == '-' || source.get(i) == '+')) {
+            negative = source.get(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("For input string: \"" + ascii(source, first, end) + "\"");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int d = source.get(i) - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("For input string: \"" + ascii(source, first, end) + "\"");
+            }
+            value = value * 10 + d;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Value out of range: \"" + ascii(source, first, end) + "\"");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range: \"" + ascii(source, first, end) + "\"");
+        }
+        return (int) value;
+    }
+
+    private int lineEnd(int from) {
+        int i = from;
+        while (i < limit && buffer.get(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private int indexOf(byte b, int from, int end) {
+        int i = from;
+        while (i < end && buffer.get(i) != b) {
+            i++;
+        }
+        return i;
+    }
+
+    private int closingQuote(int from, int end) {
+        int i = from;
+        while (i < end) {
+            if (buffer.get(i) == quote) {
+                if (i + 1 < end && buffer.get(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i;
+            }
+            i++;
+        }
+        throw new IllegalArgumentException("Unterminated quoted field in record " + (records + 1));
+    }
+
+    private boolean hasEscapedQuote(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == quote) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ByteBuffer unescape(int start, int end) {
+        if (scratch.capacity() < end - start) {
+            scratch = ByteBuffer.allocate(Integer.highestOneBit(end - start) << 1);
+        }
+        scratch.clear();
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            scratch.put(b);
+            if (b == quote) {
+                i++;    //""只保留一个引号
+            }
+        }
+        scratch.flip();
+        return scratch;
+    }
+
+    private boolean isBlank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isSpace(buffer.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static String ascii(ByteBuffer source, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = (char) (source.get(i) & 0xff);
+        }
+        return new String(chars);
+    }
+}
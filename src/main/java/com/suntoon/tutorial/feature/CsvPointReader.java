@@ -0,0 +1,84 @@
+package com.suntoon.tutorial.feature;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CsvPointReader
+ * @Description 按顺序读取整个csv点文件：文件被切分成若干段依次内存映射，
+ *              每段交给CsvPointParser解析，因此也能处理超过2GB的文件
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:28
+ * @Version 1.0
+ */
+public class CsvPointReader implements Closeable {
+    private final FileChannel channel;
+    private final CsvColumnMapping mapping;
+    private final StringInterner names = new StringInterner();
+    private final Iterator<CsvChunks.Chunk> chunks;
+    private CsvPointParser parser;
+    private String header;
+
+    public CsvPointReader(File file, CsvColumnMapping mapping) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.mapping = mapping;
+        this.chunks = CsvChunks.split(channel, CsvChunks.MAX_MAPPED_BYTES).iterator();
+        if (chunks.hasNext()) {
+            parser = new CsvPointParser(chunks.next().map(channel), mapping, names);
+            if (mapping.isHeader()) {
+                //数据文件的第一行是标题
+                header = parser.skipLine();
+            }
+        }
+    }
+
+    /**
+     * @Author agent
+     * @Description //读取下一条记录，当前段读完后自动映射下一段
+     * @Date 上午 3:28 2026/10/17 0017
+     * @return boolean 文件读完时返回false
+     */
+    public boolean next() throws IOException {
+        while (parser != null) {
+            if (parser.next()) {
+                return true;
+            }
+            parser = chunks.hasNext() ? new CsvPointParser(chunks.next().map(channel), mapping, names) : null;
+        }
+        return false;
+    }
+
+    public double getLatitude() {
+        return parser.getLatitude();
+    }
+
+    public double getLongitude() {
+        return parser.getLongitude();
+    }
+
+    public String getName() {
+        return parser.getName();
+    }
+
+    public int getNumber() {
+        return parser.getNumber();
+    }
+
+    /**
+     * 标题行，没有标题时为null
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,109 @@
+package com.suntoon.tutorial.feature;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName OffHeapColumn
+ * @Description 堆外的定长列：按行号分块保存在直接内存或内存映射文件中，每块1M行，
+ *              不会因为扩容而复制整列，也不受单个ByteBuffer 2GB的限制
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:42
+ * @Version 1.0
+ */
+final class OffHeapColumn implements Closeable {
+    static final int CHUNK_SHIFT = 20;
+    static final int ROWS_PER_CHUNK = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = ROWS_PER_CHUNK - 1;
+
+    private final int bytesPerRow;
+    private final File backing;
+    private final RandomAccessFile file;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    /**
+     * @param bytesPerRow 每行的字节数
+     * @param backing 映射的临时文件，关闭时删除；为null时使用直接内存
+     */
+    OffHeapColumn(int bytesPerRow, File backing) throws IOException {
+        this.bytesPerRow = bytesPerRow;
+        this.backing = backing;
+        this.file = backing == null ? null : new RandomAccessFile(backing, "rw");
+        if (file != null) {
+            file.setLength(0);
+        }
+    }
+
+    private ByteBuffer chunk(int row) {
+        return chunks.get(row >>> CHUNK_SHIFT);
+    }
+
+    private int offset(int row, int slot) {
+        return (row & CHUNK_MASK) * bytesPerRow + slot;
+    }
+
+    /**
+     * 确保第row行有存储空间，只能按行号递增的顺序调用
+     */
+    void ensureRow(int row) throws IOException {
+        int index = row >>> CHUNK_SHIFT;
+        while (chunks.size() <= index) {
+            long bytes = (long) ROWS_PER_CHUNK * bytesPerRow;
+            ByteBuffer buffer;
+            if (file == null) {
+                buffer = ByteBuffer.allocateDirect((int) bytes);
+            } else {
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, chunks.size() * bytes, bytes);
+            }
+            chunks.add(buffer.order(ByteOrder.nativeOrder()));
+        }
+    }
+
+    void putDouble(int row, int slot, double value) {
+        chunk(row).putDouble(offset(row, slot), value);
+    }
+
+    double getDouble(int row, int slot) {
+        return chunk(row).getDouble(offset(row, slot));
+    }
+
+    void putInt(int row, int slot, int value) {
+        chunk(row).putInt(offset(row, slot), value);
+    }
+
+    int getInt(int row, int slot) {
+        return chunk(row).getInt(offset(row, slot));
+    }
+
+    void putByte(int row, byte value) {
+        chunk(row).put(offset(row, 0), value);
+    }
+
+    byte getByte(int row) {
+        return chunk(row).get(offset(row, 0));
+    }
+
+    long getAllocatedBytes() {
+        return (long) chunks.size() * ROWS_PER_CHUNK * bytesPerRow;
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunks.clear();
+        if (file != null) {
+            file.close();
+            //映射在缓冲区被回收前可能仍然有效，删除失败时留到退出时再删
+            if (!backing.delete()) {
+                backing.deleteOnExit();
+            }
+        }
+    }
+}
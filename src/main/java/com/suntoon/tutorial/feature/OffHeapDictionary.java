@@ -0,0 +1,130 @@
+package com.suntoon.tutorial.feature;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName OffHeapDictionary
+ * @Description 字符串列的字典：不同的值按UTF-8字节追加保存在堆外，每个编码的偏移、长度和哈希值也在堆外，
+ *              堆上只有一个按哈希值开放寻址的编码数组（每个值约8字节）。查找时比较字节，取值时才解码成String
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:53
+ * @Version 1.0
+ */
+final class OffHeapDictionary implements Closeable {
+    private static final int OFFSET = 0;
+    private static final int LENGTH = 4;
+    private static final int HASH = 8;
+
+    private final OffHeapColumn bytes;
+    private final OffHeapColumn entries;
+    /** 编码 + 1，0表示空位 */
+    private int[] table = new int[1024];
+    private int size;
+    private int used;
+
+    /**
+     * @param bytesBacking 保存字符串字节的映射文件，为null时使用直接内存
+     * @param entriesBacking 保存偏移、长度和哈希值的映射文件，为null时使用直接内存
+     */
+    OffHeapDictionary(File bytesBacking, File entriesBacking) throws IOException {
+        this.bytes = new OffHeapColumn(1, bytesBacking);
+        this.entries = new OffHeapColumn(12, entriesBacking);
+    }
+
+    /**
+     * value的编码，第一次出现时追加到字典中
+     */
+    int encode(String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        int hash = Arrays.hashCode(utf8);
+        int mask = table.length - 1;
+        int slot = mix(hash) & mask;
+        for (int code = table[slot] - 1; code >= 0; code = table[slot] - 1) {
+            if (entries.getInt(code, HASH) == hash && matches(code, utf8)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if ((long) used + utf8.length > Integer.MAX_VALUE) {
+            throw new IOException("String dictionary exceeds 2GB");
+        }
+        int code = size++;
+        entries.ensureRow(code);
+        entries.putInt(code, OFFSET, used);
+        entries.putInt(code, LENGTH, utf8.length);
+        entries.putInt(code, HASH, hash);
+        for (byte b : utf8) {
+            bytes.ensureRow(used);
+            bytes.putByte(used++, b);
+        }
+        table[slot] = code + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    String decode(int code) {
+        int offset = entries.getInt(code, OFFSET);
+        byte[] utf8 = new byte[entries.getInt(code, LENGTH)];
+        for (int i = 0; i < utf8.length; i++) {
+            utf8[i] = bytes.getByte(offset + i);
+        }
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getAllocatedBytes() {
+        return bytes.getAllocatedBytes() + entries.getAllocatedBytes();
+    }
+
+    private boolean matches(int code, byte[] utf8) {
+        if (entries.getInt(code, LENGTH) != utf8.length) {
+            return false;
+        }
+        int offset = entries.getInt(code, OFFSET);
+        for (int i = 0; i < utf8.length; i++) {
+            if (bytes.getByte(offset + i) != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 表的容量翻倍，用堆外保存的哈希值重新放置，不需要读取字符串
+     */
+    private void rehash() {
+        int[] larger = new int[table.length * 2];
+        int mask = larger.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = mix(entries.getInt(code, HASH)) & mask;
+            while (larger[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            larger[slot] = code + 1;
+        }
+        table = larger;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            bytes.close();
+        } finally {
+            entries.close();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.suntoon.tutorial.feature;
+
+import org.geotools.feature.collection.AbstractFeatureCollection;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName OffHeapPointCollection
+ * @Description 点图层的列式要素集合：x/y和整数、浮点数属性保存在堆外（直接内存或内存映射文件），
+ *              字符串按字典编码，每行只保存4字节的编码，字典中的值也在堆外（见OffHeapDictionary）；
+ *              使用映射文件时每列在指定目录下建一个唯一的临时文件，关闭时删除。迭代时返回只引用行号的轻量要素，属性和Point在访问时才创建。
+ *              Csv2Shape的类型（点 + 名称 + 数字）每个点大约占用24字节，而SimpleFeature列表大约是200字节。
+ *              要素是只读的；行只能追加，不能删除
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:42
+ * @Version 1.0
+ */
+public class OffHeapPointCollection extends AbstractFeatureCollection implements Closeable {
+    private static final int INT = 0;
+    private static final int DOUBLE = 1;
+    private static final int STRING = 2;
+
+    private final GeometryFactory geometryFactory = JTSFactoryFinder.getGeometryFactory();
+    private final int geometryIndex;
+    private final int[] kinds;
+    private final OffHeapColumn xy;
+    private final OffHeapColumn[] columns;
+    private final BitSet[] nulls;
+    private final OffHeapDictionary[] dictionaries;
+    private final String fidPrefix;
+    private final ReferencedEnvelope bounds;
+    private int size;
+
+    public OffHeapPointCollection(SimpleFeatureType type) throws IOException {
+        this(type, null);
+    }
+
+    /**
+     * @param type 要素类型，必须有且只有一个Point几何属性，其他属性只能是整数、浮点数或字符串
+     * @param directory 在其中创建各列映射文件（临时文件）的目录，为null时使用直接内存
+     */
+    public OffHeapPointCollection(SimpleFeatureType type, File directory) throws IOException {
+        super(type);
+        GeometryDescriptor geometry = type.getGeometryDescriptor();
+        if (geometry == null || !Point.class.equals(geometry.getType().getBinding())) {
+            throw new IllegalArgumentException("A single Point geometry is required: " + type);
+        }
+        this.geometryIndex = type.indexOf(geometry.getLocalName());
+        this.fidPrefix = type.getTypeName() + ".";
+        this.bounds = new ReferencedEnvelope(type.getCoordinateReferenceSystem());
+
+        int count = type.getAttributeCount();
+        this.kinds = new int[count];
+        this.columns = new OffHeapColumn[count];
+        this.nulls = new BitSet[count];
+        this.dictionaries = new OffHeapDictionary[count];
+        this.xy = new OffHeapColumn(16, backing(directory));
+        for (int i = 0; i < count; i++) {
+            if (i == geometryIndex) {
+                continue;
+            }
+            AttributeDescriptor descriptor = type.getDescriptor(i);
+            Class<?> binding = descriptor.getType().getBinding();
+            int bytes;
+            if (Integer.class.equals(binding)) {
+                kinds[i] = INT;
+                bytes = 4;
+            } else if (Double.class.equals(binding)) {
+                kinds[i] = DOUBLE;
+                bytes = 8;
+            } else if (String.class.equals(binding)) {
+                kinds[i] = STRING;
+                bytes = 4;
+                dictionaries[i] = new OffHeapDictionary(backing(directory), backing(directory));
+            } else {
+                throw new IllegalArgumentException("Unsupported attribute " + descriptor.getLocalName()
+                        + " of type " + binding.getSimpleName());
+            }
+            columns[i] = new OffHeapColumn(bytes, backing(directory));
+            nulls[i] = new BitSet();
+        }
+    }
+
+    /**
+     * 一列的映射文件，每次新建唯一的文件名，同一目录可以同时给多个集合使用
+     */
+    private static File backing(File directory) throws IOException {
+        return directory == null ? null : File.createTempFile("column", ".col", directory);
+    }
+
+    /**
+     * @Author agent
+     * @Description //从csv文件读入，type必须是Csv2Shape使用的点 + 名称(String) + 数字(Integer)
+     * @Date 上午 3:42 2026/10/17 0017
+     * @param csvFile csv文件
+     * @param type 要素类型
+     * @param mapping 列映射
+     * @param directory 映射文件目录，为null时使用直接内存
+     * @return com.suntoon.tutorial.feature.OffHeapPointCollection
+     */
+    public static OffHeapPointCollection read(File csvFile, SimpleFeatureType type, CsvColumnMapping mapping,
+                                              File directory) throws IOException {
+        OffHeapPointCollection points = new OffHeapPointCollection(type, directory);
+        int name = type.indexOf("name");
+        int number = type.indexOf("number");
+        try (CsvPointReader reader = new CsvPointReader(csvFile, mapping)) {
+            while (reader.next()) {
+                int row = points.addPoint(reader.getLongitude(), reader.getLatitude());
+                points.setString(row, name, reader.getName());
+                points.setInt(row, number, reader.getNumber());
+            }
+        } catch (IOException | RuntimeException e) {
+            points.close();
+            throw e;
+        }
+        return points;
+    }
+
+    /**
+     * 追加一个点，返回行号；属性默认为null，之后用setInt等方法设置
+     */
+    public int addPoint(double x, double y) throws IOException {
+        int row = size;
+        xy.ensureRow(row);
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] != null) {
+                columns[i].ensureRow(row);
+                nulls[i].set(row);
+            }
+        }
+        xy.putDouble(row, 0, x);
+        xy.putDouble(row, 8, y);
+        bounds.expandToInclude(x, y);
+        size++;
+        return row;
+    }
+
+    /**
+     * 追加一个点，values按要素类型中非几何属性的顺序给出
+     */
+    public int add(double x, double y, Object... values) throws IOException {
+        int row = addPoint(x, y);
+        int v = 0;
+        for (int i = 0; i < columns.length && v < values.length; i++) {
+            if (i != geometryIndex) {
+                set(row, i, values[v++]);
+            }
+        }
+        return row;
+    }
+
+    public int add(SimpleFeature feature) throws IOException {
+        Point point = (Point) feature.getAttribute(geometryIndex);
+        int row = addPoint(point.getX(), point.getY());
+        for (int i = 0; i < columns.length; i++) {
+            if (i != geometryIndex) {
+                set(row, i, feature.getAttribute(i));
+            }
+        }
+        return row;
+    }
+
+    private void set(int row, int attribute, Object value) throws IOException {
+        if (value == null) {
+            nulls[attribute].set(row);
+        } else if (kinds[attribute] == INT) {
+            setInt(row, attribute, ((Number) value).intValue());
+        } else if (kinds[attribute] == DOUBLE) {
+            setDouble(row, attribute, ((Number) value).doubleValue());
+        } else {
+            setString(row, attribute, value.toString());
+        }
+    }
+
+    public void setInt(int row, int attribute, int value) {
+        columns[attribute].putInt(row, 0, value);
+        nulls[attribute].clear(row);
+    }
+
+    public void setDouble(int row, int attribute, double value) {
+        columns[attribute].putDouble(row, 0, value);
+        nulls[attribute].clear(row);
+    }
+
+    public void setString(int row, int attribute, String value) throws IOException {
+        if (value == null) {
+            nulls[attribute].set(row);
+            return;
+        }
+        columns[attribute].putInt(row, 0, dictionaries[attribute].encode(value));
+        nulls[attribute].clear(row);
+    }
+
+    public double getX(int row) {
+        return xy.getDouble(row, 0);
+    }
+
+    public double getY(int row) {
+        return xy.getDouble(row, 8);
+    }
+
+    public boolean isNull(int row, int attribute) {
+        return attribute != geometryIndex && nulls[attribute].get(row);
+    }
+
+    public int getInt(int row, int attribute) {
+        return columns[attribute].getInt(row, 0);
+    }
+
+    public double getDouble(int row, int attribute) {
+        return columns[attribute].getDouble(row, 0);
+    }
+
+    public String getString(int row, int attribute) {
+        return nulls[attribute].get(row) ? null : dictionaries[attribute].decode(columns[attribute].getInt(row, 0));
+    }
+
+    /**
+     * 第row行的属性值，几何属性返回新建的Point
+     */
+    public Object getAttribute(int row, int attribute) {
+        if (attribute == geometryIndex) {
+            return geometryFactory.createPoint(new Coordinate(getX(row), getY(row)));
+        }
+        if (nulls[attribute].get(row)) {
+            return null;
+        }
+        switch (kinds[attribute]) {
+            case INT:
+                return getInt(row, attribute);
+            case DOUBLE:
+                return getDouble(row, attribute);
+            default:
+                return getString(row, attribute);
+        }
+    }
+
+    String getID(int row) {
+        return fidPrefix + (row + 1);
+    }
+
+    int getGeometryIndex() {
+        return geometryIndex;
+    }
+
+    /**
+     * 第row行的轻量要素
+     */
+    public SimpleFeature getFeature(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+        return new PointFeature(this, row);
+    }
+
+    @Override
+    protected Iterator<SimpleFeature> openIterator() {
+        final int end = size;
+        return new Iterator<SimpleFeature>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < end;
+            }
+
+            @Override
+            public SimpleFeature next() {
+                if (row >= end) {
+                    throw new NoSuchElementException();
+                }
+                return new PointFeature(OffHeapPointCollection.this, row++);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds() {
+        return new ReferencedEnvelope(bounds);
+    }
+
+    /**
+     * 堆外分配的字节数（按块分配，因此会略大于实际使用的）
+     */
+    public long getOffHeapBytes() {
+        long bytes = xy.getAllocatedBytes();
+        for (OffHeapColumn column : columns) {
+            if (column != null) {
+                bytes += column.getAllocatedBytes();
+            }
+        }
+        for (OffHeapDictionary dictionary : dictionaries) {
+            if (dictionary != null) {
+                bytes += dictionary.getAllocatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 字符串属性中不同值的个数
+     */
+    public int getDictionarySize(int attribute) {
+        return dictionaries[attribute] == null ? 0 : dictionaries[attribute].size();
+    }
+
+    /**
+     * 释放并删除映射文件；直接内存在集合被回收时释放
+     */
+    @Override
+    public void close() throws IOException {
+        xy.close();
+        for (OffHeapColumn column : columns) {
+            if (column != null) {
+                column.close();
+            }
+        }
+        for (OffHeapDictionary dictionary : dictionaries) {
+            if (dictionary != null) {
+                dictionary.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.suntoon.tutorial.feature;
+
+import org.geotools.data.DataStore;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Transaction;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName ParallelCsvIngest
+ * @Description 并行导入csv点文件：文件按换行符切成小段，在fork-join线程池上并发解析，
+ *              每个任务使用自己的GeometryFactory和SimpleFeatureBuilder；
+ *              解析结果按段的原始顺序交给唯一的写线程写入shapefile，
+ *              同时在途的段数有上限，所以内存占用不随文件大小增长
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:28
+ * @Version 1.0
+ */
+public class ParallelCsvIngest {
+    /** 默认每段4MB，大约十万行 */
+    public static final long DEFAULT_CHUNK_BYTES = 4L * 1024 * 1024;
+
+    private final SimpleFeatureType type;
+    private final CsvColumnMapping mapping;
+    private final ForkJoinPool pool;
+    private long chunkBytes = DEFAULT_CHUNK_BYTES;
+    private int maxChunksInFlight;
+
+    public ParallelCsvIngest(SimpleFeatureType type, CsvColumnMapping mapping) {
+        this(type, mapping, ForkJoinPool.commonPool());
+    }
+
+    public ParallelCsvIngest(SimpleFeatureType type, CsvColumnMapping mapping, ForkJoinPool pool) {
+        this.type = type;
+        this.mapping = mapping;
+        this.pool = pool;
+        this.maxChunksInFlight = pool.getParallelism() * 2;
+    }
+
+    /**
+     * @Author agent
+     * @Description //并行解析csvFile并按原始行序写入dataStore中已创建好的要素类型
+     * @Date 上午 3:28 2026/10/17 0017
+     * @param csvFile 输入的csv文件
+     * @param dataStore 已经调用过createSchema的数据存储
+     * @return com.suntoon.tutorial.feature.StreamingCsvIngest.IngestStats
+     */
+    public StreamingCsvIngest.IngestStats ingest(File csvFile, DataStore dataStore) throws IOException {
+        String typeName = dataStore.getTypeNames()[0];
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                     dataStore.getFeatureWriterAppend(typeName, Transaction.AUTO_COMMIT)) {
+            return ingest(csvFile, writer);
+        }
+    }
+
+    /**
+     * @Author agent
+     * @Description //并行解析csvFile并按原始行序写入writer，writer的关闭由调用者负责
+     * @Date 上午 4:00 2026/10/17 0017
+     * @param csvFile 输入的csv文件
+     * @param writer 目标要素类型的FeatureWriter，例如NioShapefileWriter
+     * @return com.suntoon.tutorial.feature.StreamingCsvIngest.IngestStats
+     */
+    public StreamingCsvIngest.IngestStats ingest(File csvFile, FeatureWriter<SimpleFeatureType, SimpleFeature> writer)
+            throws IOException {
+        StreamingCsvIngest.resetPeakUsage();
+        long start = System.nanoTime();
+        long rows = 0;
+
+        Deque<ForkJoinTask<List<SimpleFeature>>> inFlight = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            Iterator<CsvChunks.Chunk> chunks = CsvChunks.split(channel, chunkBytes).iterator();
+            try {
+                while (chunks.hasNext() || !inFlight.isEmpty()) {
+                    //保持固定数量的段在解析，写线程总是等待最早的那一段，从而保证行序
+                    while (chunks.hasNext() && inFlight.size() < maxChunksInFlight) {
+                        inFlight.addLast(pool.submit(new ParseChunkTask(channel, chunks.next())));
+                    }
+                    for (SimpleFeature feature : inFlight.removeFirst().join()) {
+                        SimpleFeature copy = writer.next();
+                        copy.setAttributes(feature.getAttributes());
+                        writer.write();
+                        rows++;
+                    }
+                }
+            } finally {
+                for (ForkJoinTask<?> task : inFlight) {
+                    task.cancel(true);
+                }
+            }
+        }
+        return new StreamingCsvIngest.IngestStats(rows, System.nanoTime() - start, StreamingCsvIngest.peakHeapUsage());
+    }
+
+    public long getChunkBytes() {
+        return chunkBytes;
+    }
+
+    /**
+     * 每段的目标字节数，段越小内存占用越低，但任务调度的开销越大
+     */
+    public void setChunkBytes(long chunkBytes) {
+        this.chunkBytes = chunkBytes;
+    }
+
+    public int getMaxChunksInFlight() {
+        return maxChunksInFlight;
+    }
+
+    /**
+     * 同时解析或等待写入的段数上限，默认是线程池并行度的两倍
+     */
+    public void setMaxChunksInFlight(int maxChunksInFlight) {
+        this.maxChunksInFlight = Math.max(1, maxChunksInFlight);
+    }
+
+    /**
+     * 解析一段csv，返回这一段的全部要素
+     */
+    private class ParseChunkTask extends RecursiveTask<List<SimpleFeature>> {
+        private final FileChannel channel;
+        private final CsvChunks.Chunk chunk;
+
+        ParseChunkTask(FileChannel channel, CsvChunks.Chunk chunk) {
+            this.channel = channel;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected List<SimpleFeature> compute() {
+            GeometryFactory geometryFactory = JTSFactoryFinder.getGeometryFactory();
+            SimpleFeatureBuilder featureBuilder = new SimpleFeatureBuilder(type);
+            List<SimpleFeature> features = new ArrayList<>();
+            try {
+                CsvPointParser parser = new CsvPointParser(chunk.map(channel), mapping);
+                if (chunk.getIndex() == 0 && mapping.isHeader()) {
+                    parser.skipLine();
+                }
+                while (parser.next()) {
+                    //Longitude(= x coord) 在前面
+                    featureBuilder.add(geometryFactory.createPoint(
+                            new Coordinate(parser.getLongitude(), parser.getLatitude())));
+                    featureBuilder.add(parser.getName());
+                    featureBuilder.add(parser.getNumber());
+                    features.add(featureBuilder.buildFeature(null));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read " + chunk, e);
+            }
+            return features;
+        }
+    }
+}
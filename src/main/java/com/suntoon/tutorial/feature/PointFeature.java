@@ -0,0 +1,244 @@
+package com.suntoon.tutorial.feature;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.GeometryAttribute;
+import org.opengis.feature.Property;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.geometry.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName PointFeature
+ * @Description OffHeapPointCollection中一行的只读视图：只保存集合和行号，常用的属性访问直接读列；
+ *              Property相关的方法很少用到，第一次调用时才组装一个普通的SimpleFeature来回答
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:42
+ * @Version 1.0
+ */
+final class PointFeature implements SimpleFeature {
+    private final OffHeapPointCollection collection;
+    private final int row;
+    private Object geometry;
+    private SimpleFeature materialized;
+
+    PointFeature(OffHeapPointCollection collection, int row) {
+        this.collection = collection;
+        this.row = row;
+    }
+
+    private SimpleFeature materialize() {
+        if (materialized == null) {
+            materialized = SimpleFeatureBuilder.build(getFeatureType(), getAttributes(), getID());
+        }
+        return materialized;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Features of an OffHeapPointCollection are read only");
+    }
+
+    @Override
+    public String getID() {
+        return collection.getID(row);
+    }
+
+    @Override
+    public FeatureId getIdentifier() {
+        return new FeatureIdImpl(getID());
+    }
+
+    @Override
+    public SimpleFeatureType getType() {
+        return collection.getSchema();
+    }
+
+    @Override
+    public SimpleFeatureType getFeatureType() {
+        return collection.getSchema();
+    }
+
+    @Override
+    public List<Object> getAttributes() {
+        int count = getAttributeCount();
+        List<Object> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(getAttribute(i));
+        }
+        return values;
+    }
+
+    @Override
+    public Object getAttribute(int index) throws IndexOutOfBoundsException {
+        if (index == collection.getGeometryIndex()) {
+            return getDefaultGeometry();
+        }
+        return collection.getAttribute(row, index);
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        int index = getFeatureType().indexOf(name);
+        return index < 0 ? null : getAttribute(index);
+    }
+
+    @Override
+    public Object getAttribute(Name name) {
+        int index = getFeatureType().indexOf(name);
+        return index < 0 ? null : getAttribute(index);
+    }
+
+    @Override
+    public int getAttributeCount() {
+        return getFeatureType().getAttributeCount();
+    }
+
+    @Override
+    public Object getDefaultGeometry() {
+        if (geometry == null) {
+            geometry = collection.getAttribute(row, collection.getGeometryIndex());
+        }
+        return geometry;
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        double x = collection.getX(row);
+        double y = collection.getY(row);
+        return new ReferencedEnvelope(x, x, y, y, getFeatureType().getCoordinateReferenceSystem());
+    }
+
+    @Override
+    public GeometryAttribute getDefaultGeometryProperty() {
+        return materialize().getDefaultGeometryProperty();
+    }
+
+    @Override
+    public Collection<? extends Property> getValue() {
+        return materialize().getValue();
+    }
+
+    @Override
+    public Collection<Property> getProperties(Name name) {
+        return materialize().getProperties(name);
+    }
+
+    @Override
+    public Property getProperty(Name name) {
+        return materialize().getProperty(name);
+    }
+
+    @Override
+    public Collection<Property> getProperties(String name) {
+        return materialize().getProperties(name);
+    }
+
+    @Override
+    public Collection<Property> getProperties() {
+        return materialize().getProperties();
+    }
+
+    @Override
+    public Property getProperty(String name) {
+        return materialize().getProperty(name);
+    }
+
+    @Override
+    public void validate() {
+        materialize().validate();
+    }
+
+    @Override
+    public AttributeDescriptor getDescriptor() {
+        return materialize().getDescriptor();
+    }
+
+    @Override
+    public Name getName() {
+        return materialize().getName();
+    }
+
+    @Override
+    public boolean isNillable() {
+        return materialize().isNillable();
+    }
+
+    @Override
+    public Map<Object, Object> getUserData() {
+        return materialize().getUserData();
+    }
+
+    @Override
+    public void setAttributes(List<Object> values) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setAttributes(Object[] values) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setAttribute(Name name, Object value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setAttribute(int index, Object value) throws IndexOutOfBoundsException {
+        throw readOnly();
+    }
+
+    @Override
+    public void setDefaultGeometry(Object geometry) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setDefaultGeometryProperty(GeometryAttribute geometryAttribute) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setValue(Collection<Property> values) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setValue(Object newValue) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof PointFeature)) {
+            return false;
+        }
+        PointFeature other = (PointFeature) obj;
+        return other.collection == collection && other.row == row;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(collection) * 31 + row;
+    }
+
+    @Override
+    public String toString() {
+        return "PointFeature:" + getID() + getAttributes();
+    }
+}
@@ -0,0 +1,238 @@
+package com.suntoon.tutorial.feature;
+
+import com.suntoon.tutorial.data.DataStores;
+import com.suntoon.tutorial.shapefile.NioShapefileWriter;
+import org.geotools.data.DataStore;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName StreamingCsvIngest
+ * @Description 流式读取csv点数据并直接通过FeatureWriter写入数据存储，不在内存中保留要素列表，
+ *              内存占用与输入文件大小无关
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:26
+ * @Version 1.0
+ */
+public class StreamingCsvIngest {
+    private static final Logger LOGGER = Logging.getLogger(StreamingCsvIngest.class);
+
+    /** 默认每批写入的行数 */
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    private final SimpleFeatureType type;
+    private final int batchSize;
+    private final CsvColumnMapping mapping;
+    private final GeometryFactory geometryFactory = JTSFactoryFinder.getGeometryFactory();
+
+    public StreamingCsvIngest(SimpleFeatureType type) {
+        this(type, DEFAULT_BATCH_SIZE);
+    }
+
+    public StreamingCsvIngest(SimpleFeatureType type, int batchSize) {
+        this(type, batchSize, new CsvColumnMapping());
+    }
+
+    public StreamingCsvIngest(SimpleFeatureType type, int batchSize, CsvColumnMapping mapping) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.type = type;
+        this.batchSize = batchSize;
+        this.mapping = mapping;
+    }
+
+    /**
+     * @Author agent
+     * @Description //读取csv文件并逐行写入dataStore中已创建好的要素类型
+     * @Date 上午 3:26 2026/10/17 0017
+     * @param csvFile 输入的csv文件，第一行为标题
+     * @param dataStore 已经调用过createSchema的数据存储
+     * @return com.suntoon.tutorial.feature.StreamingCsvIngest.IngestStats
+     */
+    public IngestStats ingest(File csvFile, DataStore dataStore) throws IOException {
+        String typeName = dataStore.getTypeNames()[0];
+        resetPeakUsage();
+        long start = System.nanoTime();
+        long rows = 0;
+
+        /*
+         * shapefile的事务提交会把差异重新合并进整个文件，分批提交反而是O(n^2)的，
+         * 所以shapefile直接使用AUTO_COMMIT写入临时文件，关闭writer时一次性替换；
+         * 其他支持事务的数据存储按批次提交
+         */
+        boolean autoCommit = DataStores.unwrap(dataStore) instanceof ShapefileDataStore;
+        Transaction transaction = autoCommit ? Transaction.AUTO_COMMIT : new DefaultTransaction("ingest");
+        try (CsvPointReader reader = new CsvPointReader(csvFile, mapping);
+             FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                     dataStore.getFeatureWriterAppend(typeName, transaction)) {
+            rows = copy(reader, writer, autoCommit ? null : transaction);
+            if (!autoCommit) {
+                transaction.commit();
+            }
+        } catch (IOException | RuntimeException problem) {
+            if (!autoCommit) {
+                transaction.rollback();
+            }
+            throw problem;
+        } finally {
+            if (!autoCommit) {
+                transaction.close();
+            }
+        }
+        return new IngestStats(rows, System.nanoTime() - start, peakHeapUsage());
+    }
+
+    /**
+     * @Author agent
+     * @Description //读取csv文件并逐行写入writer，writer的关闭和事务由调用者负责
+     * @Date 上午 4:00 2026/10/17 0017
+     * @param csvFile 输入的csv文件，第一行为标题
+     * @param writer 目标要素类型的FeatureWriter，例如NioShapefileWriter
+     * @return com.suntoon.tutorial.feature.StreamingCsvIngest.IngestStats
+     */
+    public IngestStats ingest(File csvFile, FeatureWriter<SimpleFeatureType, SimpleFeature> writer) throws IOException {
+        resetPeakUsage();
+        long start = System.nanoTime();
+        long rows;
+        try (CsvPointReader reader = new CsvPointReader(csvFile, mapping)) {
+            rows = copy(reader, writer, null);
+        }
+        return new IngestStats(rows, System.nanoTime() - start, peakHeapUsage());
+    }
+
+    /**
+     * 逐行写入，transaction不为null时每batchSize行提交一次
+     */
+    private long copy(CsvPointReader reader, FeatureWriter<SimpleFeatureType, SimpleFeature> writer,
+                      Transaction transaction) throws IOException {
+        LOGGER.log(Level.FINE, "Header: {0}", reader.getHeader());
+        long rows = 0;
+        while (reader.next()) {
+            SimpleFeature feature = writer.next();
+            //Longitude(= x coord) 在前面
+            feature.setDefaultGeometry(geometryFactory.createPoint(
+                    new Coordinate(reader.getLongitude(), reader.getLatitude())));
+            feature.setAttribute("name", reader.getName());
+            feature.setAttribute("number", reader.getNumber());
+            writer.write();
+
+            if (++rows % batchSize == 0 && transaction != null) {
+                transaction.commit();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @Author agent
+     * @Description //新建带空间索引的shapefile并把csv文件导入进去，不涉及界面，命令行和批处理共用；
+     *               通过NioShapefileWriter写入，超过2GB时分卷
+     * @Date 上午 3:47 2026/10/17 0017
+     * @param csvFile 输入的csv文件，第一行为标题
+     * @param shapeFile 输出的shapefile
+     * @param type 要素类型
+     * @param mapping 列映射
+     * @param parallel 是否用ParallelCsvIngest并行解析
+     * @return com.suntoon.tutorial.feature.StreamingCsvIngest.IngestStats
+     */
+    public static IngestStats ingestToShapefile(File csvFile, File shapeFile, SimpleFeatureType type,
+                                                CsvColumnMapping mapping, boolean parallel) throws IOException {
+        NioShapefileWriter shapefileWriter = new NioShapefileWriter(shapeFile, type);
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer = shapefileWriter) {
+            if (parallel) {
+                return new ParallelCsvIngest(type, mapping).ingest(csvFile, writer);
+            }
+            int batchSize = Integer.getInteger("csv.batchSize", DEFAULT_BATCH_SIZE);
+            return new StreamingCsvIngest(type, batchSize, mapping).ingest(csvFile, writer);
+        } catch (IOException | RuntimeException e) {
+            //不留下截断的shapefile
+            shapefileWriter.abort(e);
+            throw e;
+        }
+    }
+
+    public SimpleFeatureType getType() {
+        return type;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public CsvColumnMapping getMapping() {
+        return mapping;
+    }
+
+    static void resetPeakUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    static long peakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * 一次导入的统计结果：行数、耗时和堆内存峰值
+     */
+    public static class IngestStats {
+        private final long rows;
+        private final long elapsedNanos;
+        private final long peakHeapBytes;
+
+        public IngestStats(long rows, long elapsedNanos, long peakHeapBytes) {
+            this.rows = rows;
+            this.elapsedNanos = elapsedNanos;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getPeakHeapBytes() {
+            return peakHeapBytes;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("rows=%d, time=%.2fs, rows/sec=%.0f, peak heap=%.1fMB",
+                    rows, elapsedNanos / 1e9, getRowsPerSecond(), peakHeapBytes / (1024.0 * 1024.0));
+        }
+    }
+}
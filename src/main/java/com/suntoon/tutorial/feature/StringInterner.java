@@ -0,0 +1,102 @@
+package com.suntoon.tutorial.feature;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName StringInterner
+ * @Description 按字节内容复用字符串，重复出现的name值只创建一次String；
+ *              超过容量上限后不再缓存新值，避免高基数列把字典撑爆
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:28
+ * @Version 1.0
+ */
+class StringInterner {
+    private static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+    private final int maxEntries;
+    private byte[][] keys = new byte[256][];
+    private int[] hashes = new int[256];
+    private String[] values = new String[256];
+    private int size;
+
+    StringInterner() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    StringInterner(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 返回buffer中[start, end)这段UTF-8字节对应的字符串
+     */
+    String intern(ByteBuffer buffer, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && sameBytes(keys[slot], buffer, start, end)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            bytes[i - start] = buffer.get(i);
+        }
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        if (size >= maxEntries) {
+            return value;
+        }
+        keys[slot] = bytes;
+        hashes[slot] = hash;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static boolean sameBytes(byte[] key, ByteBuffer buffer, int start, int end) {
+        if (key.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        byte[][] oldKeys = keys;
+        int[] oldHashes = hashes;
+        String[] oldValues = values;
+        keys = new byte[oldKeys.length * 2][];
+        hashes = new int[keys.length];
+        values = new String[keys.length];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
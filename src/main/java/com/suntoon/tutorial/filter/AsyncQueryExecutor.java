@@ -0,0 +1,254 @@
+package com.suntoon.tutorial.filter;
+
+import javax.swing.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName AsyncQueryExecutor
+ * @Description 在后台线程池上执行查询，结果和状态回调都在EDT上进行；
+ *              每个查询对应一个Handle，可以随时取消：取消时会中断线程并关闭查询注册的FeatureIterator，
+ *              对JDBC数据源来说关闭迭代器会关闭底层的Statement，从而中止数据库端的查询
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:34
+ * @Version 1.0
+ */
+public class AsyncQueryExecutor {
+    private final ExecutorService executor;
+    private final Set<Handle> running = ConcurrentHashMap.newKeySet();
+    private volatile StatusListener statusListener;
+
+    public AsyncQueryExecutor(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "query-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 查询本身，在后台线程上执行
+     */
+    public interface Task<T> {
+        T run(Handle handle) throws Exception;
+    }
+
+    /**
+     * 查询完成时在EDT上回调；查询被取消时不会回调（结束回调除外）
+     */
+    public interface Callback<T> {
+        void done(T result);
+    }
+
+    /**
+     * 查询开始和结束时在EDT上回调，用于在状态栏显示延迟和行数
+     */
+    public interface StatusListener {
+        void started(Handle handle);
+
+        void finished(Handle handle, Throwable error);
+    }
+
+    public void setStatusListener(StatusListener statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    /**
+     * @Author agent
+     * @Description //提交一个查询
+     * @Date 上午 3:34 2026/10/17 0017
+     * @param label 在状态栏中显示的名称
+     * @param task 查询
+     * @param callback 查询成功后在EDT上调用
+     * @return com.suntoon.tutorial.filter.AsyncQueryExecutor.Handle
+     */
+    public <T> Handle submit(String label, Task<T> task, Callback<T> callback) {
+        return submit(label, task, callback, null);
+    }
+
+    /**
+     * @Author agent
+     * @Description //提交一个查询，无论成功、失败还是被取消，结束后都会在EDT上调用completion
+     * @Date 上午 4:23 2026/10/17 0017
+     * @param label 在状态栏中显示的名称
+     * @param task 查询
+     * @param callback 查询成功后在EDT上调用
+     * @param completion 查询结束后在EDT上调用，参数是这个查询的Handle，在callback之后调用；可以为null
+     * @return com.suntoon.tutorial.filter.AsyncQueryExecutor.Handle
+     */
+    public <T> Handle submit(String label, Task<T> task, Callback<T> callback, Callback<Handle> completion) {
+        final Handle handle = new Handle(label);
+        running.add(handle);
+        notifyStarted(handle);
+        executor.execute(() -> {
+            T result = null;
+            Throwable error = null;
+            handle.thread = Thread.currentThread();
+            try {
+                if (!handle.isCancelled()) {
+                    result = task.run(handle);
+                }
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                synchronized (handle) {
+                    handle.thread = null;
+                }
+                Thread.interrupted();    //清除取消时留下的中断标记，线程要还给线程池
+                handle.elapsed = System.nanoTime() - handle.start;
+                running.remove(handle);
+                handle.closeResource();
+            }
+            final T value = result;
+            final Throwable problem = handle.isCancelled() ? null : error;
+            handle.error = problem;
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    if (!handle.isCancelled() && problem == null && callback != null) {
+                        callback.done(value);
+                    }
+                } finally {
+                    if (completion != null) {
+                        completion.done(handle);
+                    }
+                    notifyFinished(handle, problem);
+                }
+            });
+        });
+        return handle;
+    }
+
+    /**
+     * 取消所有正在执行的查询
+     */
+    public void cancelAll() {
+        for (Handle handle : running) {
+            handle.cancel();
+        }
+    }
+
+    public int getRunningCount() {
+        return running.size();
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    private void notifyStarted(final Handle handle) {
+        final StatusListener listener = statusListener;
+        if (listener != null) {
+            SwingUtilities.invokeLater(() -> listener.started(handle));
+        }
+    }
+
+    private void notifyFinished(Handle handle, Throwable error) {
+        StatusListener listener = statusListener;
+        if (listener != null) {
+            listener.finished(handle, error);
+        }
+    }
+
+    /**
+     * 一个已提交的查询
+     */
+    public static class Handle {
+        private final String label;
+        private final long start = System.nanoTime();
+        private final AtomicLong rows = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile long elapsed = -1;
+        private volatile Throwable error;
+        private volatile Thread thread;
+        private volatile Closeable resource;
+
+        Handle(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * 登记查询打开的迭代器等资源，取消时会被关闭
+         */
+        public void register(Closeable resource) {
+            this.resource = resource;
+            if (cancelled) {
+                closeResource();
+            }
+        }
+
+        /**
+         * 查询每读到一行调用一次，用于统计返回的行数
+         */
+        public void addRows(long count) {
+            rows.addAndGet(count);
+        }
+
+        public long getRows() {
+            return rows.get();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            synchronized (this) {
+                if (thread != null) {
+                    thread.interrupt();
+                }
+            }
+            closeResource();
+        }
+
+        /**
+         * 查询耗时（毫秒），还没结束时返回到目前为止的耗时
+         */
+        public long getLatencyMillis() {
+            long nanos = elapsed >= 0 ? elapsed : System.nanoTime() - start;
+            return nanos / 1000000;
+        }
+
+        public boolean isDone() {
+            return elapsed >= 0;
+        }
+
+        /**
+         * 查询失败时的异常，成功、被取消或还没结束时为null；在completion回调中可以使用
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        private void closeResource() {
+            Closeable r = resource;
+            resource = null;
+            if (r != null) {
+                try {
+                    r.close();
+                } catch (IOException | RuntimeException e) {
+                    //关闭一个正在读取的迭代器可能失败，此时查询已经被取消，忽略即可
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return label + ": " + getRows() + " rows in " + getLatencyMillis() + " ms"
+                    + (cancelled ? " (cancelled)" : "");
+        }
+    }
+}
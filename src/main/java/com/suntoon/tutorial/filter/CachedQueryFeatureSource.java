@@ -0,0 +1,75 @@
+package com.suntoon.tutorial.filter;
+
+import com.suntoon.tutorial.data.ForwardingFeatureSource;
+import org.geotools.data.Query;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.opengis.filter.sort.SortBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CachedQueryFeatureSource
+ * @Description 由QueryResultCache回答查询的要素源，分页在缓存的完整结果上截取；
+ *              需要排序、坐标转换或连接的查询，结果还在后台加载或超过缓存上限时，仍交给原来的要素源
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:08
+ * @Version 1.0
+ */
+class CachedQueryFeatureSource extends ForwardingFeatureSource {
+    private final QueryResultCache.Layer layer;
+    private final File shapefile;
+    private final QueryResultCache cache;
+
+    CachedQueryFeatureSource(SimpleFeatureSource delegate, QueryResultCache.Layer layer, File shapefile,
+                             QueryResultCache cache) {
+        super(delegate);
+        this.layer = layer;
+        this.shapefile = shapefile;
+        this.cache = cache;
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures(Query query) throws IOException {
+        QueryResultCache.Entry entry = canAnswer(query) ? cache.get(layer, query, delegate, modificationStamp()) : null;
+        if (entry == null) {
+            return delegate.getFeatures(query);
+        }
+        int from = QueryResultCache.startIndex(query, entry.size());
+        int to = QueryResultCache.endIndex(query, entry.size());
+        return new ListFeatureCollection(entry.schema, Collections.unmodifiableList(entry.features.subList(from, to)));
+    }
+
+    @Override
+    public int getCount(Query query) throws IOException {
+        QueryResultCache.Entry entry = canAnswer(query) ? cache.peek(layer, query, modificationStamp()) : null;
+        if (entry == null) {
+            return delegate.getCount(query);
+        }
+        return QueryResultCache.endIndex(query, entry.size()) - QueryResultCache.startIndex(query, entry.size());
+    }
+
+    private static boolean canAnswer(Query query) {
+        SortBy[] sortBy = query.getSortBy();
+        boolean natural = sortBy == null || sortBy.length == 0
+                || (sortBy.length == 1 && sortBy[0] == SortBy.NATURAL_ORDER);
+        return natural && query.getCoordinateSystem() == null && query.getCoordinateSystemReproject() == null
+                && (query.getJoins() == null || query.getJoins().isEmpty());
+    }
+
+    /**
+     * shapefile各组成文件最后修改时间之和，不是shapefile时返回-1（只靠修改事件失效）
+     */
+    private long modificationStamp() {
+        if (shapefile == null) {
+            return -1;
+        }
+        String path = shapefile.getPath();
+        String base = path.substring(0, path.length() - 3);
+        return shapefile.lastModified() + new File(base + "dbf").lastModified() + new File(base + "shx").lastModified();
+    }
+}
@@ -0,0 +1,313 @@
+package com.suntoon.tutorial.filter;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.BinaryLogicOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsLike;
+import org.opengis.filter.PropertyIsNull;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Contains;
+import org.opengis.filter.spatial.Crosses;
+import org.opengis.filter.spatial.Disjoint;
+import org.opengis.filter.spatial.Intersects;
+import org.opengis.filter.spatial.Overlaps;
+import org.opengis.filter.spatial.Touches;
+import org.opengis.filter.spatial.Within;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CompiledFilter
+ * @Description 优化并拆分后的过滤条件：prefilter是交给数据源的部分（BBOX和属性比较，数据源可以用空间索引或SQL回答），
+ *              residual是剩下需要在内存中计算的部分，其中与常量几何比较的空间谓词用PreparedGeometry计算。
+ *              对满足prefilter的要素再计算residual，结果与直接计算完整的过滤条件相同
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:38
+ * @Version 1.0
+ */
+public class CompiledFilter {
+    private static final FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    private final Filter filter;
+    private final Filter prefilter;
+    private final Filter residual;
+    private final Predicate<SimpleFeature> residualPredicate;
+
+    private CompiledFilter(Filter filter, Filter prefilter, Filter residual) {
+        this.filter = filter;
+        this.prefilter = prefilter;
+        this.residual = residual;
+        this.residualPredicate = compile(residual);
+    }
+
+    /**
+     * 不知道要素类型时的编译结果，BBOX不会被合并
+     */
+    public static CompiledFilter compile(Filter filter) {
+        return compile(filter, null);
+    }
+
+    /**
+     * @Author agent
+     * @Description //优化filter，并拆分为数据源过滤和内存过滤两部分
+     * @Date 上午 3:38 2026/10/17 0017
+     * @param filter 过滤条件
+     * @param schema 要素类型，用来判断哪些几何属性是点（只有点上的BBOX可以合并），可以为null
+     * @return com.suntoon.tutorial.filter.CompiledFilter
+     */
+    public static CompiledFilter compile(Filter filter, SimpleFeatureType schema) {
+        Set<String> pointProperties = FilterOptimizer.pointProperties(schema);
+        Filter optimized = FilterOptimizer.optimize(filter, pointProperties);
+        List<Filter> children = optimized instanceof And
+                ? ((And) optimized).getChildren() : Collections.singletonList(optimized);
+
+        List<Filter> pre = new ArrayList<>();
+        List<Filter> post = new ArrayList<>();
+        for (Filter child : children) {
+            if (child instanceof BBOX || isAttributeOnly(child)) {
+                pre.add(child);
+            } else {
+                post.add(child);
+            }
+        }
+        //内存中计算的空间谓词，用它们的范围让数据源先做一次粗筛
+        Filter bounds = boundsOf(and(post));
+        if (bounds != null) {
+            pre.add(bounds);
+        }
+        Filter prefilter = FilterOptimizer.optimize(and(pre), pointProperties);
+        if (prefilter == Filter.EXCLUDE) {
+            return new CompiledFilter(optimized, Filter.EXCLUDE, Filter.INCLUDE);
+        }
+        return new CompiledFilter(optimized, prefilter, and(post));
+    }
+
+    private static Filter and(List<Filter> filters) {
+        if (filters.isEmpty()) {
+            return Filter.INCLUDE;
+        }
+        return filters.size() == 1 ? filters.get(0) : ff.and(filters);
+    }
+
+    /**
+     * 只涉及属性比较、数据源一定能正确回答的条件
+     */
+    private static boolean isAttributeOnly(Filter filter) {
+        if (filter instanceof BinaryComparisonOperator || filter instanceof PropertyIsBetween
+                || filter instanceof PropertyIsLike || filter instanceof PropertyIsNull) {
+            return true;
+        }
+        if (filter instanceof Not) {
+            return isAttributeOnly(((Not) filter).getFilter());
+        }
+        if (filter instanceof And || filter instanceof Or) {
+            for (Filter child : ((BinaryLogicOperator) filter).getChildren()) {
+                if (!isAttributeOnly(child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * residual中空间谓词的范围，只有当它们都作用于同一个几何属性时才能转成BBOX
+     */
+    private static Filter boundsOf(Filter residual) {
+        if (residual == Filter.INCLUDE) {
+            return null;
+        }
+        Set<String> properties = new HashSet<>();
+        collectSpatialProperties(residual, properties);
+        if (properties.size() != 1) {
+            return null;
+        }
+        Envelope bounds = (Envelope) residual.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+        if (bounds == null || bounds.isNull() || Double.isInfinite(bounds.getWidth())
+                || Double.isInfinite(bounds.getHeight())) {
+            return null;
+        }
+        return ff.bbox(ff.property(properties.iterator().next()), ReferencedEnvelope.reference(bounds));
+    }
+
+    private static void collectSpatialProperties(Filter filter, Set<String> properties) {
+        if (filter instanceof And || filter instanceof Or) {
+            for (Filter child : ((BinaryLogicOperator) filter).getChildren()) {
+                collectSpatialProperties(child, properties);
+            }
+        } else if (filter instanceof Not) {
+            collectSpatialProperties(((Not) filter).getFilter(), properties);
+        } else if (filter instanceof BinarySpatialOperator) {
+            BinarySpatialOperator spatial = (BinarySpatialOperator) filter;
+            if (spatial.getExpression1() instanceof PropertyName) {
+                properties.add(((PropertyName) spatial.getExpression1()).getPropertyName());
+            }
+            if (spatial.getExpression2() instanceof PropertyName) {
+                properties.add(((PropertyName) spatial.getExpression2()).getPropertyName());
+            }
+        }
+    }
+
+    /**
+     * 把residual编译成谓词：AND/OR/NOT直接组合，与常量几何比较的空间谓词用PreparedGeometry，其余交给Filter.evaluate
+     */
+    private static Predicate<SimpleFeature> compile(Filter filter) {
+        if (filter == Filter.INCLUDE) {
+            return feature -> true;
+        }
+        if (filter == Filter.EXCLUDE) {
+            return feature -> false;
+        }
+        if (filter instanceof And || filter instanceof Or) {
+            List<Filter> children = ((BinaryLogicOperator) filter).getChildren();
+            final List<Predicate<SimpleFeature>> predicates = new ArrayList<>(children.size());
+            for (Filter child : children) {
+                predicates.add(compile(child));
+            }
+            if (filter instanceof And) {
+                return feature -> {
+                    for (Predicate<SimpleFeature> predicate : predicates) {
+                        if (!predicate.test(feature)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+            return feature -> {
+                for (Predicate<SimpleFeature> predicate : predicates) {
+                    if (predicate.test(feature)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+        if (filter instanceof Not) {
+            return compile(((Not) filter).getFilter()).negate();
+        }
+        if (filter instanceof BinarySpatialOperator && !(filter instanceof BBOX)) {
+            Predicate<SimpleFeature> prepared = prepare((BinarySpatialOperator) filter);
+            if (prepared != null) {
+                return prepared;
+            }
+        }
+        return filter::evaluate;
+    }
+
+    private static Predicate<SimpleFeature> prepare(BinarySpatialOperator filter) {
+        boolean literalFirst;
+        PropertyName property;
+        Object value;
+        if (filter.getExpression1() instanceof PropertyName && filter.getExpression2() instanceof Literal) {
+            literalFirst = false;
+            property = (PropertyName) filter.getExpression1();
+            value = ((Literal) filter.getExpression2()).getValue();
+        } else if (filter.getExpression1() instanceof Literal && filter.getExpression2() instanceof PropertyName) {
+            literalFirst = true;
+            property = (PropertyName) filter.getExpression2();
+            value = ((Literal) filter.getExpression1()).getValue();
+        } else {
+            return null;
+        }
+        if (!(value instanceof Geometry)) {
+            return null;
+        }
+        final PreparedGeometry prepared = PreparedGeometryFactory.prepare((Geometry) value);
+        final Envelope envelope = ((Geometry) value).getEnvelopeInternal();
+
+        final Operation operation;
+        if (filter instanceof Intersects) {
+            operation = g -> envelope.intersects(g.getEnvelopeInternal()) && prepared.intersects(g);
+        } else if (filter instanceof Disjoint) {
+            operation = g -> !envelope.intersects(g.getEnvelopeInternal()) || !prepared.intersects(g);
+        } else if (filter instanceof Overlaps) {
+            operation = prepared::overlaps;
+        } else if (filter instanceof Crosses) {
+            operation = prepared::crosses;
+        } else if (filter instanceof Touches) {
+            operation = prepared::touches;
+        } else if (filter instanceof Contains || filter instanceof Within) {
+            //CONTAINS(属性, 常量)和WITHIN(常量, 属性)都是要素几何包含常量几何
+            if ((filter instanceof Contains) != literalFirst) {
+                operation = g -> g.getEnvelopeInternal().covers(envelope) && prepared.within(g);
+            } else {
+                operation = g -> envelope.covers(g.getEnvelopeInternal()) && prepared.contains(g);
+            }
+        } else {
+            return null;    //Equals、DWithin、Beyond等仍然由Filter.evaluate计算
+        }
+        return feature -> {
+            Object geometry = property.evaluate(feature);
+            return geometry instanceof Geometry && operation.test((Geometry) geometry);
+        };
+    }
+
+    private interface Operation {
+        boolean test(Geometry geometry);
+    }
+
+    /**
+     * 优化之后的完整过滤条件
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * 交给数据源的部分，没有时为Filter.INCLUDE
+     */
+    public Filter getPrefilter() {
+        return prefilter;
+    }
+
+    /**
+     * 需要在内存中对满足prefilter的要素计算的部分，没有时为Filter.INCLUDE
+     */
+    public Filter getResidual() {
+        return residual;
+    }
+
+    /**
+     * 对已经满足prefilter的要素计算residual
+     */
+    public boolean evaluateResidual(SimpleFeature feature) {
+        return residualPredicate.test(feature);
+    }
+
+    /**
+     * 对任意要素计算完整的过滤条件
+     */
+    public boolean evaluate(SimpleFeature feature) {
+        return prefilter.evaluate(feature) && residualPredicate.test(feature);
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledFilter[prefilter=" + prefilter + ", residual=" + residual + "]";
+    }
+}
@@ -0,0 +1,256 @@
+package com.suntoon.tutorial.filter;
+
+import com.suntoon.tutorial.data.ForwardingFeatureSource;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CompiledFilterFeatureSource
+ * @Description 只包含满足CompiledFilter的要素的视图：prefilter交给下层要素源（空间索引、SQL），
+ *              residual（PreparedGeometry的空间谓词等）在内存中逐个要素计算。
+ *              查询本身的过滤条件与prefilter一起交给下层；有residual时分页和计数在这里完成，
+ *              residual用到但查询没有请求的属性会被一起读出，返回前再去掉。
+ *              每个查询记住已经找到的匹配在下层结果中的位置，翻页和计数从最近的已知位置接着读，不再每页从头扫描
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:27
+ * @Version 1.0
+ */
+class CompiledFilterFeatureSource extends ForwardingFeatureSource {
+    private static final FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+    /** 记住匹配位置的查询个数 */
+    private static final int MAX_QUERIES = 8;
+
+    private final CompiledFilter filter;
+    /** residual用到的属性 */
+    private final String[] residualProperties;
+    /** 不分页的查询 -> 已经找到的匹配位置，视图的生存期内假定数据不变（分页本身也是这个前提） */
+    private final Map<List<Object>, Matches> matches = Collections.synchronizedMap(
+            new LinkedHashMap<List<Object>, Matches>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, Matches> eldest) {
+                    return size() > MAX_QUERIES;
+                }
+            });
+
+    CompiledFilterFeatureSource(SimpleFeatureSource delegate, CompiledFilter filter) {
+        super(delegate);
+        this.filter = filter;
+        this.residualProperties = DataUtilities.attributeNames(filter.getResidual(), delegate.getSchema());
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures(Query query) throws IOException {
+        if (filter.getResidual() == Filter.INCLUDE) {
+            return delegate.getFeatures(restrict(query));
+        }
+        SimpleFeatureType type = retype(query);
+        Query unpaged = unpaged(query);
+        //为residual多读了属性时，返回前去掉
+        boolean trim = query.getPropertyNames() != null
+                && unpaged.getPropertyNames().length > query.getPropertyNames().length;
+        int start = query.getStartIndex() == null ? 0 : query.getStartIndex();
+        List<SimpleFeature> features = new ArrayList<>();
+        if (query.getMaxFeatures() > 0) {
+            scan(unpaged, start, feature -> {
+                features.add(trim ? SimpleFeatureBuilder.retype(feature, type) : feature);
+                return features.size() < query.getMaxFeatures();
+            });
+        }
+        return new ListFeatureCollection(type, features);
+    }
+
+    @Override
+    public int getCount(Query query) throws IOException {
+        if (filter.getResidual() == Filter.INCLUDE) {
+            return delegate.getCount(restrict(query));
+        }
+        int start = query.getStartIndex() == null ? 0 : query.getStartIndex();
+        long end = query.isMaxFeaturesUnlimited() ? Long.MAX_VALUE : (long) start + query.getMaxFeatures();
+        Query unpaged = unpaged(query);
+        Matches known = matches(unpaged);
+        //只需要数到end为止，已经记住的匹配不再计算residual
+        int[] counted = new int[]{known.count()};
+        if (counted[0] < end) {
+            scan(unpaged, Integer.MAX_VALUE, feature -> ++counted[0] < end);
+        }
+        return (int) Math.max(0, Math.min(known.count(), end) - start);
+    }
+
+    /**
+     * 从第from个匹配开始读下层结果，对每个匹配调用consumer，consumer返回false时停止。
+     * 已经记住第from个匹配的位置时从那里开始读，否则从已经计算过residual的最后一行之后接着读
+     * （这时传给consumer的第一个匹配是第known.count()个），读到的匹配位置都会记住
+     */
+    private void scan(Query unpaged, int from, MatchConsumer consumer) throws IOException {
+        Matches known = matches(unpaged);
+        int row;
+        int index;
+        synchronized (known) {
+            if (from < known.count) {
+                index = from;
+                row = known.rows[from];
+            } else if (known.complete) {
+                return;
+            } else {
+                index = known.count;
+                row = known.scanned;
+            }
+        }
+        Query positioned = new Query(unpaged);
+        if (row > 0) {
+            positioned.setStartIndex(row);
+        }
+        int first = index;
+        Matches found = new Matches();
+        boolean exhausted = false;
+        try (SimpleFeatureIterator iterator = delegate.getFeatures(positioned).features()) {
+            boolean more = true;
+            while (more) {
+                if (!iterator.hasNext()) {
+                    exhausted = true;
+                    break;
+                }
+                checkCancelled();
+                SimpleFeature feature = iterator.next();
+                if (filter.evaluateResidual(feature)) {
+                    found.add(row);
+                    more = consumer.accept(feature);
+                }
+                row++;
+            }
+        } finally {
+            known.merge(first, found, row, exhausted);
+        }
+    }
+
+    private Matches matches(Query unpaged) {
+        List<Object> key = Arrays.asList(unpaged.getFilter(),
+                unpaged.getPropertyNames() == null ? null : Arrays.asList(unpaged.getPropertyNames()),
+                unpaged.getSortBy() == null ? null : Arrays.asList(unpaged.getSortBy()));
+        return matches.computeIfAbsent(key, k -> new Matches());
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds() throws IOException {
+        return getBounds(Query.ALL);
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds(Query query) throws IOException {
+        if (filter.getResidual() == Filter.INCLUDE) {
+            return delegate.getBounds(restrict(query));
+        }
+        return getFeatures(query).getBounds();
+    }
+
+    /**
+     * 查询的过滤条件与prefilter合并后交给下层
+     */
+    private Query restrict(Query query) {
+        Query restricted = new Query(query);
+        Filter own = query.getFilter() == null ? Filter.INCLUDE : query.getFilter();
+        Filter prefilter = filter.getPrefilter();
+        if (own == Filter.INCLUDE) {
+            restricted.setFilter(prefilter);
+        } else if (prefilter != Filter.INCLUDE) {
+            restricted.setFilter(ff.and(own, prefilter));
+        }
+        return restricted;
+    }
+
+    /**
+     * 有residual时交给下层的查询：不分页，并补上residual用到的属性
+     */
+    private Query unpaged(Query query) {
+        Query unpaged = restrict(query);
+        unpaged.setStartIndex(null);
+        unpaged.setMaxFeatures(Query.DEFAULT_MAX);
+        if (query.getPropertyNames() != null) {
+            Set<String> names = new LinkedHashSet<>(Arrays.asList(query.getPropertyNames()));
+            names.addAll(Arrays.asList(residualProperties));
+            unpaged.setPropertyNames(names.toArray(new String[names.size()]));
+        }
+        return unpaged;
+    }
+
+    private SimpleFeatureType retype(Query query) throws IOException {
+        if (query.getPropertyNames() == null) {
+            return delegate.getSchema();
+        }
+        try {
+            return DataUtilities.createSubType(delegate.getSchema(), query.getPropertyNames());
+        } catch (SchemaException e) {
+            throw new IOException("Invalid property names in query", e);
+        }
+    }
+
+    /**
+     * 在后台线程上查询时，取消会中断线程
+     */
+    private static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Query cancelled");
+        }
+    }
+
+    private interface MatchConsumer {
+        boolean accept(SimpleFeature feature) throws IOException;
+    }
+
+    /**
+     * 一个查询已经找到的匹配：rows[i]是第i个匹配在下层不分页结果中的行号，
+     * 包含下层前scanned行中的全部匹配；complete表示已经读到结尾
+     */
+    private static final class Matches {
+        private int[] rows = new int[64];
+        private int count;
+        private int scanned;
+        private boolean complete;
+
+        synchronized int count() {
+            return count;
+        }
+
+        private void add(int row) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            }
+            rows[count++] = row;
+        }
+
+        /**
+         * 合并一次从第first个匹配开始、读到第scannedTo行之前的扫描结果，其他线程已经记住的部分跳过
+         */
+        synchronized void merge(int first, Matches found, int scannedTo, boolean exhausted) {
+            for (int i = Math.max(0, count - first); i < found.count; i++) {
+                add(found.rows[i]);
+            }
+            scanned = Math.max(scanned, scannedTo);
+            complete |= exhausted;
+        }
+    }
+}
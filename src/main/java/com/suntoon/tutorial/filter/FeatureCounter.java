@@ -0,0 +1,346 @@
+package com.suntoon.tutorial.filter;
+
+import com.suntoon.tutorial.metrics.Instrumentation;
+import org.geotools.data.DataStore;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.shapefile.files.ShpFiles;
+import org.geotools.data.shapefile.index.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.quadtree.QuadTree;
+import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
+import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.filter.text.ecql.ECQL;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName FeatureCounter
+ * @Description 按代价从低到高选择计数方式：先用FeatureSource.getCount(Query)，
+ *              点图层上的纯BBOX过滤直接查shapefile的.qix索引，最后才并行扫描；
+ *              结果按(typeName, 规范化后的过滤条件)缓存，shapefile修改后缓存自动失效
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:36
+ * @Version 1.0
+ */
+public class FeatureCounter {
+    /** 计数结果来自哪条路径 */
+    public enum Path {
+        CACHE, GET_COUNT, SPATIAL_INDEX, PARALLEL_SCAN
+    }
+
+    private static final int BATCH_SIZE = 1024;
+
+    private final DataStore dataStore;
+    private final File shapefile;
+    private final int threads;
+    private final Map<String, CachedCount> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param dataStore 数据存储
+     * @param shapefile dataStore是shapefile时对应的.shp文件，用于索引查询和判断文件是否修改；其他数据源传null
+     */
+    public FeatureCounter(DataStore dataStore, File shapefile) {
+        this(dataStore, shapefile, Runtime.getRuntime().availableProcessors());
+    }
+
+    public FeatureCounter(DataStore dataStore, File shapefile, int threads) {
+        this.dataStore = dataStore;
+        this.shapefile = shapefile;
+        this.threads = threads;
+    }
+
+    /**
+     * @Author agent
+     * @Description //统计typeName中满足filter的要素个数
+     * @Date 上午 3:36 2026/10/17 0017
+     * @param typeName 要素类型名
+     * @param filter 过滤条件
+     * @return com.suntoon.tutorial.filter.FeatureCounter.Result
+     */
+    public Result count(String typeName, Filter filter) throws IOException {
+        return count(typeName, CompiledFilter.compile(filter, dataStore.getSchema(typeName)));
+    }
+
+    public Result count(String typeName, CompiledFilter compiled) throws IOException {
+        return count(dataStore.getFeatureSource(typeName), compiled);
+    }
+
+    /**
+     * @Author agent
+     * @Description //统计source中满足compiled的要素个数，source可以是包装过dataStore中要素源的视图（例如在只读事务中读取）
+     * @Date 上午 4:30 2026/10/17 0017
+     * @param source dataStore中的要素源或它的包装
+     * @param compiled 编译过的过滤条件
+     * @return com.suntoon.tutorial.filter.FeatureCounter.Result
+     */
+    public Result count(SimpleFeatureSource source, CompiledFilter compiled) throws IOException {
+        long start = System.nanoTime();
+        String typeName = source.getSchema().getTypeName();
+        Filter normalized = compiled.getFilter();
+        String key = typeName + "|" + ECQL.toCQL(normalized);
+        long stamp = modificationStamp();
+
+        CachedCount cached = cache.get(key);
+        if (cached != null && stamp != -1 && cached.stamp == stamp) {
+            return new Result(cached.count, Path.CACHE, System.nanoTime() - start);
+        }
+
+        Path path = Path.GET_COUNT;
+        long count = source.getCount(new Query(typeName, normalized));
+        if (count < 0) {
+            path = Path.SPATIAL_INDEX;
+            count = countFromIndex(source.getSchema(), normalized);
+        }
+        if (count < 0) {
+            path = Path.PARALLEL_SCAN;
+            count = parallelScan(source, compiled);
+        }
+        if (stamp != -1) {
+            cache.put(key, new CachedCount(count, stamp));
+        }
+        return new Result(count, path, System.nanoTime() - start);
+    }
+
+    public void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * shapefile各组成文件最后修改时间之和，不是shapefile时返回-1（不缓存）
+     */
+    private long modificationStamp() {
+        if (shapefile == null) {
+            return -1;
+        }
+        return shapefile.lastModified() + sibling("dbf").lastModified() + sibling("shx").lastModified();
+    }
+
+    private File sibling(String extension) {
+        String path = shapefile.getPath();
+        return new File(path.substring(0, path.length() - 3) + extension);
+    }
+
+    /**
+     * 点图层上的纯BBOX过滤：.qix返回的是与查询范围相交的节点中的全部记录，只是候选，
+     * 还要按.shx中的位置读出每个候选点的坐标，在范围内的才计数
+     */
+    private long countFromIndex(SimpleFeatureType schema, Filter filter) throws IOException {
+        if (shapefile == null || !(filter instanceof BBOX) || schema.getGeometryDescriptor() == null
+                || !Point.class.equals(schema.getGeometryDescriptor().getType().getBinding())) {
+            return -1;
+        }
+        BBOX bbox = (BBOX) filter;
+        if (!(bbox.getExpression1() instanceof PropertyName) || !(bbox.getExpression2() instanceof Literal)) {
+            return -1;
+        }
+        File qix = sibling("qix");
+        if (!qix.exists() || qix.lastModified() < shapefile.lastModified()) {
+            return -1;
+        }
+        Envelope envelope = ReferencedEnvelope.reference(bbox.getBounds());
+        ShpFiles shpFiles = new ShpFiles(shapefile);
+        IndexFile indexFile = null;
+        QuadTree tree = null;
+        CloseableIterator<Data> hits = null;
+        try (FileChannel shp = FileChannel.open(shapefile.toPath(), StandardOpenOption.READ)) {
+            indexFile = new IndexFile(shpFiles, false);
+            tree = new FileSystemIndexStore(qix).load(indexFile, false);
+            hits = tree.search(envelope);
+            //记录头8字节、形状类型4字节，然后是X、Y
+            ByteBuffer record = ByteBuffer.allocate(28).order(ByteOrder.LITTLE_ENDIAN);
+            long count = 0;
+            while (hits.hasNext()) {
+                long offset = ((Number) hits.next().getValue(1)).longValue();
+                record.clear();
+                int read = 0;
+                while (record.hasRemaining() && read >= 0) {
+                    read = shp.read(record, offset + record.position());
+                }
+                //空形状（类型0）没有坐标
+                if (!record.hasRemaining() && record.getInt(8) != 0
+                        && envelope.contains(record.getDouble(12), record.getDouble(20))) {
+                    count++;
+                }
+            }
+            hits.close();
+            hits = null;
+            tree.close();
+            tree = null;
+            indexFile.close();
+            indexFile = null;
+            return count;
+        } catch (Exception e) {
+            //索引损坏或版本不对时退回扫描
+            return -1;
+        } finally {
+            closeQuietly(hits, tree, indexFile);
+            shpFiles.dispose();
+        }
+    }
+
+    private static void closeQuietly(CloseableIterator<Data> hits, QuadTree tree, IndexFile indexFile) {
+        try {
+            if (hits != null) {
+                hits.close();
+            }
+            if (tree != null) {
+                tree.close();
+            }
+            if (indexFile != null) {
+                indexFile.close();
+            }
+        } catch (Exception ignore) {
+            //只在出错之后调用，原来的异常更重要
+        }
+    }
+
+    /**
+     * 一个线程读取，其余线程并行计算过滤条件；prefilter交给数据源，以便使用空间索引，residual在内存中计算
+     */
+    private long parallelScan(SimpleFeatureSource source, final CompiledFilter filter) throws IOException {
+        SimpleFeatureType schema = source.getSchema();
+        if (filter.getResidual() == Filter.INCLUDE) {
+            return source.getFeatures(filter.getPrefilter()).size();
+        }
+        Query query = new Query(schema.getTypeName(), filter.getPrefilter());
+        String[] names = DataUtilities.attributeNames(filter.getResidual(), schema);
+        if (names.length > 0) {
+            query.setPropertyNames(names);
+        }
+
+        final List<SimpleFeature> poison = new ArrayList<>();
+        final BlockingQueue<List<SimpleFeature>> queue = new ArrayBlockingQueue<>(threads * 4);
+        final AtomicLong count = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+                for (List<SimpleFeature> batch = queue.take(); batch != poison; batch = queue.take()) {
+                    long matched = 0;
+                    long start = Instrumentation.start();
+                    for (SimpleFeature feature : batch) {
+                        if (filter.evaluateResidual(feature)) {
+                            matched++;
+                        }
+                    }
+                    Instrumentation.record("filter.evaluate", start, batch.size());
+                    count.addAndGet(matched);
+                }
+                return null;
+            }));
+        }
+        try {
+            try (SimpleFeatureIterator iterator = source.getFeatures(query).features()) {
+                List<SimpleFeature> batch = new ArrayList<>(BATCH_SIZE);
+                while (iterator.hasNext()) {
+                    batch.add(iterator.next());
+                    if (batch.size() == BATCH_SIZE) {
+                        put(queue, batch, workers);
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    put(queue, batch, workers);
+                }
+            }
+            //出错时不发结束标记，由shutdownNow中断等待中的线程
+            for (int i = 0; i < threads; i++) {
+                put(queue, poison, workers);
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            return count.get();
+        } catch (Exception e) {
+            throw new IOException("Parallel count failed", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 队列满时等待，但计算线程提前结束（出错）时不再等待，抛出它的异常
+     */
+    private static void put(BlockingQueue<List<SimpleFeature>> queue, List<SimpleFeature> batch,
+                            List<Future<?>> workers) throws Exception {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<?> worker : workers) {
+                if (worker.isDone()) {
+                    worker.get();
+                    throw new IllegalStateException("Count worker stopped early");
+                }
+            }
+        }
+    }
+
+    private static class CachedCount {
+        final long count;
+        final long stamp;
+
+        CachedCount(long count, long stamp) {
+            this.count = count;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * 计数结果、所用路径和耗时
+     */
+    public static class Result {
+        private final long count;
+        private final Path path;
+        private final long elapsedNanos;
+
+        Result(long count, Path path, long elapsedNanos) {
+            this.count = count;
+            this.path = path;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1000000;
+        }
+
+        @Override
+        public String toString() {
+            return count + " (" + path + ", " + getElapsedMillis() + " ms)";
+        }
+    }
+}
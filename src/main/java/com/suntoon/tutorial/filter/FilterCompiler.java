@@ -0,0 +1,98 @@
+package com.suntoon.tutorial.filter;
+
+import com.suntoon.tutorial.metrics.Instrumentation;
+import org.geotools.filter.text.cql2.CQL;
+import org.geotools.filter.text.cql2.CQLException;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName FilterCompiler
+ * @Description 按CQL文本（和要素类型中的点属性）缓存解析、优化并拆分后的过滤条件，同一段文本只解析一次；
+ *              容量有上限，按最近最少使用淘汰，容量可以用 -Dtutorial.filter.cacheSize 设置
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:38
+ * @Version 1.0
+ */
+public class FilterCompiler {
+    private static final FilterCompiler INSTANCE = new FilterCompiler(Integer.getInteger("tutorial.filter.cacheSize", 128));
+
+    private final Map<String, CompiledFilter> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public FilterCompiler(final int maxEntries) {
+        this.cache = new LinkedHashMap<String, CompiledFilter>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledFilter> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 进程内共享的缓存
+     */
+    public static FilterCompiler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @Author agent
+     * @Description //等同于CompiledFilter.compile(CQL.toFilter(cql))，但结果会被缓存
+     * @Date 上午 3:38 2026/10/17 0017
+     * @param cql CQL文本
+     * @return com.suntoon.tutorial.filter.CompiledFilter
+     */
+    public CompiledFilter compile(String cql) throws CQLException {
+        return compile(cql, null);
+    }
+
+    /**
+     * @Author agent
+     * @Description //等同于CompiledFilter.compile(CQL.toFilter(cql), schema)，但结果会被缓存
+     * @Date 上午 4:27 2026/10/17 0017
+     * @param cql CQL文本
+     * @param schema 要查询的要素类型，可以为null
+     * @return com.suntoon.tutorial.filter.CompiledFilter
+     */
+    public CompiledFilter compile(String cql, SimpleFeatureType schema) throws CQLException {
+        String text = cql.trim();
+        //编译结果只取决于哪些几何属性是点
+        String key = FilterOptimizer.pointProperties(schema) + "|" + text;
+        synchronized (cache) {
+            CompiledFilter compiled = cache.get(key);
+            if (compiled != null) {
+                hits.incrementAndGet();
+                return compiled;
+            }
+        }
+        misses.incrementAndGet();
+        //解析在锁外进行，并发解析同一段文本时结果相同，后放入的覆盖先放入的
+        long start = Instrumentation.start();
+        CompiledFilter compiled = CompiledFilter.compile(CQL.toFilter(text), schema);
+        Instrumentation.record("filter.compile", start, 0);
+        synchronized (cache) {
+            cache.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.suntoon.tutorial.filter;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.visitor.SimplifyingFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.expression.Add;
+import org.opengis.filter.expression.BinaryExpression;
+import org.opengis.filter.expression.Divide;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.Multiply;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.expression.Subtract;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName FilterOptimizer
+ * @Description 在SimplifyingFilterVisitor（去掉INCLUDE/EXCLUDE、合并嵌套的AND/OR）的基础上，
+ *              把只包含常量的算术表达式和比较折叠成常量，并把AND中作用于同一个点属性的多个BBOX合并成一个。
+ *              合并只对点成立：线和面可以分别与两个BBOX相交而不与它们的交集相交，所以其他几何属性上的BBOX保持原样
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:38
+ * @Version 1.0
+ */
+class FilterOptimizer extends SimplifyingFilterVisitor {
+    private static final FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    /** 绑定类型为Point的几何属性，只有这些属性上的BBOX可以合并 */
+    private final Set<String> pointProperties;
+
+    private FilterOptimizer(Set<String> pointProperties) {
+        this.pointProperties = pointProperties;
+    }
+
+    /**
+     * 不知道要素类型时不合并BBOX
+     */
+    static Filter optimize(Filter filter) {
+        return optimize(filter, Collections.emptySet());
+    }
+
+    static Filter optimize(Filter filter, Set<String> pointProperties) {
+        return (Filter) filter.accept(new FilterOptimizer(pointProperties), null);
+    }
+
+    /**
+     * schema中绑定类型为Point的几何属性名，schema为null时为空
+     */
+    static Set<String> pointProperties(SimpleFeatureType schema) {
+        if (schema == null) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new TreeSet<>();
+        for (AttributeDescriptor descriptor : schema.getAttributeDescriptors()) {
+            if (descriptor instanceof GeometryDescriptor && descriptor.getType().getBinding() == Point.class) {
+                names.add(descriptor.getLocalName());
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public Object visit(Add expression, Object extraData) {
+        return fold((Expression) super.visit(expression, extraData));
+    }
+
+    @Override
+    public Object visit(Subtract expression, Object extraData) {
+        return fold((Expression) super.visit(expression, extraData));
+    }
+
+    @Override
+    public Object visit(Multiply expression, Object extraData) {
+        return fold((Expression) super.visit(expression, extraData));
+    }
+
+    @Override
+    public Object visit(Divide expression, Object extraData) {
+        return fold((Expression) super.visit(expression, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsEqualTo filter, Object extraData) {
+        return fold((Filter) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsNotEqualTo filter, Object extraData) {
+        return fold((Filter) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsGreaterThan filter, Object extraData) {
+        return fold((Filter) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsGreaterThanOrEqualTo filter, Object extraData) {
+        return fold((Filter) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsLessThan filter, Object extraData) {
+        return fold((Filter) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsLessThanOrEqualTo filter, Object extraData) {
+        return fold((Filter) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(And filter, Object extraData) {
+        Object simplified = super.visit(filter, extraData);
+        return simplified instanceof And ? mergeBoxes((And) simplified) : simplified;
+    }
+
+    private static Expression fold(Expression expression) {
+        if (expression instanceof BinaryExpression
+                && ((BinaryExpression) expression).getExpression1() instanceof Literal
+                && ((BinaryExpression) expression).getExpression2() instanceof Literal) {
+            return ff.literal(expression.evaluate(null));
+        }
+        return expression;
+    }
+
+    private static Filter fold(Filter filter) {
+        if (filter instanceof BinaryComparisonOperator
+                && ((BinaryComparisonOperator) filter).getExpression1() instanceof Literal
+                && ((BinaryComparisonOperator) filter).getExpression2() instanceof Literal) {
+            return filter.evaluate(null) ? Filter.INCLUDE : Filter.EXCLUDE;
+        }
+        return filter;
+    }
+
+    /**
+     * 同一个点属性上的多个BBOX求交集；交集为空时整个AND为EXCLUDE
+     */
+    private Filter mergeBoxes(And and) {
+        Map<String, ReferencedEnvelope> boxes = new LinkedHashMap<>();
+        List<Filter> others = new ArrayList<>();
+        for (Filter child : and.getChildren()) {
+            if (!(child instanceof BBOX) || !(((BBOX) child).getExpression1() instanceof PropertyName)
+                    || !(((BBOX) child).getExpression2() instanceof Literal)
+                    || !pointProperties.contains(((PropertyName) ((BBOX) child).getExpression1()).getPropertyName())) {
+                others.add(child);
+                continue;
+            }
+            String name = ((PropertyName) ((BBOX) child).getExpression1()).getPropertyName();
+            ReferencedEnvelope box = ReferencedEnvelope.reference(((BBOX) child).getBounds());
+            ReferencedEnvelope merged = boxes.get(name);
+            if (merged == null) {
+                boxes.put(name, box);
+            } else if (!sameCrs(merged.getCoordinateReferenceSystem(), box.getCoordinateReferenceSystem())) {
+                others.add(child);    //坐标系不同的BBOX不能直接求交
+            } else {
+                Envelope intersection = merged.intersection(box);
+                if (intersection.isNull()) {
+                    return Filter.EXCLUDE;
+                }
+                CoordinateReferenceSystem crs = merged.getCoordinateReferenceSystem() != null
+                        ? merged.getCoordinateReferenceSystem() : box.getCoordinateReferenceSystem();
+                boxes.put(name, new ReferencedEnvelope(intersection, crs));
+            }
+        }
+        if (boxes.size() + others.size() == and.getChildren().size()) {
+            return and;    //没有可以合并的BBOX
+        }
+        List<Filter> children = new ArrayList<>();
+        for (Map.Entry<String, ReferencedEnvelope> entry : boxes.entrySet()) {
+            children.add(ff.bbox(ff.property(entry.getKey()), entry.getValue()));
+        }
+        children.addAll(others);
+        return children.size() == 1 ? children.get(0) : ff.and(children);
+    }
+
+    private static boolean sameCrs(CoordinateReferenceSystem a, CoordinateReferenceSystem b) {
+        return a == null || b == null || Objects.equals(a, b);
+    }
+}
@@ -0,0 +1,257 @@
+package com.suntoon.tutorial.filter;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.sort.SortBy;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName PagedFeatureTableModel
+ * @Description 按页延迟加载的要素表格模型：只有表格真正显示到的行才会通过Query.setStartIndex/setMaxFeatures
+ *              在后台线程中分页读取，最近用过的页保存在LRU中，已经滚出视野的页加载会被取消。
+ *              读取失败的页记下来并在第一列显示错误，不会每次重绘都重新请求，调用retryFailedPages()后才重试。
+ *              与FeatureCollectionTableModel一样，第一列是要素ID，其余列是属性
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:33
+ * @Version 1.0
+ */
+public class PagedFeatureTableModel extends AbstractTableModel {
+    /** 还没加载出来的单元格显示的内容 */
+    public static final String LOADING = "...";
+    /** 读取失败的页第一列显示的内容的前缀，后面是错误信息 */
+    public static final String FAILED = "Failed: ";
+
+    private final SimpleFeatureSource source;
+    private final Query query;
+    private final SimpleFeatureType schema;
+    private final int pageSize;
+    private final int maxCachedPages;
+    private final int maxPendingPages;
+    private final AsyncQueryExecutor executor;
+
+    /** 以下字段只在EDT上访问 */
+    private final LinkedHashMap<Integer, Object[][]> pages;
+    private final LinkedHashMap<Integer, AsyncQueryExecutor.Handle> pending = new LinkedHashMap<>();
+    /** 读取失败的页和错误信息 */
+    private final Map<Integer, String> failed = new HashMap<>();
+    private int rowCount;
+    private boolean countKnown;
+    private AsyncQueryExecutor.Handle countTask;
+    private boolean disposed;
+
+    public PagedFeatureTableModel(SimpleFeatureSource source, Query query, AsyncQueryExecutor executor) {
+        this(source, query, executor, 500, 20);
+    }
+
+    /**
+     * @param source 要素源
+     * @param query 查询条件，分页时会在它的副本上设置起始位置和数量
+     * @param executor 执行分页查询和计数的线程池
+     * @param pageSize 每页行数
+     * @param maxCachedPages 内存中最多保留的页数
+     */
+    public PagedFeatureTableModel(SimpleFeatureSource source, Query query, AsyncQueryExecutor executor,
+                                  int pageSize, final int maxCachedPages) {
+        this.source = source;
+        this.executor = executor;
+        this.query = new Query(query);
+        this.pageSize = pageSize;
+        this.maxCachedPages = maxCachedPages;
+        this.maxPendingPages = Math.max(2, maxCachedPages / 4);
+        this.schema = retype(source.getSchema(), query);
+        this.pages = new LinkedHashMap<Integer, Object[][]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+                return size() > PagedFeatureTableModel.this.maxCachedPages;
+            }
+        };
+        countTask = executor.submit("Count " + query.getTypeName(), handle -> count(), this::setRowCount);
+        //第一页不等计数结果，读到后就先显示出来
+        request(0);
+    }
+
+    private static SimpleFeatureType retype(SimpleFeatureType schema, Query query) {
+        if (query.getPropertyNames() == null) {
+            return schema;
+        }
+        try {
+            return DataUtilities.createSubType(schema, query.getPropertyNames());
+        } catch (Exception e) {
+            return schema;
+        }
+    }
+
+    private int count() throws Exception {
+        int count = source.getCount(query);
+        if (count < 0) {
+            //数据源不能快速给出数量时只好数一遍
+            count = source.getFeatures(query).size();
+        }
+        return count;
+    }
+
+    private void setRowCount(int count) {
+        if (!disposed) {
+            countKnown = true;
+            rowCount = count;
+            fireTableDataChanged();
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return schema.getAttributeCount() + 1;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column == 0) {
+            return "FeatureIdentifer";
+        }
+        return schema.getDescriptor(column - 1).getLocalName();
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / pageSize;
+        Object[][] rows = pages.get(page);
+        if (rows == null) {
+            String error = failed.get(page);
+            if (error != null) {
+                return column == 0 ? error : null;
+            }
+            request(page);
+            return LOADING;
+        }
+        int index = row - page * pageSize;
+        return index < rows.length ? rows[index][column] : null;
+    }
+
+    private void request(int page) {
+        if (disposed || pending.containsKey(page) || failed.containsKey(page)) {
+            return;
+        }
+        //成功或被取消后从pending中去掉，之后再显示到这一页时会重新请求；失败的页记在failed中
+        pending.put(page, executor.submit("Page " + (page + 1) + " of " + query.getTypeName(),
+                handle -> load(handle, page), rows -> loaded(page, rows), handle -> finished(page, handle)));
+        //最早请求的页多半已经滚出视野，不再需要
+        Iterator<Map.Entry<Integer, AsyncQueryExecutor.Handle>> oldest = pending.entrySet().iterator();
+        while (pending.size() > maxPendingPages && oldest.hasNext()) {
+            oldest.next().getValue().cancel();
+            oldest.remove();
+        }
+    }
+
+    private Object[][] load(AsyncQueryExecutor.Handle handle, int page) throws Exception {
+        Query pageQuery = new Query(query);
+        pageQuery.setStartIndex(page * pageSize);
+        pageQuery.setMaxFeatures(pageSize);
+        SortBy[] natural = {SortBy.NATURAL_ORDER};
+        if (pageQuery.getSortBy() == null && source.getQueryCapabilities().supportsSorting(natural)) {
+            pageQuery.setSortBy(natural);    //分页需要稳定的顺序
+        }
+
+        List<Object[]> rows = new ArrayList<>(pageSize);
+        try (SimpleFeatureIterator iterator = source.getFeatures(pageQuery).features()) {
+            handle.register(iterator);
+            while (iterator.hasNext() && !handle.isCancelled()) {
+                rows.add(toRow(iterator.next()));
+                handle.addRows(1);
+            }
+        }
+        return rows.toArray(new Object[rows.size()][]);
+    }
+
+    private void loaded(int page, Object[][] rows) {
+        if (disposed) {
+            return;
+        }
+        pages.put(page, rows);
+        int first = page * pageSize;
+        if (!countKnown && first + rows.length > rowCount) {
+            //总数还没算出来，先按已经读到的行数显示
+            rowCount = first + rows.length;
+            fireTableDataChanged();
+            return;
+        }
+        int last = Math.min(first + pageSize, rowCount) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    private void finished(int page, AsyncQueryExecutor.Handle handle) {
+        if (!pending.remove(page, handle) || disposed || handle.getError() == null) {
+            return;
+        }
+        Throwable error = handle.getError();
+        failed.put(page, FAILED + (error.getMessage() == null ? error : error.getMessage()));
+        int first = page * pageSize;
+        if (!countKnown && first >= rowCount) {
+            //总数还没算出来，至少显示出错误所在的一行
+            rowCount = first + 1;
+            fireTableDataChanged();
+            return;
+        }
+        int last = Math.min(first + pageSize, rowCount) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    /**
+     * 重新读取失败的页：清除错误后刷新表格，显示到的页会重新请求
+     */
+    public void retryFailedPages() {
+        if (!failed.isEmpty()) {
+            failed.clear();
+            fireTableDataChanged();
+        }
+    }
+
+    private Object[] toRow(SimpleFeature feature) {
+        Object[] row = new Object[schema.getAttributeCount() + 1];
+        row[0] = feature.getID();
+        int column = 1;
+        for (AttributeDescriptor descriptor : schema.getAttributeDescriptors()) {
+            row[column++] = feature.getAttribute(descriptor.getLocalName());
+        }
+        return row;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 取消所有未完成的加载，表格换用其他模型时调用
+     */
+    public void dispose() {
+        disposed = true;
+        countTask.cancel();
+        for (AsyncQueryExecutor.Handle handle : pending.values()) {
+            handle.cancel();
+        }
+        pending.clear();
+        pages.clear();
+        failed.clear();
+    }
+}
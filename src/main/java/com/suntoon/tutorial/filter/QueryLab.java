@@ -1,25 +1,29 @@
 package com.suntoon.tutorial.filter;
 
+import com.suntoon.tutorial.data.DataStores;
+import com.suntoon.tutorial.postgis.PostgisAccess;
+import com.suntoon.tutorial.postgis.StreamingFeatureSource;
 import org.geotools.data.DataStore;
 import org.geotools.data.DataStoreFactorySpi;
-import org.geotools.data.DataStoreFinder;
 import org.geotools.data.Query;
 import org.geotools.data.postgis.PostgisNGDataStoreFactory;
 import org.geotools.data.shapefile.ShapefileDataStoreFactory;
-import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureSource;
-import org.geotools.filter.text.cql2.CQL;
 import org.geotools.swing.action.SafeAction;
 import org.geotools.swing.data.JDataStoreWizard;
-import org.geotools.swing.table.FeatureCollectionTableModel;
 import org.geotools.swing.wizard.JWizard;
+import org.geotools.util.URLs;
 import org.opengis.feature.type.FeatureType;
 import org.opengis.filter.Filter;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
 import java.util.Map;
 
 /**
@@ -35,6 +39,12 @@ public class QueryLab extends JFrame {
     private JComboBox<String> featureTypeCBox;
     private JTable table;
     private JTextField text;
+    private JLabel status;
+    private final AsyncQueryExecutor queryExecutor = new AsyncQueryExecutor(4);
+    private FeatureCounter featureCounter;
+    private File shapefile;
+    private boolean postgis;
+    private final QueryResultCache resultCache = QueryResultCache.getInstance();
 
     public QueryLab() {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -52,6 +62,20 @@ public class QueryLab extends JFrame {
         JScrollPane scrollPane = new JScrollPane(table);
         getContentPane().add(scrollPane, BorderLayout.CENTER);
 
+        status = new JLabel(" ");
+        getContentPane().add(status, BorderLayout.SOUTH);
+        queryExecutor.setStatusListener(new AsyncQueryExecutor.StatusListener() {
+            @Override
+            public void started(AsyncQueryExecutor.Handle handle) {
+                status.setText(handle.getLabel() + "...");
+            }
+
+            @Override
+            public void finished(AsyncQueryExecutor.Handle handle, Throwable error) {
+                status.setText(error == null ? handle.toString() : handle.getLabel() + " failed: " + error);
+            }
+        });
+
         JMenuBar menuBar = new JMenuBar();
         setJMenuBar(menuBar);
 
@@ -115,43 +139,83 @@ public class QueryLab extends JFrame {
                 queryFeatures();
             }
         });
+
+        dataMenu.add(new SafeAction("Cache statistics") {
+            @Override
+            public void action(ActionEvent e) throws Throwable {
+                JOptionPane.showMessageDialog(text, resultCache.toString());
+            }
+        });
+
+        dataMenu.add(new SafeAction("Retry failed pages") {
+            @Override
+            public void action(ActionEvent e) throws Throwable {
+                if (table.getModel() instanceof PagedFeatureTableModel) {
+                    ((PagedFeatureTableModel) table.getModel()).retryFailedPages();
+                }
+            }
+        });
+
+        dataMenu.addSeparator();
+        dataMenu.add(new SafeAction("Cancel") {
+            @Override
+            public void action(ActionEvent e) throws Throwable {
+                queryExecutor.cancelAll();
+            }
+        });
     }
 
     private void queryFeatures() throws Exception {
         String typeName = (String) featureTypeCBox.getSelectedItem();
-        SimpleFeatureSource source = dataStore.getFeatureSource(typeName);
+        SimpleFeatureSource source = resultCache.wrap(dataStore, featureSource(typeName), shapefile);
 
         FeatureType schema = source.getSchema();
         String name = schema.getGeometryDescriptor().getLocalName();
 
-        Filter filter = CQL.toFilter(text.getText());
+        //prefilter交给数据源，residual在内存中计算
+        CompiledFilter filter = FilterCompiler.getInstance().compile(text.getText(), source.getSchema());
 
-        Query query = new Query(typeName, filter, new String[]{name});
+        Query query = new Query(typeName, Filter.INCLUDE, new String[]{name});
 
-        SimpleFeatureCollection features = source.getFeatures(query);
-
-        FeatureCollectionTableModel model = new FeatureCollectionTableModel(features);
-        table.setModel(model);
+        setTableModel(new PagedFeatureTableModel(new CompiledFilterFeatureSource(source, filter), query,
+                queryExecutor));
     }
 
     private void countFeatures() throws Exception {
         String typeName = (String) featureTypeCBox.getSelectedItem();
-        SimpleFeatureSource source = dataStore.getFeatureSource(typeName);
-
-        Filter filter = CQL.toFilter(text.getText());
-        SimpleFeatureCollection features = source.getFeatures(filter);
-
-        int count = features.size();
-        JOptionPane.showMessageDialog(text, "Number of selected features: " + count);
+        CompiledFilter filter = FilterCompiler.getInstance().compile(text.getText(), dataStore.getSchema(typeName));
+        queryExecutor.submit("Count " + typeName, handle -> {
+            FeatureCounter.Result result = featureCounter.count(featureSource(typeName), filter);
+            handle.addRows(result.getCount());
+            return result;
+        }, result -> JOptionPane.showMessageDialog(text, "Number of selected features: " + result));
     }
 
     private void filterFeatures() throws Exception {
         String typeName = (String) featureTypeCBox.getSelectedItem();
+        SimpleFeatureSource source = resultCache.wrap(dataStore, featureSource(typeName), shapefile);
+
+        CompiledFilter filter = FilterCompiler.getInstance().compile(text.getText(), source.getSchema());
+        setTableModel(new PagedFeatureTableModel(new CompiledFilterFeatureSource(source, filter),
+                new Query(typeName, Filter.INCLUDE), queryExecutor));
+    }
+
+    /**
+     * The source QueryLab reads from; PostGIS reads run in a read-only transaction so the driver streams
+     * through a server-side cursor instead of buffering the whole result under AUTO_COMMIT
+     */
+    private SimpleFeatureSource featureSource(String typeName) throws IOException {
         SimpleFeatureSource source = dataStore.getFeatureSource(typeName);
+        return postgis ? new StreamingFeatureSource(source, dataStore) : source;
+    }
 
-        Filter filter = CQL.toFilter(text.getText());
-        SimpleFeatureCollection features = source.getFeatures(filter);
-        FeatureCollectionTableModel model = new FeatureCollectionTableModel(features);
+    /**
+     * Replace the table model, cancelling any page loads of the previous one
+     */
+    private void setTableModel(TableModel model) {
+        if (table.getModel() instanceof PagedFeatureTableModel) {
+            ((PagedFeatureTableModel) table.getModel()).dispose();
+        }
         table.setModel(model);
     }
 
@@ -160,19 +224,48 @@ public class QueryLab extends JFrame {
         int result = wizard.showModalDialog();
         if (result == JWizard.FINISH) {
             Map<String, Object> connectionParameters = wizard.getConnectionParameters();
-            dataStore = DataStoreFinder.getDataStore(connectionParameters);
-            if (dataStore == null) {
+            if (format instanceof PostgisNGDataStoreFactory) {
+                //连接池、预编译语句和fetchSize使用调整过的设置
+                connectionParameters = PostgisAccess.tune(connectionParameters);
+            }
+            DataStore connected = DataStores.open(connectionParameters);
+            if (connected == null) {
+                //连接失败时保留原来的数据存储
                 JOptionPane.showMessageDialog(null, "Could not connect - check parameters");
+                return;
+            }
+            DataStore previous = dataStore;
+            dataStore = connected;
+            if (previous != null) {
+                //旧数据存储上的查询取消后，缓存不再持有它
+                queryExecutor.cancelAll();
+                resultCache.release(previous);
+                previous.dispose();
             }
+            postgis = format instanceof PostgisNGDataStoreFactory;
+            shapefile = shapefileOf(connectionParameters);
+            featureCounter = new FeatureCounter(dataStore, shapefile);
             updateUI();
         }
-        ;    }
+    }
+
+    /**
+     * The .shp file behind a shapefile connection, or null for other kinds of store
+     */
+    private static File shapefileOf(Map<String, Object> connectionParameters) throws Exception {
+        Object url = connectionParameters.get(ShapefileDataStoreFactory.URLP.key);
+        if (url == null) {
+            return null;
+        }
+        File file = URLs.urlToFile(url instanceof URL ? (URL) url : new URL(url.toString()));
+        return file != null && file.getName().toLowerCase().endsWith(".shp") ? file : null;
+    }
 
     private void updateUI() throws Exception {
         ComboBoxModel<String> cbm = new DefaultComboBoxModel<>(dataStore.getTypeNames());
         featureTypeCBox.setModel(cbm);
 
-        table.setModel(new DefaultTableModel(5, 5));
+        setTableModel(new DefaultTableModel(5, 5));
     }
 
 
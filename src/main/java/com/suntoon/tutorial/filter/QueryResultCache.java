@@ -0,0 +1,521 @@
+package com.suntoon.tutorial.filter;
+
+import com.suntoon.tutorial.metrics.Instrumentation;
+import org.geotools.data.DataStore;
+import org.geotools.data.FeatureEvent;
+import org.geotools.data.FeatureListener;
+import org.geotools.data.FeatureSource;
+import org.geotools.data.FeatureStore;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.filter.text.ecql.ECQL;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName QueryResultCache
+ * @Description QueryLab的查询结果缓存：按(数据存储, typeName, 过滤条件, 属性列表)缓存完整的查询结果，分页在内存中完成；
+ *              所有结果估算的内存总和不超过上限，超过时淘汰最久没有使用的结果，单个结果最多占上限的四分之一。
+ *              没有缓存的查询先由数据源直接回答这一页，完整结果在后台线程上加载，之后的翻页才从缓存中取。
+ *              通过FeatureStore修改或提交时，只丢弃过滤条件的空间范围与修改范围相交的结果；
+ *              shapefile在别处被修改时不知道修改范围，丢弃该图层的全部结果。
+ *              QueryLab换用新的数据存储时调用release()，放掉旧数据存储的全部结果和引用。
+ *              上限用 -Dtutorial.queryCache.maxBytes 设置，默认为最大堆的八分之一，设为0时不缓存
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:08
+ * @Version 1.0
+ */
+public class QueryResultCache {
+    public static final String MAX_BYTES_PROPERTY = "tutorial.queryCache.maxBytes";
+
+    private static final Logger LOGGER = Logging.getLogger(QueryResultCache.class);
+
+    private static final QueryResultCache INSTANCE =
+            new QueryResultCache(Long.getLong(MAX_BYTES_PROPERTY, Runtime.getRuntime().maxMemory() / 8));
+
+    /** 每个要素在属性值之外的估算开销：对象头、FID和属性数组 */
+    private static final long FEATURE_OVERHEAD = 64;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** 超过单个结果上限、不再尝试缓存的查询，图层失效时一起清除 */
+    private final Set<Key> oversized = ConcurrentHashMap.newKeySet();
+    /** 正在后台加载的查询，同一个查询只加载一次 */
+    private final Set<Key> loading = ConcurrentHashMap.newKeySet();
+    private final Executor loader;
+    /** 已经注册了失效监听的图层 */
+    private final Set<Layer> listening = ConcurrentHashMap.newKeySet();
+    /** 各shapefile图层最近一次看到的修改标记 */
+    private final Map<Layer, Long> stamps = new ConcurrentHashMap<>();
+    /** 修改标记变化之前已经收到过修改事件的图层，这次变化已按范围处理过 */
+    private final Set<Layer> notified = ConcurrentHashMap.newKeySet();
+    private long usedBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+    /** 每次失效加一，加载期间发生过失效的结果不放进缓存 */
+    private final AtomicLong generation = new AtomicLong();
+
+    public QueryResultCache(long maxBytes) {
+        this(maxBytes, newLoader());
+    }
+
+    /**
+     * @param maxBytes 所有结果估算的内存总和的上限
+     * @param loader 在后台加载完整结果的线程，测试中可以直接在调用线程上执行
+     */
+    QueryResultCache(long maxBytes, Executor loader) {
+        this.maxBytes = maxBytes;
+        this.loader = loader;
+    }
+
+    private static Executor newLoader() {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "query-cache-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 进程内共享的缓存
+     */
+    public static QueryResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @Author agent
+     * @Description //返回带结果缓存的要素源，并在图层上注册一次修改监听；上限为0时原样返回source
+     * @Date 上午 4:08 2026/10/17 0017
+     * @param dataStore source所属的数据存储，缓存键按对象身份区分
+     * @param source 要素源
+     * @param shapefile dataStore是shapefile时对应的.shp文件，用于发现别处的修改；其他数据源传null
+     * @return org.geotools.data.simple.SimpleFeatureSource
+     */
+    public SimpleFeatureSource wrap(DataStore dataStore, SimpleFeatureSource source, File shapefile) {
+        if (maxBytes <= 0) {
+            return source;
+        }
+        Layer layer = new Layer(dataStore, source.getSchema().getTypeName());
+        if (listening.add(layer)) {
+            source.addFeatureListener(new Invalidator(layer));
+        }
+        return new CachedQueryFeatureSource(source, layer, shapefile, this);
+    }
+
+    /**
+     * 返回查询的完整结果；没有缓存时返回null，由调用者直接查询数据源，同时在后台通过source加载完整结果，
+     * 结果超过单个上限时不再加载。命中时按query的分页估算节省的读取时间
+     */
+    Entry get(Layer layer, Query query, SimpleFeatureSource source, long stamp) {
+        checkStamp(layer, stamp);
+        Key key = new Key(layer, query);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            if (!oversized.contains(key) && loading.add(key)) {
+                long loadedGeneration = generation.get();
+                try {
+                    loader.execute(() -> {
+                        try {
+                            fill(key, source, query, loadedGeneration);
+                        } finally {
+                            loading.remove(key);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    loading.remove(key);
+                }
+            }
+            return null;
+        }
+        hits.incrementAndGet();
+        if (!entry.features.isEmpty()) {
+            //数据源按顺序读到这一页的末尾为止，按比例估算省下的时间
+            long read = endIndex(query, entry.size());
+            savedNanos.addAndGet(entry.loadNanos * read / entry.size());
+        }
+        return entry;
+    }
+
+    /**
+     * 只查缓存不加载，用于计数；不计入命中和未命中
+     */
+    Entry peek(Layer layer, Query query, long stamp) {
+        checkStamp(layer, stamp);
+        Key key = new Key(layer, query);
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    /**
+     * 后台加载完整结果并放进缓存；加载期间发生过失效时丢弃结果，失败时只记录日志，之后的查询会再试
+     */
+    private void fill(Key key, SimpleFeatureSource source, Query query, long loadedGeneration) {
+        Entry entry;
+        try {
+            entry = load(source, query);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not load query result for " + key.layer.typeName, e);
+            return;
+        }
+        if (entry == null) {
+            oversized.add(key);
+            return;
+        }
+        synchronized (entries) {
+            if (generation.get() != loadedGeneration) {
+                return;
+            }
+            Entry old = entries.put(key, entry);
+            if (old != null) {
+                usedBytes -= old.estimatedBytes;
+            }
+            usedBytes += entry.estimatedBytes;
+            evict(key);
+        }
+    }
+
+    /**
+     * 读出全部结果，估算大小超过单个上限时放弃并返回null
+     */
+    private Entry load(SimpleFeatureSource source, Query query) throws IOException {
+        Query all = new Query(query);
+        all.setStartIndex(null);
+        all.setMaxFeatures(Query.DEFAULT_MAX);
+        long limit = maxBytes / 4;
+        long start = System.nanoTime();
+        long bytes = 0;
+        List<SimpleFeature> features = new ArrayList<>();
+        SimpleFeatureCollection collection = source.getFeatures(all);
+        try (SimpleFeatureIterator iterator = collection.features()) {
+            while (iterator.hasNext()) {
+                SimpleFeature feature = iterator.next();
+                bytes += FEATURE_OVERHEAD + Instrumentation.estimateBytes(feature);
+                if (bytes > limit) {
+                    return null;
+                }
+                features.add(feature);
+            }
+        }
+        return new Entry(collection.getSchema(), features, extentOf(query.getFilter()), bytes,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * 按最近最少使用的顺序淘汰其他结果，直到总量不超过上限
+     */
+    private void evict(Key keep) {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Key, Entry> entry = eldest.next();
+            if (!entry.getKey().equals(keep)) {
+                usedBytes -= entry.getValue().estimatedBytes;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * shapefile的修改标记变了而之前没有收到修改事件，说明文件在别处被修改，丢弃整个图层
+     */
+    private void checkStamp(Layer layer, long stamp) {
+        if (stamp == -1) {
+            return;
+        }
+        Long known = stamps.put(layer, stamp);
+        if (known != null && known != stamp && !notified.remove(layer)) {
+            invalidate(layer, null);
+        }
+    }
+
+    /**
+     * @Author agent
+     * @Description //丢弃typeName中空间范围与modified相交的结果；modified为null时丢弃该图层的全部结果
+     * @Date 上午 4:08 2026/10/17 0017
+     * @param dataStore 数据存储
+     * @param typeName 要素类型名
+     * @param modified 被修改的范围
+     */
+    public void invalidate(DataStore dataStore, String typeName, ReferencedEnvelope modified) {
+        invalidate(new Layer(dataStore, typeName), modified);
+    }
+
+    private void invalidate(Layer layer, ReferencedEnvelope modified) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> entry = iterator.next();
+                if (entry.getKey().layer.equals(layer) && intersects(entry.getValue().extent, modified)) {
+                    usedBytes -= entry.getValue().estimatedBytes;
+                    iterator.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+        oversized.removeIf(key -> key.layer.equals(layer));
+    }
+
+    /**
+     * @Author agent
+     * @Description //丢弃dataStore的全部结果和修改标记，不再持有它；数据存储被替换或dispose之前调用
+     * @Date 上午 4:35 2026/10/17 0017
+     * @param dataStore 数据存储
+     */
+    public void release(DataStore dataStore) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> entry = iterator.next();
+                if (entry.getKey().layer.dataStore == dataStore) {
+                    usedBytes -= entry.getValue().estimatedBytes;
+                    iterator.remove();
+                }
+            }
+        }
+        oversized.removeIf(key -> key.layer.dataStore == dataStore);
+        listening.removeIf(layer -> layer.dataStore == dataStore);
+        stamps.keySet().removeIf(layer -> layer.dataStore == dataStore);
+        notified.removeIf(layer -> layer.dataStore == dataStore);
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            usedBytes = 0;
+        }
+        oversized.clear();
+        stamps.clear();
+        notified.clear();
+    }
+
+    /**
+     * 过滤条件的空间范围，没有空间条件时是无限大的范围
+     */
+    private static ReferencedEnvelope extentOf(Filter filter) {
+        Object bounds = filter == null ? null : filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+        if (bounds instanceof ReferencedEnvelope) {
+            return (ReferencedEnvelope) bounds;
+        }
+        return bounds instanceof Envelope ? new ReferencedEnvelope((Envelope) bounds, null) : null;
+    }
+
+    /**
+     * 范围未知、为空或坐标系不同时都按相交处理，宁可多丢弃
+     */
+    private static boolean intersects(ReferencedEnvelope extent, ReferencedEnvelope modified) {
+        if (extent == null || extent.isNull() || modified == null || modified.isNull()) {
+            return true;
+        }
+        if (extent.getCoordinateReferenceSystem() != null && modified.getCoordinateReferenceSystem() != null
+                && !CRS.equalsIgnoreMetadata(extent.getCoordinateReferenceSystem(),
+                modified.getCoordinateReferenceSystem())) {
+            return true;
+        }
+        return extent.intersects((Envelope) modified);
+    }
+
+    static int startIndex(Query query, int size) {
+        return query.getStartIndex() == null ? 0 : Math.min(query.getStartIndex(), size);
+    }
+
+    static int endIndex(Query query, int size) {
+        int from = startIndex(query, size);
+        return query.isMaxFeaturesUnlimited() ? size : (int) Math.min((long) from + query.getMaxFeatures(), size);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 命中次数占查询次数的比例，还没有查询时为0
+     */
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    /**
+     * 命中时估算省下的数据源读取时间（纳秒）
+     */
+    public long getSavedNanos() {
+        return savedNanos.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    @Override
+    public String toString() {
+        synchronized (entries) {
+            return String.format("QueryResultCache[used=%d/%d bytes, entries=%d, hits=%d, misses=%d, " +
+                            "hitRatio=%.1f%%, saved=%.1fms, evictions=%d, invalidations=%d]",
+                    usedBytes, maxBytes, entries.size(), hits.get(), misses.get(), getHitRatio() * 100,
+                    savedNanos.get() / 1e6, evictions.get(), invalidations.get());
+        }
+    }
+
+    /**
+     * 数据存储中的一个要素类型，数据存储按对象身份区分
+     */
+    static class Layer {
+        final DataStore dataStore;
+        final String typeName;
+
+        Layer(DataStore dataStore, String typeName) {
+            this.dataStore = dataStore;
+            this.typeName = typeName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Layer)) {
+                return false;
+            }
+            Layer other = (Layer) o;
+            return dataStore == other.dataStore && typeName.equals(other.typeName);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(dataStore) * 31 + typeName.hashCode();
+        }
+    }
+
+    /**
+     * 缓存键：图层、过滤条件和属性列表，不含分页
+     */
+    static class Key {
+        final Layer layer;
+        final String query;
+
+        Key(Layer layer, Query query) {
+            this.layer = layer;
+            Filter filter = query.getFilter() == null ? Filter.INCLUDE : query.getFilter();
+            this.query = ECQL.toCQL(filter) + "|" + Arrays.toString(query.getPropertyNames());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return layer.equals(other.layer) && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return layer.hashCode() * 31 + query.hashCode();
+        }
+    }
+
+    /**
+     * 一个查询的完整结果
+     */
+    static class Entry {
+        final SimpleFeatureType schema;
+        final List<SimpleFeature> features;
+        /** 过滤条件的空间范围，null表示未知 */
+        final ReferencedEnvelope extent;
+        final long estimatedBytes;
+        /** 从数据源读出全部结果用的时间 */
+        final long loadNanos;
+
+        Entry(SimpleFeatureType schema, List<SimpleFeature> features, ReferencedEnvelope extent,
+              long estimatedBytes, long loadNanos) {
+            this.schema = schema;
+            this.features = features;
+            this.extent = extent;
+            this.estimatedBytes = estimatedBytes;
+            this.loadNanos = loadNanos;
+        }
+
+        int size() {
+            return features.size();
+        }
+    }
+
+    /**
+     * 图层上的修改监听：AUTO_COMMIT的增删改和提交时按事件的范围丢弃结果；
+     * 事务中尚未提交的修改和回滚不改变已提交的数据，也不改变文件，忽略
+     */
+    private class Invalidator implements FeatureListener {
+        private final Layer layer;
+
+        Invalidator(Layer layer) {
+            this.layer = layer;
+        }
+
+        @Override
+        public void changed(FeatureEvent event) {
+            if (!changesData(event)) {
+                return;
+            }
+            //这次修改会改变shapefile的修改标记，已经按范围处理过，不用再丢弃整个图层
+            notified.add(layer);
+            invalidate(layer, event.getBounds());
+        }
+
+        private boolean changesData(FeatureEvent event) {
+            if (event.getType() == FeatureEvent.Type.COMMIT) {
+                return true;
+            }
+            if (event.getType() == FeatureEvent.Type.ROLLBACK) {
+                return false;
+            }
+            FeatureSource<?, ?> source = event.getFeatureSource();
+            return !(source instanceof FeatureStore)
+                    || ((FeatureStore<?, ?>) source).getTransaction() == Transaction.AUTO_COMMIT;
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package com.suntoon.tutorial.join;
+
+import com.suntoon.tutorial.crs.CrsCache;
+import com.suntoon.tutorial.data.DataStores;
+import com.suntoon.tutorial.shapefile.NioShapefileWriter;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName SpatialJoin
+ * @Description 两个图层的批量空间连接（相交）：要素较少的一侧整体读入内存，几何预先做成PreparedGeometry放进STRtree；
+ *              要素较多的一侧流式读取，每4096个要素一个分区交给工作线程匹配，匹配结果由调用线程写入新的shapefile。
+ *              读取、匹配和写入之间都是有界队列，内存占用只取决于较小一侧的大小，与较大一侧无关。
+ *              输出的几何和前面的属性来自left，后面是right的属性（重名或超过shapefile 10个字符限制时改名）；
+ *              两侧坐标系不同时right转换到left的坐标系
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:56
+ * @Version 1.0
+ */
+public class SpatialJoin {
+    private static final int PARTITION_SIZE = 4096;
+    private static final List<SimpleFeature> POISON = new ArrayList<>();
+    private static final List<Object[]> DONE = new ArrayList<>();
+
+    private final int workers;
+
+    public SpatialJoin() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public SpatialJoin(int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be positive: " + workers);
+        }
+        this.workers = workers;
+    }
+
+    /**
+     * @Author agent
+     * @Description //把left和right中相交的要素对写入新的shapefile，每对一行
+     * @Date 上午 3:56 2026/10/17 0017
+     * @param left 左图层，输出几何来自这里，例如点
+     * @param right 右图层，例如面
+     * @param output 输出的shapefile
+     * @return com.suntoon.tutorial.join.SpatialJoin.Stats
+     */
+    public Stats join(SimpleFeatureSource left, SimpleFeatureSource right, File output) throws IOException {
+        long start = System.nanoTime();
+        SimpleFeatureType leftType = left.getSchema();
+        SimpleFeatureType rightType = right.getSchema();
+        if (leftType.getGeometryDescriptor() == null || rightType.getGeometryDescriptor() == null) {
+            throw new IllegalArgumentException("Both layers need a geometry");
+        }
+        SimpleFeatureType joinedType = joinedType(leftType, rightType);
+        Layout layout = new Layout(leftType, rightType);
+
+        //较小的一侧建索引；getCount不可用时（-1）默认right较小
+        int leftCount = left.getCount(Query.ALL);
+        int rightCount = right.getCount(Query.ALL);
+        boolean indexLeft = leftCount >= 0 && rightCount >= 0 && leftCount < rightCount;
+        MathTransform rightToLeft = transform(rightType, leftType);
+
+        SimpleFeatureSource buildSide = indexLeft ? left : right;
+        SimpleFeatureSource probeSide = indexLeft ? right : left;
+        Index index = Index.build(buildSide, indexLeft ? null : rightToLeft);
+        long buildNanos = System.nanoTime() - start;
+
+        //NioShapefileWriter顺序写入并建.qix
+        NioShapefileWriter shapefileWriter = new NioShapefileWriter(output, joinedType);
+        long[] counts;
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer = shapefileWriter) {
+            counts = probe(probeSide, indexLeft ? rightToLeft : null, index, indexLeft, layout, writer);
+        } catch (Exception e) {
+            //不留下截断的shapefile
+            shapefileWriter.abort(e);
+            throw e;
+        }
+        return new Stats(index.size(), counts[0], counts[1], buildNanos, System.nanoTime() - start);
+    }
+
+    /**
+     * 输出的要素类型：left的几何和非几何属性，加上right的非几何属性
+     */
+    static SimpleFeatureType joinedType(SimpleFeatureType leftType, SimpleFeatureType rightType) {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName(leftType.getTypeName() + "_" + rightType.getTypeName());
+        builder.setCRS(leftType.getCoordinateReferenceSystem());
+        Set<String> used = new HashSet<>();
+        //shapefile的几何属性总是第一个
+        GeometryDescriptor geometry = leftType.getGeometryDescriptor();
+        builder.add("the_geom", geometry.getType().getBinding(), leftType.getCoordinateReferenceSystem());
+        used.add("the_geom");
+        for (AttributeDescriptor descriptor : leftType.getAttributeDescriptors()) {
+            if (!(descriptor instanceof GeometryDescriptor)) {
+                builder.add(uniqueName(descriptor.getLocalName(), used), descriptor.getType().getBinding());
+            }
+        }
+        for (AttributeDescriptor descriptor : rightType.getAttributeDescriptors()) {
+            if (!(descriptor instanceof GeometryDescriptor)) {
+                builder.add(uniqueName(descriptor.getLocalName(), used), descriptor.getType().getBinding());
+            }
+        }
+        builder.setDefaultGeometry("the_geom");
+        return builder.buildFeatureType();
+    }
+
+    private static String uniqueName(String name, Set<String> used) {
+        String base = name.length() > 10 ? name.substring(0, 10) : name;
+        String candidate = base;
+        for (int i = 1; !used.add(candidate.toLowerCase(Locale.ROOT)); i++) {
+            String suffix = "_" + i;
+            candidate = base.substring(0, Math.min(base.length(), 10 - suffix.length())) + suffix;
+        }
+        return candidate;
+    }
+
+    private static MathTransform transform(SimpleFeatureType from, SimpleFeatureType to) throws IOException {
+        CoordinateReferenceSystem source = from.getCoordinateReferenceSystem();
+        CoordinateReferenceSystem target = to.getCoordinateReferenceSystem();
+        if (source == null || target == null || CRS.equalsIgnoreMetadata(source, target)) {
+            return null;
+        }
+        try {
+            return CrsCache.getInstance().findMathTransform(source, target, true);
+        } catch (Exception e) {
+            throw new IOException("Cannot transform " + from.getTypeName() + " to the CRS of " + to.getTypeName(), e);
+        }
+    }
+
+    /**
+     * 读取线程把较大一侧分区放入有界队列，工作线程匹配后把输出行放入另一个有界队列，调用线程写出；
+     * 返回{读取的要素数, 写出的行数}
+     */
+    private long[] probe(final SimpleFeatureSource probeSide, final MathTransform probeTransform, final Index index,
+                         final boolean indexLeft, final Layout layout,
+                         FeatureWriter<SimpleFeatureType, SimpleFeature> writer) throws IOException {
+        final BlockingQueue<List<SimpleFeature>> input = new ArrayBlockingQueue<>(workers * 2);
+        final BlockingQueue<List<Object[]>> results = new ArrayBlockingQueue<>(workers * 2);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final long[] read = new long[1];
+        final AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1, r -> {
+            Thread thread = new Thread(r, "join-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            executor.submit(() -> {
+                try (SimpleFeatureIterator it = probeSide.getFeatures().features()) {
+                    List<SimpleFeature> partition = new ArrayList<>(PARTITION_SIZE);
+                    while (it.hasNext() && failure.get() == null) {
+                        partition.add(it.next());
+                        read[0]++;
+                        if (partition.size() == PARTITION_SIZE) {
+                            input.put(partition);
+                            partition = new ArrayList<>(PARTITION_SIZE);
+                        }
+                    }
+                    if (!partition.isEmpty()) {
+                        input.put(partition);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    for (int i = 0; i < workers; i++) {
+                        putUninterruptibly(input, POISON);
+                    }
+                }
+                return null;
+            });
+            for (int i = 0; i < workers; i++) {
+                executor.submit(() -> {
+                    try {
+                        //出错后继续取完队列（不再匹配），读取线程才不会阻塞在已满的队列上
+                        for (List<SimpleFeature> partition = input.take(); partition != POISON;
+                             partition = input.take()) {
+                            if (failure.get() != null) {
+                                continue;
+                            }
+                            try {
+                                results.put(match(partition, probeTransform, index, indexLeft, layout));
+                            } catch (InterruptedException e) {
+                                throw e;
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        putUninterruptibly(results, DONE);
+                    }
+                    return null;
+                });
+            }
+
+            long written = 0;
+            int finished = 0;
+            while (finished < workers) {
+                List<Object[]> rows = results.take();
+                if (rows == DONE) {
+                    finished++;
+                    continue;
+                }
+                if (failure.get() != null) {
+                    continue;    //继续取完队列，让工作线程都能结束
+                }
+                try {
+                    for (Object[] values : rows) {
+                        SimpleFeature feature = writer.next();
+                        feature.setAttributes(values);
+                        writer.write();
+                        written++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+            Throwable problem = failure.get();
+            if (problem != null) {
+                throw new IOException("Spatial join failed", problem);
+            }
+            return new long[]{read[0], written};
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Spatial join interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Object[]> match(List<SimpleFeature> partition, MathTransform probeTransform, Index index,
+                                        boolean indexLeft, Layout layout) throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for (SimpleFeature feature : partition) {
+            Geometry geometry = (Geometry) feature.getDefaultGeometry();
+            if (geometry == null || geometry.isEmpty()) {
+                continue;
+            }
+            //probe一侧是right时，转换到left的坐标系再匹配
+            Geometry probeGeometry = probeTransform == null ? geometry : JTS.transform(geometry, probeTransform);
+            for (Entry entry : index.query(probeGeometry.getEnvelopeInternal())) {
+                if (!entry.prepared.intersects(probeGeometry)) {
+                    continue;
+                }
+                SimpleFeature leftFeature = indexLeft ? entry.feature : feature;
+                SimpleFeature rightFeature = indexLeft ? feature : entry.feature;
+                rows.add(layout.values(leftFeature, rightFeature));
+            }
+        }
+        return rows;
+    }
+
+    private static void putUninterruptibly(BlockingQueue<?> queue, Object item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                @SuppressWarnings("unchecked")
+                BlockingQueue<Object> objects = (BlockingQueue<Object>) queue;
+                objects.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 输出行中各个值来自left和right的哪个属性，与joinedType的属性顺序一致
+     */
+    private static final class Layout {
+        final int[] leftIndexes;
+        final int[] rightIndexes;
+
+        Layout(SimpleFeatureType leftType, SimpleFeatureType rightType) {
+            List<Integer> left = new ArrayList<>();
+            left.add(leftType.indexOf(leftType.getGeometryDescriptor().getLocalName()));
+            for (int i = 0; i < leftType.getAttributeCount(); i++) {
+                if (!(leftType.getDescriptor(i) instanceof GeometryDescriptor)) {
+                    left.add(i);
+                }
+            }
+            List<Integer> right = new ArrayList<>();
+            for (int i = 0; i < rightType.getAttributeCount(); i++) {
+                if (!(rightType.getDescriptor(i) instanceof GeometryDescriptor)) {
+                    right.add(i);
+                }
+            }
+            leftIndexes = left.stream().mapToInt(Integer::intValue).toArray();
+            rightIndexes = right.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        Object[] values(SimpleFeature left, SimpleFeature right) {
+            Object[] values = new Object[leftIndexes.length + rightIndexes.length];
+            for (int i = 0; i < leftIndexes.length; i++) {
+                values[i] = left.getAttribute(leftIndexes[i]);
+            }
+            for (int i = 0; i < rightIndexes.length; i++) {
+                values[leftIndexes.length + i] = right.getAttribute(rightIndexes[i]);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * 索引中的一个要素及其预处理过的几何
+     */
+    private static final class Entry {
+        final SimpleFeature feature;
+        final PreparedGeometry prepared;
+
+        Entry(SimpleFeature feature, PreparedGeometry prepared) {
+            this.feature = feature;
+            this.prepared = prepared;
+        }
+    }
+
+    /**
+     * 较小一侧的STRtree；PreparedGeometry在建立时就准备好，查询期间只读，多个线程可以同时查询
+     */
+    private static final class Index {
+        private final STRtree tree;
+        private final int size;
+
+        private Index(STRtree tree, int size) {
+            this.tree = tree;
+            this.size = size;
+        }
+
+        static Index build(SimpleFeatureSource source, MathTransform transform) throws IOException {
+            STRtree tree = new STRtree();
+            PreparedGeometryFactory factory = new PreparedGeometryFactory();
+            int size = 0;
+            try (SimpleFeatureIterator it = source.getFeatures().features()) {
+                while (it.hasNext()) {
+                    SimpleFeature feature = it.next();
+                    Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                    if (geometry == null || geometry.isEmpty()) {
+                        continue;
+                    }
+                    if (transform != null) {
+                        geometry = JTS.transform(geometry, transform);
+                    }
+                    PreparedGeometry prepared = factory.create(geometry);
+                    //第一次相交判断时才会建立内部索引，这里先做一次，避免多个线程同时建立
+                    prepared.intersects(geometry.getFactory().createPoint(geometry.getCoordinate()));
+                    tree.insert(geometry.getEnvelopeInternal(), new Entry(feature, prepared));
+                    size++;
+                }
+            } catch (Exception e) {
+                throw e instanceof IOException ? (IOException) e : new IOException("Cannot index " + source.getName(), e);
+            }
+            tree.build();
+            return new Index(tree, size);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Entry> query(Envelope envelope) {
+            return tree.query(envelope);
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * 一次连接的统计
+     */
+    public static class Stats {
+        private final long indexed;
+        private final long probed;
+        private final long written;
+        private final long buildNanos;
+        private final long elapsedNanos;
+
+        Stats(long indexed, long probed, long written, long buildNanos, long elapsedNanos) {
+            this.indexed = indexed;
+            this.probed = probed;
+            this.written = written;
+            this.buildNanos = buildNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** 建立索引的一侧的要素数 */
+        public long getIndexed() {
+            return indexed;
+        }
+
+        /** 流式读取的一侧的要素数 */
+        public long getProbed() {
+            return probed;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        public long getBuildNanos() {
+            return buildNanos;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getProbedPerSecond() {
+            return elapsedNanos == 0 ? 0 : probed * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("indexed=%d, probed=%d, written=%d, build=%.2fs, total=%.2fs, probed/sec=%.0f",
+                    indexed, probed, written, buildNanos / 1e9, elapsedNanos / 1e9, getProbedPerSecond());
+        }
+    }
+
+    /**
+     * 命令行用法：SpatialJoin left.shp right.shp output.shp [threads]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: SpatialJoin <left.shp> <right.shp> <output.shp> [threads]");
+            System.exit(1);
+        }
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        FileDataStore leftStore = DataStores.open(new File(args[0]));
+        FileDataStore rightStore = DataStores.open(new File(args[1]));
+        try {
+            Stats stats = new SpatialJoin(threads).join(leftStore.getFeatureSource(), rightStore.getFeatureSource(),
+                    new File(args[2]));
+            System.out.println("Join: " + stats);
+        } finally {
+            leftStore.dispose();
+            rightStore.dispose();
+        }
+    }
+}
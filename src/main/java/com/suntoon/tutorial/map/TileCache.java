@@ -0,0 +1,278 @@
+package com.suntoon.tutorial.map;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName TileCache
+ * @Description 渲染好的瓦片缓存：内存中按最近最少使用淘汰，总大小不超过maxBytes；
+ *              指定了目录时瓦片同时以PNG保存在磁盘上，内存淘汰之后或者下次启动时还可以从磁盘读回。
+ *              每个图层有一个代数，invalidate时加一；开始渲染前取得的代数已经过时的瓦片不会再放进缓存
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:44
+ * @Version 1.0
+ */
+public class TileCache {
+    private final long maxBytes;
+    private final File directory;
+    private final LinkedHashMap<Key, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+    /** 图层 -> 代数，和tiles使用同一个锁 */
+    private final Map<String, Long> generations = new HashMap<>();
+    /** 磁盘上瓦片的写入和删除 */
+    private final Object diskLock = new Object();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxBytes 内存中瓦片的总字节数上限
+     * @param directory 磁盘缓存目录，为null时只在内存中缓存
+     */
+    public TileCache(long maxBytes, File directory) {
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+    }
+
+    /**
+     * 只查内存，在绘制线程上调用，不会阻塞
+     */
+    public BufferedImage get(Key key) {
+        synchronized (tiles) {
+            BufferedImage image = tiles.get(key);
+            if (image != null) {
+                hits.incrementAndGet();
+            }
+            return image;
+        }
+    }
+
+    /**
+     * 查内存和磁盘，在渲染线程上调用；磁盘上的瓦片读回后放入内存
+     */
+    public BufferedImage load(Key key) {
+        BufferedImage image = get(key);
+        if (image != null) {
+            return image;
+        }
+        long generation = getGeneration(key.layer);
+        File file = file(key);
+        if (file != null && file.isFile()) {
+            try {
+                image = ImageIO.read(file);
+            } catch (IOException e) {
+                image = null;    //损坏的文件当作没有缓存，重新渲染后覆盖
+            }
+            //读的时候图层被作废了，文件可能是旧的
+            if (image != null && putInMemory(key, image, generation)) {
+                diskHits.incrementAndGet();
+                return image;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 图层当前的代数，在开始渲染之前取得，渲染完成后传给put
+     */
+    public long getGeneration(String layer) {
+        synchronized (tiles) {
+            return generations.getOrDefault(layer, 0L);
+        }
+    }
+
+    /**
+     * 放入渲染好的瓦片
+     * @param generation 开始渲染前getGeneration返回的代数
+     * @return 图层在渲染期间被作废时不放入缓存，返回false
+     */
+    public boolean put(Key key, BufferedImage image, long generation) {
+        if (!putInMemory(key, image, generation)) {
+            return false;
+        }
+        File file = file(key);
+        if (file != null) {
+            //先写到临时文件，确认没有被作废后再换上，invalidate删除目录时不会漏掉
+            File temp = null;
+            try {
+                file.getParentFile().mkdirs();
+                temp = File.createTempFile("tile", ".tmp", file.getParentFile());
+                ImageIO.write(image, "png", temp);
+                synchronized (diskLock) {
+                    if (getGeneration(key.layer) == generation) {
+                        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                        temp = null;
+                    }
+                }
+            } catch (IOException e) {
+                //磁盘缓存只是优化，写不进去就算了
+            } finally {
+                if (temp != null) {
+                    temp.delete();
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean putInMemory(Key key, BufferedImage image, long generation) {
+        long bytes = 4L * image.getWidth() * image.getHeight();
+        synchronized (tiles) {
+            if (generations.getOrDefault(key.layer, 0L) != generation) {
+                return false;
+            }
+            BufferedImage old = tiles.put(key, image);
+            if (old != null) {
+                usedBytes -= 4L * old.getWidth() * old.getHeight();
+            }
+            usedBytes += bytes;
+            Iterator<BufferedImage> eldest = tiles.values().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                BufferedImage evicted = eldest.next();
+                usedBytes -= 4L * evicted.getWidth() * evicted.getHeight();
+                eldest.remove();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 删除一个图层的所有瓦片，包括磁盘上的
+     */
+    public void invalidate(String layer) {
+        synchronized (tiles) {
+            generations.merge(layer, 1L, Long::sum);
+            Iterator<Map.Entry<Key, BufferedImage>> it = tiles.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, BufferedImage> entry = it.next();
+                if (entry.getKey().layer.equals(layer)) {
+                    usedBytes -= 4L * entry.getValue().getWidth() * entry.getValue().getHeight();
+                    it.remove();
+                }
+            }
+        }
+        if (directory != null) {
+            synchronized (diskLock) {
+                delete(new File(directory, layer));
+            }
+        }
+    }
+
+    /**
+     * 删除名称满足stale的所有图层的瓦片，包括以前运行时留在磁盘上的，用于清理数据文件改变后不会再用到的目录
+     */
+    public void invalidate(Predicate<String> stale) {
+        Set<String> layers = new HashSet<>();
+        synchronized (tiles) {
+            for (Key key : tiles.keySet()) {
+                layers.add(key.layer);
+            }
+        }
+        String[] names = directory == null ? null : directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (new File(directory, name).isDirectory()) {
+                    layers.add(name);
+                }
+            }
+        }
+        for (String layer : layers) {
+            if (stale.test(layer)) {
+                invalidate(layer);
+            }
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File file(Key key) {
+        if (directory == null) {
+            return null;
+        }
+        return new File(directory, key.layer + File.separator + key.z + File.separator + key.x + "_" + key.y + ".png");
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getUsedBytes() {
+        synchronized (tiles) {
+            return usedBytes;
+        }
+    }
+
+    /**
+     * 瓦片的位置：图层、级别和行列号；图层名会用作磁盘目录名
+     */
+    public static final class Key {
+        final String layer;
+        final int z;
+        final long x;
+        final long y;
+
+        public Key(String layer, int z, long x, long y) {
+            this.layer = layer;
+            this.z = z;
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * 覆盖这个瓦片的上一级（更粗）瓦片
+         */
+        public Key parent() {
+            return new Key(layer, z + 1, Math.floorDiv(x, 2), Math.floorDiv(y, 2));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return z == other.z && x == other.x && y == other.y && layer.equals(other.layer);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(layer, z, x, y);
+        }
+
+        @Override
+        public String toString() {
+            return layer + "/" + z + "/" + x + "_" + y;
+        }
+    }
+}
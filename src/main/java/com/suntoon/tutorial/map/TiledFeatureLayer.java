@@ -0,0 +1,335 @@
+package com.suntoon.tutorial.map;
+
+import org.geotools.data.FeatureListener;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.DirectLayer;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.Layer;
+import org.geotools.map.MapContent;
+import org.geotools.map.MapLayerEvent;
+import org.geotools.map.MapViewport;
+import org.geotools.referencing.CRS;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.Style;
+import org.geotools.util.logging.Logging;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName TiledFeatureLayer
+ * @Description 按瓦片渲染的要素图层：地图按2的幂次分辨率划分为256像素的瓦片，缺少的瓦片在后台线程池中并行渲染并放入TileCache；
+ *              绘制时已有的瓦片直接画出，还没渲染好的位置先用更粗一级的瓦片放大占位，渲染完成后再重绘。
+ *              样式改变、数据源发出修改事件或者地图坐标系改变时，该图层的瓦片全部作废；
+ *              数据文件改变后，以前运行时按旧的修改时间留在磁盘上的瓦片目录在create时删除。
+ *              启动时加 -Dtutorial.tiles=true 后create才会返回瓦片图层，内存上限用 -Dtutorial.tiles.maxBytes 设置（默认64MB），
+ *              -Dtutorial.tiles.dir 指定磁盘缓存目录
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:44
+ * @Version 1.0
+ */
+public class TiledFeatureLayer extends DirectLayer {
+    private static final Logger LOGGER = Logging.getLogger(TiledFeatureLayer.class);
+
+    public static final String ENABLED_PROPERTY = "tutorial.tiles";
+    public static final int TILE_SIZE = 256;
+    /** 瓦片四周多渲染的像素，避免符号和标注在瓦片边缘被截断 */
+    private static final int BUFFER = 32;
+    /** 占位时最多向上找几级 */
+    private static final int MAX_FALLBACK_LEVELS = 4;
+
+    private static TileCache defaultCache;
+
+    private final SimpleFeatureSource source;
+    private final String cacheKey;
+    private final TileCache cache;
+    private final ExecutorService executor;
+    private final Set<TileCache.Key> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean repaintScheduled = new AtomicBoolean();
+    private final FeatureListener dataListener = event -> invalidate();
+    private volatile Style style;
+    private volatile CoordinateReferenceSystem crs;
+    private volatile String layerKey;
+    private volatile int currentZoom;
+
+    /**
+     * @param source 要素源
+     * @param style 样式
+     * @param cacheKey 标识数据内容的名称，用作磁盘缓存的目录名，数据文件改变后应当不同（例如包含文件修改时间）
+     * @param cache 瓦片缓存，可以由多个图层共享
+     * @param threads 渲染线程数
+     */
+    public TiledFeatureLayer(SimpleFeatureSource source, Style style, String cacheKey, TileCache cache, int threads) {
+        this.source = source;
+        this.style = style;
+        this.cacheKey = sanitize(cacheKey);
+        this.cache = cache;
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "tile-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        updateLayerKey();
+        source.addFeatureListener(dataListener);
+        setTitle(source.getName().getLocalPart());
+    }
+
+    /**
+     * @Author agent
+     * @Description //启用了瓦片渲染（-Dtutorial.tiles=true）时返回TiledFeatureLayer，否则返回普通的FeatureLayer
+     * @Date 上午 3:44 2026/10/17 0017
+     * @param source 要素源
+     * @param style 样式
+     * @param file 数据文件，用于生成缓存名称
+     * @return org.geotools.map.Layer
+     */
+    public static Layer create(SimpleFeatureSource source, Style style, File file) {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return new FeatureLayer(source, style);
+        }
+        TiledFeatureLayer layer = new TiledFeatureLayer(source, style,
+                file.getName() + "-" + Long.toHexString(file.lastModified()),
+                getDefaultCache(), Runtime.getRuntime().availableProcessors());
+        //同一个文件、其他修改时间的目录：名称-修改时间-样式和坐标系的哈希
+        String prefix = sanitize(file.getName()) + "-";
+        layer.cache.invalidate(name -> name.startsWith(prefix) && !name.startsWith(layer.cacheKey + "-")
+                && name.substring(prefix.length()).matches("[0-9a-f]+-[0-9a-f]+"));
+        return layer;
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    private static synchronized TileCache getDefaultCache() {
+        if (defaultCache == null) {
+            String dir = System.getProperty("tutorial.tiles.dir");
+            defaultCache = new TileCache(Long.getLong("tutorial.tiles.maxBytes", 64L << 20),
+                    dir == null ? null : new File(dir));
+        }
+        return defaultCache;
+    }
+
+    public Style getStyle() {
+        return style;
+    }
+
+    /**
+     * 更换样式，已经渲染的瓦片全部作废
+     */
+    public void setStyle(Style style) {
+        //旧样式的瓦片按旧的键作废，新键下还没有瓦片
+        String oldKey = layerKey;
+        this.style = style;
+        updateLayerKey();
+        cache.invalidate(oldKey);
+        scheduleRepaint();
+    }
+
+    /**
+     * 数据改变后调用；数据源发出修改事件时会自动调用
+     */
+    public void invalidate() {
+        cache.invalidate(layerKey);
+        scheduleRepaint();
+    }
+
+    private void updateLayerKey() {
+        String wkt = crs == null ? null : crs.toWKT();
+        layerKey = cacheKey + "-" + Integer.toHexString(Objects.hash(wkt, style));
+    }
+
+    @Override
+    public void draw(Graphics2D graphics, MapContent map, MapViewport viewport) {
+        ReferencedEnvelope world = viewport.getBounds();
+        Rectangle screen = viewport.getScreenArea();
+        if (world == null || world.isEmpty() || screen == null || screen.isEmpty()) {
+            return;
+        }
+        CoordinateReferenceSystem viewCrs = world.getCoordinateReferenceSystem();
+        if (crs == null ? viewCrs != null : !CRS.equalsIgnoreMetadata(crs, viewCrs)) {
+            //旧坐标系的瓦片不会再用到，连同磁盘目录一起删除
+            String oldKey = layerKey;
+            crs = viewCrs;
+            updateLayerKey();
+            if (!oldKey.equals(layerKey)) {
+                cache.invalidate(oldKey);
+            }
+        }
+
+        //选不比当前分辨率粗的那一级，绘制时最多缩小一半
+        double resolution = world.getWidth() / screen.getWidth();
+        int z = (int) Math.floor(Math.log(resolution) / Math.log(2));
+        currentZoom = z;
+        double tileWorld = TILE_SIZE * Math.pow(2, z);
+        long minX = (long) Math.floor(world.getMinX() / tileWorld);
+        long maxX = (long) Math.floor(world.getMaxX() / tileWorld);
+        long minY = (long) Math.floor(world.getMinY() / tileWorld);
+        long maxY = (long) Math.floor(world.getMaxY() / tileWorld);
+
+        String layer = layerKey;
+        List<TileCache.Key> ready = new ArrayList<>();
+        List<BufferedImage> images = new ArrayList<>();
+        List<TileCache.Key> missing = new ArrayList<>();
+        for (long y = minY; y <= maxY; y++) {
+            for (long x = minX; x <= maxX; x++) {
+                TileCache.Key key = new TileCache.Key(layer, z, x, y);
+                BufferedImage image = cache.get(key);
+                if (image != null) {
+                    ready.add(key);
+                    images.add(image);
+                } else {
+                    missing.add(key);
+                    request(key);
+                }
+            }
+        }
+
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        AffineTransform worldToScreen = viewport.getWorldToScreen();
+        for (TileCache.Key key : missing) {
+            drawFallback(graphics, worldToScreen, key);
+        }
+        for (int i = 0; i < ready.size(); i++) {
+            drawTile(graphics, worldToScreen, ready.get(i), images.get(i));
+        }
+    }
+
+    private void drawFallback(Graphics2D graphics, AffineTransform worldToScreen, TileCache.Key key) {
+        TileCache.Key parent = key;
+        for (int i = 0; i < MAX_FALLBACK_LEVELS; i++) {
+            parent = parent.parent();
+            BufferedImage image = cache.get(parent);
+            if (image != null) {
+                drawTile(graphics, worldToScreen, parent, image);
+                return;
+            }
+        }
+    }
+
+    private static void drawTile(Graphics2D graphics, AffineTransform worldToScreen, TileCache.Key key,
+                                 BufferedImage image) {
+        ReferencedEnvelope envelope = envelope(key, null, 0);
+        Point2D upperLeft = worldToScreen.transform(new Point2D.Double(envelope.getMinX(), envelope.getMaxY()), null);
+        Point2D lowerRight = worldToScreen.transform(new Point2D.Double(envelope.getMaxX(), envelope.getMinY()), null);
+        int x0 = (int) Math.round(upperLeft.getX());
+        int y0 = (int) Math.round(upperLeft.getY());
+        int x1 = (int) Math.round(lowerRight.getX());
+        int y1 = (int) Math.round(lowerRight.getY());
+        graphics.drawImage(image, x0, y0, x1 - x0, y1 - y0, null);
+    }
+
+    /**
+     * 瓦片的地理范围，向外扩展buffer个像素
+     */
+    private static ReferencedEnvelope envelope(TileCache.Key key, CoordinateReferenceSystem crs, int buffer) {
+        double resolution = Math.pow(2, key.z);
+        double size = TILE_SIZE * resolution;
+        double margin = buffer * resolution;
+        return new ReferencedEnvelope(key.x * size - margin, (key.x + 1) * size + margin,
+                key.y * size - margin, (key.y + 1) * size + margin, crs);
+    }
+
+    private void request(final TileCache.Key key) {
+        if (!pending.add(key)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                //已经缩放到别的级别或者坐标系、样式变了，这个瓦片不再需要
+                if (key.z != currentZoom || !key.layer.equals(layerKey)) {
+                    return;
+                }
+                if (cache.load(key) == null) {
+                    long expected = cache.getGeneration(key.layer);
+                    BufferedImage image = render(key);
+                    if (!cache.put(key, image, expected)) {
+                        return;    //渲染期间数据改变了
+                    }
+                }
+                scheduleRepaint();
+            } catch (RuntimeException e) {
+                //渲染失败的瓦片保持空白，下次绘制时会重试
+                LOGGER.log(Level.WARNING, "Could not render tile " + key, e);
+            } finally {
+                pending.remove(key);
+            }
+        });
+    }
+
+    private BufferedImage render(TileCache.Key key) {
+        int size = TILE_SIZE + 2 * BUFFER;
+        BufferedImage buffered = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = buffered.createGraphics();
+        MapContent content = new MapContent();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            content.getViewport().setCoordinateReferenceSystem(crs);
+            content.addLayer(new FeatureLayer(source, style));
+            StreamingRenderer renderer = new StreamingRenderer();
+            renderer.setMapContent(content);
+            renderer.paint(g, new Rectangle(size, size), envelope(key, crs, BUFFER));
+        } finally {
+            content.dispose();
+            g.dispose();
+        }
+
+        BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D tg = tile.createGraphics();
+        tg.drawImage(buffered, -BUFFER, -BUFFER, null);
+        tg.dispose();
+        return tile;
+    }
+
+    /**
+     * 渲染完成的瓦片可能很多，合并成一次重绘
+     */
+    private void scheduleRepaint() {
+        if (repaintScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                repaintScheduled.set(false);
+                fireMapLayerListenerLayerChanged(MapLayerEvent.STYLE_CHANGED);
+            });
+        }
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds() {
+        try {
+            return source.getBounds();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public TileCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void dispose() {
+        source.removeFeatureListener(dataListener);
+        executor.shutdownNow();
+        super.dispose();
+    }
+}
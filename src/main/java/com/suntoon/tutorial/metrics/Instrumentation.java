@@ -0,0 +1,152 @@
+package com.suntoon.tutorial.metrics;
+
+import org.geotools.data.DataStore;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName Instrumentation
+ * @Description 数据访问的统计入口：启动时加 -Dtutorial.metrics=true 后，wrap返回的DataStore、SimpleFeatureSource和FeatureWriter
+ *              会把每次查询、遍历、写入的耗时、要素数、估算字节数和内存分配记录到MetricsRegistry，并通过JMX公开；
+ *              几何校验、坐标转换、CQL编译和NioShapefileWriter的写入也会记录。示例程序通过DataStores打开数据存储，
+ *              只在那里调用wrap，所以各个示例程序不用修改。没有启用时wrap原样返回参数，record不做任何事。
+ *              进程退出时把统计报告打印到标准错误
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:52
+ * @Version 1.0
+ */
+public final class Instrumentation {
+    public static final String ENABLED_PROPERTY = "tutorial.metrics";
+
+    private static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                    System.err.print(MetricsRegistry.getInstance().report()), "metrics-report"));
+        }
+    }
+
+    private Instrumentation() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 启用了统计时返回记录统计的DataStore，否则原样返回store
+     */
+    public static DataStore wrap(DataStore store) {
+        if (!ENABLED || store == null || store instanceof InstrumentedDataStore) {
+            return store;
+        }
+        return new InstrumentedDataStore(store, MetricsRegistry.getInstance());
+    }
+
+    /**
+     * 和wrap(DataStore)一样，但返回的仍然是FileDataStore
+     */
+    public static FileDataStore wrap(FileDataStore store) {
+        if (!ENABLED || store == null || store instanceof InstrumentedDataStore) {
+            return store;
+        }
+        return new InstrumentedFileDataStore(store, MetricsRegistry.getInstance());
+    }
+
+    /**
+     * 去掉wrap加上的统计包装，返回实际的数据存储；没有包装时原样返回
+     */
+    public static DataStore unwrap(DataStore store) {
+        return store instanceof InstrumentedDataStore ? ((InstrumentedDataStore) store).getDelegate() : store;
+    }
+
+    /**
+     * 启用了统计时返回记录统计的要素源；source是SimpleFeatureStore时返回的也是SimpleFeatureStore
+     */
+    public static SimpleFeatureSource wrap(SimpleFeatureSource source) {
+        if (!ENABLED || source == null || source instanceof InstrumentedFeatureSource) {
+            return source;
+        }
+        return instrument(source, MetricsRegistry.getInstance());
+    }
+
+    static SimpleFeatureSource instrument(SimpleFeatureSource source, MetricsRegistry registry) {
+        if (source instanceof SimpleFeatureStore) {
+            return new InstrumentedFeatureStore((SimpleFeatureStore) source, registry);
+        }
+        return new InstrumentedFeatureSource(source, registry);
+    }
+
+    /**
+     * 启用了统计时返回记录每次write/remove的FeatureWriter，否则原样返回writer
+     */
+    public static FeatureWriter<SimpleFeatureType, SimpleFeature> wrap(
+            FeatureWriter<SimpleFeatureType, SimpleFeature> writer) {
+        if (!ENABLED || writer == null || writer instanceof InstrumentedFeatureWriter) {
+            return writer;
+        }
+        return new InstrumentedFeatureWriter(writer, MetricsRegistry.getInstance());
+    }
+
+    /**
+     * 开始计时，返回值传给record；没有启用时返回0，避免调用System.nanoTime()
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @Author agent
+     * @Description //记录一次不属于某个图层的操作，例如geometry.isValid、geometry.transform
+     * @Date 上午 3:52 2026/10/17 0017
+     * @param operation 操作名
+     * @param start start()的返回值
+     * @param features 处理的要素数
+     */
+    public static void record(String operation, long start, long features) {
+        if (ENABLED) {
+            MetricsRegistry.getInstance().get(operation).record(System.nanoTime() - start, features, 0, -1);
+        }
+    }
+
+    /**
+     * 同上，同时记录估算的字节数
+     */
+    public static void record(String operation, long start, long features, long bytes) {
+        if (ENABLED) {
+            MetricsRegistry.getInstance().get(operation).record(System.nanoTime() - start, features, bytes, -1);
+        }
+    }
+
+    public static void recordError(String operation) {
+        if (ENABLED) {
+            MetricsRegistry.getInstance().get(operation).recordError();
+        }
+    }
+
+    /**
+     * 要素的估算大小：几何按每个坐标16字节，数值8字节，字符串按长度，与shapefile记录的大小相当。
+     * 按下标取属性，getAttributes()每次都会复制一个列表
+     */
+    public static long estimateBytes(SimpleFeature feature) {
+        long bytes = 0;
+        for (int i = 0, n = feature.getAttributeCount(); i < n; i++) {
+            Object value = feature.getAttribute(i);
+            if (value instanceof Geometry) {
+                bytes += 8 + 16L * ((Geometry) value).getNumPoints();
+            } else if (value instanceof CharSequence) {
+                bytes += ((CharSequence) value).length();
+            } else if (value != null) {
+                bytes += 8;
+            }
+        }
+        return bytes;
+    }
+}
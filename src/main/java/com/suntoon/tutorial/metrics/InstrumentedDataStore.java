@@ -0,0 +1,182 @@
+package com.suntoon.tutorial.metrics;
+
+import org.geotools.data.DataStore;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.LockingManager;
+import org.geotools.data.Query;
+import org.geotools.data.ServiceInfo;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName InstrumentedDataStore
+ * @Description 记录统计的DataStore：返回的要素源、FeatureWriter都带统计，getFeatureReader的遍历
+ *              与要素源的遍历一样按“图层名.read”记录，其他方法直接转发
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:52
+ * @Version 1.0
+ */
+class InstrumentedDataStore implements DataStore {
+    private final DataStore delegate;
+    private final MetricsRegistry registry;
+
+    InstrumentedDataStore(DataStore delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    public DataStore getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public ServiceInfo getInfo() {
+        return delegate.getInfo();
+    }
+
+    @Override
+    public void createSchema(SimpleFeatureType featureType) throws IOException {
+        delegate.createSchema(featureType);
+    }
+
+    @Override
+    public void updateSchema(Name typeName, SimpleFeatureType featureType) throws IOException {
+        delegate.updateSchema(typeName, featureType);
+    }
+
+    @Override
+    public void removeSchema(Name typeName) throws IOException {
+        delegate.removeSchema(typeName);
+    }
+
+    @Override
+    public List<Name> getNames() throws IOException {
+        return delegate.getNames();
+    }
+
+    @Override
+    public SimpleFeatureType getSchema(Name name) throws IOException {
+        return delegate.getSchema(name);
+    }
+
+    @Override
+    public void updateSchema(String typeName, SimpleFeatureType featureType) throws IOException {
+        delegate.updateSchema(typeName, featureType);
+    }
+
+    @Override
+    public void removeSchema(String typeName) throws IOException {
+        delegate.removeSchema(typeName);
+    }
+
+    @Override
+    public String[] getTypeNames() throws IOException {
+        return delegate.getTypeNames();
+    }
+
+    @Override
+    public SimpleFeatureType getSchema(String typeName) throws IOException {
+        return delegate.getSchema(typeName);
+    }
+
+    @Override
+    public SimpleFeatureSource getFeatureSource(String typeName) throws IOException {
+        return Instrumentation.instrument(delegate.getFeatureSource(typeName), registry);
+    }
+
+    @Override
+    public SimpleFeatureSource getFeatureSource(Name typeName) throws IOException {
+        return Instrumentation.instrument(delegate.getFeatureSource(typeName), registry);
+    }
+
+    @Override
+    public FeatureReader<SimpleFeatureType, SimpleFeature> getFeatureReader(Query query, Transaction transaction)
+            throws IOException {
+        OperationMetrics read = registry.get(query.getTypeName() + ".read");
+        return new InstrumentedFeatureReader(delegate.getFeatureReader(query, transaction), read);
+    }
+
+    @Override
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriter(String typeName, Filter filter,
+                                                                            Transaction transaction)
+            throws IOException {
+        return new InstrumentedFeatureWriter(delegate.getFeatureWriter(typeName, filter, transaction), registry);
+    }
+
+    @Override
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriter(String typeName,
+                                                                            Transaction transaction)
+            throws IOException {
+        return new InstrumentedFeatureWriter(delegate.getFeatureWriter(typeName, transaction), registry);
+    }
+
+    @Override
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriterAppend(String typeName,
+                                                                                  Transaction transaction)
+            throws IOException {
+        return new InstrumentedFeatureWriter(delegate.getFeatureWriterAppend(typeName, transaction), registry);
+    }
+
+    @Override
+    public LockingManager getLockingManager() {
+        return delegate.getLockingManager();
+    }
+
+    @Override
+    public void dispose() {
+        delegate.dispose();
+    }
+
+    /**
+     * 从打开到关闭算一次读取
+     */
+    private static final class InstrumentedFeatureReader implements FeatureReader<SimpleFeatureType, SimpleFeature> {
+        private final FeatureReader<SimpleFeatureType, SimpleFeature> delegate;
+        private final OperationMetrics metrics;
+        private final long start = System.nanoTime();
+        private long features;
+        private long bytes;
+
+        InstrumentedFeatureReader(FeatureReader<SimpleFeatureType, SimpleFeature> delegate,
+                                  OperationMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public SimpleFeatureType getFeatureType() {
+            return delegate.getFeatureType();
+        }
+
+        @Override
+        public SimpleFeature next() throws IOException {
+            SimpleFeature feature = delegate.next();
+            features++;
+            bytes += Instrumentation.estimateBytes(feature);
+            return feature;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                delegate.close();
+            } finally {
+                metrics.record(System.nanoTime() - start, features, bytes, -1);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.suntoon.tutorial.metrics;
+
+import com.suntoon.tutorial.data.ForwardingFeatureSource;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+
+import java.io.IOException;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName InstrumentedFeatureSource
+ * @Description 记录统计的要素源：getFeatures/getCount/getBounds的耗时，以及每次遍历结果（从打开到关闭迭代器）的
+ *              耗时、要素数、估算字节数和分配的内存，操作名为“图层名.操作”
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:52
+ * @Version 1.0
+ */
+class InstrumentedFeatureSource extends ForwardingFeatureSource {
+    protected final MetricsRegistry registry;
+    protected final String prefix;
+
+    InstrumentedFeatureSource(SimpleFeatureSource delegate, MetricsRegistry registry) {
+        super(delegate);
+        this.registry = registry;
+        this.prefix = delegate.getSchema().getTypeName() + ".";
+    }
+
+    protected OperationMetrics metrics(String operation) {
+        return registry.get(prefix + operation);
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures(Query query) throws IOException {
+        OperationMetrics metrics = metrics("getFeatures");
+        long start = System.nanoTime();
+        try {
+            SimpleFeatureCollection features = delegate.getFeatures(query);
+            metrics.record(System.nanoTime() - start, 0, 0, -1);
+            return new InstrumentedCollection(features, metrics("read"));
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getCount(Query query) throws IOException {
+        OperationMetrics metrics = metrics("getCount");
+        long start = System.nanoTime();
+        try {
+            int count = delegate.getCount(query);
+            metrics.record(System.nanoTime() - start, 0, 0, -1);
+            return count;
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        }
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds() throws IOException {
+        return getBounds(Query.ALL);
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds(Query query) throws IOException {
+        OperationMetrics metrics = metrics("getBounds");
+        long start = System.nanoTime();
+        try {
+            ReferencedEnvelope bounds = query == Query.ALL ? delegate.getBounds() : delegate.getBounds(query);
+            metrics.record(System.nanoTime() - start, 0, 0, -1);
+            return bounds;
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        }
+    }
+
+    /**
+     * 遍历时记录统计的要素集合；size()等其他方法直接转发
+     */
+    static final class InstrumentedCollection extends DecoratingSimpleFeatureCollection {
+        private final OperationMetrics metrics;
+
+        InstrumentedCollection(SimpleFeatureCollection delegate, OperationMetrics metrics) {
+            super(delegate);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public SimpleFeatureIterator features() {
+            return new InstrumentedIterator(delegate.features(), metrics);
+        }
+    }
+
+    /**
+     * 从创建到close()算一次操作；分配量只在同一个线程上打开和关闭时才记录
+     */
+    static final class InstrumentedIterator implements SimpleFeatureIterator {
+        private final SimpleFeatureIterator delegate;
+        private final OperationMetrics metrics;
+        private final long start = System.nanoTime();
+        private final Thread thread = Thread.currentThread();
+        private final long allocatedAtStart = MetricsRegistry.threadAllocatedBytes();
+        private long features;
+        private long bytes;
+        private boolean closed;
+
+        InstrumentedIterator(SimpleFeatureIterator delegate, OperationMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public SimpleFeature next() {
+            SimpleFeature feature = delegate.next();
+            features++;
+            bytes += Instrumentation.estimateBytes(feature);
+            return feature;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                delegate.close();
+            } finally {
+                long allocated = -1;
+                if (allocatedAtStart >= 0 && thread == Thread.currentThread()) {
+                    allocated = MetricsRegistry.threadAllocatedBytes() - allocatedAtStart;
+                }
+                metrics.record(System.nanoTime() - start, features, bytes, allocated);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.suntoon.tutorial.metrics;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.feature.FeatureCollection;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+import org.opengis.filter.identity.FeatureId;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName InstrumentedFeatureStore
+ * @Description 可写要素源的统计包装：在InstrumentedFeatureSource的基础上记录addFeatures、removeFeatures、
+ *              modifyFeatures和setFeatures的耗时，addFeatures同时记录写入的要素数和分配的内存
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:52
+ * @Version 1.0
+ */
+class InstrumentedFeatureStore extends InstrumentedFeatureSource implements SimpleFeatureStore {
+    private final SimpleFeatureStore store;
+
+    InstrumentedFeatureStore(SimpleFeatureStore delegate, MetricsRegistry registry) {
+        super(delegate, registry);
+        this.store = delegate;
+    }
+
+    @Override
+    public List<FeatureId> addFeatures(FeatureCollection<SimpleFeatureType, SimpleFeature> featureCollection)
+            throws IOException {
+        OperationMetrics metrics = metrics("addFeatures");
+        long start = System.nanoTime();
+        long allocatedAtStart = MetricsRegistry.threadAllocatedBytes();
+        try {
+            List<FeatureId> ids = store.addFeatures(featureCollection);
+            long allocated = allocatedAtStart < 0 ? -1 : MetricsRegistry.threadAllocatedBytes() - allocatedAtStart;
+            metrics.record(System.nanoTime() - start, ids.size(), 0, allocated);
+            return ids;
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        }
+    }
+
+    @Override
+    public void removeFeatures(Filter filter) throws IOException {
+        OperationMetrics metrics = metrics("removeFeatures");
+        long start = System.nanoTime();
+        try {
+            store.removeFeatures(filter);
+            metrics.record(System.nanoTime() - start, 0, 0, -1);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        }
+    }
+
+    @Override
+    public void modifyFeatures(Name[] attributeNames, Object[] attributeValues, Filter filter) throws IOException {
+        OperationMetrics metrics = metrics("modifyFeatures");
+        long start = System.nanoTime();
+        try {
+            store.modifyFeatures(attributeNames, attributeValues, filter);
+            metrics.record(System.nanoTime() - start, 0, 0, -1);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        }
+    }
+
+    @Override
+    public void modifyFeatures(Name attributeName, Object attributeValue, Filter filter) throws IOException {
+        modifyFeatures(new Name[]{attributeName}, new Object[]{attributeValue}, filter);
+    }
+
+    @Override
+    public void modifyFeatures(String name, Object attributeValue, Filter filter) throws IOException {
+        modifyFeatures(new String[]{name}, new Object[]{attributeValue}, filter);
+    }
+
+    @Override
+    public void modifyFeatures(String[] names, Object[] attributeValues, Filter filter) throws IOException {
+        OperationMetrics metrics = metrics("modifyFeatures");
+        long start = System.nanoTime();
+        try {
+            store.modifyFeatures(names, attributeValues, filter);
+            metrics.record(System.nanoTime() - start, 0, 0, -1);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        }
+    }
+
+    @Override
+    public void setFeatures(FeatureReader<SimpleFeatureType, SimpleFeature> reader) throws IOException {
+        OperationMetrics metrics = metrics("setFeatures");
+        long start = System.nanoTime();
+        try {
+            store.setFeatures(reader);
+            metrics.record(System.nanoTime() - start, 0, 0, -1);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        }
+    }
+
+    @Override
+    public void setTransaction(Transaction transaction) {
+        store.setTransaction(transaction);
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return store.getTransaction();
+    }
+}
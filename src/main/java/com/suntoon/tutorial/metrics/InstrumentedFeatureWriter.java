@@ -0,0 +1,84 @@
+package com.suntoon.tutorial.metrics;
+
+import org.geotools.data.FeatureWriter;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.io.IOException;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName InstrumentedFeatureWriter
+ * @Description 记录统计的FeatureWriter：每次write()和remove()单独计时并累计要素数和估算字节数；
+ *              close()单独记录，shapefile在这时才把临时文件替换为正式文件
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:52
+ * @Version 1.0
+ */
+class InstrumentedFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleFeature> {
+    private final FeatureWriter<SimpleFeatureType, SimpleFeature> delegate;
+    private final OperationMetrics write;
+    private final OperationMetrics remove;
+    private final OperationMetrics close;
+    private SimpleFeature current;
+
+    InstrumentedFeatureWriter(FeatureWriter<SimpleFeatureType, SimpleFeature> delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        String prefix = delegate.getFeatureType().getTypeName() + ".";
+        this.write = registry.get(prefix + "write");
+        this.remove = registry.get(prefix + "remove");
+        this.close = registry.get(prefix + "writer.close");
+    }
+
+    @Override
+    public SimpleFeatureType getFeatureType() {
+        return delegate.getFeatureType();
+    }
+
+    @Override
+    public SimpleFeature next() throws IOException {
+        current = delegate.next();
+        return current;
+    }
+
+    @Override
+    public void remove() throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.remove();
+            remove.record(System.nanoTime() - start, 1, 0, -1);
+        } catch (IOException | RuntimeException e) {
+            remove.recordError();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write() throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.write();
+            write.record(System.nanoTime() - start, 1, current == null ? 0 : Instrumentation.estimateBytes(current), -1);
+        } catch (IOException | RuntimeException e) {
+            write.recordError();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return delegate.hasNext();
+    }
+
+    @Override
+    public void close() throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.close();
+            close.record(System.nanoTime() - start, 0, 0, -1);
+        } catch (IOException | RuntimeException e) {
+            close.recordError();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.suntoon.tutorial.metrics;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+import java.io.IOException;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName InstrumentedFileDataStore
+ * @Description 记录统计的FileDataStore：单图层的便捷方法转到InstrumentedDataStore中带图层名的方法，
+ *              因此shapefile等文件数据存储包装后仍然可以当作FileDataStore使用
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:57
+ * @Version 1.0
+ */
+class InstrumentedFileDataStore extends InstrumentedDataStore implements FileDataStore {
+    private final FileDataStore file;
+
+    InstrumentedFileDataStore(FileDataStore delegate, MetricsRegistry registry) {
+        super(delegate, registry);
+        this.file = delegate;
+    }
+
+    private String typeName() throws IOException {
+        return file.getSchema().getTypeName();
+    }
+
+    @Override
+    public SimpleFeatureType getSchema() throws IOException {
+        return file.getSchema();
+    }
+
+    @Override
+    public void updateSchema(SimpleFeatureType featureType) throws IOException {
+        file.updateSchema(featureType);
+    }
+
+    @Override
+    public SimpleFeatureSource getFeatureSource() throws IOException {
+        return getFeatureSource(typeName());
+    }
+
+    @Override
+    public FeatureReader<SimpleFeatureType, SimpleFeature> getFeatureReader() throws IOException {
+        return getFeatureReader(new Query(typeName()), Transaction.AUTO_COMMIT);
+    }
+
+    @Override
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriter(Filter filter, Transaction transaction)
+            throws IOException {
+        return getFeatureWriter(typeName(), filter, transaction);
+    }
+
+    @Override
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriter(Transaction transaction)
+            throws IOException {
+        return getFeatureWriter(typeName(), transaction);
+    }
+
+    @Override
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriterAppend(Transaction transaction)
+            throws IOException {
+        return getFeatureWriterAppend(typeName(), transaction);
+    }
+}
@@ -0,0 +1,124 @@
+package com.suntoon.tutorial.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName MetricsRegistry
+ * @Description 进程内的操作统计登记处：按操作名保存OperationMetrics，第一次用到某个操作时同时注册到JMX；
+ *              查询只是一次ConcurrentHashMap读取，记录只是几次原子加法
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:52
+ * @Version 1.0
+ */
+public class MetricsRegistry {
+    public static final String JMX_DOMAIN = "com.suntoon.tutorial";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry(true);
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final boolean registerJmx;
+
+    /**
+     * @param registerJmx 是否把每种操作注册为MBean；测试或临时使用的登记处可以不注册
+     */
+    public MetricsRegistry(boolean registerJmx) {
+        this.registerJmx = registerJmx;
+    }
+
+    /**
+     * 进程内共享的登记处，Instrumentation包装的数据源都记录在这里
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public OperationMetrics get(String name) {
+        OperationMetrics metrics = operations.get(name);
+        if (metrics == null) {
+            metrics = operations.computeIfAbsent(name, OperationMetrics::new);
+            if (registerJmx) {
+                register(metrics);
+            }
+        }
+        return metrics;
+    }
+
+    private static synchronized void register(OperationMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Metrics,name="
+                    + ObjectName.quote(metrics.getName()));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metrics, objectName);
+            }
+        } catch (JMException | SecurityException e) {
+            //JMX只是查看统计的一种途径，注册失败时仍然可以通过snapshot()查看
+        }
+    }
+
+    /**
+     * 按名称排序的所有操作统计
+     */
+    public List<OperationMetrics> snapshot() {
+        return new ArrayList<>(new TreeMap<>(operations).values());
+    }
+
+    public void reset() {
+        for (OperationMetrics metrics : operations.values()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * 每种操作一行的文本报告
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (OperationMetrics metrics : snapshot()) {
+            report.append(metrics).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    /**
+     * 当前线程到目前为止分配的字节数，JVM不支持时返回-1
+     */
+    public static long threadAllocatedBytes() {
+        return Allocation.threadAllocatedBytes();
+    }
+
+    /**
+     * 延迟初始化的分配量读取，只有HotSpot的com.sun.management.ThreadMXBean支持
+     */
+    private static final class Allocation {
+        private static final com.sun.management.ThreadMXBean BEAN = init();
+
+        private static com.sun.management.ThreadMXBean init() {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+                if (hotspot.isThreadAllocatedMemorySupported()) {
+                    if (!hotspot.isThreadAllocatedMemoryEnabled()) {
+                        hotspot.setThreadAllocatedMemoryEnabled(true);
+                    }
+                    return hotspot;
+                }
+            }
+            return null;
+        }
+
+        static long threadAllocatedBytes() {
+            return BEAN == null ? -1 : BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
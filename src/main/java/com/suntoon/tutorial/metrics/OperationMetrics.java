@@ -0,0 +1,146 @@
+package com.suntoon.tutorial.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName OperationMetrics
+ * @Description 一种操作（例如某个图层的读取、写入、几何校验）的统计：延迟直方图、要素数、估算的字节数、
+ *              分配的内存和失败次数；所有计数都可以并发更新
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:52
+ * @Version 1.0
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder features = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    /** 记录了分配量的那些操作的总耗时，用于计算分配速率 */
+    private final LongAdder allocationNanos = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @Author agent
+     * @Description //记录一次操作
+     * @Date 上午 3:52 2026/10/17 0017
+     * @param nanos 耗时
+     * @param featureCount 处理的要素数
+     * @param byteCount 读写的字节数（估算）
+     * @param allocated 操作期间当前线程分配的字节数，未知时为负数
+     */
+    public void record(long nanos, long featureCount, long byteCount, long allocated) {
+        latency.record(nanos);
+        if (featureCount != 0) {
+            features.add(featureCount);
+        }
+        if (byteCount != 0) {
+            bytes.add(byteCount);
+        }
+        if (allocated >= 0) {
+            allocatedBytes.add(allocated);
+            allocationNanos.add(nanos);
+        }
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanNanos() / 1e6;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getPercentileNanos(50) / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getPercentileNanos(99) / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxNanos() / 1e6;
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return latency.getTotalNanos() / 1e6;
+    }
+
+    @Override
+    public long getFeatures() {
+        return features.sum();
+    }
+
+    @Override
+    public double getFeaturesPerSecond() {
+        long nanos = latency.getTotalNanos();
+        return nanos == 0 ? 0 : features.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public double getAllocationRateMBPerSecond() {
+        long nanos = allocationNanos.sum();
+        return nanos == 0 ? 0 : allocatedBytes.sum() / (1024.0 * 1024.0) * 1e9 / nanos;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        features.reset();
+        bytes.reset();
+        allocatedBytes.reset();
+        allocationNanos.reset();
+        errors.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%s: count=%d, errors=%d, mean=%.3fms, p50=%.3fms, p99=%.3fms, max=%.3fms, total=%.1fms, "
+                        + "features=%d (%.0f/s), bytes=%d, allocated=%d (%.1fMB/s)",
+                name, getCount(), getErrors(), getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis(),
+                getTotalMillis(), getFeatures(), getFeaturesPerSecond(), getBytes(), getAllocatedBytes(),
+                getAllocationRateMBPerSecond());
+    }
+}
@@ -0,0 +1,40 @@
+package com.suntoon.tutorial.metrics;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName OperationMetricsMBean
+ * @Description 一种操作的统计在JMX中的视图，注册在 com.suntoon.tutorial:type=Metrics,name=操作名 下，可以用jconsole查看
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:52
+ * @Version 1.0
+ */
+public interface OperationMetricsMBean {
+    String getName();
+
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    double getTotalMillis();
+
+    long getFeatures();
+
+    double getFeaturesPerSecond();
+
+    long getBytes();
+
+    long getAllocatedBytes();
+
+    /** 操作期间当前线程每秒分配的字节数（MB） */
+    double getAllocationRateMBPerSecond();
+
+    void reset();
+}
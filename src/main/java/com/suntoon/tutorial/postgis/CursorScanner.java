@@ -0,0 +1,133 @@
+package com.suntoon.tutorial.postgis;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName CursorScanner
+ * @Description 直接用JDBC流式扫描一张空间表：PreparedStatement只读、只进，关闭自动提交并设置fetchSize，
+ *              PostgreSQL驱动这时使用服务器端游标每次取fetchSize行，而不是把整个结果集读进客户端内存；
+ *              几何以二进制WKB（ST_AsBinary）传输，用WKBReader解析，不经过文本WKT。
+ *              几何列的SQL表达式可以替换，因此也能在把WKB存为二进制列的嵌入式数据库上测试
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:53
+ * @Version 1.0
+ */
+public class CursorScanner {
+    /** PostGIS中取二进制WKB的表达式，%s为几何列名 */
+    public static final String POSTGIS_GEOMETRY = "ST_AsBinary(%s)";
+    /** 几何列本身就是WKB二进制列时使用 */
+    public static final String RAW_GEOMETRY = "%s";
+
+    private final int fetchSize;
+    private final String geometryExpression;
+
+    public CursorScanner(int fetchSize) {
+        this(fetchSize, POSTGIS_GEOMETRY);
+    }
+
+    /**
+     * @param fetchSize 每次从服务器取的行数
+     * @param geometryExpression 几何列的SQL表达式，结果必须是WKB，%s为几何列名
+     */
+    public CursorScanner(int fetchSize, String geometryExpression) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize must be positive: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+        this.geometryExpression = geometryExpression;
+    }
+
+    /**
+     * 处理扫描到的一行
+     */
+    public interface RowHandler {
+        /**
+         * @param geometry 解析出的几何，数据库中为NULL时为null
+         * @param row 结果集，当前行的其他列从第2列开始，按columns的顺序排列
+         */
+        void row(Geometry geometry, ResultSet row) throws SQLException;
+    }
+
+    /**
+     * @Author agent
+     * @Description //生成扫描用的SELECT语句，第1列为几何，之后为columns
+     * @Date 上午 3:53 2026/10/17 0017
+     * @param table 表名（可以带模式名）
+     * @param geometryColumn 几何列名
+     * @param columns 其他要读取的列
+     * @param where WHERE子句（不含WHERE），可以用?占位，为null时扫描全表
+     * @return java.lang.String
+     */
+    public String selectSql(String table, String geometryColumn, String[] columns, String where) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        sql.append(String.format(geometryExpression, quote(geometryColumn)));
+        for (String column : columns) {
+            sql.append(", ").append(quote(column));
+        }
+        sql.append(" FROM ").append(table);
+        if (where != null && !where.trim().isEmpty()) {
+            sql.append(" WHERE ").append(where);
+        }
+        return sql.toString();
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * @Author agent
+     * @Description //流式扫描；扫描期间关闭连接的自动提交，结束后恢复，游标随只读事务回滚一起释放
+     * @Date 上午 3:53 2026/10/17 0017
+     * @param connection 数据库连接，调用者负责关闭
+     * @param sql selectSql生成的语句
+     * @param parameters 占位符的值
+     * @param handler 行处理
+     * @return long 扫描的行数
+     */
+    public long scan(Connection connection, String sql, Object[] parameters, RowHandler handler) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; parameters != null && i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            long rows = 0;
+            WKBReader reader = new WKBReader();
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    byte[] wkb = result.getBytes(1);
+                    Geometry geometry;
+                    try {
+                        geometry = wkb == null ? null : reader.read(wkb);
+                    } catch (ParseException e) {
+                        throw new SQLException("Invalid WKB in row " + (rows + 1), e);
+                    }
+                    handler.row(geometry, result);
+                    rows++;
+                }
+            }
+            return rows;
+        } finally {
+            try {
+                connection.rollback();    //只读扫描，没有需要提交的内容
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+}
@@ -0,0 +1,279 @@
+package com.suntoon.tutorial.postgis;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.geotools.data.DataStore;
+import org.geotools.data.DataStoreFinder;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.postgis.PostgisNGDataStoreFactory;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.JDBCDataStoreFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName PostgisAccess
+ * @Description 调整过的PostGIS访问：连接池的大小、借出时校验、空闲检测和淘汰，服务器端预编译语句，以及fetchSize；
+ *              stream()在只读事务中读取，使PostgreSQL驱动使用服务器端游标分批取数，而不是在AUTO_COMMIT下把整个结果集缓存在客户端；
+ *              HealthMonitor定期借出连接检查数据库是否可用并记录连接池状态。
+ *              各项设置可以用 -Dtutorial.postgis.maxConnections、minConnections、fetchSize、maxWaitSeconds、
+ *              preparedStatements 覆盖
+ * @Author agent
+ * @Date 2026/10/17 0017上午 3:53
+ * @Version 1.0
+ */
+public class PostgisAccess {
+    public static final int DEFAULT_FETCH_SIZE = 10000;
+
+    private PostgisAccess() {
+    }
+
+    /**
+     * @Author agent
+     * @Description //在连接参数（例如JDataStoreWizard的结果）上加上调整过的连接池和查询设置，返回新的参数表
+     * @Date 上午 3:53 2026/10/17 0017
+     * @param parameters 原始连接参数，包括host、port、database、user、passwd等
+     * @return java.util.Map<java.lang.String,java.lang.Object>
+     */
+    public static Map<String, Object> tune(Map<String, ?> parameters) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        Map<String, Object> tuned = new HashMap<>(parameters);
+        tuned.put(JDBCDataStoreFactory.DBTYPE.key, "postgis");
+        tuned.put(JDBCDataStoreFactory.MAXCONN.key, Integer.getInteger("tutorial.postgis.maxConnections",
+                Math.max(10, processors * 2)));
+        tuned.put(JDBCDataStoreFactory.MINCONN.key, Integer.getInteger("tutorial.postgis.minConnections", 2));
+        tuned.put(JDBCDataStoreFactory.MAXWAIT.key, Integer.getInteger("tutorial.postgis.maxWaitSeconds", 20));
+        tuned.put(JDBCDataStoreFactory.FETCHSIZE.key, Integer.getInteger("tutorial.postgis.fetchSize",
+                DEFAULT_FETCH_SIZE));
+        //借出时校验，空闲时每30秒检查一次，空闲超过5分钟的连接关闭
+        tuned.put(JDBCDataStoreFactory.VALIDATECONN.key, Boolean.TRUE);
+        tuned.put(JDBCDataStoreFactory.TEST_WHILE_IDLE.key, Boolean.TRUE);
+        tuned.put(JDBCDataStoreFactory.TIME_BETWEEN_EVICTOR_RUNS.key, 30);
+        tuned.put(JDBCDataStoreFactory.MIN_EVICTABLE_TIME.key, 300);
+        //服务器端预编译语句，每个连接缓存的语句数
+        boolean prepared = Boolean.parseBoolean(System.getProperty("tutorial.postgis.preparedStatements", "true"));
+        tuned.put(PostgisNGDataStoreFactory.PREPARED_STATEMENTS.key, prepared);
+        tuned.put(JDBCDataStoreFactory.MAX_OPEN_PREPARED_STATEMENTS.key, 100);
+        //范围查询只用索引的外包框判断，范围用统计信息估计，函数下推到数据库执行
+        tuned.put(PostgisNGDataStoreFactory.LOOSEBBOX.key, Boolean.TRUE);
+        tuned.put(PostgisNGDataStoreFactory.ESTIMATED_EXTENTS.key, Boolean.TRUE);
+        tuned.put(PostgisNGDataStoreFactory.ENCODE_FUNCTIONS.key, Boolean.TRUE);
+        return tuned;
+    }
+
+    /**
+     * 用调整过的参数打开PostGIS数据存储
+     */
+    public static JDBCDataStore open(Map<String, ?> parameters) throws IOException {
+        DataStore store = DataStoreFinder.getDataStore(tune(parameters));
+        if (!(store instanceof JDBCDataStore)) {
+            if (store != null) {
+                store.dispose();
+            }
+            throw new IOException("Could not connect to PostGIS - check parameters");
+        }
+        return (JDBCDataStore) store;
+    }
+
+    /**
+     * @Author agent
+     * @Description //在只读事务中流式读取查询结果，关闭自动提交后驱动按fetchSize分批从服务器端游标取数，内存占用与结果大小无关
+     * @Date 上午 3:53 2026/10/17 0017
+     * @param store 数据存储
+     * @param query 查询
+     * @param consumer 逐个处理要素，不要在返回后继续持有要素
+     * @return long 读取的要素数
+     */
+    public static long stream(JDBCDataStore store, Query query, Consumer<SimpleFeature> consumer) throws IOException {
+        Transaction transaction = new DefaultTransaction("stream");
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader = store.getFeatureReader(query, transaction)) {
+            long count = 0;
+            while (reader.hasNext()) {
+                consumer.accept(reader.next());
+                count++;
+            }
+            return count;
+        } finally {
+            try {
+                transaction.rollback();
+            } finally {
+                transaction.close();
+            }
+        }
+    }
+
+    /**
+     * @Author agent
+     * @Description //借出一个连接检查数据库是否可用
+     * @Date 上午 3:53 2026/10/17 0017
+     * @param store 数据存储
+     * @param timeoutSeconds 检查超时
+     * @return com.suntoon.tutorial.postgis.PostgisAccess.Health
+     */
+    public static Health checkHealth(JDBCDataStore store, int timeoutSeconds) {
+        DataSource dataSource = store.getDataSource();
+        long start = System.nanoTime();
+        boolean valid;
+        String error = null;
+        try (Connection connection = dataSource.getConnection()) {
+            valid = connection.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            valid = false;
+            error = e.getMessage();
+        }
+        long elapsed = System.nanoTime() - start;
+        int active = -1;
+        int idle = -1;
+        try {
+            if (dataSource.isWrapperFor(BasicDataSource.class)) {
+                BasicDataSource pool = dataSource.unwrap(BasicDataSource.class);
+                active = pool.getNumActive();
+                idle = pool.getNumIdle();
+            }
+        } catch (SQLException e) {
+            //不是DBCP连接池（例如JNDI数据源），不报告连接数
+        }
+        return new Health(valid, elapsed, active, idle, error);
+    }
+
+    /**
+     * 一次健康检查的结果
+     */
+    public static class Health {
+        private final boolean valid;
+        private final long elapsedNanos;
+        private final int activeConnections;
+        private final int idleConnections;
+        private final String error;
+
+        Health(boolean valid, long elapsedNanos, int activeConnections, int idleConnections, String error) {
+            this.valid = valid;
+            this.elapsedNanos = elapsedNanos;
+            this.activeConnections = activeConnections;
+            this.idleConnections = idleConnections;
+            this.error = error;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /** 借出中的连接数，未知时为-1 */
+        public int getActiveConnections() {
+            return activeConnections;
+        }
+
+        /** 池中空闲的连接数，未知时为-1 */
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s in %.1fms, active=%d, idle=%d%s", valid ? "healthy" : "UNHEALTHY",
+                    elapsedNanos / 1e6, activeConnections, idleConnections, error == null ? "" : ": " + error);
+        }
+    }
+
+    /**
+     * 定期执行健康检查，保存最近一次的结果
+     */
+    public static class HealthMonitor implements AutoCloseable {
+        private final ScheduledExecutorService scheduler;
+        private volatile Health last;
+
+        public HealthMonitor(final JDBCDataStore store, long periodSeconds) {
+            final AtomicInteger count = new AtomicInteger();
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "postgis-health-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> last = checkHealth(store, 5), 0, periodSeconds, TimeUnit.SECONDS);
+        }
+
+        /**
+         * 最近一次检查的结果，第一次检查完成前为null
+         */
+        public Health getLast() {
+            return last;
+        }
+
+        @Override
+        public void close() {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 命令行用法：PostgisAccess host port database schema user password table [fetchSize]
+     * 检查连接后分别用stream()和CursorScanner扫描整张表，打印每秒行数
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 7) {
+            System.err.println("Usage: PostgisAccess <host> <port> <database> <schema> <user> <password> <table>"
+                    + " [fetchSize]");
+            System.exit(1);
+        }
+        int fetchSize = args.length > 7 ? Integer.parseInt(args[7]) : DEFAULT_FETCH_SIZE;
+        System.setProperty("tutorial.postgis.fetchSize", String.valueOf(fetchSize));
+        Map<String, Object> params = new HashMap<>();
+        params.put(JDBCDataStoreFactory.HOST.key, args[0]);
+        params.put(JDBCDataStoreFactory.PORT.key, Integer.parseInt(args[1]));
+        params.put(JDBCDataStoreFactory.DATABASE.key, args[2]);
+        params.put(JDBCDataStoreFactory.SCHEMA.key, args[3]);
+        params.put(JDBCDataStoreFactory.USER.key, args[4]);
+        params.put(JDBCDataStoreFactory.PASSWD.key, args[5]);
+        String table = args[6];
+
+        JDBCDataStore store = open(params);
+        try {
+            System.out.println("Health: " + checkHealth(store, 5));
+
+            long start = System.nanoTime();
+            long rows = stream(store, new Query(table), feature -> { });
+            report("stream()", rows, System.nanoTime() - start);
+
+            SimpleFeatureType schema = store.getSchema(table);
+            String geometry = schema.getGeometryDescriptor().getLocalName();
+            CursorScanner scanner = new CursorScanner(fetchSize);
+            String sql = scanner.selectSql(args[3] + "." + table, geometry, new String[0], null);
+            start = System.nanoTime();
+            try (Connection connection = store.getDataSource().getConnection()) {
+                rows = scanner.scan(connection, sql, null, (g, row) -> { });
+            }
+            report("CursorScanner", rows, System.nanoTime() - start);
+        } finally {
+            store.dispose();
+        }
+    }
+
+    private static void report(String label, long rows, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.println(String.format("%s: %d rows in %.2fs (%.0f rows/sec)",
+                label, rows, seconds, rows / Math.max(seconds, 1e-9)));
+    }
+}
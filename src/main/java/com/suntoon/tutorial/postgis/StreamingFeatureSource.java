@@ -0,0 +1,217 @@
+package com.suntoon.tutorial.postgis;
+
+import com.suntoon.tutorial.data.ForwardingFeatureSource;
+import org.geotools.data.DataStore;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.FeatureSource;
+import org.geotools.data.FeatureStore;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.collection.AbstractFeatureCollection;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName StreamingFeatureSource
+ * @Description 每次读取都在自己的只读事务中进行的PostGIS要素源：关闭自动提交后驱动按fetchSize从服务器端游标分批取数，
+ *              迭代器关闭时回滚并关闭事务；计数也在只读事务中执行。与PostgisAccess.stream()的做法相同，
+ *              但返回的是普通的要素集合，可以交给分页表格和计数器使用
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:30
+ * @Version 1.0
+ */
+public class StreamingFeatureSource extends ForwardingFeatureSource {
+    private final DataStore store;
+    private final String typeName;
+
+    /**
+     * @param delegate store中的要素源
+     * @param store 打开读取器用的数据存储
+     */
+    public StreamingFeatureSource(SimpleFeatureSource delegate, DataStore store) {
+        super(delegate);
+        this.store = store;
+        this.typeName = delegate.getSchema().getTypeName();
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures(Query query) throws IOException {
+        Query typed = typed(query);
+        return new StreamingFeatureCollection(retype(typed), typed);
+    }
+
+    @Override
+    public int getCount(Query query) throws IOException {
+        //每次取一个新的要素源，事务只属于这一次计数
+        FeatureSource<SimpleFeatureType, SimpleFeature> source = store.getFeatureSource(typeName);
+        if (!(source instanceof FeatureStore)) {
+            return delegate.getCount(query);
+        }
+        Transaction transaction = new DefaultTransaction("count");
+        try {
+            ((FeatureStore<SimpleFeatureType, SimpleFeature>) source).setTransaction(transaction);
+            return source.getCount(typed(query));
+        } finally {
+            end(transaction);
+        }
+    }
+
+    private Query typed(Query query) {
+        Query typed = new Query(query);
+        typed.setTypeName(typeName);
+        return typed;
+    }
+
+    private SimpleFeatureType retype(Query query) throws IOException {
+        if (query.getPropertyNames() == null) {
+            return delegate.getSchema();
+        }
+        try {
+            return DataUtilities.createSubType(delegate.getSchema(), query.getPropertyNames());
+        } catch (SchemaException e) {
+            throw new IOException("Invalid property names in query", e);
+        }
+    }
+
+    private static void end(Transaction transaction) throws IOException {
+        try {
+            transaction.rollback();
+        } finally {
+            transaction.close();
+        }
+    }
+
+    private class StreamingFeatureCollection extends AbstractFeatureCollection {
+        private final Query query;
+        private int size = -1;
+
+        StreamingFeatureCollection(SimpleFeatureType schema, Query query) {
+            super(schema);
+            this.query = query;
+        }
+
+        @Override
+        protected Iterator<SimpleFeature> openIterator() {
+            try {
+                return new StreamingIterator(query);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public SimpleFeatureIterator features() {
+            return (StreamingIterator) openIterator();
+        }
+
+        @Override
+        public int size() {
+            if (size < 0) {
+                try {
+                    size = getCount(query);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (size < 0) {
+                    int count = 0;
+                    try (SimpleFeatureIterator it = features()) {
+                        for (; it.hasNext(); it.next()) {
+                            count++;
+                        }
+                    }
+                    size = count;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public ReferencedEnvelope getBounds() {
+            ReferencedEnvelope result = new ReferencedEnvelope(getSchema().getCoordinateReferenceSystem());
+            try (SimpleFeatureIterator it = features()) {
+                while (it.hasNext()) {
+                    result.include(it.next().getBounds());
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 持有只读事务的迭代器，读完或关闭时回滚并关闭事务，把连接还给连接池
+     */
+    private class StreamingIterator implements Iterator<SimpleFeature>, SimpleFeatureIterator {
+        private final Transaction transaction = new DefaultTransaction("read");
+        private final FeatureReader<SimpleFeatureType, SimpleFeature> reader;
+        private boolean closed;
+
+        StreamingIterator(Query query) throws IOException {
+            try {
+                reader = store.getFeatureReader(query, transaction);
+            } catch (IOException | RuntimeException e) {
+                end(transaction);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (reader.hasNext()) {
+                    return true;
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public SimpleFeature next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                return reader.next();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                try {
+                    reader.close();
+                } finally {
+                    end(transaction);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.suntoon.tutorial.quickstart;
 
+import com.suntoon.tutorial.data.DataStores;
+import com.suntoon.tutorial.data.LayerCache;
+import com.suntoon.tutorial.data.LevelOfDetailFeatureSource;
+import com.suntoon.tutorial.map.TiledFeatureLayer;
 import org.geotools.data.FileDataStore;
-import org.geotools.data.FileDataStoreFinder;
 import org.geotools.data.simple.SimpleFeatureSource;
-import org.geotools.map.FeatureLayer;
 import org.geotools.map.Layer;
 import org.geotools.map.MapContent;
 import org.geotools.styling.SLD;
@@ -30,15 +32,19 @@ public class Quickstart {
             return;
         }
 
-        FileDataStore store = FileDataStoreFinder.getDataStore(file);
-        SimpleFeatureSource featureSource = store.getFeatureSource();
+        FileDataStore store = DataStores.open(file);
+        //加 -Dtutorial.cache=true 启动时图层读入内存，平移缩放不再读磁盘
+        SimpleFeatureSource featureSource = LayerCache.wrap(file, store.getFeatureSource());
+        //加 -Dtutorial.lod=true 启动时按显示比例尺使用预先简化的几何
+        featureSource = LevelOfDetailFeatureSource.wrap(featureSource);
 
         //创建地图框并显示shp
         MapContent mapContent = new MapContent();
         mapContent.setTitle("地图");
 
         Style style = SLD.createSimpleStyle(featureSource.getSchema());
-        Layer layer = new FeatureLayer(featureSource, style);    //从磁盘直接读取数据
+        //加 -Dtutorial.tiles=true 启动时按瓦片渲染并缓存，否则每次重绘都直接读取数据
+        Layer layer = TiledFeatureLayer.create(featureSource, style, file);
         mapContent.addLayer(layer);
 
         //显示地图
@@ -0,0 +1,111 @@
+package com.suntoon.tutorial.shapefile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName BufferedChannel
+ * @Description 带大块直接缓冲区的顺序写文件通道：记录先写进缓冲区，满了才一次性写入FileChannel，
+ *              避免每条记录一次系统调用；文件头在关闭前用按位置的写入回填
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:00
+ * @Version 1.0
+ */
+class BufferedChannel implements WritableByteChannel {
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+    private long flushed;
+
+    BufferedChannel(Path path, int capacity) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * @Author agent
+     * @Description //保证缓冲区至少还能写入bytes个字节并返回它，调用者直接put；比缓冲区还大的记录会让缓冲区扩大
+     * @Date 上午 4:00 2026/10/17 0017
+     * @param bytes 接下来要写入的字节数
+     * @param order 字节序
+     * @return java.nio.ByteBuffer
+     */
+    ByteBuffer reserve(int bytes, ByteOrder order) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocateDirect(bytes);
+            }
+        }
+        return buffer.order(order);
+    }
+
+    /**
+     * 已写入的字节数，包括还在缓冲区中的部分
+     */
+    long position() {
+        return flushed + buffer.position();
+    }
+
+    @Override
+    public int write(ByteBuffer source) throws IOException {
+        int length = source.remaining();
+        if (length > buffer.capacity()) {
+            flush();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+            flushed += length;
+        } else {
+            reserve(length, buffer.order()).put(source);
+        }
+        return length;
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            flushed += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 把缓冲区写出后，在指定位置覆盖写入（用于回填文件头）
+     */
+    void writeAt(ByteBuffer source, long position) throws IOException {
+        flush();
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+
+    /**
+     * 用于需要WritableByteChannel回填文件头的场合，调用前先flush
+     */
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (channel.isOpen()) {
+                flush();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
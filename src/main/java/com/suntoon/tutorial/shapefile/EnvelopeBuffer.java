@@ -0,0 +1,88 @@
+package com.suntoon.tutorial.shapefile;
+
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName EnvelopeBuffer
+ * @Description 按记录号顺序保存每条记录的外包框，用float分块存储（每条16字节），
+ *              转换为float时向外取整，保证外包框只会变大不会漏掉查询结果
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:00
+ * @Version 1.0
+ */
+class EnvelopeBuffer {
+    private static final int CHUNK_RECORDS = 64 * 1024;
+
+    private final List<float[]> chunks = new ArrayList<>();
+    private int size;
+    private double minX = Double.POSITIVE_INFINITY;
+    private double minY = Double.POSITIVE_INFINITY;
+    private double maxX = Double.NEGATIVE_INFINITY;
+    private double maxY = Double.NEGATIVE_INFINITY;
+
+    void add(double x1, double y1, double x2, double y2) {
+        put(down(x1), down(y1), up(x2), up(y2));
+        minX = Math.min(minX, x1);
+        minY = Math.min(minY, y1);
+        maxX = Math.max(maxX, x2);
+        maxY = Math.max(maxY, y2);
+    }
+
+    /**
+     * 空几何的记录，占一个记录号但不进索引，也不影响总外包框
+     */
+    void addNull() {
+        put(Float.NaN, Float.NaN, Float.NaN, Float.NaN);
+    }
+
+    private void put(float x1, float y1, float x2, float y2) {
+        int offset = (size % CHUNK_RECORDS) * 4;
+        if (offset == 0) {
+            chunks.add(new float[CHUNK_RECORDS * 4]);
+        }
+        float[] chunk = chunks.get(chunks.size() - 1);
+        chunk[offset] = x1;
+        chunk[offset + 1] = y1;
+        chunk[offset + 2] = x2;
+        chunk[offset + 3] = y2;
+        size++;
+    }
+
+    boolean isNull(int index) {
+        return Float.isNaN(chunks.get(index / CHUNK_RECORDS)[(index % CHUNK_RECORDS) * 4]);
+    }
+
+    /**
+     * 第index条记录的外包框
+     */
+    Envelope get(int index) {
+        float[] chunk = chunks.get(index / CHUNK_RECORDS);
+        int offset = (index % CHUNK_RECORDS) * 4;
+        return new Envelope(chunk[offset], chunk[offset + 2], chunk[offset + 1], chunk[offset + 3]);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 全部记录的外包框（精确值），没有记录时为空的Envelope
+     */
+    Envelope getBounds() {
+        return size == 0 ? new Envelope() : new Envelope(minX, maxX, minY, maxY);
+    }
+
+    private static float down(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextDown(f) : f;
+    }
+
+    private static float up(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextUp(f) : f;
+    }
+}
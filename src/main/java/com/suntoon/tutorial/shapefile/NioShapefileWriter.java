@@ -0,0 +1,543 @@
+package com.suntoon.tutorial.shapefile;
+
+import com.suntoon.tutorial.metrics.Instrumentation;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.dbf.DbaseFileWriter;
+import org.geotools.data.shapefile.index.quadtree.QuadTree;
+import org.geotools.data.shapefile.index.quadtree.StoreException;
+import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
+import org.geotools.data.shapefile.index.quadtree.fs.IndexHeader;
+import org.geotools.data.shapefile.shp.JTSUtilities;
+import org.geotools.data.shapefile.shp.ShapeHandler;
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.geotools.feature.FeatureTypes;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @ProjectionName geotools_tutorial
+ * @ClassName NioShapefileWriter
+ * @Description 高吞吐量的shapefile写入：.shp/.shx/.dbf各用一个4MB的直接缓冲区顺序写入FileChannel，文件头在关闭时回填；
+ *              写入时记下每条记录的外包框，一个分卷写完就在后台线程里直接从内存建.qix空间索引，
+ *              不必像ShapefileDataStore那样提交后再完整读一遍.shp。
+ *              .shp或.dbf将超过2GB（shapefile的上限）时自动换到下一个分卷：name.shp、name_1.shp、name_2.shp……
+ *              只能追加写入，和ShapefileDataStore的AUTO_COMMIT写入一样，不支持事务；写入失败时调用abort()删除已写出的分卷。
+ *              和ShapefileDataStore一样按第一个非空几何的坐标维数决定是否写成带Z的类型（PointZ、PolygonZ……）。
+ *              不是线程安全的。
+ *              没有使用MappedByteBuffer：Java 8无法释放映射区，Windows上映射着的文件不能截断或删除
+ * @Author agent
+ * @Date 2026/10/17 0017上午 4:00
+ * @Version 1.0
+ */
+public class NioShapefileWriter implements FeatureWriter<SimpleFeatureType, SimpleFeature> {
+    /** 单个分卷.shp/.dbf的默认上限，可以用 -Dtutorial.shapefile.maxPartBytes 调小（例如测试换卷） */
+    public static final long MAX_PART_BYTES = Long.getLong("tutorial.shapefile.maxPartBytes", Integer.MAX_VALUE);
+
+    private static final int BUFFER_BYTES = 4 * 1024 * 1024;
+    private static final int HEADER_BYTES = 100;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int LEAF_SIZE = 16;
+    private static final AtomicInteger INDEX_THREADS = new AtomicInteger();
+    /** 一个分卷的全部文件 */
+    private static final String[] EXTENSIONS = {".shp", ".shx", ".dbf", ".prj", ".cpg", ".qix"};
+
+    private final File file;
+    private final SimpleFeatureType type;
+    private final Charset charset;
+    private final long maxPartBytes;
+    private ShapeType shapeType;
+    private ShapeHandler handler;
+    /** 是否已经按第一个非空几何确定了坐标维数 */
+    private boolean dimensionsKnown;
+    private final int geometryIndex;
+    private final int[] attributeIndexes;
+    private final DbaseFileHeader dbfHeader;
+    private final List<File> parts = new ArrayList<>();
+    private final List<Future<?>> indexes = new ArrayList<>();
+    private final ExecutorService indexExecutor;
+
+    private Part part;
+    private SimpleFeature current;
+    private long written;
+    private boolean closed;
+
+    public NioShapefileWriter(File file, SimpleFeatureType type) throws IOException {
+        this(file, type, StandardCharsets.ISO_8859_1, MAX_PART_BYTES);
+    }
+
+    /**
+     * @param file 输出的.shp文件，之后的分卷在同一目录下编号
+     * @param type 要素类型，几何类型必须是具体的Point、LineString、Polygon或它们的Multi类型
+     * @param charset .dbf中字符串的编码，同时写入.cpg
+     * @param maxPartBytes 单个分卷.shp/.dbf的最大字节数
+     */
+    public NioShapefileWriter(File file, SimpleFeatureType type, Charset charset, long maxPartBytes)
+            throws IOException {
+        GeometryDescriptor geometry = type.getGeometryDescriptor();
+        if (geometry == null) {
+            throw new IOException("Shapefiles need a geometry attribute: " + type.getTypeName());
+        }
+        this.shapeType = JTSUtilities.getShapeType(geometry.getType().getBinding());
+        if (shapeType == null || shapeType == ShapeType.UNDEFINED) {
+            throw new IOException("Cannot write " + geometry.getType().getBinding().getSimpleName()
+                    + " to a shapefile, use a specific geometry type");
+        }
+        this.file = file;
+        this.type = type;
+        this.charset = charset;
+        this.maxPartBytes = maxPartBytes;
+        this.handler = shapeType.getShapeHandler(JTSFactoryFinder.getGeometryFactory());
+        this.geometryIndex = type.indexOf(geometry.getLocalName());
+        this.dbfHeader = createDbaseHeader(type);
+
+        int[] indexes = new int[type.getAttributeCount() - 1];
+        for (int i = 0, j = 0; i < type.getAttributeCount(); i++) {
+            if (i != geometryIndex) {
+                indexes[j++] = i;
+            }
+        }
+        this.attributeIndexes = indexes;
+        this.indexExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "shapefile-index-" + INDEX_THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.part = openPart(file);
+    }
+
+    /**
+     * 和ShapefileDataStore.createSchema使用相同的字段映射
+     */
+    static DbaseFileHeader createDbaseHeader(SimpleFeatureType type) throws IOException {
+        DbaseFileHeader header = new DbaseFileHeader();
+        for (AttributeDescriptor descriptor : type.getAttributeDescriptors()) {
+            Class<?> binding = descriptor.getType().getBinding();
+            if (Geometry.class.isAssignableFrom(binding)) {
+                continue;
+            }
+            String name = descriptor.getLocalName();
+            int length = FeatureTypes.getFieldLength(descriptor);
+            if (length == FeatureTypes.ANY_LENGTH || length <= 0) {
+                length = 254;
+            }
+            if (binding == Integer.class || binding == Short.class || binding == Byte.class) {
+                header.addColumn(name, 'N', Math.min(length, 9), 0);
+            } else if (binding == Long.class) {
+                header.addColumn(name, 'N', Math.min(length, 19), 0);
+            } else if (binding == BigInteger.class) {
+                header.addColumn(name, 'N', Math.min(length, 33), 0);
+            } else if (Number.class.isAssignableFrom(binding)) {
+                int numberLength = Math.min(length, 33);
+                header.addColumn(name, 'N', numberLength, Math.max(numberLength - 2, 0));
+            } else if (Date.class.isAssignableFrom(binding) || Calendar.class.isAssignableFrom(binding)) {
+                header.addColumn(name, 'D', 8, 0);
+            } else if (binding == Boolean.class) {
+                header.addColumn(name, 'L', 1, 0);
+            } else if (CharSequence.class.isAssignableFrom(binding)) {
+                header.addColumn(name, 'C', Math.min(length, 254), 0);
+            } else {
+                throw new IOException("Unable to write column " + name + " : " + binding.getName());
+            }
+        }
+        return header;
+    }
+
+    @Override
+    public SimpleFeatureType getFeatureType() {
+        return type;
+    }
+
+    @Override
+    public SimpleFeature next() throws IOException {
+        if (closed) {
+            throw new IOException("Writer has been closed");
+        }
+        current = SimpleFeatureBuilder.build(type, new Object[type.getAttributeCount()],
+                type.getTypeName() + "." + (written + 1));
+        return current;
+    }
+
+    @Override
+    public void remove() throws IOException {
+        throw new UnsupportedOperationException("NioShapefileWriter only appends");
+    }
+
+    /**
+     * 启用了统计时按“图层名.write”记录每次写入，和数据存储返回的FeatureWriter一样，调用者不需要再包装
+     */
+    @Override
+    public void write() throws IOException {
+        if (current == null) {
+            throw new NoSuchElementException("write() without next()");
+        }
+        SimpleFeature feature = current;
+        long start = Instrumentation.start();
+        try {
+            append();
+        } catch (IOException | RuntimeException e) {
+            Instrumentation.recordError(type.getTypeName() + ".write");
+            throw e;
+        }
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.record(type.getTypeName() + ".write", start, 1, Instrumentation.estimateBytes(feature));
+        }
+    }
+
+    private void append() throws IOException {
+        Geometry geometry = (Geometry) current.getAttribute(geometryIndex);
+        if (geometry != null && geometry.isEmpty()) {
+            geometry = null;
+        }
+        if (geometry != null) {
+            if (!dimensionsKnown) {
+                detectDimensions(geometry);
+            }
+            geometry = JTSUtilities.convertToCollection(geometry, shapeType);
+        }
+        int content = geometry == null ? 4 : handler.getLength(geometry);
+        Object[] record = new Object[attributeIndexes.length];
+        for (int i = 0; i < record.length; i++) {
+            record[i] = current.getAttribute(attributeIndexes[i]);
+        }
+
+        if (part.records > 0 && (part.shp.position() + RECORD_HEADER_BYTES + content > maxPartBytes
+                || part.dbfLength() + dbfHeader.getRecordLength() > maxPartBytes)) {
+            finishPart();
+            part = openPart(partFile(parts.size()));
+        }
+        part.write(geometry, content, record);
+        written++;
+        current = null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return false;
+    }
+
+    /**
+     * 写完最后一个分卷的文件头，并等待所有分卷的空间索引建好
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long start = Instrumentation.start();
+        try {
+            finishPart();
+            for (Future<?> index : indexes) {
+                index.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while building the spatial index", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not build the spatial index", e.getCause());
+        } finally {
+            indexExecutor.shutdownNow();
+        }
+        Instrumentation.record(type.getTypeName() + ".writer.close", start, 0);
+    }
+
+    /**
+     * @Author agent
+     * @Description //放弃写入：关闭文件并删除已经写出的全部分卷，写入过程中出错时代替close()调用，在close()之后调用也会删除
+     * @Date 上午 4:32 2026/10/17 0017
+     */
+    public void abort() throws IOException {
+        IOException failure = null;
+        if (!closed) {
+            closed = true;
+            try {
+                part.discard();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        indexExecutor.shutdownNow();
+        try {
+            //等正在建的索引写完，否则.qix可能在删除之后才出现
+            indexExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (File shp : parts) {
+            for (String extension : EXTENSIONS) {
+                try {
+                    Files.deleteIfExists(sibling(shp, extension).toPath());
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 写入失败时调用abort()，删除文件时的错误附加到cause上，之后由调用者抛出cause
+     */
+    public void abort(Throwable cause) {
+        try {
+            abort();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * 已经写出的全部分卷的.shp文件
+     */
+    public List<File> getParts() {
+        return Collections.unmodifiableList(parts);
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * 第一个非空几何有Z值时改用对应的带Z的类型，和ShapefileDataStore按第一个几何猜坐标维数的做法一样
+     */
+    private void detectDimensions(Geometry geometry) {
+        dimensionsKnown = true;
+        if (JTSUtilities.guessCoorinateDims(geometry.getCoordinates()) < 3) {
+            return;
+        }
+        ShapeType z = withZ(shapeType);
+        if (z != shapeType) {
+            shapeType = z;
+            handler = shapeType.getShapeHandler(JTSFactoryFinder.getGeometryFactory());
+        }
+    }
+
+    private static ShapeType withZ(ShapeType type) {
+        if (type == ShapeType.POINT) {
+            return ShapeType.POINTZ;
+        } else if (type == ShapeType.MULTIPOINT) {
+            return ShapeType.MULTIPOINTZ;
+        } else if (type == ShapeType.ARC) {
+            return ShapeType.ARCZ;
+        } else if (type == ShapeType.POLYGON) {
+            return ShapeType.POLYGONZ;
+        }
+        return type;
+    }
+
+    private File partFile(int number) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot < 0 ? name : name.substring(0, dot);
+        return new File(file.getAbsoluteFile().getParentFile(), base + "_" + number + ".shp");
+    }
+
+    private Part openPart(File shp) throws IOException {
+        parts.add(shp);
+        writePrj(shp, type.getCoordinateReferenceSystem());
+        Files.write(sibling(shp, ".cpg").toPath(), charset.name().getBytes(StandardCharsets.US_ASCII));
+        return new Part(shp);
+    }
+
+    private void finishPart() throws IOException {
+        final Part finished = part;
+        finished.close();
+        if (finished.records > 0) {
+            indexes.add(indexExecutor.submit(() -> {
+                buildIndex(finished.envelopes, sibling(finished.file, ".qix"));
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * @Author agent
+     * @Description //用写入时记下的外包框建四叉树并保存为.qix，深度的选法和ShapeFileIndexer一样，每个叶子大约16条记录
+     * @Date 上午 4:00 2026/10/17 0017
+     * @param envelopes 按记录顺序的外包框
+     * @param qix 输出的索引文件
+     */
+    static void buildIndex(EnvelopeBuffer envelopes, File qix) throws StoreException {
+        Envelope bounds = envelopes.getBounds();
+        if (bounds.isNull()) {
+            return;    //全部是空几何
+        }
+        int count = envelopes.size();
+        int maxDepth = 1;
+        long nodes = 1;
+        while (nodes * LEAF_SIZE < count) {
+            maxDepth++;
+            nodes *= 4;
+        }
+        //不需要按记录号查.shx，所以不传IndexFile
+        QuadTree tree = new QuadTree(count, maxDepth, bounds, null);
+        for (int i = 0; i < count; i++) {
+            if (!envelopes.isNull(i)) {
+                tree.insert(i, envelopes.get(i));
+            }
+        }
+        new FileSystemIndexStore(qix, IndexHeader.NEW_MSB_ORDER).store(tree);
+    }
+
+    private static void writePrj(File shp, CoordinateReferenceSystem crs) throws IOException {
+        File prj = sibling(shp, ".prj");
+        if (crs == null) {
+            Files.deleteIfExists(prj.toPath());
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(prj.toPath(), StandardCharsets.ISO_8859_1)) {
+            writer.write(crs.toWKT());
+        }
+    }
+
+    private static File sibling(File shp, String extension) {
+        String name = shp.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(shp.getAbsoluteFile().getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + extension);
+    }
+
+    /**
+     * 一个分卷的三个文件和它的记录数、外包框
+     */
+    private class Part {
+        private final File file;
+        private final BufferedChannel shp;
+        private final BufferedChannel shx;
+        private final BufferedChannel dbf;
+        private final DbaseFileWriter dbfWriter;
+        private final EnvelopeBuffer envelopes = new EnvelopeBuffer();
+        private int records;
+
+        Part(File file) throws IOException {
+            this.file = file;
+            this.shp = new BufferedChannel(file.toPath(), BUFFER_BYTES);
+            this.shx = new BufferedChannel(sibling(file, ".shx").toPath(), BUFFER_BYTES / 4);
+            this.dbf = new BufferedChannel(sibling(file, ".dbf").toPath(), BUFFER_BYTES);
+            //文件头先占位，关闭时回填
+            shp.reserve(HEADER_BYTES, ByteOrder.BIG_ENDIAN).put(new byte[HEADER_BYTES]);
+            shx.reserve(HEADER_BYTES, ByteOrder.BIG_ENDIAN).put(new byte[HEADER_BYTES]);
+            dbfHeader.setNumRecords(0);
+            this.dbfWriter = new DbaseFileWriter(dbfHeader, dbf, charset);
+        }
+
+        /**
+         * 关闭后.dbf的长度，包括最后1字节的文件结束标记0x1A
+         */
+        long dbfLength() {
+            return dbfHeader.getHeaderLength() + (long) records * dbfHeader.getRecordLength() + 1;
+        }
+
+        void write(Geometry geometry, int content, Object[] record) throws IOException {
+            long offset = shp.position();
+            ByteBuffer buffer = shp.reserve(RECORD_HEADER_BYTES + content, ByteOrder.BIG_ENDIAN);
+            buffer.putInt(records + 1);
+            buffer.putInt(content / 2);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (geometry == null) {
+                buffer.putInt(ShapeType.NULL.id);
+                envelopes.addNull();
+            } else {
+                buffer.putInt(shapeType.id);
+                handler.write(buffer, geometry);
+                Envelope envelope = geometry.getEnvelopeInternal();
+                envelopes.add(envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY());
+            }
+
+            ByteBuffer index = shx.reserve(RECORD_HEADER_BYTES, ByteOrder.BIG_ENDIAN);
+            index.putInt((int) (offset / 2));
+            index.putInt(content / 2);
+
+            dbfWriter.write(record);
+            records++;
+        }
+
+        void close() throws IOException {
+            try {
+                Envelope bounds = envelopes.getBounds();
+                shp.writeAt(header(shp.position(), bounds), 0);
+                shx.writeAt(header(HEADER_BYTES + (long) records * RECORD_HEADER_BYTES, bounds), 0);
+                dbf.flush();
+                long end = dbf.position();
+                dbfHeader.setNumRecords(records);
+                dbf.getChannel().position(0);
+                dbfHeader.writeHeader(dbf.getChannel());
+                //回到记录的末尾，DbaseFileWriter关闭时在这里写文件结束标记
+                dbf.getChannel().position(end);
+                dbfWriter.close();
+            } finally {
+                discard();
+            }
+        }
+
+        /**
+         * 关闭全部文件，不再回填文件头；已经关闭的不受影响
+         */
+        void discard() throws IOException {
+            try {
+                shp.close();
+            } finally {
+                try {
+                    shx.close();
+                } finally {
+                    dbf.getChannel().close();
+                }
+            }
+        }
+
+        /**
+         * .shp和.shx共用的100字节文件头，文件长度以16位字为单位
+         */
+        private ByteBuffer header(long length, Envelope bounds) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+            header.putInt(9994);
+            header.position(24);
+            header.putInt((int) (length / 2));
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(1000);
+            header.putInt(shapeType.id);
+            boolean empty = bounds.isNull();
+            header.putDouble(empty ? 0 : bounds.getMinX());
+            header.putDouble(empty ? 0 : bounds.getMinY());
+            header.putDouble(empty ? 0 : bounds.getMaxX());
+            header.putDouble(empty ? 0 : bounds.getMaxY());
+            header.position(0);
+            return header;
+        }
+    }
+}
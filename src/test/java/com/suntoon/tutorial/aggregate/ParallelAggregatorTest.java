@@ -0,0 +1,73 @@
+package com.suntoon.tutorial.aggregate;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ParallelAggregator按瓦片分区时每个要素恰好统计一次，包括外包框左下角不在几何上的线和面
+ */
+public class ParallelAggregatorTest {
+    private SimpleFeatureSource source;
+
+    @Before
+    public void setUp() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("shapes", "the_geom:Geometry,value:Integer");
+        WKTReader reader = new WKTReader();
+        String[] geometries = {
+                "POINT (0 0)",
+                "POINT (10 10)",
+                //外包框左下角(0 0)所在的瓦片与这条线不相交
+                "LINESTRING (0 10, 10 0)",
+                //L形，沿上边和右边，左下角同样不在几何上
+                "POLYGON ((0 9, 0 10, 10 10, 10 0, 9 0, 9 9, 0 9))",
+                //正好压在瓦片的分界线上
+                "LINESTRING (5 1, 5 4)"
+        };
+        List<SimpleFeature> features = new ArrayList<>();
+        for (int i = 0; i < geometries.length; i++) {
+            features.add(SimpleFeatureBuilder.build(type, new Object[]{reader.read(geometries[i]), 1 << i},
+                    "shapes." + i));
+        }
+        source = DataUtilities.source(new ListFeatureCollection(type, features));
+    }
+
+    @Test
+    public void everyFeatureIsCountedOnce() throws Exception {
+        ParallelAggregator aggregator = new ParallelAggregator();
+        aggregator.setTilesPerSide(4);
+
+        CountVisitor count = aggregator.aggregate(source, Filter.INCLUDE, new CountVisitor(),
+                ParallelAggregator.Partitioning.SPATIAL_TILES, null);
+        assertEquals(5, count.getCount());
+
+        NumberStatsVisitor stats = aggregator.aggregate(source, Filter.INCLUDE, new NumberStatsVisitor("value"),
+                ParallelAggregator.Partitioning.SPATIAL_TILES, null);
+        assertEquals(5, stats.getCount());
+        assertEquals(31, stats.getSum(), 0);
+    }
+
+    @Test
+    public void tilesAgreeWithFidRanges() throws Exception {
+        ParallelAggregator aggregator = new ParallelAggregator();
+        aggregator.setTilesPerSide(7);
+        NumberStatsVisitor tiles = aggregator.aggregate(source, Filter.INCLUDE, new NumberStatsVisitor("value"),
+                ParallelAggregator.Partitioning.SPATIAL_TILES, null);
+        NumberStatsVisitor ranges = aggregator.aggregate(source, Filter.INCLUDE, new NumberStatsVisitor("value"),
+                ParallelAggregator.Partitioning.FID_RANGE, null);
+        assertEquals(ranges.getCount(), tiles.getCount());
+        assertEquals(ranges.getSum(), tiles.getSum(), 0);
+    }
+}
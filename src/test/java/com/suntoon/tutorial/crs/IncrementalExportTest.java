@@ -0,0 +1,153 @@
+package com.suntoon.tutorial.crs;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.FileDataStoreFinder;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * IncrementalExport的新增、修改和删除：增量导出的输出与按源数据逐个转换的结果一致
+ */
+public class IncrementalExportTest {
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SimpleFeatureType type;
+    private CoordinateReferenceSystem target;
+    private File output;
+    /** 源数据，键为code */
+    private final Map<String, Object[]> rows = new LinkedHashMap<>();
+
+    @Before
+    public void setUp() throws Exception {
+        //description超过10个字符，在.dbf中被截断为descriptio
+        type = SimpleFeatureTypeBuilder.retype(DataUtilities.createType("sites",
+                "the_geom:Point,code:String,value:Integer,description:String"), DefaultGeographicCRS.WGS84);
+        target = CRS.decode("EPSG:3857");
+        output = new File(folder.getRoot(), "sites.shp");
+        for (int i = 0; i < 100; i++) {
+            rows.put("c" + i, new Object[]{point(i * 0.1, 30 + i * 0.05), "c" + i, i, "site number " + i});
+        }
+    }
+
+    private static Point point(double x, double y) {
+        return FACTORY.createPoint(new Coordinate(x, y));
+    }
+
+    private SimpleFeatureSource source() {
+        List<SimpleFeature> features = new ArrayList<>();
+        for (Object[] row : rows.values()) {
+            features.add(SimpleFeatureBuilder.build(type, row, null));
+        }
+        return DataUtilities.source(new ListFeatureCollection(type, features));
+    }
+
+    private IncrementalExport.Result export() throws Exception {
+        IncrementalExport export = new IncrementalExport(target, 0, 2);
+        export.setKeyAttribute("code");
+        return export.export(source(), output);
+    }
+
+    /**
+     * 输出按记录顺序与rows逐个比较：属性按名对应，几何与逐个转换的结果一致
+     */
+    private void assertOutput() throws Exception {
+        MathTransform transform = CRS.findMathTransform(DefaultGeographicCRS.WGS84, target, true);
+        List<Object[]> expected = new ArrayList<>(rows.values());
+        FileDataStore store = FileDataStoreFinder.getDataStore(output);
+        try (SimpleFeatureIterator features = store.getFeatureSource().getFeatures().features()) {
+            int i = 0;
+            while (features.hasNext()) {
+                SimpleFeature feature = features.next();
+                Object[] row = expected.get(i++);
+                Point point = (Point) JTS.transform((Point) row[0], transform);
+                Point actual = (Point) feature.getDefaultGeometry();
+                assertEquals(point.getX(), actual.getX(), 1e-6);
+                assertEquals(point.getY(), actual.getY(), 1e-6);
+                assertEquals(row[1], feature.getAttribute("code"));
+                assertEquals(row[2], ((Number) feature.getAttribute("value")).intValue());
+                assertEquals(row[3], feature.getAttribute("descriptio"));
+            }
+            assertEquals(expected.size(), i);
+        } finally {
+            store.dispose();
+        }
+    }
+
+    @Test
+    public void firstExportIsFull() throws Exception {
+        IncrementalExport.Result result = export();
+        assertTrue(result.isFull());
+        assertEquals(100, result.getWritten());
+        assertTrue(new File(folder.getRoot(), "sites.manifest").exists());
+        assertOutput();
+    }
+
+    @Test
+    public void insertUpdateAndDelete() throws Exception {
+        export();
+        rows.get("c10")[0] = point(50, 10);
+        rows.get("c10")[2] = -10;
+        rows.remove("c20");
+        rows.put("new", new Object[]{point(1, 1), "new", 1000, "inserted site"});
+
+        IncrementalExport.Result result = export();
+        assertFalse(result.isFull());
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getDeleted());
+        assertEquals(98, result.getUnchanged());
+        //新增的要素追加在最后，其余保持上一次的顺序
+        assertOutput();
+
+        //没有变化时不改写输出
+        long modified = output.lastModified();
+        result = export();
+        assertFalse(result.isFull());
+        assertEquals(0, result.getInserted() + result.getUpdated() + result.getDeleted());
+        assertEquals(100, result.getUnchanged());
+        assertEquals(modified, output.lastModified());
+        assertOutput();
+    }
+
+    @Test
+    public void changedOutputForcesFullExport() throws Exception {
+        export();
+        new File(folder.getRoot(), "sites.manifest").delete();
+        rows.remove("c0");
+        IncrementalExport.Result result = export();
+        assertTrue(result.isFull());
+        assertEquals(99, result.getWritten());
+        assertOutput();
+    }
+}
@@ -0,0 +1,175 @@
+package com.suntoon.tutorial.feature;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * CsvPointParser的数值解析与Double.parseDouble/Integer.parseInt一致，引号字段和空白行按csv的规则处理
+ */
+public class CsvPointParserTest {
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double parseDouble(String text) {
+        ByteBuffer buffer = bytes(text);
+        return CsvPointParser.parseDouble(buffer, 0, buffer.limit());
+    }
+
+    private static int parseInt(String text) {
+        ByteBuffer buffer = bytes(text);
+        return CsvPointParser.parseInt(buffer, 0, buffer.limit());
+    }
+
+    @Test
+    public void doublesMatchDoubleParseDouble() {
+        String[] values = {"0", "-0", "0.0", "-0.5", "+12.25", "1e3", "1.5E-7", "2.5e+10", "0.1", "0.3",
+                "3.141592653589793", "-180", "179.99999999", ".5", "5.", "123456789012345678901",
+                "0.000000000000000000000001", "1e22", "1e23", "1e-22", "1e-23", "9007199254740993",
+                "1e400", "1e-400", "00012.5000"};
+        for (String value : values) {
+            assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+                    Double.doubleToLongBits(parseDouble(value)));
+        }
+    }
+
+    @Test
+    public void randomCoordinatesMatchDoubleParseDouble() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            double coordinate = (random.nextDouble() - 0.5) * 360;
+            String[] values = {
+                    String.format(Locale.ROOT, "%.6f", coordinate),
+                    String.format(Locale.ROOT, "%.12f", coordinate),
+                    Double.toString(coordinate),
+                    Double.toString(coordinate * 1e-9)
+            };
+            for (String value : values) {
+                assertEquals(value, Double.parseDouble(value), parseDouble(value), 0);
+            }
+        }
+    }
+
+    @Test
+    public void surroundingSpacesAreIgnored() {
+        assertEquals(45.67, parseDouble("  45.67 \t"), 0);
+        assertEquals(-7, parseInt(" -7 "));
+    }
+
+    @Test
+    public void malformedDoublesFailLikeDoubleParseDouble() {
+        for (String value : new String[]{"", "-", "abc", "1.2.3", "1e", "12x"}) {
+            try {
+                parseDouble(value);
+                fail(value);
+            } catch (NumberFormatException expected) {
+                //和Double.parseDouble一样
+            }
+        }
+    }
+
+    @Test
+    public void intsMatchIntegerParseInt() {
+        for (String value : new String[]{"0", "42", "+3", "-15", "2147483647", "-2147483648", "007"}) {
+            assertEquals(value, Integer.parseInt(value), parseInt(value));
+        }
+        for (String value : new String[]{"", "-", "12a", "1.5", "2147483648", "-2147483649", "99999999999"}) {
+            try {
+                parseInt(value);
+                fail(value);
+            } catch (NumberFormatException expected) {
+                //和Integer.parseInt一样
+            }
+        }
+    }
+
+    @Test
+    public void quotedFieldsBlankLinesAndCrLf() {
+        CsvPointParser parser = new CsvPointParser(bytes("lat,lon,name,number\r\n"
+                + "10.5,20.25,\"Smith, John\",7\r\n"
+                + "\n"
+                + "   \r\n"
+                + "-1e-3,  4 ,  plain name  ,  -12\n"
+                + "\"1.5\",\"2.5\",\"say \"\"hi\"\"\",\"3\"\n"
+                + "30,120,\"北京\",8"), new CsvColumnMapping());
+        assertEquals("lat,lon,name,number", parser.skipLine());
+
+        assertTrue(parser.next());
+        assertEquals(10.5, parser.getLatitude(), 0);
+        assertEquals(20.25, parser.getLongitude(), 0);
+        assertEquals("Smith, John", parser.getName());
+        assertEquals(7, parser.getNumber());
+
+        assertTrue(parser.next());
+        assertEquals(-0.001, parser.getLatitude(), 0);
+        assertEquals(4, parser.getLongitude(), 0);
+        assertEquals("plain name", parser.getName());
+        assertEquals(-12, parser.getNumber());
+
+        assertTrue(parser.next());
+        assertEquals(1.5, parser.getLatitude(), 0);
+        assertEquals(2.5, parser.getLongitude(), 0);
+        assertEquals("say \"hi\"", parser.getName());
+        assertEquals(3, parser.getNumber());
+
+        assertTrue(parser.next());
+        assertEquals("北京", parser.getName());
+        assertEquals(8, parser.getNumber());
+
+        assertFalse(parser.next());
+        assertEquals(4, parser.getRecordCount());
+    }
+
+    @Test
+    public void mappingSelectsColumnsAndDelimiter() {
+        CsvColumnMapping mapping = CsvColumnMapping.parse("lat=2,lon=0,name=-1,number=3,delimiter=tab");
+        CsvPointParser parser = new CsvPointParser(bytes("116.4\tignored, not a delimiter\t39.9\t11\textra\n"),
+                mapping);
+        assertTrue(parser.next());
+        assertEquals(39.9, parser.getLatitude(), 0);
+        assertEquals(116.4, parser.getLongitude(), 0);
+        assertNull(parser.getName());
+        assertEquals(11, parser.getNumber());
+        assertFalse(parser.next());
+    }
+
+    @Test
+    public void mappingAcceptsNamedDelimiters() {
+        assertEquals(',', CsvColumnMapping.parse("delimiter=comma").getDelimiter());
+        assertEquals(';', CsvColumnMapping.parse("lat=1,delimiter=semicolon,lon=0").getDelimiter());
+        assertEquals('|', CsvColumnMapping.parse("delimiter=pipe").getDelimiter());
+        assertEquals(':', CsvColumnMapping.parse("delimiter=:").getDelimiter());
+    }
+
+    @Test
+    public void unusableDelimitersAreRejected() {
+        for (String spec : new String[]{"delimiter=", "delimiter=,", "delimiter=tabs", "delimiter=；"}) {
+            try {
+                CsvColumnMapping.parse(spec);
+                fail(spec);
+            } catch (IllegalArgumentException expected) {
+                //描述中写不出的分隔符给出明确的错误
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingColumnsAreRejected() {
+        new CsvPointParser(bytes("1.0,2.0\n"), new CsvColumnMapping()).next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unterminatedQuoteIsRejected() {
+        new CsvPointParser(bytes("1.0,2.0,\"open,5\n"), new CsvColumnMapping()).next();
+    }
+}
@@ -0,0 +1,180 @@
+package com.suntoon.tutorial.filter;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.text.cql2.CQL;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 优化、拆分后的过滤条件与原始过滤条件的Filter.evaluate结果一致，尤其是线和面上的BBOX
+ */
+public class CompiledFilterTest {
+    private static final String[] FILTERS = {
+            "BBOX(the_geom, 0, 0, 2, 2) AND BBOX(the_geom, 1, 1, 3, 3)",
+            "BBOX(the_geom, 0, 0, 1, 1) AND BBOX(the_geom, 5, 5, 6, 6)",
+            "BBOX(the_geom, 0, 0, 6, 6) AND BBOX(the_geom, 2, 2, 9, 9) AND number > 20",
+            "INTERSECTS(the_geom, POLYGON((1 1, 8 1, 8 8, 1 8, 1 1))) AND name = 'f3'",
+            "CONTAINS(the_geom, POINT(5 5))",
+            "WITHIN(the_geom, POLYGON((0 0, 10 0, 10 10, 0 10, 0 0)))",
+            "DISJOINT(the_geom, POLYGON((4 4, 6 4, 6 6, 4 6, 4 4)))",
+            "TOUCHES(the_geom, POLYGON((0 0, 5 0, 5 5, 0 5, 0 0))) OR number < 5",
+            "NOT INTERSECTS(the_geom, LINESTRING(0 10, 10 0)) AND 1 + 1 = 2",
+            "BBOX(the_geom, 2, 2, 7, 7) AND INTERSECTS(the_geom, POLYGON((3 3, 9 3, 9 9, 3 9, 3 3)))"
+    };
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    private static SimpleFeatureType type(String geometry) throws Exception {
+        return DataUtilities.createType("shapes", "the_geom:" + geometry + ",name:String,number:Integer");
+    }
+
+    private static SimpleFeature feature(SimpleFeatureType type, Geometry geometry, int i) {
+        return SimpleFeatureBuilder.build(type, new Object[]{geometry, "f" + (i % 5), i}, "shapes." + i);
+    }
+
+    /**
+     * 随机的折线和三角形，包括跨过两个BBOX却不经过它们交集的L形线
+     */
+    private List<SimpleFeature> shapes(SimpleFeatureType type, boolean polygons) throws Exception {
+        List<SimpleFeature> features = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            Coordinate a = new Coordinate(random.nextDouble() * 10, random.nextDouble() * 10);
+            Coordinate b = new Coordinate(random.nextDouble() * 10, random.nextDouble() * 10);
+            Coordinate c = new Coordinate(random.nextDouble() * 10, random.nextDouble() * 10);
+            Geometry geometry = polygons
+                    ? factory.createPolygon(new Coordinate[]{a, b, c, new Coordinate(a)})
+                    : factory.createLineString(new Coordinate[]{a, b, c});
+            features.add(feature(type, geometry, i));
+        }
+        WKTReader reader = new WKTReader(factory);
+        features.add(feature(type, reader.read(polygons
+                ? "POLYGON((0.5 0.5, 2.8 0.5, 2.8 2.8, 2.6 2.8, 2.6 0.7, 0.5 0.7, 0.5 0.5))"
+                : "LINESTRING(0.5 0.5, 2.8 0.5, 2.8 2.8)"), 1000));
+        features.add(feature(type, reader.read(polygons
+                ? "POLYGON((0.5 0.5, 5.5 5.5, 5.6 5.4, 0.6 0.4, 0.5 0.5))"
+                : "LINESTRING(0.5 0.5, 5.5 5.5)"), 1001));
+        return features;
+    }
+
+    private static void assertSameResults(SimpleFeatureType type, List<SimpleFeature> features) throws Exception {
+        for (String cql : FILTERS) {
+            Filter original = CQL.toFilter(cql);
+            CompiledFilter compiled = CompiledFilter.compile(original, type);
+            for (SimpleFeature feature : features) {
+                boolean expected = original.evaluate(feature);
+                String message = cql + " on " + feature.getDefaultGeometry();
+                assertEquals(message, expected, compiled.evaluate(feature));
+                assertEquals(message, expected, compiled.getFilter().evaluate(feature));
+                assertEquals(message, expected,
+                        compiled.getPrefilter().evaluate(feature) && compiled.evaluateResidual(feature));
+            }
+        }
+    }
+
+    @Test
+    public void linesAgreeWithEvaluate() throws Exception {
+        SimpleFeatureType type = type("LineString");
+        assertSameResults(type, shapes(type, false));
+    }
+
+    @Test
+    public void polygonsAgreeWithEvaluate() throws Exception {
+        SimpleFeatureType type = type("Polygon");
+        assertSameResults(type, shapes(type, true));
+    }
+
+    @Test
+    public void pointsAgreeWithEvaluate() throws Exception {
+        SimpleFeatureType type = type("Point");
+        List<SimpleFeature> features = new ArrayList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            Coordinate point = new Coordinate(random.nextDouble() * 10, random.nextDouble() * 10);
+            features.add(feature(type, factory.createPoint(point), i));
+        }
+        assertSameResults(type, features);
+    }
+
+    /**
+     * 有residual时逐页读取（包括倒回去重读前面的页）和计数，结果与一次读完相同
+     */
+    @Test
+    public void residualPagesAgreeWithFullScan() throws Exception {
+        SimpleFeatureType type = type("Polygon");
+        List<SimpleFeature> features = shapes(type, true);
+        Filter original = CQL.toFilter(FILTERS[3]);
+        CompiledFilterFeatureSource source = new CompiledFilterFeatureSource(
+                DataUtilities.source(features.toArray(new SimpleFeature[0])), CompiledFilter.compile(original, type));
+        List<String> expected = new ArrayList<>();
+        for (SimpleFeature feature : features) {
+            if (original.evaluate(feature)) {
+                expected.add(feature.getID());
+            }
+        }
+        assertTrue(expected.size() > 10);
+        int[] starts = {0, 7, 14, 7, 21, 0, 28, 35, 42};
+        for (int start : starts) {
+            Query page = new Query();
+            page.setStartIndex(start);
+            page.setMaxFeatures(7);
+            List<String> ids = new ArrayList<>();
+            try (SimpleFeatureIterator iterator = source.getFeatures(page).features()) {
+                while (iterator.hasNext()) {
+                    ids.add(iterator.next().getID());
+                }
+            }
+            assertEquals(expected.subList(Math.min(start, expected.size()),
+                    Math.min(start + 7, expected.size())), ids);
+            assertEquals(ids.size(), source.getCount(page));
+        }
+        assertEquals(expected.size(), source.getCount(Query.ALL));
+    }
+
+    @Test
+    public void disjointBoxesOnLinesAreNotExcluded() throws Exception {
+        Filter filter = CQL.toFilter("BBOX(the_geom, 0, 0, 1, 1) AND BBOX(the_geom, 5, 5, 6, 6)");
+        CompiledFilter compiled = CompiledFilter.compile(filter, type("LineString"));
+        assertNotEquals(Filter.EXCLUDE, compiled.getFilter());
+        assertNotEquals(Filter.EXCLUDE, compiled.getPrefilter());
+    }
+
+    @Test
+    public void disjointBoxesOnPointsAreExcluded() throws Exception {
+        Filter filter = CQL.toFilter("BBOX(the_geom, 0, 0, 1, 1) AND BBOX(the_geom, 5, 5, 6, 6)");
+        assertEquals(Filter.EXCLUDE, CompiledFilter.compile(filter, type("Point")).getFilter());
+    }
+
+    @Test
+    public void boxesAreKeptWithoutSchema() throws Exception {
+        Filter filter = CQL.toFilter("BBOX(the_geom, 0, 0, 1, 1) AND BBOX(the_geom, 5, 5, 6, 6)");
+        assertNotEquals(Filter.EXCLUDE, CompiledFilter.compile(filter).getFilter());
+    }
+
+    @Test
+    public void compilerCachesPerPointProperties() throws Exception {
+        FilterCompiler compiler = new FilterCompiler(16);
+        String cql = "BBOX(the_geom, 0, 0, 1, 1) AND BBOX(the_geom, 5, 5, 6, 6)";
+        assertEquals(Filter.EXCLUDE, compiler.compile(cql, type("Point")).getFilter());
+        assertNotEquals(Filter.EXCLUDE, compiler.compile(cql, type("LineString")).getFilter());
+        assertTrue(compiler.compile(cql, type("Point")) == compiler.compile(" " + cql, type("Point")));
+        assertEquals(2, compiler.getMisses());
+    }
+}
@@ -0,0 +1,104 @@
+package com.suntoon.tutorial.filter;
+
+import com.suntoon.tutorial.shapefile.NioShapefileWriter;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.FileDataStoreFinder;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.filter.text.cql2.CQL;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * FeatureCounter的各条计数路径与逐个要素计算Filter.evaluate的结果一致
+ */
+public class FeatureCounterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File shapefile;
+    private FileDataStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("points", "the_geom:Point,id:Integer,name:String");
+        shapefile = new File(folder.getRoot(), "points.shp");
+        GeometryFactory factory = new GeometryFactory();
+        try (NioShapefileWriter writer = new NioShapefileWriter(shapefile, type)) {
+            for (int i = 0; i < 100; i++) {
+                for (int j = 0; j < 100; j++) {
+                    SimpleFeature feature = writer.next();
+                    feature.setAttribute("the_geom", factory.createPoint(new Coordinate(i + 0.5, j + 0.5)));
+                    feature.setAttribute("id", i * 100 + j);
+                    feature.setAttribute("name", "p" + (i % 7));
+                    writer.write();
+                }
+            }
+        }
+        store = FileDataStoreFinder.getDataStore(shapefile);
+    }
+
+    @After
+    public void tearDown() {
+        store.dispose();
+    }
+
+    private long expected(Filter filter) throws Exception {
+        long count = 0;
+        try (SimpleFeatureIterator iterator = store.getFeatureSource().getFeatures().features()) {
+            while (iterator.hasNext()) {
+                if (filter.evaluate(iterator.next())) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void includeUsesGetCount() throws Exception {
+        FeatureCounter.Result result = new FeatureCounter(store, shapefile).count("points", Filter.INCLUDE);
+        assertEquals(FeatureCounter.Path.GET_COUNT, result.getPath());
+        assertEquals(10000, result.getCount());
+    }
+
+    @Test
+    public void bboxOnPointsUsesIndexAndCountsOnlyPointsInside() throws Exception {
+        //范围不与网格对齐，四叉树叶子中一定有范围外的候选点
+        Filter filter = CQL.toFilter("BBOX(the_geom, 10.2, 20.7, 35.1, 41.3)");
+        FeatureCounter.Result result = new FeatureCounter(store, shapefile).count("points", filter);
+        assertEquals(FeatureCounter.Path.SPATIAL_INDEX, result.getPath());
+        assertEquals(expected(filter), result.getCount());
+    }
+
+    @Test
+    public void residualFilterUsesParallelScan() throws Exception {
+        Filter filter = CQL.toFilter("name = 'p3' AND INTERSECTS(the_geom, POLYGON((0 0, 60 0, 0 60, 0 0)))");
+        FeatureCounter.Result result = new FeatureCounter(store, shapefile, 3).count("points", filter);
+        assertEquals(FeatureCounter.Path.PARALLEL_SCAN, result.getPath());
+        assertEquals(expected(filter), result.getCount());
+    }
+
+    @Test
+    public void secondCountComesFromCache() throws Exception {
+        Filter filter = CQL.toFilter("BBOX(the_geom, 0, 0, 50, 50)");
+        FeatureCounter counter = new FeatureCounter(store, shapefile);
+        long first = counter.count("points", filter).getCount();
+        FeatureCounter.Result second = counter.count("points", filter);
+        assertEquals(FeatureCounter.Path.CACHE, second.getPath());
+        assertEquals(first, second.getCount());
+        assertEquals(expected(filter), second.getCount());
+    }
+}
@@ -0,0 +1,152 @@
+package com.suntoon.tutorial.filter;
+
+import com.suntoon.tutorial.shapefile.NioShapefileWriter;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.FileDataStoreFinder;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.filter.text.cql2.CQL;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * QueryResultCache的加载、命中和失效：修改只丢弃范围相交的结果，别处改动文件时丢弃整个图层，
+ * 事务中未提交的修改不影响缓存
+ */
+public class QueryResultCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File shapefile;
+    private FileDataStore store;
+    /** 在调用线程上加载，getFeatures返回时结果已经在缓存中 */
+    private final QueryResultCache cache = new QueryResultCache(1 << 24, Runnable::run);
+    private SimpleFeatureSource source;
+    private Query near;
+    private Query far;
+
+    @Before
+    public void setUp() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("points", "the_geom:Point,id:Integer");
+        shapefile = new File(folder.getRoot(), "points.shp");
+        GeometryFactory factory = new GeometryFactory();
+        try (NioShapefileWriter writer = new NioShapefileWriter(shapefile, type)) {
+            for (int i = 0; i < 10; i++) {
+                for (int j = 0; j < 10; j++) {
+                    SimpleFeature feature = writer.next();
+                    feature.setAttribute("the_geom", factory.createPoint(new Coordinate(i + 0.5, j + 0.5)));
+                    feature.setAttribute("id", i * 10 + j);
+                    writer.write();
+                }
+            }
+        }
+        store = FileDataStoreFinder.getDataStore(shapefile);
+        source = cache.wrap(store, store.getFeatureSource(), shapefile);
+        near = new Query("points", CQL.toFilter("BBOX(the_geom, 0, 0, 4, 4)"));
+        near.setMaxFeatures(5);
+        far = new Query("points", CQL.toFilter("BBOX(the_geom, 6, 6, 10, 10)"));
+    }
+
+    @After
+    public void tearDown() {
+        store.dispose();
+    }
+
+    private List<SimpleFeature> read(Query query) throws Exception {
+        return DataUtilities.list(source.getFeatures(query));
+    }
+
+    @Test
+    public void firstPageComesFromTheSourceAndLaterPagesFromTheCache() throws Exception {
+        List<SimpleFeature> first = read(near);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        List<SimpleFeature> second = read(near);
+        assertEquals(1, cache.getHits());
+        assertEquals(5, second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getID(), second.get(i).getID());
+        }
+
+        //计数只查缓存，不计入命中和未命中
+        assertEquals(5, source.getCount(near));
+        assertEquals(16, source.getCount(new Query("points", near.getFilter())));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void modificationDropsOnlyIntersectingResults() throws Exception {
+        read(near);
+        read(far);
+        ((SimpleFeatureStore) store.getFeatureSource()).modifyFeatures("id", -1, CQL.toFilter("id = 99"));
+        long misses = cache.getMisses();
+
+        read(near);
+        assertEquals(misses, cache.getMisses());
+        read(far);
+        assertEquals(misses + 1, cache.getMisses());
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    public void externalChangeDropsTheLayer() throws Exception {
+        read(near);
+        read(far);
+        long misses = cache.getMisses();
+        shapefile.setLastModified(shapefile.lastModified() + 10000);
+
+        read(near);
+        read(far);
+        assertEquals(misses + 2, cache.getMisses());
+        assertEquals(2, cache.getInvalidations());
+    }
+
+    @Test
+    public void onlyCommittedChangesInvalidate() throws Exception {
+        read(near);
+        long misses = cache.getMisses();
+        try (Transaction transaction = new DefaultTransaction("edit")) {
+            SimpleFeatureStore editor = (SimpleFeatureStore) store.getFeatureSource();
+            editor.setTransaction(transaction);
+            editor.modifyFeatures("id", -1, CQL.toFilter("id = 0"));
+
+            read(near);
+            assertEquals(misses, cache.getMisses());
+
+            transaction.commit();
+        }
+        read(near);
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    public void releaseDropsTheStore() throws Exception {
+        read(near);
+        read(near);
+        long misses = cache.getMisses();
+        cache.release(store);
+
+        source = cache.wrap(store, store.getFeatureSource(), shapefile);
+        read(near);
+        assertEquals(misses + 1, cache.getMisses());
+        assertEquals(0, cache.getInvalidations());
+    }
+}
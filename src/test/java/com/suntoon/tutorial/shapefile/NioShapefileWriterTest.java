@@ -0,0 +1,191 @@
+package com.suntoon.tutorial.shapefile;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.FileDataStoreFinder;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * NioShapefileWriter写出的文件能被ShapefileDataStore完整读回：属性、几何、Z值和分卷
+ */
+public class NioShapefileWriterTest {
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void polygonsAndAttributesRoundTrip() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("parcels",
+                "the_geom:Polygon,id:Integer,name:String,area:Double");
+        File shapefile = new File(folder.getRoot(), "parcels.shp");
+        List<Geometry> geometries = new ArrayList<>();
+        try (NioShapefileWriter writer = new NioShapefileWriter(shapefile, type)) {
+            for (int i = 0; i < 500; i++) {
+                Geometry polygon = FACTORY.toGeometry(new Envelope(i, i + 0.5, -i, 1 - i));
+                geometries.add(polygon);
+                SimpleFeature feature = writer.next();
+                feature.setAttribute("the_geom", polygon);
+                feature.setAttribute("id", i);
+                feature.setAttribute("name", "parcel, \"" + i + "\"");
+                feature.setAttribute("area", i * 0.25);
+                writer.write();
+            }
+        }
+        assertEquals(5, shapeType(shapefile));
+
+        FileDataStore store = FileDataStoreFinder.getDataStore(shapefile);
+        try (SimpleFeatureIterator features = store.getFeatureSource().getFeatures().features()) {
+            int i = 0;
+            while (features.hasNext()) {
+                SimpleFeature feature = features.next();
+                assertTrue(geometries.get(i).equalsTopo((Geometry) feature.getDefaultGeometry()));
+                assertEquals(i, ((Number) feature.getAttribute("id")).intValue());
+                assertEquals("parcel, \"" + i + "\"", feature.getAttribute("name"));
+                assertEquals(i * 0.25, ((Number) feature.getAttribute("area")).doubleValue(), 1e-9);
+                i++;
+            }
+            assertEquals(500, i);
+        } finally {
+            store.dispose();
+        }
+    }
+
+    @Test
+    public void dbfEndsWithEofMarker() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("points", "the_geom:Point,name:String");
+        File shapefile = new File(folder.getRoot(), "points.shp");
+        try (NioShapefileWriter writer = new NioShapefileWriter(shapefile, type)) {
+            for (int i = 0; i < 10; i++) {
+                SimpleFeature feature = writer.next();
+                feature.setAttribute("the_geom", FACTORY.createPoint(new Coordinate(i, i)));
+                feature.setAttribute("name", "p" + i);
+                writer.write();
+            }
+        }
+        byte[] dbf = Files.readAllBytes(new File(folder.getRoot(), "points.dbf").toPath());
+        ByteBuffer header = ByteBuffer.wrap(dbf).order(ByteOrder.LITTLE_ENDIAN);
+        int records = header.getInt(4);
+        int headerLength = header.getShort(8);
+        int recordLength = header.getShort(10);
+        assertEquals(10, records);
+        assertEquals(headerLength + records * recordLength + 1, dbf.length);
+        assertEquals(0x1A, dbf[dbf.length - 1]);
+        assertArrayEquals("ISO-8859-1".getBytes(StandardCharsets.US_ASCII),
+                Files.readAllBytes(new File(folder.getRoot(), "points.cpg").toPath()));
+    }
+
+    @Test
+    public void zValuesAreDetectedFromTheData() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("lines", "the_geom:LineString,id:Integer");
+        File shapefile = new File(folder.getRoot(), "lines.shp");
+        try (NioShapefileWriter writer = new NioShapefileWriter(shapefile, type)) {
+            for (int i = 0; i < 20; i++) {
+                SimpleFeature feature = writer.next();
+                feature.setAttribute("the_geom", FACTORY.createLineString(new Coordinate[]{
+                        new Coordinate(i, 0, 100 + i), new Coordinate(i, 1, 200 + i)}));
+                feature.setAttribute("id", i);
+                writer.write();
+            }
+        }
+        assertEquals(13, shapeType(shapefile));    //ArcZ
+
+        FileDataStore store = FileDataStoreFinder.getDataStore(shapefile);
+        try (SimpleFeatureIterator features = store.getFeatureSource().getFeatures().features()) {
+            int i = 0;
+            while (features.hasNext()) {
+                Coordinate[] coordinates = ((Geometry) features.next().getDefaultGeometry()).getCoordinates();
+                assertEquals(100 + i, coordinates[0].getZ(), 0);
+                assertEquals(200 + i, coordinates[1].getZ(), 0);
+                i++;
+            }
+            assertEquals(20, i);
+        } finally {
+            store.dispose();
+        }
+    }
+
+    @Test
+    public void partsAreReadableShapefiles() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("points", "the_geom:Point,id:Integer");
+        File shapefile = new File(folder.getRoot(), "points.shp");
+        List<File> parts;
+        try (NioShapefileWriter writer = new NioShapefileWriter(shapefile, type, StandardCharsets.ISO_8859_1,
+                10000)) {
+            for (int i = 0; i < 2000; i++) {
+                SimpleFeature feature = writer.next();
+                feature.setAttribute("the_geom", FACTORY.createPoint(new Coordinate(i, -i)));
+                feature.setAttribute("id", i);
+                writer.write();
+            }
+            parts = new ArrayList<>(writer.getParts());
+        }
+        assertTrue(parts.size() > 1);
+        int next = 0;
+        for (File part : parts) {
+            assertTrue(part.length() <= 10000);
+            FileDataStore store = FileDataStoreFinder.getDataStore(part);
+            try (SimpleFeatureIterator features = store.getFeatureSource().getFeatures().features()) {
+                while (features.hasNext()) {
+                    assertEquals(next++, ((Number) features.next().getAttribute("id")).intValue());
+                }
+            } finally {
+                store.dispose();
+            }
+        }
+        assertEquals(2000, next);
+    }
+
+    @Test
+    public void abortDeletesEveryPart() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("points", "the_geom:Point,id:Integer");
+        File shapefile = new File(folder.getRoot(), "points.shp");
+        NioShapefileWriter writer = new NioShapefileWriter(shapefile, type, StandardCharsets.ISO_8859_1, 10000);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                SimpleFeature feature = writer.next();
+                feature.setAttribute("the_geom", FACTORY.createPoint(new Coordinate(i, -i)));
+                feature.setAttribute("id", i);
+                writer.write();
+            }
+            throw new IOException("simulated failure");
+        } catch (IOException e) {
+            writer.abort(e);
+            assertEquals(0, e.getSuppressed().length);
+        }
+        assertTrue(writer.getParts().size() > 1);
+        assertEquals(0, folder.getRoot().list().length);
+        assertFalse(shapefile.exists());
+    }
+
+    /**
+     * .shp文件头中的几何类型
+     */
+    private static int shapeType(File shp) throws IOException {
+        byte[] header = Files.readAllBytes(shp.toPath());
+        return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt(32);
+    }
+}